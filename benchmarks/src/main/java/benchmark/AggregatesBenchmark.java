@@ -0,0 +1,88 @@
+package benchmark;
+
+import model.CategoryStatistics;
+import model.Product;
+import model.Warehouse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stock and value of one category summed by scanning catalogue against reading kept aggregates, and what keeping
+ * them costs every update
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AggregatesBenchmark {
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    @Param({"false", "true"})
+    boolean aggregates;
+
+    Warehouse warehouse;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        warehouse = Catalogue.warehouse("ConcurrentHashMap", size);
+        if (aggregates)
+            warehouse.enableAggregates();
+    }
+
+    @State(Scope.Thread)
+    public static class Ids {
+
+        private final SplittableRandom random = new SplittableRandom(42);
+
+        int next(int size) {
+            return random.nextInt(size) + 1;
+        }
+    }
+
+    @Benchmark
+    public double categoryValue() {
+        if (aggregates)
+            return warehouse.getCategoryStatistics("Category 1").getValue();
+
+        double value = 0;
+        for (Product product : warehouse.selectAllProducts()) {
+            if ("Category 1".equals(product.getCategory()))
+                value += (product.getStockAsInt() + product.getReserved()) * product.getPriceAsDouble();
+        }
+        return value;
+    }
+
+    @Benchmark
+    public CategoryStatistics totalStatistics() {
+        if (aggregates)
+            return warehouse.getTotalStatistics();
+
+        long count = 0;
+        long stock = 0;
+        long reserved = 0;
+        double value = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (Product product : warehouse.selectAllProducts()) {
+            count++;
+            stock += product.getStockAsInt();
+            reserved += product.getReserved();
+            value += (product.getStockAsInt() + product.getReserved()) * product.getPriceAsDouble();
+            min = Math.min(min, product.getPriceAsDouble());
+            max = Math.max(max, product.getPriceAsDouble());
+        }
+        return new CategoryStatistics(count, stock, reserved, value, min, max);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean updateProduct(Ids ids) {
+        return warehouse.updateProduct(Catalogue.product(ids.next(size)));
+    }
+}
@@ -0,0 +1,70 @@
+package benchmark;
+
+import model.Product;
+import model.Warehouse;
+import storage.ColumnarProductStore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deterministic catalogues of products shared by benchmarks
+ */
+final class Catalogue {
+
+    static final int CATEGORIES = 100;
+
+    private Catalogue() {
+
+    }
+
+    /**
+     * @param firstId Id of the first product
+     * @param size Number of products
+     * @return Returns products with consecutive ids, repeating categories, stocks and prices
+     */
+    static List<Product> products(int firstId, int size) {
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            products.add(product(firstId + i));
+        }
+        return products;
+    }
+
+    /**
+     * @param id Id of product
+     * @return Returns product which values are derived from id
+     */
+    static Product product(int id) {
+        return new Product(id, "Product " + id, "Category " + id % CATEGORIES, id % 50, 10.0 + id % 1000);
+    }
+
+    /**
+     * @param storage Name of storage mode: HashMap, ConcurrentHashMap or Columnar
+     * @param size Number of products inserted with ids from 1 to size
+     * @return Returns warehouse in chosen mode filled with catalogue
+     */
+    static Warehouse warehouse(String storage, int size) {
+        Warehouse warehouse;
+        switch (storage) {
+            case "HashMap":
+                warehouse = new Warehouse(new HashMap<>(size * 4 / 3 + 1));
+                break;
+            case "ConcurrentHashMap":
+                warehouse = new Warehouse(new ConcurrentHashMap<>(size * 4 / 3 + 1));
+                break;
+            case "Columnar":
+                warehouse = new Warehouse(new ColumnarProductStore(size));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown storage " + storage);
+        }
+
+        for (int id = 1; id <= size; id++) {
+            warehouse.insertProduct(product(id));
+        }
+        return warehouse;
+    }
+}
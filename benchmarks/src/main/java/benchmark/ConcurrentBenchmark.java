@@ -0,0 +1,75 @@
+package benchmark;
+
+import model.Product;
+import model.Warehouse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operations on one shared warehouse run by as many threads as there are processors, the same methods with
+ * -t 1, 2, 4 and so on show how throughput scales with threads
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int size;
+
+    @Param({"ConcurrentHashMap", "Columnar"})
+    String storage;
+
+    Warehouse warehouse;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        warehouse = Catalogue.warehouse(storage, size);
+    }
+
+    @State(Scope.Thread)
+    public static class Ids {
+
+        private SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+        }
+
+        int next(int size) {
+            return random.nextInt(size) + 1;
+        }
+    }
+
+    @Benchmark
+    public Product selectProduct(Ids ids) {
+        return warehouse.selectProduct(ids.next(size));
+    }
+
+    @Benchmark
+    public boolean updateProduct(Updates updates) {
+        return warehouse.updateProduct(updates.next());
+    }
+
+    @Benchmark
+    public boolean reserveAndRelease(Ids ids) {
+        int id = ids.next(size);
+        return warehouse.reserve(id, 1) && warehouse.release(id, 1);
+    }
+
+    /**
+     * Nine reads for every update, like a catalogue browsed much more often than it is changed
+     */
+    @Benchmark
+    public Object mixedWorkload(Ids ids, Updates updates) {
+        int id = ids.next(size);
+        return id % 10 == 0 ? warehouse.updateProduct(updates.next()) : warehouse.selectProduct(id);
+    }
+}
@@ -0,0 +1,92 @@
+package benchmark;
+
+import model.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Sorting and filtering catalogue by comparators and predicates specialized per field, against generic ones which
+ * dispatch on field and compare boxed values of every product
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FieldComparatorBenchmark {
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    @Param({"Id", "Name", "Stock", "Price"})
+    Product.Fields field;
+
+    Product[] products;
+    Object keyword;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        products = Catalogue.products(1, size).toArray(new Product[0]);
+        // Larger stocks and fractional prices are not cached as boxed values
+        for (int i = 0; i < products.length; i++) {
+            products[i].setStock(1_000 + (i * 7919) % size);
+            products[i].setPrice(products[i].getPrice() + 0.25);
+        }
+        keyword = products[size / 2].getSelected(field);
+    }
+
+    @Benchmark
+    public Product[] sortGeneric() {
+        Product.Fields field = this.field;
+        Product[] sorted = products.clone();
+        Arrays.sort(sorted, (p1, p2) -> genericCompare(field, p1, p2));
+        return sorted;
+    }
+
+    @Benchmark
+    public Product[] sortSpecialized() {
+        Product[] sorted = products.clone();
+        Arrays.sort(sorted, field.comparator());
+        return sorted;
+    }
+
+    @Benchmark
+    public int filterGeneric() {
+        Product.Fields field = this.field;
+        Object keyword = this.keyword;
+        return count(p -> p.getSelected(field).equals(keyword));
+    }
+
+    @Benchmark
+    public int filterSpecialized() {
+        return count(field.equalTo(keyword));
+    }
+
+    private int count(Predicate<Product> predicate) {
+        int count = 0;
+        for (Product product : products) {
+            if (predicate.test(product))
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Comparison made for every pair before comparators per field
+     */
+    private static int genericCompare(Product.Fields field, Product p1, Product p2) {
+        switch (field) {
+            case Id: return p1.getId().compareTo(p2.getId());
+            case Name: return p1.getName().compareTo(p2.getName());
+            case Category: return p1.getCategory().compareTo(p2.getCategory());
+            case Stock: return Integer.compare(p1.getStock(), p2.getStock());
+            case Price: return p1.getPrice().compareTo(p2.getPrice());
+        }
+        return 0;
+    }
+}
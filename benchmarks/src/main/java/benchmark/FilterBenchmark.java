@@ -0,0 +1,50 @@
+package benchmark;
+
+import model.Product;
+import model.Warehouse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtering whole catalogue by every field, with and without index of the field. Storage with ConcurrentHashMap
+ * scans like HashMap, it is measured under concurrent load by ConcurrentBenchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int size;
+
+    @Param({"HashMap", "Columnar"})
+    String storage;
+
+    @Param({"Id", "Name", "Category", "Stock", "Price"})
+    Product.Fields field;
+
+    @Param({"false", "true"})
+    boolean indexed;
+
+    Warehouse warehouse;
+    Object keyword;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        warehouse = Catalogue.warehouse(storage, size);
+        keyword = Catalogue.product(size / 2 + 1).getSelected(field);
+
+        if (indexed)
+            warehouse.createIndex(field);
+    }
+
+    @Benchmark
+    public List<Product> filterProducts() {
+        return warehouse.filterProducts(field, keyword);
+    }
+}
@@ -0,0 +1,53 @@
+package benchmark;
+
+import model.Warehouse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory retained by the same catalogue in every storage mode, reported as bytes per product next to time of
+ * filling storage. Counters are summed over iterations, so there is only one measured iteration.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class FootprintBenchmark {
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    @Param({"HashMap", "ConcurrentHashMap", "Columnar"})
+    String storage;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Retained {
+
+        public long bytesPerProduct;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytesPerProduct = 0;
+        }
+    }
+
+    @Benchmark
+    public Warehouse fillStorage(Retained retained) {
+        long before = usedMemory();
+        Warehouse warehouse = Catalogue.warehouse(storage, size);
+        retained.bytesPerProduct = (usedMemory() - before) / size;
+        return warehouse;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,59 @@
+package benchmark;
+
+import model.Product;
+import model.Warehouse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operations on single products of catalogue which keep its size unchanged
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int size;
+
+    @Param({"HashMap", "ConcurrentHashMap", "Columnar"})
+    String storage;
+
+    Warehouse warehouse;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        warehouse = Catalogue.warehouse(storage, size);
+    }
+
+    @State(Scope.Thread)
+    public static class Ids {
+
+        private final SplittableRandom random = new SplittableRandom(42);
+
+        int next(int size) {
+            return random.nextInt(size) + 1;
+        }
+    }
+
+    @Benchmark
+    public Product selectProduct(Ids ids) {
+        return warehouse.selectProduct(ids.next(size));
+    }
+
+    @Benchmark
+    public boolean updateProduct(Updates updates) {
+        return warehouse.updateProduct(updates.next());
+    }
+
+    @Benchmark
+    public boolean reserveAndRelease(Ids ids) {
+        int id = ids.next(size);
+        return warehouse.reserve(id, 1) && warehouse.release(id, 1);
+    }
+}
@@ -0,0 +1,60 @@
+package benchmark;
+
+import model.Product;
+import model.Warehouse;
+import org.openjdk.jmh.annotations.*;
+import storage.MappedProductStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opening catalogue written as mapped store, reading single products and scanning all of them from mapped file
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappedStoreBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    Path path;
+    Warehouse warehouse;
+    SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        path = Files.createTempFile("warehouse", ".store");
+        MappedProductStore.write(path, Catalogue.products(1, size));
+        warehouse = new Warehouse(MappedProductStore.open(path));
+        random = new SplittableRandom(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Benchmark
+    public int open() throws IOException {
+        return MappedProductStore.open(path).size();
+    }
+
+    @Benchmark
+    public Product selectProduct() {
+        return warehouse.selectProduct(random.nextInt(size) + 1);
+    }
+
+    @Benchmark
+    public List<Product> filterProducts() {
+        return warehouse.filterProducts(Product.Fields.Category, "Category 7");
+    }
+}
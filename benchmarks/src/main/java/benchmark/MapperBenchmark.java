@@ -0,0 +1,76 @@
+package benchmark;
+
+import dto.ProductDto;
+import mapper.ProductMapper;
+import model.Product;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Conversions of whole catalogue between products and transfer objects, one by one, in batch, streamed and as
+ * read only views
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int size;
+
+    List<Product> products;
+    List<ProductDto> dtos;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        products = Catalogue.products(1, size);
+        dtos = new ArrayList<>(size);
+        products.forEach(p -> dtos.add(ProductMapper.MAPPER.productToProductDto(p)));
+    }
+
+    @Benchmark
+    public void productToProductDto(Blackhole blackhole) {
+        for (Product product : products) {
+            blackhole.consume(ProductMapper.MAPPER.productToProductDto(product));
+        }
+    }
+
+    @Benchmark
+    public void productDtoToProduct(Blackhole blackhole) {
+        for (ProductDto dto : dtos) {
+            blackhole.consume(ProductMapper.MAPPER.productDtoToProduct(dto));
+        }
+    }
+
+    @Benchmark
+    public void productsToProductDtos(Blackhole blackhole) {
+        for (ProductDto dto : ProductMapper.MAPPER.productsToProductDtos(products)) {
+            blackhole.consume(dto.getName());
+        }
+    }
+
+    @Benchmark
+    public void productsToProductDtoViews(Blackhole blackhole) {
+        for (ProductDto dto : ProductMapper.MAPPER.productsToProductDtoViews(products)) {
+            blackhole.consume(dto.getName());
+        }
+    }
+
+    @Benchmark
+    public long streamProductDtos() {
+        return ProductMapper.MAPPER.productsToProductDtos(products.stream()).filter(dto -> dto.getStock() > 0).count();
+    }
+
+    @Benchmark
+    public List<ProductDto> collectProductDtos() {
+        return products.stream().map(ProductMapper.MAPPER::productToProductDto).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,67 @@
+package benchmark;
+
+import model.Product;
+import model.Warehouse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of metrics on the cheapest and on scanning operations, with metrics disabled, measuring latency of every
+ * operation and of sampled ones only
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    @Param({"100000"})
+    int size;
+
+    /**
+     * Sampling interval of metrics, 0 keeps them disabled
+     */
+    @Param({"0", "1", "64"})
+    int samplingInterval;
+
+    Warehouse warehouse;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        warehouse = Catalogue.warehouse("ConcurrentHashMap", size);
+        if (samplingInterval > 0)
+            warehouse.enableMetrics(samplingInterval);
+    }
+
+    @State(Scope.Thread)
+    public static class Ids {
+
+        private final SplittableRandom random = new SplittableRandom(42);
+
+        int next(int size) {
+            return random.nextInt(size) + 1;
+        }
+    }
+
+    @Benchmark
+    public Product selectProduct(Ids ids) {
+        return warehouse.selectProduct(ids.next(size));
+    }
+
+    @Benchmark
+    public boolean reserveAndRelease(Ids ids) {
+        int id = ids.next(size);
+        return warehouse.reserve(id, 1) && warehouse.release(id, 1);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Product> filterProducts(Ids ids) {
+        return warehouse.filterProducts(Product.Fields.Category, "Category " + (ids.next(Catalogue.CATEGORIES) - 1));
+    }
+}
@@ -0,0 +1,82 @@
+package benchmark;
+
+import model.Product;
+import model.Warehouse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operations changing size of catalogue, measured in batches of single shots, changes of each iteration are undone
+ * before the next one so every iteration starts with the same catalogue. Products are built before measurement,
+ * so only storing and removing them is measured.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, batchSize = MutationBenchmark.BATCH)
+@Measurement(iterations = 20, batchSize = MutationBenchmark.BATCH)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MutationBenchmark {
+
+    static final int BATCH = 1_000;
+    static final int CHUNK = 100;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int size;
+
+    @Param({"HashMap", "ConcurrentHashMap", "Columnar"})
+    String storage;
+
+    Warehouse warehouse;
+
+    /**
+     * Products which are not stored, enough of them for whole batch of chunks
+     */
+    List<Product> added;
+
+    /**
+     * Stored products deleted by one batch
+     */
+    List<Product> stored;
+
+    int inserted;
+    int deleted;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        warehouse = Catalogue.warehouse(storage, size);
+        added = Catalogue.products(size + 1, BATCH * CHUNK);
+        stored = Catalogue.products(1, Math.min(BATCH, size));
+    }
+
+    @TearDown(Level.Iteration)
+    public void restore() {
+        for (int i = 0; i < inserted; i++) {
+            warehouse.deleteProduct(added.get(i));
+        }
+        for (int i = 0; i < Math.min(deleted, stored.size()); i++) {
+            warehouse.insertProduct(stored.get(i));
+        }
+        inserted = 0;
+        deleted = 0;
+    }
+
+    @Benchmark
+    public boolean insertProduct() {
+        return warehouse.insertProduct(added.get(inserted++));
+    }
+
+    @Benchmark
+    public boolean insertAllProducts() {
+        List<Product> products = added.subList(inserted, inserted + CHUNK);
+        inserted += CHUNK;
+        return warehouse.insertAllProducts(products);
+    }
+
+    @Benchmark
+    public boolean deleteProduct() {
+        return warehouse.deleteProduct(stored.get(deleted++ % stored.size()));
+    }
+}
@@ -0,0 +1,68 @@
+package benchmark;
+
+import model.Product;
+import model.ProductCursor;
+import model.ProductPage;
+import model.Warehouse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading page of 50 products from the middle of sorted catalogue by offset and by cursor of previous page,
+ * and finding first products of filter by materialized list and by lazy stream
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PageBenchmark {
+
+    private static final int PAGE = 50;
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    @Param({"Name", "Price"})
+    Product.Fields field;
+
+    @Param({"false", "true"})
+    boolean sortedView;
+
+    Warehouse warehouse;
+    ProductCursor middle;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        warehouse = Catalogue.warehouse("ConcurrentHashMap", size);
+        if (sortedView)
+            warehouse.createSortedView(field);
+
+        Product last = warehouse.sortProducts(field, true, size / 2 - 1, 1).get(0);
+        middle = new ProductCursor(field, true, last.getSelected(field), last.getId());
+    }
+
+    @Benchmark
+    public List<Product> offsetPage() {
+        return warehouse.sortProducts(field, true, size / 2, PAGE);
+    }
+
+    @Benchmark
+    public ProductPage cursorPage() {
+        return warehouse.pageProducts(field, true, middle, PAGE);
+    }
+
+    @Benchmark
+    public List<Product> filterFirstPage() {
+        List<Product> products = warehouse.filterProducts(Product.Fields.Category, "Category 1");
+        return products.subList(0, Math.min(PAGE, products.size()));
+    }
+
+    @Benchmark
+    public Object[] streamFirstPage() {
+        return warehouse.streamProducts(Product.Fields.Category, "Category 1").limit(PAGE).toArray();
+    }
+}
@@ -0,0 +1,62 @@
+package benchmark;
+
+import model.Product;
+import model.Warehouse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequential against parallel filtering and sorting of whole catalogue, sizes locate the threshold from which
+ * splitting work across pool pays off. Parallelism 0 keeps execution in calling thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelQueryBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int size;
+
+    @Param({"0", "2", "4", "8"})
+    int parallelism;
+
+    @Param({"Name", "Price"})
+    Product.Fields field;
+
+    Warehouse warehouse;
+    ForkJoinPool pool;
+    Object keyword;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        warehouse = new Warehouse();
+        warehouse.insertAllProducts(Catalogue.products(1, size));
+        keyword = Catalogue.product(size / 2 + 1).getSelected(field);
+        if (parallelism > 0) {
+            pool = new ForkJoinPool(parallelism);
+            warehouse.enableParallelExecution(pool, 0);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != null)
+            pool.shutdown();
+    }
+
+    @Benchmark
+    public List<Product> filterProducts() {
+        return warehouse.filterProducts(field, keyword);
+    }
+
+    @Benchmark
+    public List<Product> sortProducts() {
+        return warehouse.sortProducts(field, true);
+    }
+}
@@ -0,0 +1,59 @@
+package benchmark;
+
+import model.Product;
+import model.ShardedWarehouse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtering and sorting whole catalogue scattered across shards, one shard matches single warehouse with a worker
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShardedQueryBenchmark {
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    @Param({"1", "2", "4", "8"})
+    int shards;
+
+    @Param({"Category", "Price"})
+    Product.Fields field;
+
+    ShardedWarehouse warehouse;
+    Object keyword;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        warehouse = new ShardedWarehouse(shards);
+        warehouse.loadProducts(Catalogue.products(1, size).stream());
+        keyword = Catalogue.product(size / 2 + 1).getSelected(field);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        warehouse.close();
+    }
+
+    @Benchmark
+    public List<Product> filterProducts() {
+        return warehouse.filterProducts(field, keyword);
+    }
+
+    @Benchmark
+    public List<Product> sortProducts() {
+        return warehouse.sortProducts(field, true);
+    }
+
+    @Benchmark
+    public List<Product> sortProductsPage() {
+        return warehouse.sortProducts(field, true, size / 2, 20);
+    }
+}
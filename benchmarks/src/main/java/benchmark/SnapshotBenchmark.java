@@ -0,0 +1,53 @@
+package benchmark;
+
+import model.Warehouse;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing and reading snapshot of whole catalogue
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int size;
+
+    @Param({"HashMap", "Columnar"})
+    String storage;
+
+    Warehouse warehouse;
+    Path path;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        warehouse = Catalogue.warehouse(storage, size);
+        path = Files.createTempFile("warehouse", ".snapshot");
+        warehouse.writeStorageToFile(path.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Benchmark
+    public void writeStorageToFile() throws IOException {
+        warehouse.writeStorageToFile(path.toString());
+    }
+
+    @Benchmark
+    public int readStorageFromFile() throws IOException, ClassNotFoundException {
+        warehouse.readStorageFromFile(path.toString());
+        return warehouse.getStorageSize();
+    }
+}
@@ -0,0 +1,57 @@
+package benchmark;
+
+import model.Product;
+import model.Warehouse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorting whole catalogue and its page by every field in both directions, with and without sorted view of the field
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SortBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int size;
+
+    @Param({"HashMap", "Columnar"})
+    String storage;
+
+    @Param({"Id", "Name", "Category", "Stock", "Price"})
+    Product.Fields field;
+
+    @Param({"false", "true"})
+    boolean sortedView;
+
+    Warehouse warehouse;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        warehouse = Catalogue.warehouse(storage, size);
+
+        if (sortedView)
+            warehouse.createSortedView(field);
+    }
+
+    @Benchmark
+    public List<Product> sortAscending() {
+        return warehouse.sortProducts(field, true);
+    }
+
+    @Benchmark
+    public List<Product> sortDescending() {
+        return warehouse.sortProducts(field, false);
+    }
+
+    @Benchmark
+    public List<Product> sortPage() {
+        return warehouse.sortProducts(field, true, size / 2, 20);
+    }
+}
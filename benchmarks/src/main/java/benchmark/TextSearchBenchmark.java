@@ -0,0 +1,91 @@
+package benchmark;
+
+import model.Product;
+import model.Warehouse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searching names made of three words out of vocabulary of twenty thousand, by scanning with contains against
+ * index of words, and autocompleting prefixes of words typed by user. Sampled time reports percentiles.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class TextSearchBenchmark {
+
+    private static final int VOCABULARY = 20_000;
+    private static final int LIMIT = 10;
+
+    @Param({"1000000"})
+    int size;
+
+    String[] vocabulary;
+    Warehouse warehouse;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        vocabulary = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int letters = 3 + random.nextInt(7); letters > 0; letters--) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            vocabulary[i] = word.toString();
+        }
+
+        warehouse = new Warehouse(new ConcurrentHashMap<>(size * 4 / 3 + 1));
+        for (int id = 1; id <= size; id++) {
+            Product product = Catalogue.product(id);
+            product.setName(word(random) + " " + word(random) + " " + word(random));
+            warehouse.insertProduct(product);
+        }
+        warehouse.enableTextSearch();
+    }
+
+    private String word(SplittableRandom random) {
+        // Skewed towards the first words, as in real names
+        return vocabulary[(int) (VOCABULARY * Math.pow(random.nextDouble(), 2))];
+    }
+
+    @State(Scope.Thread)
+    public static class Queries {
+
+        private final SplittableRandom random = new SplittableRandom(7);
+
+        String word(String[] vocabulary) {
+            return vocabulary[random.nextInt(vocabulary.length)];
+        }
+    }
+
+    @Benchmark
+    public long containsScan(Queries queries) {
+        String word = queries.word(vocabulary);
+        return warehouse.streamAllProducts().filter(p -> p.getName().contains(word)).limit(LIMIT).count();
+    }
+
+    @Benchmark
+    public List<Product> searchProducts(Queries queries) {
+        return warehouse.searchProducts(queries.word(vocabulary) + " " + queries.word(vocabulary), LIMIT);
+    }
+
+    @Benchmark
+    public List<Product> autocompletePrefix(Queries queries) {
+        String word = queries.word(vocabulary);
+        return warehouse.autocomplete(word.substring(0, 2), LIMIT);
+    }
+
+    @Benchmark
+    public List<Product> autocompleteSecondWord(Queries queries) {
+        String word = queries.word(vocabulary);
+        return warehouse.autocomplete(queries.word(vocabulary) + " " + word.substring(0, 2), LIMIT);
+    }
+}
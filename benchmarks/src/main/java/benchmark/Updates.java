@@ -0,0 +1,42 @@
+package benchmark;
+
+import model.Product;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.util.SplittableRandom;
+
+/**
+ * Products of catalogue with random ids built before measurement, so benchmarks of updates measure only updates.
+ * Warehouse copies values of updated product instead of storing it, so products are used again in turn.
+ */
+@State(Scope.Thread)
+public class Updates {
+
+    private static final int COUNT = 1 << 16;
+
+    private Product[] products;
+    private int next;
+
+    /**
+     * @param params Parameters of benchmark, which has to have parameter size of catalogue
+     */
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkParams params) {
+        int size = Integer.parseInt(params.getParam("size"));
+        SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+        products = new Product[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            products[i] = Catalogue.product(random.nextInt(size) + 1);
+        }
+    }
+
+    Product next() {
+        Product product = products[next];
+        next = (next + 1) & (COUNT - 1);
+        return product;
+    }
+}
@@ -0,0 +1,74 @@
+package dto;
+
+import model.Product;
+
+/**
+ * Transfer object reading values straight from product instead of copying them, so mapping product costs one small
+ * object. It shows current values of product, including changes made after mapping, and cannot be changed itself.
+ * Use {@link mapper.ProductMapper#productToProductDto(Product)} when detached copy is needed.
+ */
+public final class ProductDtoView extends ProductDto {
+
+    private final Product product;
+
+    /**
+     * @param product Product which values are read
+     */
+    public ProductDtoView(Product product) {
+        this.product = product;
+    }
+
+    @Override
+    public Integer getId() {
+        return product.getId();
+    }
+
+    @Override
+    public String getName() {
+        return product.getName();
+    }
+
+    @Override
+    public String getCategory() {
+        return product.getCategory();
+    }
+
+    @Override
+    public Integer getStock() {
+        return product.getStock();
+    }
+
+    @Override
+    public Double getPrice() {
+        return product.getPrice();
+    }
+
+    @Override
+    public void setId(Integer id) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setName(String name) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCategory(String category) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setStock(Integer stock) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setPrice(Double price) {
+        throw readOnly();
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("View of product cannot be changed");
+    }
+}
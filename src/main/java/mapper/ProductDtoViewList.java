@@ -0,0 +1,35 @@
+package mapper;
+
+import dto.ProductDto;
+import dto.ProductDtoView;
+import model.Product;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * List of read only views of products, see {@link ProductMapper#productsToProductDtoViews(List)}
+ */
+final class ProductDtoViewList extends AbstractList<ProductDto> implements RandomAccess {
+
+    private final List<Product> products;
+
+    /**
+     * @param products Products which values are read by views
+     */
+    ProductDtoViewList(List<Product> products) {
+        this.products = products;
+    }
+
+    @Override
+    public ProductDto get(int index) {
+        Product product = products.get(index);
+        return product != null ? new ProductDtoView(product) : null;
+    }
+
+    @Override
+    public int size() {
+        return products.size();
+    }
+}
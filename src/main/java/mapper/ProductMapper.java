@@ -1,12 +1,18 @@
 package mapper;
 
 import dto.ProductDto;
+import dto.ProductDtoView;
 import model.Product;
+import org.mapstruct.IterableMapping;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Mappings;
+import org.mapstruct.Named;
 import org.mapstruct.factory.Mappers;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 @Mapper()
 public interface ProductMapper {
 
@@ -18,4 +24,53 @@ public interface ProductMapper {
             @Mapping(target = "id", ignore = true)
     )
     Product productDtoToProduct(ProductDto source);
+
+    /**
+     * @param source Products to be copied, result list is presized for all of them
+     * @return Returns list of detached copies in order of products
+     */
+    List<ProductDto> productsToProductDtos(List<Product> source);
+
+    /**
+     * @param source Products to be copied
+     * @return Returns array of detached copies in order of products
+     */
+    ProductDto[] productsToProductDtos(Product[] source);
+
+    /**
+     * Maps products lazily as stream is consumed, so streamed responses never hold all transfer objects at once
+     *
+     * @param source Stream of products to be copied
+     * @return Returns stream of detached copies
+     */
+    Stream<ProductDto> productsToProductDtos(Stream<Product> source);
+
+    List<Product> productDtosToProducts(List<ProductDto> source);
+
+    /**
+     * @param source Product which values should be read by transfer object
+     * @return Returns read only view of product, see {@link ProductDtoView}
+     */
+    @Named("view")
+    default ProductDto productToProductDtoView(Product source) {
+        return source != null ? new ProductDtoView(source) : null;
+    }
+
+    /**
+     * Wraps products without copying them, every view is created when element is read and holds only product, so
+     * serializing page of products allocates no list and only short lived views
+     *
+     * @param source Products which values should be read by transfer objects
+     * @return Returns unmodifiable list of read only views of products, or null if source is null
+     */
+    default List<ProductDto> productsToProductDtoViews(List<Product> source) {
+        return source != null ? new ProductDtoViewList(source) : null;
+    }
+
+    /**
+     * @param source Stream of products which values should be read by transfer objects
+     * @return Returns stream of read only views
+     */
+    @IterableMapping(qualifiedByName = "view")
+    Stream<ProductDto> productsToProductDtoViews(Stream<Product> source);
 }
@@ -0,0 +1,142 @@
+package model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free allocator which reserves blocks of consecutive ids for every thread, so threads touch shared counter
+ * once per block instead of once per id. Ids are unique, but they are not allocated in order across threads and
+ * ids left in blocks of finished threads are never used.
+ * <p>
+ * Blocks start at multiples of block size plus one. Advancing to id above all reserved blocks moves the start of
+ * the next block past it. Advancing to id inside block which is being allocated from makes only that block skip it,
+ * and ids which have already been returned leave all blocks as they are, so inserting created products costs no
+ * write to shared state. Ids of other origin should not be loaded while they may be allocated by other threads.
+ */
+public class BlockIdAllocator implements IdAllocator {
+
+    private static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    private final int blockSize;
+
+    /**
+     * The first id of the next block to be reserved
+     */
+    private final AtomicInteger next = new AtomicInteger(1);
+
+    /**
+     * Blocks which threads allocate from, by their first id
+     */
+    private final ConcurrentHashMap<Integer, Block> reserved = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<Block> blocks = new ThreadLocal<>();
+
+    public BlockIdAllocator() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param blockSize Number of ids reserved by thread at once
+     */
+    public BlockIdAllocator(int blockSize) {
+        if (blockSize <= 0)
+            throw new IllegalArgumentException("Size of block must be positive");
+
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public int nextId() {
+        Block block = blocks.get();
+        while (true) {
+            if (block != null) {
+                int id = Math.max(block.next.get(), block.floor.get());
+                if (id < block.end) {
+                    block.next.lazySet(id + 1);
+                    return id;
+                }
+                reserved.remove(block.start, block);
+            }
+            block = reserve();
+            blocks.set(block);
+        }
+    }
+
+    @Override
+    public int getHighWaterMark() {
+        return next.get() - 1;
+    }
+
+    @Override
+    public void advanceTo(int id) {
+        while (true) {
+            int current = next.get();
+            if (id < current) {
+                Block block = reserved.get(startOf(id));
+                if (block != null && block.next.get() <= id)
+                    raise(block.floor, id + 1);
+                return;
+            }
+            if (next.compareAndSet(current, following(id)))
+                return;
+        }
+    }
+
+    /**
+     * Block is registered before it is reserved, so whoever sees shared counter past it finds it as well
+     */
+    private Block reserve() {
+        while (true) {
+            int start = next.get();
+            if (start > Integer.MAX_VALUE - blockSize)
+                throw new IllegalStateException("Ids have been exhausted");
+
+            Block block = new Block(start, start + blockSize);
+            reserved.put(start, block);
+            if (next.compareAndSet(start, block.end))
+                return block;
+            reserved.remove(start, block);
+        }
+    }
+
+    /**
+     * @return Returns the first id of block which id belongs to
+     */
+    private int startOf(int id) {
+        return id - Math.floorMod(id - 1, blockSize);
+    }
+
+    /**
+     * @return Returns the first id of block following the one which id belongs to
+     */
+    private int following(int id) {
+        return (int) Math.min((long) startOf(id) + blockSize, Integer.MAX_VALUE);
+    }
+
+    private static void raise(AtomicInteger value, int to) {
+        int current;
+        do {
+            current = value.get();
+            if (current >= to)
+                return;
+        } while (!value.compareAndSet(current, to));
+    }
+
+    /**
+     * Range of ids reserved by one thread, from next inclusive to end exclusive. Only owner moves next, other
+     * threads raise floor when they advance to id which owner has not returned yet.
+     */
+    private static final class Block {
+
+        private final int start;
+        private final int end;
+        private final AtomicInteger next;
+        private final AtomicInteger floor = new AtomicInteger();
+
+        private Block(int start, int end) {
+            this.start = start;
+            this.end = end;
+            this.next = new AtomicInteger(start);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Outcome of loading products in bulk, rejected ids are kept as primitive array to stay compact for large feeds
+ */
+public final class BulkLoadResult {
+
+    private long loaded;
+    private long invalid;
+    private int[] rejectedIds = new int[16];
+    private int rejected;
+
+    BulkLoadResult() {
+
+    }
+
+    /**
+     * @return Returns number of products that have been inserted
+     */
+    public long getLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return Returns number of null products and products without id, which have been skipped
+     */
+    public long getInvalid() {
+        return invalid;
+    }
+
+    /**
+     * @return Returns number of products rejected because their id was already stored
+     */
+    public int getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return Returns ids of rejected products, in order they have been rejected within each partition
+     */
+    public int[] getRejectedIds() {
+        return Arrays.copyOf(rejectedIds, rejected);
+    }
+
+    /**
+     * @return Returns true if every product has been inserted
+     */
+    public boolean isComplete() {
+        return invalid == 0 && rejected == 0;
+    }
+
+    void loaded() {
+        loaded++;
+    }
+
+    void invalid() {
+        invalid++;
+    }
+
+    void reject(int id) {
+        if (rejected == rejectedIds.length)
+            rejectedIds = Arrays.copyOf(rejectedIds, rejected * 2);
+        rejectedIds[rejected++] = id;
+    }
+
+    /**
+     * @param result Result of another partition which should be added to this one
+     */
+    void add(BulkLoadResult result) {
+        loaded += result.loaded;
+        invalid += result.invalid;
+        for (int i = 0; i < result.rejected; i++) {
+            reject(result.rejectedIds[i]);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package model;
+
+/**
+ * Snapshot of counters of cache, taken at the moment it has been requested
+ */
+public final class CacheStatistics {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+
+    /**
+     * @param hits Number of lookups served by cache
+     * @param misses Number of lookups that had to read value from its source
+     * @param evictions Number of values removed from cache to keep it within its size
+     * @param expirations Number of values found in cache that were too old or invalidated by changes
+     */
+    public CacheStatistics(long hits, long misses, long evictions, long expirations) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+    }
+
+    /**
+     * @return Returns number of lookups served by cache
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return Returns number of lookups that had to read value from its source
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return Returns number of values removed from cache to keep it within its size
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return Returns number of values found in cache that were too old or invalidated by changes
+     */
+    public long getExpirations() {
+        return expirations;
+    }
+
+    /**
+     * @return Returns number of all lookups
+     */
+    public long getRequests() {
+        return hits + misses;
+    }
+
+    /**
+     * @return Returns share of lookups served by cache, or 0 if there were none
+     */
+    public double getHitRate() {
+        return getRequests() > 0 ? (double) hits / getRequests() : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d hits, %,d misses (%.1f%% hit rate), %,d evictions, %,d expirations", hits, misses,
+                getHitRate() * 100, evictions, expirations);
+    }
+}
@@ -0,0 +1,192 @@
+package model;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps aggregates of products per category and of whole warehouse up to date as its listener. Every product
+ * remembers what it has added to aggregates, so change subtracts exactly that and adds its new values, even when
+ * product has been changed in place before it was updated. Counters are striped adders, so writers of different
+ * products do not contend and reading aggregates costs the same for any number of products.
+ * <p>
+ * Values are summed without lock, so aggregates read while products change may mix values from before and after
+ * some change. Subtracting value of stock in floating point may leave rounding error in the last digits.
+ */
+final class CategoryAggregates implements WarehouseListener {
+
+    private final Map<Integer, Contribution> contributions = new ConcurrentHashMap<>();
+    private final Map<String, Totals> categories = new ConcurrentHashMap<>();
+    private final Totals total = new Totals();
+
+    /**
+     * Adds products which were stored before aggregates started to be kept, products already changed since then are kept
+     *
+     * @param products Stored products
+     */
+    void load(Collection<Product> products) {
+        for (Product product : products) {
+            Contribution contribution = new Contribution(product);
+            if (contributions.putIfAbsent(product.getIdAsInt(), contribution) == null)
+                add(contribution, 1);
+        }
+    }
+
+    /**
+     * @return Returns aggregates of all products
+     */
+    CategoryStatistics total() {
+        return total.statistics();
+    }
+
+    /**
+     * @param category Category of products
+     * @return Returns aggregates of products of category, with no products if there are none
+     */
+    CategoryStatistics category(String category) {
+        Totals totals = categories.get(category);
+        return totals != null ? totals.statistics() : new Totals().statistics();
+    }
+
+    /**
+     * @return Returns aggregates of every category which has products, by name of category
+     */
+    Map<String, CategoryStatistics> categories() {
+        Map<String, CategoryStatistics> result = new TreeMap<>();
+        categories.forEach((category, totals) -> {
+            CategoryStatistics statistics = totals.statistics();
+            if (statistics.getCount() > 0)
+                result.put(category, statistics);
+        });
+        return result;
+    }
+
+    @Override
+    public void productInserted(Product product) {
+        replace(product);
+    }
+
+    @Override
+    public void productUpdated(Product before, Product after) {
+        replace(after);
+    }
+
+    @Override
+    public void stockChanged(Product product, int previousStock, int previousReserved) {
+        replace(product);
+    }
+
+    @Override
+    public void productDeleted(Product product) {
+        Contribution previous = contributions.remove(product.getIdAsInt());
+        if (previous != null)
+            add(previous, -1);
+    }
+
+    @Override
+    public void storageReplaced(Map<Integer, Product> storage) {
+        contributions.keySet().forEach(id -> {
+            Contribution previous = contributions.remove(id);
+            if (previous != null)
+                add(previous, -1);
+        });
+        load(storage.values());
+    }
+
+    private void replace(Product product) {
+        Contribution contribution = new Contribution(product);
+        Contribution previous = contributions.put(product.getIdAsInt(), contribution);
+        if (previous == null) {
+            add(contribution, 1);
+        } else if (Objects.equals(previous.category, contribution.category) && Objects.equals(previous.price, contribution.price)) {
+            // Stock changes and most updates keep category and price, only differences of stock are added
+            total.change(previous, contribution);
+            if (contribution.category != null)
+                totals(contribution.category).change(previous, contribution);
+        } else {
+            add(previous, -1);
+            add(contribution, 1);
+        }
+    }
+
+    private void add(Contribution contribution, int sign) {
+        total.add(contribution, sign);
+        if (contribution.category != null)
+            totals(contribution.category).add(contribution, sign);
+    }
+
+    private Totals totals(String category) {
+        Totals totals = categories.get(category);
+        return totals != null ? totals : categories.computeIfAbsent(category, created -> new Totals());
+    }
+
+    /**
+     * Values of product as they were added to aggregates
+     */
+    private static final class Contribution {
+
+        private final String category;
+        private final int stock;
+        private final int reserved;
+        private final Double price;
+
+        private Contribution(Product product) {
+            this.category = product.getCategory();
+            this.stock = product.getStockAsInt();
+            this.reserved = product.getReserved();
+            this.price = product.getPrice();
+        }
+
+        private double value() {
+            return price != null ? ((long) stock + reserved) * price : 0;
+        }
+    }
+
+    /**
+     * Aggregates of group of products. Prices are counted in sorted map, so the lowest and highest price is known
+     * after product with it is removed, at cost of logarithm of number of distinct prices.
+     */
+    private static final class Totals {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder stock = new LongAdder();
+        private final LongAdder reserved = new LongAdder();
+        private final DoubleAdder value = new DoubleAdder();
+        private final ConcurrentSkipListMap<Double, Integer> prices = new ConcurrentSkipListMap<>();
+
+        private void add(Contribution contribution, int sign) {
+            count.add(sign);
+            stock.add(sign * (long) contribution.stock);
+            reserved.add(sign * (long) contribution.reserved);
+            value.add(sign * contribution.value());
+
+            if (contribution.price == null)
+                return;
+            if (sign > 0)
+                prices.merge(contribution.price, 1, Integer::sum);
+            else
+                prices.computeIfPresent(contribution.price, (price, products) -> products > 1 ? products - 1 : null);
+        }
+
+        private void change(Contribution previous, Contribution next) {
+            if (next.stock != previous.stock)
+                stock.add((long) next.stock - previous.stock);
+            if (next.reserved != previous.reserved)
+                reserved.add((long) next.reserved - previous.reserved);
+            if (next.price != null && next.stock + next.reserved != previous.stock + previous.reserved)
+                value.add(next.value() - previous.value());
+        }
+
+        private CategoryStatistics statistics() {
+            Map.Entry<Double, Integer> min = prices.firstEntry();
+            Map.Entry<Double, Integer> max = prices.lastEntry();
+            return new CategoryStatistics(count.sum(), stock.sum(), reserved.sum(), value.sum(),
+                    min != null ? min.getKey() : Double.NaN, max != null ? max.getKey() : Double.NaN);
+        }
+    }
+}
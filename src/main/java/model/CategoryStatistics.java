@@ -0,0 +1,80 @@
+package model;
+
+/**
+ * Snapshot of aggregates of products of one category or of whole warehouse, taken at the moment it has been
+ * requested, see {@link Warehouse#enableAggregates()}
+ */
+public final class CategoryStatistics {
+
+    private final long count;
+    private final long stock;
+    private final long reserved;
+    private final double value;
+    private final double minPrice;
+    private final double maxPrice;
+
+    /**
+     * @param count Number of products
+     * @param stock Total available stock of products
+     * @param reserved Total reserved stock of products
+     * @param value Total value of available and reserved stock at prices of products
+     * @param minPrice The lowest price of products, or NaN if no product has price
+     * @param maxPrice The highest price of products, or NaN if no product has price
+     */
+    public CategoryStatistics(long count, long stock, long reserved, double value, double minPrice, double maxPrice) {
+        this.count = count;
+        this.stock = stock;
+        this.reserved = reserved;
+        this.value = value;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+    }
+
+    /**
+     * @return Returns number of products
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return Returns total available stock of products
+     */
+    public long getStock() {
+        return stock;
+    }
+
+    /**
+     * @return Returns total reserved stock of products
+     */
+    public long getReserved() {
+        return reserved;
+    }
+
+    /**
+     * @return Returns total value of available and reserved stock at prices of products
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * @return Returns the lowest price of products, or NaN if no product has price
+     */
+    public double getMinPrice() {
+        return minPrice;
+    }
+
+    /**
+     * @return Returns the highest price of products, or NaN if no product has price
+     */
+    public double getMaxPrice() {
+        return maxPrice;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d products, %,d in stock, %,d reserved, value %,.2f, prices %.2f - %.2f", count, stock,
+                reserved, value, minPrice, maxPrice);
+    }
+}
@@ -0,0 +1,96 @@
+package model;
+
+/**
+ * Change of warehouse published by {@link ChangeStream}. Before and after values are detached copies, so they can be
+ * read at any time later, while stored product may have changed again.
+ */
+public final class ChangeEvent {
+
+    /**
+     * Kinds of changes, with values they carry
+     */
+    public enum Type {
+        /**
+         * Product has been inserted, only after values are present
+         */
+        Inserted,
+        /**
+         * Values of product have been updated
+         */
+        Updated,
+        /**
+         * Stock of product has been reserved, released or committed
+         */
+        StockChanged,
+        /**
+         * Product has been deleted, only before values are present
+         */
+        Deleted,
+        /**
+         * All products have been replaced, state built from previous events should be loaded again from warehouse
+         */
+        StorageReplaced
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final Product before;
+    private final Product after;
+
+    /**
+     * @param sequence Position of event in stream
+     * @param type Kind of change
+     * @param before Detached copy of product before change, or null
+     * @param after Detached copy of product after change, or null
+     */
+    ChangeEvent(long sequence, Type type, Product before, Product after) {
+        this.sequence = sequence;
+        this.type = type;
+        this.before = before;
+        this.after = after;
+    }
+
+    /**
+     * @return Returns position of event in stream, events are delivered in order of their sequences
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return Returns kind of change
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return Returns id of changed product, or null when storage has been replaced
+     */
+    public Integer getProductId() {
+        return after != null ? after.getId() : before != null ? before.getId() : null;
+    }
+
+    /**
+     * @return Returns copy of product values before change, or null if product did not exist before
+     */
+    public Product getBefore() {
+        return before;
+    }
+
+    /**
+     * @return Returns copy of product values after change, or null if product does not exist after
+     */
+    public Product getAfter() {
+        return after;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent{" +
+                "sequence=" + sequence +
+                ", type=" + type +
+                ", productId=" + getProductId() +
+                '}';
+    }
+}
@@ -0,0 +1,316 @@
+package model;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ordered stream of changes of warehouse, registered as its listener. Changes are published into ring buffer without
+ * lock: writer claims sequence with compare-and-set, stores event into slot of the sequence and marks slot published.
+ * Every subscription reads slots by its own thread and hands them to subscriber in batches of everything published
+ * since its last batch, so subscriber falling behind catches up with fewer and larger calls.
+ * <p>
+ * Writer may reuse slot only when every subscription has read it. When ring is full, backpressure decides whether
+ * writer waits for the slowest subscription or event is dropped. Writers call listeners while product is locked,
+ * so subscribers may read warehouse but never wait for its writers.
+ */
+public class ChangeStream implements WarehouseListener, Closeable {
+
+    /**
+     * What happens with change when ring is full
+     */
+    public enum Backpressure {
+        /**
+         * Writer waits until the slowest subscription frees slot, no change is lost
+         */
+        Block,
+        /**
+         * Change is dropped and counted, subscribers have to reload their state once drops are reported
+         */
+        Drop
+    }
+
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ChangeEvent[] entries;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final Backpressure backpressure;
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final LongAdder dropped = new LongAdder();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * The lowest sequence read by all subscriptions when it was computed last time, writers below it do not check again
+     */
+    private volatile long gatingSequence = -1;
+    private volatile boolean closed;
+
+    /**
+     * @param capacity Number of changes held by ring, rounded up to power of two
+     * @param backpressure What happens with change when ring is full
+     */
+    public ChangeStream(int capacity, Backpressure backpressure) {
+        if (capacity < 1 || capacity > 1 << 30)
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+        if (backpressure == null)
+            throw new IllegalArgumentException("Backpressure must be set");
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+
+        this.entries = new ChangeEvent[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        this.mask = size - 1;
+        this.backpressure = backpressure;
+    }
+
+    /**
+     * Starts thread delivering changes published after this call
+     *
+     * @param subscriber Subscriber to be called with changes
+     * @param maxBatch Maximal number of changes in one call of subscriber
+     * @return Returns subscription, if subscriber is null, batch is not positive or stream is closed then null
+     */
+    public Subscription subscribe(ChangeSubscriber subscriber, int maxBatch) {
+        if (subscriber == null || maxBatch < 1 || closed)
+            return null;
+
+        // Registered before its sequence is known, so until then it holds back all writers instead of none
+        Subscription subscription = new Subscription(subscriber, maxBatch);
+        subscriptions.add(subscription);
+        subscription.sequence.set(cursor.get());
+        subscription.thread.start();
+        return subscription;
+    }
+
+    /**
+     * @return Returns capacity of ring
+     */
+    public int getCapacity() {
+        return entries.length;
+    }
+
+    /**
+     * @return Returns sequence of the last claimed change, -1 if nothing has been published yet
+     */
+    public long getPublishedSequence() {
+        return cursor.get();
+    }
+
+    /**
+     * @return Returns number of changes dropped because ring was full
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void productInserted(Product product) {
+        publish(ChangeEvent.Type.Inserted, null, product.copy());
+    }
+
+    @Override
+    public void productUpdated(Product before, Product after) {
+        publish(ChangeEvent.Type.Updated, before, after.copy());
+    }
+
+    @Override
+    public void stockChanged(Product product, int previousStock, int previousReserved) {
+        Product after = product.copy();
+        Product before = new Product(after.getId(), after.getName(), after.getCategory(),
+                previousStock + previousReserved, after.getPrice());
+        before.reserve(previousReserved);
+        publish(ChangeEvent.Type.StockChanged, before, after);
+    }
+
+    @Override
+    public void productDeleted(Product product) {
+        publish(ChangeEvent.Type.Deleted, product.copy(), null);
+    }
+
+    @Override
+    public void storageReplaced(Map<Integer, Product> storage) {
+        publish(ChangeEvent.Type.StorageReplaced, null, null);
+    }
+
+    /**
+     * Stops accepting changes, lets subscriptions deliver everything already published and waits for them to end
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Subscription subscription : subscriptions) {
+            LockSupport.unpark(subscription.thread);
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.join();
+        }
+    }
+
+    private void publish(ChangeEvent.Type type, Product before, Product after) {
+        long sequence = claim();
+        if (sequence < 0)
+            return;
+
+        int slot = (int) sequence & mask;
+        entries[slot] = new ChangeEvent(sequence, type, before, after);
+        published.set(slot, sequence);
+
+        for (Subscription subscription : subscriptions) {
+            if (subscription.waiting)
+                LockSupport.unpark(subscription.thread);
+        }
+    }
+
+    /**
+     * @return Returns claimed sequence, or -1 if change has been dropped or stream is closed
+     */
+    private long claim() {
+        while (!closed) {
+            long current = cursor.get();
+            long next = current + 1;
+            long wrapPoint = next - entries.length;
+
+            if (wrapPoint > gatingSequence) {
+                long gating = minimumSequence(current);
+                if (wrapPoint > gating) {
+                    if (backpressure == Backpressure.Drop) {
+                        dropped.increment();
+                        return -1;
+                    }
+                    LockSupport.parkNanos(this, 1_000);
+                    continue;
+                }
+                gatingSequence = gating;
+            }
+
+            if (cursor.compareAndSet(current, next))
+                return next;
+        }
+        return -1;
+    }
+
+    private long minimumSequence(long current) {
+        long minimum = current;
+        for (Subscription subscription : subscriptions) {
+            minimum = Math.min(minimum, subscription.sequence.get());
+        }
+        return minimum;
+    }
+
+    /**
+     * Subscriber with its thread and sequence of the last change it has been given
+     */
+    public final class Subscription implements Closeable {
+
+        private final ChangeSubscriber subscriber;
+        private final int maxBatch;
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private final Thread thread;
+        private volatile boolean waiting;
+        private volatile boolean stopped;
+        private volatile RuntimeException failure;
+
+        private Subscription(ChangeSubscriber subscriber, int maxBatch) {
+            this.subscriber = subscriber;
+            this.maxBatch = maxBatch;
+            this.thread = new Thread(this::run, "change-stream-subscriber");
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * @return Returns sequence of the last change delivered to subscriber
+         */
+        public long getSequence() {
+            return sequence.get();
+        }
+
+        /**
+         * @return Returns number of published changes which have not been delivered to subscriber yet
+         */
+        public long getLag() {
+            return Math.max(0, cursor.get() - sequence.get());
+        }
+
+        /**
+         * @return Returns exception thrown by subscriber which ended subscription, or null
+         */
+        public RuntimeException getFailure() {
+            return failure;
+        }
+
+        /**
+         * @return Returns true while subscription delivers changes
+         */
+        public boolean isActive() {
+            return thread.isAlive() && !stopped;
+        }
+
+        /**
+         * Stops delivering changes without waiting for the rest of published ones, and waits for current batch to end
+         */
+        @Override
+        public void close() {
+            stopped = true;
+            subscriptions.remove(this);
+            LockSupport.unpark(thread);
+            join();
+        }
+
+        private void join() {
+            if (Thread.currentThread() == thread)
+                return;
+
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void run() {
+            long next = sequence.get() + 1;
+            while (!stopped) {
+                List<ChangeEvent> batch = new ArrayList<>(Math.min(maxBatch, 64));
+                while (batch.size() < maxBatch && published.get((int) (next + batch.size()) & mask) == next + batch.size()) {
+                    batch.add(entries[(int) (next + batch.size()) & mask]);
+                }
+
+                if (batch.isEmpty()) {
+                    if (closed && next > cursor.get())
+                        break;
+
+                    waiting = true;
+                    if (published.get((int) next & mask) != next && !stopped)
+                        LockSupport.parkNanos(this, PARK_NANOS);
+                    waiting = false;
+                    continue;
+                }
+
+                try {
+                    subscriber.onChanges(Collections.unmodifiableList(batch));
+                } catch (RuntimeException e) {
+                    failure = e;
+                    stopped = true;
+                    subscriptions.remove(this);
+                    break;
+                }
+                next += batch.size();
+                sequence.lazySet(next - 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package model;
+
+import java.util.List;
+
+/**
+ * Consumer of changes published by {@link ChangeStream}, called by its own thread of subscription
+ */
+@FunctionalInterface
+public interface ChangeSubscriber {
+
+    /**
+     * Exception thrown from here ends subscription, which then stops holding back publishers
+     *
+     * @param events Following events in order of their sequences, at most the batch size of subscription
+     */
+    void onChanges(List<ChangeEvent> events);
+}
@@ -0,0 +1,139 @@
+package model;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of results of filterProducts, least recently used results are evicted first. Every result is kept
+ * with version of products it has been computed from, inserts, updates and deletes start new version of all fields,
+ * stock changes start new version of stock only, so reservations do not invalidate results filtered by other fields.
+ * Invalidation only counts versions, stale results are dropped when they are looked up or evicted.
+ * <p>
+ * Versions start after changes are visible in storage, result filtered while change was made is kept with version
+ * before it, so it is never served once change is complete.
+ */
+class FilterResultCache implements WarehouseListener {
+
+    private final int maximumSize;
+    private final LinkedHashMap<Key, Result> results;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong stockGeneration = new AtomicLong();
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * @param maximumSize Maximal number of cached results
+     */
+    FilterResultCache(int maximumSize) {
+        this.maximumSize = maximumSize;
+        this.results = new LinkedHashMap<Key, Result>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Result> eldest) {
+                if (size() <= FilterResultCache.this.maximumSize)
+                    return false;
+
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @param field Field by which products are filtered
+     * @param keyword Keyword by which comparison is made
+     * @param filter Filters products when there is no valid result in cache
+     * @return Returns copy of cached or newly filtered result
+     */
+    List<Product> get(Product.Fields field, Object keyword, Supplier<List<Product>> filter) {
+        Key key = new Key(field, keyword);
+        long version = version(field);
+
+        synchronized (this) {
+            Result result = results.get(key);
+            if (result != null && result.version == version) {
+                hits++;
+                return new ArrayList<>(result.products);
+            }
+            if (result != null) {
+                results.remove(key);
+                expirations++;
+            }
+            misses++;
+        }
+
+        List<Product> products = filter.get();
+        synchronized (this) {
+            if (version(field) == version)
+                results.put(key, new Result(version, new ArrayList<>(products)));
+        }
+        return products;
+    }
+
+    /**
+     * @return Returns counters of cache
+     */
+    synchronized CacheStatistics getStatistics() {
+        return new CacheStatistics(hits, misses, evictions, expirations);
+    }
+
+    /**
+     * Starts new version of products, listener methods are called before change is visible, so warehouse
+     * calls this once change has been made
+     *
+     * @param stock True if only stock of product has changed
+     */
+    void invalidate(boolean stock) {
+        if (stock)
+            stockGeneration.incrementAndGet();
+        else
+            generation.incrementAndGet();
+    }
+
+    @Override
+    public void storageReplaced(Map<Integer, Product> storage) {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * @return Returns version of products as seen by filter of field, both counters only grow so their sum changes
+     * whenever any of them does
+     */
+    private long version(Product.Fields field) {
+        return field == Product.Fields.Stock ? generation.get() + stockGeneration.get() : generation.get();
+    }
+
+    private static final class Key {
+
+        private final Product.Fields field;
+        private final Object keyword;
+
+        private Key(Product.Fields field, Object keyword) {
+            this.field = field;
+            this.keyword = keyword;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).field == field && ((Key) o).keyword.equals(keyword);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * field.hashCode() + keyword.hashCode();
+        }
+    }
+
+    private static final class Result {
+
+        private final long version;
+        private final List<Product> products;
+
+        private Result(long version, List<Product> products) {
+            this.version = version;
+            this.products = products;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package model;
+
+/**
+ * Copy of product kept by {@link WarehouseSnapshot}, its values never change, so all readers of snapshot see the same
+ * product. Use {@link #copy()} to get product which can be changed.
+ */
+final class FrozenProduct extends Product {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param product Product which values, including reserved stock, are copied
+     */
+    FrozenProduct(Product product) {
+        super(product.getId(), product.getName(), product.getCategory(), product.getStock() + product.getReserved(),
+                product.getPrice());
+        if (product.getReserved() > 0)
+            super.reserve(product.getReserved());
+    }
+
+    @Override
+    public void setName(String name) {
+        throw frozen();
+    }
+
+    @Override
+    public void setCategory(String category) {
+        throw frozen();
+    }
+
+    @Override
+    public void setStock(Integer stock) {
+        throw frozen();
+    }
+
+    @Override
+    public void setPrice(Double price) {
+        throw frozen();
+    }
+
+    @Override
+    public void clone(Product p) {
+        throw frozen();
+    }
+
+    @Override
+    protected void addStock(int quantity) {
+        throw frozen();
+    }
+
+    @Override
+    protected boolean reserve(int quantity) {
+        return false;
+    }
+
+    @Override
+    protected boolean release(int quantity) {
+        return false;
+    }
+
+    @Override
+    protected boolean commit(int quantity) {
+        return false;
+    }
+
+    /**
+     * Snapshot products are written as plain products
+     */
+    private Object writeReplace() {
+        return copy();
+    }
+
+    private static UnsupportedOperationException frozen() {
+        return new UnsupportedOperationException("Product of snapshot cannot be changed");
+    }
+}
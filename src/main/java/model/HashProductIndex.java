@@ -0,0 +1,75 @@
+package model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Index answering equality lookups by hashing values of indexed field, products of one value are kept by their id
+ */
+class HashProductIndex extends ProductIndex {
+
+    private final ConcurrentHashMap<Object, Map<Integer, Product>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param field Field which values should be indexed
+     */
+    HashProductIndex(Product.Fields field) {
+        super(field);
+    }
+
+    @Override
+    Collection<Product> select(Object keyword) {
+        Map<Integer, Product> products = entries.get(keyword);
+        return products != null ? products.values() : Collections.emptySet();
+    }
+
+    @Override
+    boolean supports(ProductCondition condition) {
+        return condition.getField() == field
+                && (condition.getKind() == ProductCondition.Kind.Equal || condition.getKind() == ProductCondition.Kind.In);
+    }
+
+    @Override
+    Stream<Product> select(ProductCondition condition) {
+        return condition.getValues().stream().flatMap(value -> select(value).stream());
+    }
+
+    @Override
+    int count(ProductCondition condition, int limit) {
+        int count = 0;
+        for (Object value : condition.getValues()) {
+            count += select(value).size();
+        }
+        return count;
+    }
+
+    @Override
+    protected void add(Object value, Product product) {
+        entries.compute(value, (key, products) -> {
+            Map<Integer, Product> result = products != null ? products : new ConcurrentHashMap<>();
+            result.put(product.getId(), product);
+            return result;
+        });
+    }
+
+    @Override
+    protected void remove(Object value, Product product) {
+        entries.computeIfPresent(value, (key, products) -> {
+            products.remove(product.getId());
+            return products.isEmpty() ? null : products;
+        });
+    }
+
+    @Override
+    protected void replace(Object value, Product product) {
+        add(value, product);
+    }
+
+    @Override
+    protected void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,116 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of non-negative values, such as latencies in nanoseconds or numbers of products, with relative error
+ * below 7%. Values below 16 have buckets of their own, larger ones fall into 16 linear buckets per power of two,
+ * so the whole range of long needs under thousand buckets. Threads record into separate stripes of buckets chosen
+ * by thread id, which are summed only when distribution is read.
+ */
+public final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+    private final int stripeMask;
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Creates histogram with stripes for number of available processors
+     */
+    public Histogram() {
+        int stripes = Integer.highestOneBit(Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 8)));
+        this.counts = new AtomicLongArray(stripes * BUCKETS);
+        this.stripeMask = stripes - 1;
+    }
+
+    /**
+     * @param value Value to be recorded, negative values are recorded as 0
+     */
+    public void record(long value) {
+        long recorded = Math.max(0, value);
+        int stripe = (int) Thread.currentThread().getId() & stripeMask;
+        counts.incrementAndGet(stripe * BUCKETS + bucket(recorded));
+        sum.add(recorded);
+        long current;
+        while (recorded > (current = max.get()) && !max.compareAndSet(current, recorded)) {
+            // Another thread has recorded larger value meanwhile, compare with it
+        }
+    }
+
+    /**
+     * @return Returns number of recorded values
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @return Returns mean of recorded values, or 0 if nothing has been recorded
+     */
+    public double getMean() {
+        long count = getCount();
+        return count > 0 ? (double) sum.sum() / count : 0;
+    }
+
+    /**
+     * @return Returns the largest recorded value
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile Percentile between 0 and 100
+     * @return Returns value which given percentile of recorded values does not exceed, within precision of bucket,
+     * or 0 if nothing has been recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] buckets = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            long bucketCount = counts.get(i);
+            buckets[i % BUCKETS] += bucketCount;
+            count += bucketCount;
+        }
+        if (count == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += buckets[bucket];
+            if (seen >= rank)
+                return Math.min(highestValue(bucket), getMax());
+        }
+        return getMax();
+    }
+
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
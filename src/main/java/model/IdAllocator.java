@@ -0,0 +1,24 @@
+package model;
+
+/**
+ * Allocates unique ids of products created for one warehouse
+ */
+public interface IdAllocator {
+
+    /**
+     * @return Returns id that has never been returned before
+     */
+    int nextId();
+
+    /**
+     * @return Returns the highest id that may have been allocated, ids above it are free
+     */
+    int getHighWaterMark();
+
+    /**
+     * Makes sure that id is never returned, for example when products are loaded with their ids
+     *
+     * @param id Id which is already in use
+     */
+    void advanceTo(int id);
+}
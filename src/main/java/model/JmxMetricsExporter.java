@@ -0,0 +1,154 @@
+package model;
+
+import javax.management.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Registers metrics as MBean of platform MBean server. Attributes are read from metrics whenever they are requested,
+ * so metrics are exported once and stay current until exporter is closed. Every operation has attributes with its
+ * count, number of sampled latencies and their mean, 50th, 99th and 99.9th percentile and maximum in nanoseconds,
+ * sizes have the same attributes.
+ */
+public class JmxMetricsExporter implements MetricsExporter, Closeable {
+
+    private final ObjectName name;
+    private final MBeanServer server;
+
+    /**
+     * @param name Object name under which metrics are registered, such as "warehouse:type=Metrics"
+     */
+    public JmxMetricsExporter(String name) {
+        try {
+            this.name = new ObjectName(name);
+        } catch (MalformedObjectNameException | NullPointerException e) {
+            throw new IllegalArgumentException("Invalid object name: " + name, e);
+        }
+        this.server = ManagementFactory.getPlatformMBeanServer();
+    }
+
+    /**
+     * Registers metrics, replacing metrics registered before under the same name
+     */
+    @Override
+    public synchronized void export(WarehouseMetrics metrics) throws IOException {
+        try {
+            if (server.isRegistered(name))
+                server.unregisterMBean(name);
+            server.registerMBean(new MetricsBean(metrics), name);
+        } catch (JMException e) {
+            throw new IOException("Metrics cannot be registered as " + name, e);
+        }
+    }
+
+    /**
+     * Unregisters metrics, if they are registered
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (server.isRegistered(name))
+                server.unregisterMBean(name);
+        } catch (JMException e) {
+            throw new IOException("Metrics cannot be unregistered from " + name, e);
+        }
+    }
+
+    /**
+     * Read only attributes of metrics, named by operation and statistic, such as SelectCount or FilterP99
+     */
+    private static final class MetricsBean implements DynamicMBean {
+
+        private final Map<String, Value> values = new TreeMap<>();
+        private final MBeanInfo info;
+
+        private MetricsBean(WarehouseMetrics metrics) {
+            for (WarehouseMetrics.Operation operation : WarehouseMetrics.Operation.values()) {
+                add(operation + "Count", () -> metrics.getCount(operation));
+                add(operation.toString(), metrics.getLatency(operation));
+            }
+            add("ScanSize", metrics.getScanSizes());
+            add("ResultSize", metrics.getResultSizes());
+
+            List<MBeanAttributeInfo> infos = new ArrayList<>();
+            values.forEach((attribute, value) -> infos.add(new MBeanAttributeInfo(attribute, value.type,
+                    attribute, true, false, false)));
+            this.info = new MBeanInfo(MetricsBean.class.getName(), "Metrics of warehouse",
+                    infos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+
+        private void add(String prefix, Histogram histogram) {
+            add(prefix + "Samples", histogram::getCount);
+            values.put(prefix + "Mean", new Value(Double.class.getName(), histogram::getMean));
+            add(prefix + "P50", () -> histogram.getValueAtPercentile(50));
+            add(prefix + "P99", () -> histogram.getValueAtPercentile(99));
+            add(prefix + "P999", () -> histogram.getValueAtPercentile(99.9));
+            add(prefix + "Max", histogram::getMax);
+        }
+
+        private void add(String attribute, LongSupplier value) {
+            values.put(attribute, new Value(Long.class.getName(), value::getAsLong));
+        }
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Value value = values.get(attribute);
+            if (value == null)
+                throw new AttributeNotFoundException(attribute);
+
+            return value.reader.get();
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] names) {
+            AttributeList list = new AttributeList();
+            for (String attribute : names) {
+                Value value = values.get(attribute);
+                if (value != null)
+                    list.add(new Attribute(attribute, value.reader.get()));
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(action));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            return info;
+        }
+    }
+
+    /**
+     * Type and reader of value of attribute
+     */
+    private static final class Value {
+
+        private final String type;
+        private final Supplier<Object> reader;
+
+        private Value(String type, Supplier<Object> reader) {
+            this.type = type;
+            this.reader = reader;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package model;
+
+import java.io.IOException;
+
+/**
+ * Publishes metrics of warehouse somewhere outside of it, see {@link Warehouse#getMetrics()}
+ */
+public interface MetricsExporter {
+
+    /**
+     * @param metrics Metrics to be exported
+     * @throws IOException A returned exception that may occur when metrics cannot be published
+     */
+    void export(WarehouseMetrics metrics) throws IOException;
+}
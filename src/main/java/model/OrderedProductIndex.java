@@ -0,0 +1,184 @@
+package model;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Index keeping products ordered by values of indexed field and then by id. Products without value are kept apart
+ * by id, they follow all other products in sorted order and they never meet any condition.
+ */
+class OrderedProductIndex extends ProductIndex {
+
+    private final ConcurrentSkipListMap<Key, Product> entries = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Integer, Product> missing = new ConcurrentSkipListMap<>();
+
+    /**
+     * @param field Field which values should be indexed
+     */
+    OrderedProductIndex(Product.Fields field) {
+        super(field);
+    }
+
+    @Override
+    Collection<Product> select(Object keyword) {
+        if (!field.getType().isInstance(keyword))
+            return Collections.emptyList();
+
+        Comparable<Object> value = Key.comparable(keyword);
+        return range(value, true, value, true).values();
+    }
+
+    @Override
+    boolean supports(ProductCondition condition) {
+        return condition.getField() == field;
+    }
+
+    @Override
+    Stream<Product> select(ProductCondition condition) {
+        switch (condition.getKind()) {
+            case Equal:
+            case In:
+                return condition.getValues().stream().flatMap(value -> select(value).stream());
+            default:
+                return range(condition.getLower(), condition.isLowerInclusive(),
+                        condition.getUpper(), condition.isUpperInclusive()).values().stream();
+        }
+    }
+
+    /**
+     * @param ascending Whether products should be ordered from the lowest value
+     * @return Returns live view of all indexed products in chosen order, without copying or sorting them
+     */
+    Collection<Product> sorted(boolean ascending) {
+        return ascending
+                ? concat(entries.values(), missing.values())
+                : concat(missing.descendingMap().values(), entries.descendingMap().values());
+    }
+
+    /**
+     * @param ascending Whether products should be ordered from the lowest value
+     * @param value Value of the last product before, or null if it has no value, products are ordered by value and
+     *              then by id
+     * @param id Id of the last product before
+     * @return Returns live view of indexed products after the last product in chosen order, found without walking
+     * products before it
+     */
+    Collection<Product> sorted(boolean ascending, Object value, int id) {
+        if (value == null) {
+            return ascending
+                    ? missing.tailMap(id, false).values()
+                    : concat(missing.headMap(id, false).descendingMap().values(), entries.descendingMap().values());
+        }
+
+        Key key = new Key(Key.comparable(value), id);
+        return ascending
+                ? concat(entries.tailMap(key, false).values(), missing.values())
+                : entries.headMap(key, false).descendingMap().values();
+    }
+
+    /**
+     * @param lower Lowest value of range, or null if range is not bounded from below
+     * @param lowerInclusive Whether products equal to lower value belong to range
+     * @param upper Highest value of range, or null if range is not bounded from above
+     * @param upperInclusive Whether products equal to upper value belong to range
+     * @return Returns view of index limited to range of values, ordered by value and id, which is empty if range
+     * has no values
+     */
+    NavigableMap<Key, Product> range(Comparable<Object> lower, boolean lowerInclusive, Comparable<Object> upper, boolean upperInclusive) {
+        if (lower != null && upper != null) {
+            int order = lower.compareTo(upper);
+            if (order > 0 || order == 0 && !(lowerInclusive && upperInclusive))
+                return Collections.emptyNavigableMap();
+        }
+
+        NavigableMap<Key, Product> result = entries;
+        if (lower != null)
+            result = result.tailMap(new Key(lower, lowerInclusive ? Integer.MIN_VALUE : Integer.MAX_VALUE), lowerInclusive);
+        if (upper != null)
+            result = result.headMap(new Key(upper, upperInclusive ? Integer.MAX_VALUE : Integer.MIN_VALUE), upperInclusive);
+        return result;
+    }
+
+    @Override
+    protected boolean keepsMissing() {
+        return true;
+    }
+
+    @Override
+    protected void add(Object value, Product product) {
+        if (value == null)
+            missing.put(product.getId(), product);
+        else
+            entries.put(new Key(Key.comparable(value), product.getId()), product);
+    }
+
+    @Override
+    protected void remove(Object value, Product product) {
+        if (value == null)
+            missing.remove(product.getId());
+        else
+            entries.remove(new Key(Key.comparable(value), product.getId()));
+    }
+
+    @Override
+    protected void replace(Object value, Product product) {
+        add(value, product);
+    }
+
+    @Override
+    protected void clear() {
+        entries.clear();
+        missing.clear();
+    }
+
+    /**
+     * @return Returns live view of products of first collection followed by products of second one, or first one
+     * itself if there are no products in second one
+     */
+    private static Collection<Product> concat(Collection<Product> first, Collection<Product> second) {
+        if (second.isEmpty())
+            return first;
+
+        return new AbstractCollection<Product>() {
+            @Override
+            public Iterator<Product> iterator() {
+                return Stream.concat(first.stream(), second.stream()).iterator();
+            }
+
+            @Override
+            public int size() {
+                return first.size() + second.size();
+            }
+        };
+    }
+
+    /**
+     * Position of product in index, made of indexed value and id of product to keep equal values apart
+     */
+    static final class Key implements Comparable<Key> {
+
+        private final Comparable<Object> value;
+        private final int id;
+
+        Key(Comparable<Object> value, int id) {
+            this.value = value;
+            this.id = id;
+        }
+
+        @SuppressWarnings("unchecked")
+        static Comparable<Object> comparable(Object value) {
+            return (Comparable<Object>) value;
+        }
+
+        @Override
+        public int compareTo(Key key) {
+            int result = value.compareTo(key.value);
+            return result != 0 ? result : Integer.compare(id, key.id);
+        }
+    }
+}
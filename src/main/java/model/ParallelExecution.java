@@ -0,0 +1,231 @@
+package model;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Runs filters and sorts of large storages in fork-join pool, over array snapshot of products which splits evenly.
+ * Numeric fields are sorted by sortable primitive key extracted once per product and merged together with position
+ * of product, so products are not compared field by field at all. Names and categories are sorted by comparator of
+ * the field. Both sorts are stable, so products with equal values keep order of snapshot like sequential sort.
+ */
+final class ParallelExecution {
+
+    /**
+     * Number of products below which parts of sort are not split anymore
+     */
+    private static final int SEQUENTIAL_SIZE = 8192;
+
+    /**
+     * Number of keys below which they are sorted by insertion
+     */
+    private static final int INSERTION_SIZE = 32;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    /**
+     * @param pool Pool which runs filters and sorts
+     * @param threshold Minimal number of products for which parallel execution is used
+     */
+    ParallelExecution(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * @param size Number of stored products
+     * @return Returns true if storage of given size should be processed in parallel
+     */
+    boolean appliesTo(int size) {
+        return size >= threshold;
+    }
+
+    /**
+     * @param products Snapshot of products
+     * @param predicate Predicate which products have to meet
+     * @return Returns products meeting predicate in order of snapshot
+     */
+    List<Product> filter(Product[] products, Predicate<Product> predicate) {
+        return pool.submit(() -> Arrays.stream(products).parallel().filter(predicate).collect(Collectors.toList())).join();
+    }
+
+    /**
+     * @param products Snapshot of products, which is sorted in place for names and categories
+     * @param field Field by which products should be sorted
+     * @param ascending Whether products should be sorted in ascending order
+     * @return Returns sorted products
+     */
+    List<Product> sort(Product[] products, Product.Fields field, boolean ascending) {
+        return pool.submit(() -> field == Product.Fields.Name || field == Product.Fields.Category
+                ? sortByComparator(products, field, ascending) : sortByKey(products, field, ascending)).join();
+    }
+
+    private static List<Product> sortByComparator(Product[] products, Product.Fields field, boolean ascending) {
+        Comparator<Product> comparator = field.comparator();
+        new ProductSorter(products, new Product[products.length], ascending ? comparator : comparator.reversed(),
+                0, products.length).invoke();
+        return new ArrayList<>(Arrays.asList(products));
+    }
+
+    private static List<Product> sortByKey(Product[] products, Product.Fields field, boolean ascending) {
+        long[] keys = new long[products.length];
+        int[] positions = new int[products.length];
+        IntStream.range(0, products.length).parallel().forEach(i -> {
+            long key = key(products[i], field);
+            keys[i] = ascending ? key : ~key;
+            positions[i] = i;
+        });
+
+        new KeySorter(keys, positions, new long[keys.length], new int[keys.length], 0, keys.length).invoke();
+
+        List<Product> sorted = new ArrayList<>(products.length);
+        for (int position : positions) {
+            sorted.add(products[position]);
+        }
+        return sorted;
+    }
+
+    /**
+     * @return Returns key which orders products like {@link Product#compareTo} of numeric field
+     */
+    private static long key(Product product, Product.Fields field) {
+        switch (field) {
+            case Id: return product.getIdAsInt();
+            case Stock: return product.getStockAsInt();
+            default:
+                long bits = Double.doubleToLongBits(product.getPriceAsDouble());
+                return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Merge sort of keys together with positions of their products, halves are sorted by separate tasks
+     */
+    private static final class KeySorter extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long[] keys;
+        private final int[] positions;
+        private final long[] keyBuffer;
+        private final int[] positionBuffer;
+        private final int from;
+        private final int to;
+
+        private KeySorter(long[] keys, int[] positions, long[] keyBuffer, int[] positionBuffer, int from, int to) {
+            this.keys = keys;
+            this.positions = positions;
+            this.keyBuffer = keyBuffer;
+            this.positionBuffer = positionBuffer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_SIZE) {
+                sort(from, to);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new KeySorter(keys, positions, keyBuffer, positionBuffer, from, middle),
+                    new KeySorter(keys, positions, keyBuffer, positionBuffer, middle, to));
+            merge(from, middle, to);
+        }
+
+        private void sort(int from, int to) {
+            if (to - from <= INSERTION_SIZE) {
+                for (int i = from + 1; i < to; i++) {
+                    long key = keys[i];
+                    int position = positions[i];
+                    int j = i - 1;
+                    for (; j >= from && keys[j] > key; j--) {
+                        keys[j + 1] = keys[j];
+                        positions[j + 1] = positions[j];
+                    }
+                    keys[j + 1] = key;
+                    positions[j + 1] = position;
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            sort(from, middle);
+            sort(middle, to);
+            merge(from, middle, to);
+        }
+
+        private void merge(int from, int middle, int to) {
+            if (keys[middle - 1] <= keys[middle])
+                return;
+
+            System.arraycopy(keys, from, keyBuffer, from, to - from);
+            System.arraycopy(positions, from, positionBuffer, from, to - from);
+
+            int left = from;
+            int right = middle;
+            for (int i = from; i < to; i++) {
+                if (right >= to || left < middle && keyBuffer[left] <= keyBuffer[right]) {
+                    keys[i] = keyBuffer[left];
+                    positions[i] = positionBuffer[left++];
+                } else {
+                    keys[i] = keyBuffer[right];
+                    positions[i] = positionBuffer[right++];
+                }
+            }
+        }
+    }
+
+    /**
+     * Merge sort of products by comparator, parts below sequential size are sorted by {@link Arrays#sort}
+     */
+    private static final class ProductSorter extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Product[] products;
+        private final Product[] buffer;
+        private final Comparator<Product> comparator;
+        private final int from;
+        private final int to;
+
+        private ProductSorter(Product[] products, Product[] buffer, Comparator<Product> comparator, int from, int to) {
+            this.products = products;
+            this.buffer = buffer;
+            this.comparator = comparator;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_SIZE) {
+                Arrays.sort(products, from, to, comparator);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new ProductSorter(products, buffer, comparator, from, middle),
+                    new ProductSorter(products, buffer, comparator, middle, to));
+
+            if (comparator.compare(products[middle - 1], products[middle]) <= 0)
+                return;
+
+            System.arraycopy(products, from, buffer, from, to - from);
+            int left = from;
+            int right = middle;
+            for (int i = from; i < to; i++) {
+                if (right >= to || left < middle && comparator.compare(buffer[left], buffer[right]) <= 0)
+                    products[i] = buffer[left++];
+                else
+                    products[i] = buffer[right++];
+            }
+        }
+    }
+}
@@ -1,25 +1,152 @@
 package model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
- * Represents a product with basic fields necessary to describe its characteristics
+ * Represents a product with basic fields necessary to describe its characteristics.
+ * Stock is kept as primitive counters of available and reserved units which are changed together with single
+ * compare-and-set, so reservations never need a lock, never oversell and are never seen half made.
+ * <p>
+ * Values are always read and written through accessors, so storage may hand out subclasses which keep them elsewhere.
  */
 public class Product implements Serializable {
 
-    private static Integer sequence = 1;
+    private static final long serialVersionUID = -6886054861897617466L;
+
+    /**
+     * Keeps serialized form compatible with files written when stock was stored as boxed value
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("id", Integer.class),
+            new ObjectStreamField("name", String.class),
+            new ObjectStreamField("category", String.class),
+            new ObjectStreamField("stock", Integer.class),
+            new ObjectStreamField("price", Double.class)
+    };
+
+    private static final AtomicLongFieldUpdater<Product> COUNTERS = AtomicLongFieldUpdater.newUpdater(Product.class, "counters");
+
+    /**
+     * Marks counters of product which has been replaced in storage by updated one, its stock cannot change anymore
+     */
+    private static final long REPLACED = 1L << 31;
+
+    /**
+     * Shared by all products created without warehouse, see {@link Warehouse#createProduct} for allocation per warehouse
+     */
+    private static final AtomicInteger sequence = new AtomicInteger(1);
+
+    /**
+     * Marks product which has not been copied from another one, so it has no stock read from it
+     */
+    private static final int NOT_READ = Integer.MIN_VALUE;
 
     private Integer id;
     private String name;
     private String category;
-    private Integer stock;
+
+    /**
+     * Available stock in upper half and reserved stock in lower half, whose sign bit is {@link #REPLACED}
+     */
+    private volatile long counters;
     private Double price;
 
     /**
-     * Stores all possible fields of product
+     * Available stock of product this one has been copied from, at the moment of copy
+     */
+    private transient int readStock = NOT_READ;
+
+    /**
+     * Stores all possible fields of product. Every field has its own comparator and predicate which read values
+     * through primitive getters, so they neither box values nor dispatch on field for each product. Products without
+     * value of field are ordered after all products with it.
      */
     public enum Fields {
-        Id, Name, Category, Stock, Price
+        Id(Integer.class,
+                (p1, p2) -> Integer.compare(p1.getIdAsInt(), p2.getIdAsInt()),
+                keyword -> {
+                    if (!(keyword instanceof Integer))
+                        return p -> false;
+                    int id = (Integer) keyword;
+                    return p -> p.getIdAsInt() == id && p.getId() != null;
+                }),
+        Name(String.class,
+                (p1, p2) -> compareText(p1.getName(), p2.getName()),
+                keyword -> p -> keyword.equals(p.getName())),
+        Category(String.class,
+                (p1, p2) -> compareText(p1.getCategory(), p2.getCategory()),
+                keyword -> p -> keyword.equals(p.getCategory())),
+        Stock(Integer.class,
+                (p1, p2) -> Integer.compare(p1.getStockAsInt(), p2.getStockAsInt()),
+                keyword -> {
+                    if (!(keyword instanceof Integer))
+                        return p -> false;
+                    int stock = (Integer) keyword;
+                    return p -> p.getStockAsInt() == stock;
+                }),
+        Price(Double.class,
+                (p1, p2) -> {
+                    double price1 = p1.getPriceAsDouble();
+                    double price2 = p2.getPriceAsDouble();
+                    int result = Double.compare(price1, price2);
+                    if (result != 0 || !Double.isNaN(price1))
+                        return result;
+                    // Missing price is read as NaN, it is told apart only among NaN prices
+                    return Boolean.compare(p1.getPrice() == null, p2.getPrice() == null);
+                },
+                keyword -> {
+                    if (!(keyword instanceof Double))
+                        return p -> false;
+                    long bits = Double.doubleToLongBits((Double) keyword);
+                    return p -> Double.doubleToLongBits(p.getPriceAsDouble()) == bits && p.getPrice() != null;
+                });
+
+        private final Class<?> type;
+        private final Comparator<Product> comparator;
+        private final Function<Object, Predicate<Product>> predicate;
+
+        Fields(final Class<?> type, final Comparator<Product> comparator, final Function<Object, Predicate<Product>> predicate) {
+            this.type = type;
+            this.comparator = comparator;
+            this.predicate = predicate;
+        }
+
+        private static int compareText(String text1, String text2) {
+            if (text1 == null || text2 == null)
+                return text1 == null ? (text2 == null ? 0 : 1) : -1;
+            return text1.compareTo(text2);
+        }
+
+        /**
+         * @return Type of values held by field
+         */
+        public Class<?> getType() {
+            return type;
+        }
+
+        /**
+         * @return Returns comparator ordering products by this field like {@link Product#compareTo}
+         */
+        public Comparator<Product> comparator() {
+            return comparator;
+        }
+
+        /**
+         * @param keyword Value which field of product has to be equal to, null is matched by no product
+         * @return Returns predicate matching products whose value of this field equals keyword
+         */
+        public Predicate<Product> equalTo(final Object keyword) {
+            return keyword != null ? predicate.apply(keyword) : p -> false;
+        }
     }
 
     /**
@@ -36,10 +163,27 @@ public class Product implements Serializable {
      * @param price Represents price per each product
      */
     public Product(final String name, final String category, final Integer stock, final Double price) {
-        this.id = sequence++;
+        this.id = sequence.getAndIncrement();
         this.name = name;
         this.category = category;
-        this.stock = stock;
+        this.counters = counters(stock != null ? stock : 0, 0);
+        this.price = price;
+    }
+
+    /**
+     * Restores product with already assigned id, for example when it is read from snapshot
+     *
+     * @param id Represents id assigned to product before
+     * @param name Represents name of product
+     * @param category Represents type of category
+     * @param stock Represents quantity of stock
+     * @param price Represents price per each product
+     */
+    public Product(final Integer id, final String name, final String category, final Integer stock, final Double price) {
+        this.id = id;
+        this.name = name;
+        this.category = category;
+        this.counters = counters(stock != null ? stock : 0, 0);
         this.price = price;
     }
 
@@ -47,7 +191,7 @@ public class Product implements Serializable {
      * @return Sequence that generate unique value for id
      */
     public static Integer getSequence() {
-        return sequence;
+        return sequence.get();
     }
 
     /**
@@ -57,6 +201,14 @@ public class Product implements Serializable {
         return id;
     }
 
+    /**
+     * @return Gets id of product without boxing, id which is not assigned is read as 0
+     */
+    public int getIdAsInt() {
+        Integer id = getId();
+        return id != null ? id : 0;
+    }
+
     /**
      * @return Gets name of product
      */
@@ -86,17 +238,115 @@ public class Product implements Serializable {
     }
 
     /**
-     * @return Get stock of product
+     * @return Get stock of product that is available, reserved units are not included
      */
     public Integer getStock() {
-        return stock;
+        return stockOf(counters);
     }
 
     /**
-     * @param stock Set stock for product
+     * Subclasses which keep stock elsewhere override it together with {@link #getStock}
+     *
+     * @return Get available stock of product without boxing
+     */
+    public int getStockAsInt() {
+        return stockOf(counters);
+    }
+
+    /**
+     * @param stock Set stock for product, null is treated as no stock
      */
     public void setStock(final Integer stock) {
-        this.stock = stock;
+        long value = (long) (stock != null ? stock : 0) << 32;
+        long current;
+        do {
+            current = counters;
+        } while (!COUNTERS.compareAndSet(this, current, value | current & 0xFFFFFFFFL));
+    }
+
+    /**
+     * @return Get quantity of stock that is reserved and waits to be committed or released
+     */
+    public int getReserved() {
+        return reservedOf(counters);
+    }
+
+    /**
+     * @param quantity Quantity to be moved from available to reserved stock
+     * @return Returns true if enough stock was available, if not then nothing is changed and false is returned
+     */
+    protected boolean reserve(final int quantity) {
+        long current;
+        do {
+            current = counters;
+            if ((current & REPLACED) != 0 || stockOf(current) < quantity)
+                return false;
+        } while (!COUNTERS.compareAndSet(this, current, counters(stockOf(current) - quantity, reservedOf(current) + quantity)));
+
+        return true;
+    }
+
+    /**
+     * @param quantity Quantity to be moved from reserved back to available stock
+     * @return Returns true if enough stock was reserved, if not then nothing is changed and false is returned
+     */
+    protected boolean release(final int quantity) {
+        long current;
+        do {
+            current = counters;
+            if ((current & REPLACED) != 0 || reservedOf(current) < quantity)
+                return false;
+        } while (!COUNTERS.compareAndSet(this, current, counters(stockOf(current) + quantity, reservedOf(current) - quantity)));
+
+        return true;
+    }
+
+    /**
+     * @param quantity Quantity of reserved stock that leaves warehouse for good
+     * @return Returns true if enough stock was reserved, if not then nothing is changed and false is returned
+     */
+    protected boolean commit(final int quantity) {
+        long current;
+        do {
+            current = counters;
+            if ((current & REPLACED) != 0 || reservedOf(current) < quantity)
+                return false;
+        } while (!COUNTERS.compareAndSet(this, current, counters(stockOf(current), reservedOf(current) - quantity)));
+
+        return true;
+    }
+
+    /**
+     * Subclasses which keep stock elsewhere override it together with {@link #reserve}
+     *
+     * @param quantity Quantity added to available stock, negative quantity takes it away but never below zero
+     */
+    protected void addStock(final int quantity) {
+        long current;
+        do {
+            current = counters;
+            if ((current & REPLACED) != 0)
+                return;
+        } while (!COUNTERS.compareAndSet(this, current, counters(Math.max(0, stockOf(current) + quantity), reservedOf(current))));
+    }
+
+    /**
+     * @return Returns true if product has been replaced in storage by updated one, see {@link #updatedBy}
+     */
+    boolean isReplaced() {
+        return (counters & REPLACED) != 0;
+    }
+
+    private static long counters(int stock, int reserved) {
+        return (long) stock << 32 | reserved;
+    }
+
+    private static int stockOf(long counters) {
+        return (int) (counters >> 32);
+    }
+
+    private static int reservedOf(long counters) {
+        return (int) counters & Integer.MAX_VALUE;
     }
 
     /**
@@ -106,6 +356,16 @@ public class Product implements Serializable {
         return price;
     }
 
+    /**
+     * Subclasses which keep price elsewhere override it together with {@link #getPrice}
+     *
+     * @return Get price of product without boxing, missing price is read as NaN
+     */
+    public double getPriceAsDouble() {
+        Double price = this.price;
+        return price != null ? price : Double.NaN;
+    }
+
     /**
      * @param price Set price for product
      */
@@ -114,13 +374,98 @@ public class Product implements Serializable {
     }
 
     /**
+     * Copies values of product to this product. Available stock of product which is a copy is changed only by as much
+     * as it has been changed on the copy, so stock reserved meanwhile is not returned, stock of other products is set.
+     *
      * @param p Copies values of product to another this product
      */
     public void clone(Product p) {
-        this.name = p.name;
-        this.category = p.category;
-        this.stock = p.stock;
-        this.price = p.price;
+        setName(p.getName());
+        setCategory(p.getCategory());
+        Integer change = takeStockChangeOf(p);
+        if (change == null)
+            setStock(p.getStock());
+        else if (change != 0)
+            addStock(change);
+        setPrice(p.getPrice());
+    }
+
+    /**
+     * Stored product is not changed in place, so readers which do not lock it never see values of update half copied.
+     * Its counters are marked as replaced in the same compare-and-set which reads them, so reservations made on it
+     * until then are carried over to returned product and later ones fail. Subclasses whose values are kept by their
+     * storage copy values to themselves instead, see {@link #clone}.
+     *
+     * @param p Product which values are copied like by {@link #clone}
+     * @return Returns new product with the same id, values of p and stock of this product changed like by clone
+     */
+    protected Product updatedBy(Product p) {
+        Integer change = takeStockChangeOf(p);
+        long current;
+        do {
+            current = counters;
+        } while (!COUNTERS.compareAndSet(this, current, current | REPLACED));
+
+        int stock = stockOf(current);
+        if (change == null)
+            stock = p.getStockAsInt();
+        else if (change != 0)
+            stock = Math.max(0, stock + change);
+
+        Product product = new Product(getId(), p.getName(), p.getCategory(), stock, p.getPrice());
+        product.counters = counters(stock, reservedOf(current));
+        return product;
+    }
+
+    /**
+     * Change is taken from copy, so copying it again changes stock only by as much as it has been changed since
+     *
+     * @param p Product which values are copied to this product
+     * @return Returns change of available stock made on product since it has been copied or copied to another product,
+     * 0 if product is this one, or null if product is not a copy and its stock should be set as it is
+     */
+    protected final Integer takeStockChangeOf(Product p) {
+        if (p == this)
+            return 0;
+        if (p.readStock == NOT_READ)
+            return null;
+
+        int stock = p.getStockAsInt();
+        int change = stock - p.readStock;
+        p.readStock = stock;
+        return change;
+    }
+
+    /**
+     * @param stock Available stock of product which this product would be copied to
+     * @return Returns available stock that product would have after copy, without taking change of this copy
+     */
+    int stockAfterCopyTo(int stock) {
+        if (readStock == NOT_READ)
+            return getStockAsInt();
+
+        int change = getStockAsInt() - readStock;
+        return change != 0 ? Math.max(0, stock + change) : stock;
+    }
+
+    /**
+     * @return Returns detached copy of this product with the same id and values, which remembers its available stock,
+     * see {@link #clone}
+     */
+    public Product copy() {
+        Product product = new Product(getId(), getName(), getCategory(), getStock(), getPrice());
+        product.counters = counters(product.getStockAsInt(), getReserved());
+        product.readStock = product.getStockAsInt();
+        return product;
+    }
+
+    /**
+     * @return Returns copy which changes stock of another product like this product would, when it is copied to it
+     */
+    Product copyWithReadStock() {
+        Product product = copy();
+        product.readStock = readStock;
+        return product;
     }
 
     /**
@@ -129,11 +474,11 @@ public class Product implements Serializable {
      */
     public Object getSelected(Fields field) {
         switch(field) {
-            case Id: return id;
-            case Name: return name;
-            case Category: return category;
-            case Stock: return stock;
-            case Price: return price;
+            case Id: return getId();
+            case Name: return getName();
+            case Category: return getCategory();
+            case Stock: return getStock();
+            case Price: return getPrice();
         }
         return null;
     }
@@ -144,13 +489,29 @@ public class Product implements Serializable {
      * @return Result after comparing same field from sent and this products
      */
     public int compareTo(Fields field, Product product) {
-        switch(field) {
-            case Id: return id.compareTo(product.id);
-            case Name: return name.compareTo(product.name);
-            case Category: return category.compareTo(product.category);
-            case Stock: return stock.compareTo(product.stock);
-            case Price: return price.compareTo(product.price);
-        }
-        return 0;
+        return field.comparator().compare(this, product);
+    }
+
+    /**
+     * Reserved stock is written back as available, so reservations are released when products are restored
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("id", getId());
+        fields.put("name", getName());
+        fields.put("category", getCategory());
+        fields.put("stock", Integer.valueOf(getStock() + getReserved()));
+        fields.put("price", getPrice());
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        id = (Integer) fields.get("id", null);
+        name = (String) fields.get("name", null);
+        category = (String) fields.get("category", null);
+        setStock((Integer) fields.get("stock", null));
+        price = (Double) fields.get("price", null);
+        readStock = NOT_READ;
     }
 }
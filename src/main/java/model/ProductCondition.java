@@ -0,0 +1,128 @@
+package model;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Single condition of query that value of one field of product has to meet
+ */
+final class ProductCondition {
+
+    /**
+     * Kinds of supported conditions
+     */
+    enum Kind {
+        Equal, In, Range, Prefix
+    }
+
+    private final Product.Fields field;
+    private final Kind kind;
+    private final Comparable<Object> lower;
+    private final boolean lowerInclusive;
+    private final Comparable<Object> upper;
+    private final boolean upperInclusive;
+    private final Set<Object> values;
+
+    private ProductCondition(Product.Fields field, Kind kind, Object lower, boolean lowerInclusive,
+                             Object upper, boolean upperInclusive, Set<Object> values) {
+        this.field = field;
+        this.kind = kind;
+        this.lower = comparable(lower);
+        this.lowerInclusive = lowerInclusive;
+        this.upper = comparable(upper);
+        this.upperInclusive = upperInclusive;
+        this.values = values;
+    }
+
+    static ProductCondition equal(Product.Fields field, Object value) {
+        return new ProductCondition(field, Kind.Equal, value, true, value, true, Collections.singleton(value));
+    }
+
+    static ProductCondition in(Product.Fields field, Set<Object> values) {
+        return new ProductCondition(field, Kind.In, null, false, null, false, values);
+    }
+
+    static ProductCondition range(Product.Fields field, Object lower, boolean lowerInclusive, Object upper, boolean upperInclusive) {
+        return new ProductCondition(field, Kind.Range, lower, lowerInclusive, upper, upperInclusive, null);
+    }
+
+    static ProductCondition prefix(Product.Fields field, String prefix) {
+        return new ProductCondition(field, Kind.Prefix, prefix, true, successor(prefix), false, null);
+    }
+
+    Product.Fields getField() {
+        return field;
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return Returns lower bound of range, or null if range is not bounded from below
+     */
+    Comparable<Object> getLower() {
+        return lower;
+    }
+
+    boolean isLowerInclusive() {
+        return lowerInclusive;
+    }
+
+    /**
+     * @return Returns upper bound of range, or null if range is not bounded from above
+     */
+    Comparable<Object> getUpper() {
+        return upper;
+    }
+
+    boolean isUpperInclusive() {
+        return upperInclusive;
+    }
+
+    /**
+     * @return Returns values accepted by Equal and In conditions
+     */
+    Set<Object> getValues() {
+        return values;
+    }
+
+    /**
+     * @param product Product to be checked
+     * @return Returns true if value of field of product meets condition
+     */
+    boolean test(Product product) {
+        Object value = product.getSelected(field);
+        if (value == null)
+            return false;
+
+        switch (kind) {
+            case Equal:
+            case In:
+                return values.contains(value);
+            case Prefix:
+                return ((String) value).startsWith(lower.toString());
+            case Range:
+                int low = lower != null ? lower.compareTo(value) : -1;
+                int high = upper != null ? upper.compareTo(value) : 1;
+                return (low < 0 || low == 0 && lowerInclusive) && (high > 0 || high == 0 && upperInclusive);
+        }
+        return false;
+    }
+
+    /**
+     * @return Returns the lowest text greater than all texts starting with prefix, or null if there is none
+     */
+    private static String successor(String prefix) {
+        int last = prefix.length() - 1;
+        while (last >= 0 && prefix.charAt(last) == Character.MAX_VALUE) {
+            last--;
+        }
+        return last >= 0 ? prefix.substring(0, last) + (char) (prefix.charAt(last) + 1) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> comparable(Object value) {
+        return (Comparable<Object>) value;
+    }
+}
@@ -0,0 +1,111 @@
+package model;
+
+import java.util.Comparator;
+
+/**
+ * Position in products sorted by field and then by id, see {@link Warehouse#pageProducts}. Cursor remembers value
+ * and id of the last product of page instead of its offset, so next page starts right after it even when products
+ * before it have been inserted or deleted meanwhile, and no product is skipped or repeated.
+ */
+public final class ProductCursor {
+
+    private final Product.Fields field;
+    private final boolean ascending;
+    private final Product last;
+
+    /**
+     * Restores cursor from values sent by client, for example the last product shown on page
+     *
+     * @param field Field by which products are sorted
+     * @param ascending Whether products are sorted from the lowest value
+     * @param value Value of field of the last product before page, of type of field
+     * @param id Id of the last product before page
+     */
+    public ProductCursor(Product.Fields field, boolean ascending, Object value, int id) {
+        if (field == null)
+            throw new IllegalArgumentException("Field must be set");
+        if (!field.getType().isInstance(value))
+            throw new IllegalArgumentException("Value of " + field + " must be " + field.getType().getSimpleName() + ": " + value);
+
+        Product last = new Product(field == Product.Fields.Id ? (Integer) value : id, null, null, 0, null);
+        switch (field) {
+            case Name:
+                last.setName((String) value);
+                break;
+            case Category:
+                last.setCategory((String) value);
+                break;
+            case Stock:
+                last.setStock((Integer) value);
+                break;
+            case Price:
+                last.setPrice((Double) value);
+                break;
+        }
+
+        this.field = field;
+        this.ascending = ascending;
+        this.last = last;
+    }
+
+    /**
+     * @param field Field by which products are sorted
+     * @param ascending Whether products are sorted from the lowest value
+     * @param last The last product of page, its values are copied
+     */
+    ProductCursor(Product.Fields field, boolean ascending, Product last) {
+        this.field = field;
+        this.ascending = ascending;
+        this.last = last.copy();
+    }
+
+    /**
+     * @return Returns field by which products are sorted
+     */
+    public Product.Fields getField() {
+        return field;
+    }
+
+    /**
+     * @return Returns true if products are sorted from the lowest value
+     */
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    /**
+     * @return Returns value of field of the last product before page
+     */
+    public Object getValue() {
+        return last.getSelected(field);
+    }
+
+    /**
+     * @return Returns id of the last product before page
+     */
+    public int getId() {
+        return last.getIdAsInt();
+    }
+
+    /**
+     * @return Returns the last product before page, holding only its id and value of field
+     */
+    Product getLast() {
+        return last;
+    }
+
+    /**
+     * @param field Field by which products are sorted
+     * @param ascending Whether products are sorted from the lowest value
+     * @return Returns comparator of products in order of pages, by field and then by id
+     */
+    static Comparator<Product> order(Product.Fields field, boolean ascending) {
+        Comparator<Product> order = field.comparator().thenComparingInt(Product::getIdAsInt);
+        return ascending ? order : order.reversed();
+    }
+
+    @Override
+    public String toString() {
+        return field + (ascending ? " after " : " before ") + getValue() + "#" + getId();
+    }
+}
@@ -0,0 +1,150 @@
+package model;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Secondary index over one field of products, kept up to date by listening to warehouse changes
+ */
+abstract class ProductIndex implements WarehouseListener {
+
+    /**
+     * Stands for missing value among indexed values of index which keeps products without value
+     */
+    private static final Object MISSING = new Object();
+
+    /**
+     * Field which values are indexed
+     */
+    protected final Product.Fields field;
+
+    /**
+     * Values under which products are indexed by their id, stored products may be changed in place before
+     * warehouse is told about it, so index cannot rely on values held by product to find its old position
+     */
+    private final Map<Integer, Object> indexedValues = new ConcurrentHashMap<>();
+
+    /**
+     * @param field Field which values should be indexed
+     */
+    protected ProductIndex(Product.Fields field) {
+        this.field = field;
+    }
+
+    /**
+     * @return Returns indexed field
+     */
+    Product.Fields getField() {
+        return field;
+    }
+
+    /**
+     * @param keyword Value of indexed field that products must be equal to
+     * @return Returns products which indexed field is equal to keyword
+     */
+    abstract Collection<Product> select(Object keyword);
+
+    /**
+     * @param condition Condition on indexed field
+     * @return Returns true if index is able to select products meeting condition
+     */
+    abstract boolean supports(ProductCondition condition);
+
+    /**
+     * @param condition Condition on indexed field which is supported by index
+     * @return Returns lazy stream of products meeting condition
+     */
+    abstract Stream<Product> select(ProductCondition condition);
+
+    /**
+     * @param condition Condition on indexed field which is supported by index
+     * @param limit Number of products after which counting can stop
+     * @return Returns number of products meeting condition, but not more than limit
+     */
+    int count(ProductCondition condition, int limit) {
+        return (int) select(condition).limit(limit).count();
+    }
+
+    /**
+     * @return Returns true if products without value of indexed field are indexed as well, under null value
+     */
+    protected boolean keepsMissing() {
+        return false;
+    }
+
+    /**
+     * @param value Value of indexed field, null only if index keeps products without value
+     * @param product Product to be added under value
+     */
+    protected abstract void add(Object value, Product product);
+
+    /**
+     * @param value Value of indexed field, null only if index keeps products without value
+     * @param product Product to be removed from value
+     */
+    protected abstract void remove(Object value, Product product);
+
+    /**
+     * @param value Value of indexed field, null only if index keeps products without value
+     * @param product Product to take place of product with the same id under value, which it has replaced in storage
+     */
+    protected abstract void replace(Object value, Product product);
+
+    /**
+     * Removes all products from index
+     */
+    protected abstract void clear();
+
+    @Override
+    public void productInserted(Product product) {
+        reindex(product, false);
+    }
+
+    @Override
+    public void productUpdated(Product before, Product after) {
+        reindex(after, true);
+    }
+
+    @Override
+    public void stockChanged(Product product, int previousStock, int previousReserved) {
+        if (field == Product.Fields.Stock)
+            reindex(product, false);
+    }
+
+    @Override
+    public void productDeleted(Product product) {
+        Object previous = indexedValues.remove(product.getId());
+        if (previous != null)
+            remove(previous != MISSING ? previous : null, product);
+    }
+
+    @Override
+    public void storageReplaced(Map<Integer, Product> storage) {
+        clear();
+        indexedValues.clear();
+        storage.values().forEach(product -> reindex(product, false));
+    }
+
+    /**
+     * @param product Product which position in index should match its current value of indexed field
+     * @param updated Whether product may have replaced another instance, which is indexed under the same value
+     */
+    private void reindex(Product product, boolean updated) {
+        Object value = product.getSelected(field);
+        Object indexed = value != null ? value : keepsMissing() ? MISSING : null;
+        Object previous = indexed != null ? indexedValues.put(product.getId(), indexed) : indexedValues.remove(product.getId());
+        if (Objects.equals(previous, indexed)) {
+            if (updated && indexed != null)
+                replace(value, product);
+            return;
+        }
+
+        if (previous != null)
+            remove(previous != MISSING ? previous : null, product);
+        if (indexed != null)
+            add(value, product);
+    }
+}
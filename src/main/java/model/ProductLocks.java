@@ -0,0 +1,102 @@
+package model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Locks and version stamps of products for {@link Transaction}s, registered as listener of warehouse. Products share
+ * fixed number of locks by id, while every product has its own stamp, so transactions conflict only on products
+ * they actually touch. Stamps are taken from one clock, so product deleted and inserted again never gets stamp
+ * it had before.
+ */
+final class ProductLocks implements WarehouseListener {
+
+    private final ReentrantLock[] stripes;
+    private final Map<Integer, Long> stamps = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * Number of times all products have been replaced, transactions started before replacement cannot commit
+     */
+    private volatile long replacements;
+
+    /**
+     * @param stripes Number of locks, rounded up to power of two
+     */
+    ProductLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * @param id Id of product
+     * @return Returns index of lock of product, locks taken in order of indexes never deadlock
+     */
+    int stripe(Integer id) {
+        int hash = id.hashCode();
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+
+    /**
+     * @param id Id of product
+     * @return Returns lock of product
+     */
+    ReentrantLock lockFor(Integer id) {
+        return stripes[stripe(id)];
+    }
+
+    /**
+     * @param stripe Index of lock
+     * @return Returns lock of given index
+     */
+    ReentrantLock lock(int stripe) {
+        return stripes[stripe];
+    }
+
+    /**
+     * @param id Id of product
+     * @return Returns version stamp of product, 0 if it has not changed since transactions were enabled
+     */
+    long stamp(Integer id) {
+        Long stamp = stamps.get(id);
+        return stamp != null ? stamp : 0;
+    }
+
+    /**
+     * @return Returns number of times all products have been replaced
+     */
+    long getReplacements() {
+        return replacements;
+    }
+
+    @Override
+    public void productInserted(Product product) {
+        stamps.put(product.getId(), clock.incrementAndGet());
+    }
+
+    @Override
+    public void productUpdated(Product before, Product after) {
+        stamps.put(after.getId(), clock.incrementAndGet());
+    }
+
+    @Override
+    public void stockChanged(Product product, int previousStock, int previousReserved) {
+        stamps.put(product.getId(), clock.incrementAndGet());
+    }
+
+    @Override
+    public void productDeleted(Product product) {
+        stamps.remove(product.getId());
+    }
+
+    @Override
+    public synchronized void storageReplaced(Map<Integer, Product> storage) {
+        replacements++;
+        stamps.clear();
+    }
+}
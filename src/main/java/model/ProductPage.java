@@ -0,0 +1,43 @@
+package model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of sorted products together with cursor from which the next page continues
+ */
+public final class ProductPage {
+
+    private final List<Product> products;
+    private final ProductCursor next;
+
+    /**
+     * @param products Products of page in sorted order
+     * @param next Cursor after the last product of page, or null if there are no more products
+     */
+    ProductPage(List<Product> products, ProductCursor next) {
+        this.products = Collections.unmodifiableList(products);
+        this.next = next;
+    }
+
+    /**
+     * @return Returns unmodifiable list of products of page in sorted order
+     */
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    /**
+     * @return Returns cursor from which the next page continues, or null if this is the last page
+     */
+    public ProductCursor getNext() {
+        return next;
+    }
+
+    /**
+     * @return Returns true if there are more products after this page
+     */
+    public boolean hasNext() {
+        return next != null;
+    }
+}
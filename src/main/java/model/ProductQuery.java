@@ -0,0 +1,143 @@
+package model;
+
+import java.util.*;
+
+/**
+ * Query made of conditions on fields of products which all have to be met, with optional limit of results.
+ * Executed by {@link Warehouse#query(ProductQuery)}, which drives it by the most selective index available.
+ */
+public class ProductQuery {
+
+    private final List<ProductCondition> conditions = new ArrayList<>();
+    private int limit = Integer.MAX_VALUE;
+
+    /**
+     * @param field Field to be compared
+     * @param value Value that field has to be equal to
+     * @return Returns this query
+     */
+    public ProductQuery equalTo(Product.Fields field, Object value) {
+        conditions.add(ProductCondition.equal(field, checked(field, value)));
+        return this;
+    }
+
+    /**
+     * @param field Field to be compared
+     * @param values Values of which field has to be equal to any
+     * @return Returns this query
+     */
+    public ProductQuery in(Product.Fields field, Object... values) {
+        Set<Object> accepted = new HashSet<>(values.length * 2);
+        for (Object value : values) {
+            accepted.add(checked(field, value));
+        }
+        conditions.add(ProductCondition.in(field, accepted));
+        return this;
+    }
+
+    /**
+     * @param field Field to be compared
+     * @param value Value that field has to be less than
+     * @return Returns this query
+     */
+    public ProductQuery lessThan(Product.Fields field, Object value) {
+        conditions.add(ProductCondition.range(field, null, false, checked(field, value), false));
+        return this;
+    }
+
+    /**
+     * @param field Field to be compared
+     * @param value Value that field has to be less than or equal to
+     * @return Returns this query
+     */
+    public ProductQuery atMost(Product.Fields field, Object value) {
+        conditions.add(ProductCondition.range(field, null, false, checked(field, value), true));
+        return this;
+    }
+
+    /**
+     * @param field Field to be compared
+     * @param value Value that field has to be greater than
+     * @return Returns this query
+     */
+    public ProductQuery greaterThan(Product.Fields field, Object value) {
+        conditions.add(ProductCondition.range(field, checked(field, value), false, null, false));
+        return this;
+    }
+
+    /**
+     * @param field Field to be compared
+     * @param value Value that field has to be greater than or equal to
+     * @return Returns this query
+     */
+    public ProductQuery atLeast(Product.Fields field, Object value) {
+        conditions.add(ProductCondition.range(field, checked(field, value), true, null, false));
+        return this;
+    }
+
+    /**
+     * @param field Field to be compared
+     * @param from Lowest value that field can have
+     * @param to Highest value that field can have
+     * @return Returns this query
+     */
+    public ProductQuery between(Product.Fields field, Object from, Object to) {
+        conditions.add(ProductCondition.range(field, checked(field, from), true, checked(field, to), true));
+        return this;
+    }
+
+    /**
+     * @param field Text field to be compared
+     * @param prefix Text that field has to start with
+     * @return Returns this query
+     */
+    public ProductQuery startsWith(Product.Fields field, String prefix) {
+        if (field == null || field.getType() != String.class)
+            throw new IllegalArgumentException("Prefix condition requires text field, but was " + field);
+
+        conditions.add(ProductCondition.prefix(field, checked(field, prefix)));
+        return this;
+    }
+
+    /**
+     * @param limit Maximal number of products to be returned, query stops as soon as it is reached
+     * @return Returns this query
+     */
+    public ProductQuery limit(int limit) {
+        if (limit < 0)
+            throw new IllegalArgumentException("Limit cannot be negative, but was " + limit);
+
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * @return Returns maximal number of products to be returned
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @param product Product to be checked
+     * @return Returns true if product meets all conditions of query
+     */
+    public boolean test(Product product) {
+        for (ProductCondition condition : conditions) {
+            if (!condition.test(product))
+                return false;
+        }
+        return true;
+    }
+
+    List<ProductCondition> getConditions() {
+        return conditions;
+    }
+
+    private static <T> T checked(Product.Fields field, T value) {
+        if (field == null || !field.getType().isInstance(value))
+            throw new IllegalArgumentException("Value " + value + " cannot be compared with field " + field);
+
+        return value;
+    }
+}
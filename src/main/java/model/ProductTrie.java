@@ -0,0 +1,171 @@
+package model;
+
+import java.util.function.Consumer;
+
+/**
+ * Persistent hash trie of products by id. Every change copies only nodes on path to product, at most seven of them,
+ * and shares the rest with previous trie, so all previous tries stay valid and unchanged for their readers.
+ * Ids are used as hashes directly, distinct ids always differ in some five bit part, so there are no collisions.
+ */
+final class ProductTrie {
+
+    static final ProductTrie EMPTY = new ProductTrie(null, 0);
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final Node root;
+    private final int size;
+
+    private ProductTrie(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @return Returns number of products in trie
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param id Id of product
+     * @return Returns product stored under id, or null
+     */
+    Product get(int id) {
+        Node node = root;
+        for (int shift = 0; node != null; shift += BITS) {
+            int bit = 1 << ((id >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0)
+                return null;
+
+            Object slot = node.slots[Integer.bitCount(node.bitmap & (bit - 1))];
+            if (slot instanceof Product)
+                return ((Product) slot).getIdAsInt() == id ? (Product) slot : null;
+            node = (Node) slot;
+        }
+        return null;
+    }
+
+    /**
+     * @param product Product to be stored under its id, replacing previous one
+     * @return Returns trie with product
+     */
+    ProductTrie put(Product product) {
+        boolean[] added = {false};
+        Node root = put(this.root, product, product.getIdAsInt(), 0, added);
+        return new ProductTrie(root, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * @param id Id of product to be removed
+     * @return Returns trie without product, or this trie if there was no such product
+     */
+    ProductTrie remove(int id) {
+        if (get(id) == null)
+            return this;
+
+        Object root = remove(this.root, id, 0);
+        return size == 1 ? EMPTY : new ProductTrie(root instanceof Node ? (Node) root : single((Product) root), size - 1);
+    }
+
+    /**
+     * @param action Action called for every product, in order of bits of ids from the lowest ones
+     */
+    void forEach(Consumer<Product> action) {
+        if (root != null)
+            forEach(root, action);
+    }
+
+    private static Node put(Node node, Product product, int id, int shift, boolean[] added) {
+        if (node == null) {
+            added[0] = true;
+            return single(product, id, shift);
+        }
+
+        int bit = 1 << ((id >>> shift) & MASK);
+        int index = Integer.bitCount(node.bitmap & (bit - 1));
+        if ((node.bitmap & bit) == 0) {
+            added[0] = true;
+            Object[] slots = new Object[node.slots.length + 1];
+            System.arraycopy(node.slots, 0, slots, 0, index);
+            slots[index] = product;
+            System.arraycopy(node.slots, index, slots, index + 1, node.slots.length - index);
+            return new Node(node.bitmap | bit, slots);
+        }
+
+        Object slot = node.slots[index];
+        Object replacement;
+        if (slot instanceof Node) {
+            replacement = put((Node) slot, product, id, shift + BITS, added);
+        } else if (((Product) slot).getIdAsInt() == id) {
+            replacement = product;
+        } else {
+            added[0] = true;
+            Product other = (Product) slot;
+            replacement = put(single(other, other.getIdAsInt(), shift + BITS), product, id, shift + BITS, new boolean[1]);
+        }
+
+        Object[] slots = node.slots.clone();
+        slots[index] = replacement;
+        return new Node(node.bitmap, slots);
+    }
+
+    /**
+     * @return Returns node without product, or the only product left in it, so products are kept as high as possible
+     */
+    private static Object remove(Node node, int id, int shift) {
+        int bit = 1 << ((id >>> shift) & MASK);
+        int index = Integer.bitCount(node.bitmap & (bit - 1));
+        Object slot = node.slots[index];
+        Object replacement = slot instanceof Node ? remove((Node) slot, id, shift + BITS) : null;
+
+        if (replacement == null) {
+            if (node.slots.length == 2 && node.slots[1 - index] instanceof Product)
+                return node.slots[1 - index];
+
+            Object[] slots = new Object[node.slots.length - 1];
+            System.arraycopy(node.slots, 0, slots, 0, index);
+            System.arraycopy(node.slots, index + 1, slots, index, slots.length - index);
+            return new Node(node.bitmap & ~bit, slots);
+        }
+        if (replacement instanceof Product && node.slots.length == 1)
+            return replacement;
+
+        Object[] slots = node.slots.clone();
+        slots[index] = replacement;
+        return new Node(node.bitmap, slots);
+    }
+
+    private static Node single(Product product) {
+        return single(product, product.getIdAsInt(), 0);
+    }
+
+    private static Node single(Product product, int id, int shift) {
+        return new Node(1 << ((id >>> shift) & MASK), new Object[]{product});
+    }
+
+    private static void forEach(Node node, Consumer<Product> action) {
+        for (Object slot : node.slots) {
+            if (slot instanceof Node)
+                forEach((Node) slot, action);
+            else
+                action.accept((Product) slot);
+        }
+    }
+
+    /**
+     * Node with slots only for bits set in bitmap, every slot holds product or next node
+     */
+    private static final class Node {
+
+        private final int bitmap;
+        private final Object[] slots;
+
+        private Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package model;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps the latest snapshot of warehouse up to date as its listener. Every change replaces snapshot with new one
+ * made by compare-and-set, so writers never wait for each other or for readers, and readers keep their snapshot
+ * for as long as they need. Versions which are not held by any reader are collected as garbage.
+ */
+final class ProductVersions implements WarehouseListener {
+
+    private final AtomicReference<WarehouseSnapshot> current = new AtomicReference<>(new WarehouseSnapshot(ProductTrie.EMPTY, 0));
+
+    /**
+     * @return Returns snapshot with all changes published so far
+     */
+    WarehouseSnapshot current() {
+        return current.get();
+    }
+
+    /**
+     * Adds products which were stored before versions started to be kept, products already changed since then are kept
+     *
+     * @param products Stored products
+     */
+    void load(Collection<Product> products) {
+        for (Product product : products) {
+            FrozenProduct frozen = new FrozenProduct(product);
+            apply(trie -> trie.get(frozen.getIdAsInt()) != null ? trie : trie.put(frozen));
+        }
+    }
+
+    @Override
+    public void productInserted(Product product) {
+        FrozenProduct frozen = new FrozenProduct(product);
+        apply(trie -> trie.put(frozen));
+    }
+
+    @Override
+    public void productUpdated(Product before, Product after) {
+        FrozenProduct frozen = new FrozenProduct(after);
+        apply(trie -> trie.put(frozen));
+    }
+
+    @Override
+    public void stockChanged(Product product, int previousStock, int previousReserved) {
+        FrozenProduct frozen = new FrozenProduct(product);
+        apply(trie -> trie.put(frozen));
+    }
+
+    @Override
+    public void productDeleted(Product product) {
+        int id = product.getIdAsInt();
+        apply(trie -> trie.remove(id));
+    }
+
+    @Override
+    public void storageReplaced(Map<Integer, Product> storage) {
+        ProductTrie trie = ProductTrie.EMPTY;
+        for (Product product : storage.values()) {
+            trie = trie.put(new FrozenProduct(product));
+        }
+        ProductTrie replacement = trie;
+        apply(previous -> replacement);
+    }
+
+    private void apply(UnaryOperator<ProductTrie> change) {
+        WarehouseSnapshot snapshot;
+        ProductTrie products;
+        do {
+            snapshot = current.get();
+            products = change.apply(snapshot.getProducts());
+            if (products == snapshot.getProducts())
+                return;
+        } while (!current.compareAndSet(snapshot, new WarehouseSnapshot(products, snapshot.getVersion() + 1)));
+    }
+}
@@ -0,0 +1,456 @@
+package model;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Warehouse which partitions products by id across shards, every shard is concurrent {@link Warehouse} with its own
+ * storage and indexes, paired with dedicated worker thread. Operations on single product are routed to shard owning
+ * its id and run in calling thread, so they do not wait for any worker. Filters, queries and sorts are scattered to
+ * workers of all shards at once and their results are gathered, sorted runs of shards are merged, so scans use as
+ * many cores as there are shards.
+ */
+public class ShardedWarehouse implements Closeable {
+
+    /**
+     * Number of products read from source of bulk load before they are handed over to workers of shards
+     */
+    private static final int BULK_CHUNK_SIZE = 8192;
+
+    private final Warehouse[] shards;
+    private final ExecutorService[] workers;
+
+    /**
+     * Allocator of ids for products created by warehouse, shared by all shards
+     */
+    private final IdAllocator idAllocator = new BlockIdAllocator();
+
+    /**
+     * Creates warehouse with one shard per available processor
+     */
+    public ShardedWarehouse() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param shardCount Number of shards, each of them gets its own worker thread
+     */
+    public ShardedWarehouse(int shardCount) {
+        if (shardCount <= 0)
+            throw new IllegalArgumentException("Number of shards must be positive: " + shardCount);
+
+        this.shards = new Warehouse[shardCount];
+        this.workers = new ExecutorService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            String name = "warehouse-shard-" + i;
+            shards[i] = new Warehouse(new ConcurrentHashMap<>());
+            workers[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * @return Returns number of shards
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * @param name Represents name of product
+     * @param category Represents type of category
+     * @param stock Represents quantity of stock
+     * @param price Represents price per each product
+     * @return Returns new product with id unique across all shards, product is not inserted
+     */
+    public Product createProduct(String name, String category, Integer stock, Double price) {
+        return new Product(idAllocator.nextId(), name, category, stock, price);
+    }
+
+    /**
+     * @param id Id of product
+     * @return Returns product if exists in storage, if not then returns null
+     */
+    public Product selectProduct(Integer id) {
+        return id != null ? shardOf(id).selectProduct(id) : null;
+    }
+
+    /**
+     * @return Returns list of all products that are stored in shards
+     */
+    public List<Product> selectAllProducts() {
+        return concat(scatter(Warehouse::selectAllProducts));
+    }
+
+    /**
+     * @param product Product to be inserted into its shard
+     * @return Returns true if product has been inserted, if not then false will be returned
+     */
+    public boolean insertProduct(Product product) {
+        if (product == null || product.getId() == null || !shardOf(product.getId()).insertProduct(product))
+            return false;
+
+        idAllocator.advanceTo(product.getId());
+        return true;
+    }
+
+    /**
+     * Inserts all products or none of them, products inserted so far are deleted again when any product cannot be
+     * inserted, other threads may observe them for that short moment
+     *
+     * @param products Products to be inserted into their shards
+     * @return Returns true if products has been inserted, if not then false will be returned
+     */
+    public boolean insertAllProducts(List<Product> products) {
+        if (products == null)
+            return false;
+
+        List<Product> inserted = new ArrayList<>(products.size());
+        for (Product product : products) {
+            if (!insertProduct(product)) {
+                inserted.forEach(this::deleteProduct);
+                return false;
+            }
+            inserted.add(product);
+        }
+        return true;
+    }
+
+    /**
+     * Loads products in chunks, products of every chunk are partitioned by shard and loaded by workers of all
+     * shards at once
+     *
+     * @param products Stream of products
+     * @return Returns result of load, or null if stream is null
+     */
+    public BulkLoadResult loadProducts(Stream<Product> products) {
+        if (products == null)
+            return null;
+
+        List<List<Product>> partitions = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            partitions.add(new ArrayList<>(BULK_CHUNK_SIZE / shards.length + 1));
+        }
+
+        BulkLoadResult result = new BulkLoadResult();
+        Iterator<Product> iterator = products.iterator();
+        while (iterator.hasNext()) {
+            for (int i = 0; i < BULK_CHUNK_SIZE && iterator.hasNext(); i++) {
+                Product product = iterator.next();
+                if (product == null || product.getId() == null)
+                    result.invalid();
+                else
+                    partitions.get(indexOf(product.getId())).add(product);
+            }
+
+            List<BulkLoadResult> results = scatter(shard -> {
+                List<Product> partition = partitions.get(indexOf(shard));
+                BulkLoadResult partial = shard.loadProducts(partition.iterator(), 0, false);
+                partition.forEach(product -> idAllocator.advanceTo(product.getId()));
+                partition.clear();
+                return partial;
+            });
+            results.forEach(result::add);
+        }
+        return result;
+    }
+
+    /**
+     * @param product Product which should be updated in its shard by comparing id
+     * @return Returns true if product has been updated, if not then false will be returned
+     */
+    public boolean updateProduct(Product product) {
+        return product != null && product.getId() != null && shardOf(product.getId()).updateProduct(product);
+    }
+
+    /**
+     * @param product Product which should be deleted from its shard by comparing id
+     * @return Returns true if product has been deleted, if not then false will be returned
+     */
+    public boolean deleteProduct(Product product) {
+        return product != null && product.getId() != null && shardOf(product.getId()).deleteProduct(product);
+    }
+
+    /**
+     * @param id Id of product which stock should be reserved
+     * @param quantity Quantity of stock to be reserved
+     * @return Returns true if stock has been reserved, if not enough stock is available then false will be returned
+     */
+    public boolean reserve(Integer id, int quantity) {
+        return id != null && shardOf(id).reserve(id, quantity);
+    }
+
+    /**
+     * @param id Id of product which reserved stock should be returned as available
+     * @param quantity Quantity of reserved stock to be released
+     * @return Returns true if stock has been released, if not then false will be returned
+     */
+    public boolean release(Integer id, int quantity) {
+        return id != null && shardOf(id).release(id, quantity);
+    }
+
+    /**
+     * @param id Id of product which reserved stock should be taken out of warehouse
+     * @param quantity Quantity of reserved stock to be committed
+     * @return Returns true if stock has been committed, if not then false will be returned
+     */
+    public boolean commit(Integer id, int quantity) {
+        return id != null && shardOf(id).commit(id, quantity);
+    }
+
+    /**
+     * Registers listener in every shard, it is notified by many threads at once but in order for every product
+     *
+     * @param listener Listener to be notified
+     */
+    public void addListener(WarehouseListener listener) {
+        for (Warehouse shard : shards) {
+            shard.addListener(listener);
+        }
+    }
+
+    /**
+     * @param listener Listener that should not be notified anymore
+     */
+    public void removeListener(WarehouseListener listener) {
+        for (Warehouse shard : shards) {
+            shard.removeListener(listener);
+        }
+    }
+
+    /**
+     * @param field Field which values should be indexed in every shard
+     * @return Returns true if index has been created, if it already exists then false will be returned
+     */
+    public boolean createIndex(Product.Fields field) {
+        return scatter(shard -> shard.createIndex(field)).contains(true);
+    }
+
+    /**
+     * @param field Field by which products of every shard should be kept sorted
+     * @return Returns true if view has been created, if it already exists then false will be returned
+     */
+    public boolean createSortedView(Product.Fields field) {
+        return scatter(shard -> shard.createSortedView(field)).contains(true);
+    }
+
+    /**
+     * @param field Field which index should be removed from every shard
+     * @return Returns true if index has been removed, if it did not exist then false will be returned
+     */
+    public boolean dropIndex(Product.Fields field) {
+        return scatter(shard -> shard.dropIndex(field)).contains(true);
+    }
+
+    /**
+     * @param field Field by which products should be filtered
+     * @param keyword Keyword by which comparison is to be made
+     * @return List of products of all shards after filtration
+     */
+    public List<Product> filterProducts(Product.Fields field, Object keyword) {
+        if (field != null && keyword != null)
+            return concat(scatter(shard -> shard.filterProducts(field, keyword)));
+        return null;
+    }
+
+    /**
+     * Runs query in every shard, each shard stops at limit of query and gathered products are cut to limit again
+     *
+     * @param query Query to be run
+     * @return List of products meeting all conditions of query
+     */
+    public List<Product> query(ProductQuery query) {
+        if (query == null)
+            return null;
+
+        List<Product> products = concat(scatter(shard -> shard.query(query)));
+        return products.size() > query.getLimit() ? new ArrayList<>(products.subList(0, query.getLimit())) : products;
+    }
+
+    /**
+     * Sorts products of every shard by its worker and merges sorted runs of shards
+     *
+     * @param field Field by which products should be sorted
+     * @param ascending Keyword by which comparison is to be made
+     * @return List of products after sorting
+     */
+    public List<Product> sortProducts(Product.Fields field, Boolean ascending) {
+        if (field != null)
+            return merge(scatter(shard -> shard.sortProducts(field, ascending)), comparator(field, ascending), 0, Integer.MAX_VALUE);
+        return null;
+    }
+
+    /**
+     * Reads one page of sorted products, every shard provides its best offset plus limit products, which are merged
+     * until page is complete
+     *
+     * @param field Field by which products should be sorted
+     * @param ascending Keyword by which comparison is to be made
+     * @param offset Number of products to be skipped from the beginning
+     * @param limit Maximal number of products to be returned
+     * @return List of products on page after sorting
+     */
+    public List<Product> sortProducts(Product.Fields field, Boolean ascending, int offset, int limit) {
+        if (field != null && offset >= 0 && limit >= 0) {
+            int kept = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+            return merge(scatter(shard -> shard.sortProducts(field, ascending, 0, kept)), comparator(field, ascending), offset, limit);
+        }
+        return null;
+    }
+
+    /**
+     * @return Returns number of products in all shards
+     */
+    public int getStorageSize() {
+        int size = 0;
+        for (Warehouse shard : shards) {
+            size += shard.getStorageSize();
+        }
+        return size;
+    }
+
+    /**
+     * @return Returns true if all shards are empty
+     */
+    public boolean isStorageEmpty() {
+        for (Warehouse shard : shards) {
+            if (!shard.isStorageEmpty())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Clears all data from every shard
+     */
+    public void clearStorage() {
+        scatter(shard -> {
+            shard.clearStorage();
+            return null;
+        });
+    }
+
+    /**
+     * Stops workers of shards, products stay readable by operations on single product
+     */
+    @Override
+    public void close() {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+    }
+
+    private int indexOf(int id) {
+        return Math.floorMod(id, shards.length);
+    }
+
+    private int indexOf(Warehouse shard) {
+        for (int i = 0; i < shards.length; i++) {
+            if (shards[i] == shard)
+                return i;
+        }
+        return -1;
+    }
+
+    private Warehouse shardOf(int id) {
+        return shards[indexOf(id)];
+    }
+
+    /**
+     * Runs task on every shard by its worker and waits for all of them
+     *
+     * @return Returns results in order of shards
+     */
+    private <T> List<T> scatter(Function<Warehouse, T> task) {
+        List<Future<T>> futures = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            Warehouse shard = shards[i];
+            futures.add(workers[i].submit(() -> task.apply(shard)));
+        }
+
+        List<T> results = new ArrayList<>(shards.length);
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
+    private static List<Product> concat(List<List<Product>> parts) {
+        int size = 0;
+        for (List<Product> part : parts) {
+            size += part.size();
+        }
+
+        List<Product> products = new ArrayList<>(size);
+        parts.forEach(products::addAll);
+        return products;
+    }
+
+    private static Comparator<Product> comparator(Product.Fields field, boolean ascending) {
+        Comparator<Product> comparator = field.comparator();
+        return ascending ? comparator : comparator.reversed();
+    }
+
+    /**
+     * Merges sorted runs with heap holding head of every run, so page of merged products takes only
+     * offset plus limit steps of log of number of runs each
+     */
+    private static List<Product> merge(List<List<Product>> runs, Comparator<Product> comparator, int offset, int limit) {
+        PriorityQueue<Run> heads = new PriorityQueue<>(runs.size(), (r1, r2) -> comparator.compare(r1.head(), r2.head()));
+        int size = 0;
+        for (List<Product> run : runs) {
+            size += run.size();
+            if (!run.isEmpty())
+                heads.add(new Run(run));
+        }
+
+        List<Product> products = new ArrayList<>(Math.max(0, Math.min(limit, size - offset)));
+        for (int position = 0; position < offset + (long) limit && !heads.isEmpty(); position++) {
+            Run run = heads.poll();
+            if (position >= offset)
+                products.add(run.head());
+            if (run.advance())
+                heads.add(run);
+        }
+        return products;
+    }
+
+    /**
+     * Sorted products of one shard with position of the first product not merged yet
+     */
+    private static final class Run {
+
+        private final List<Product> products;
+        private int position;
+
+        private Run(List<Product> products) {
+            this.products = products;
+        }
+
+        private Product head() {
+            return products.get(position);
+        }
+
+        private boolean advance() {
+            return ++position < products.size();
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package model;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Inverted index of words of product names, see {@link Warehouse#enableTextSearch()}. Names are split into words of
+ * letters and digits, compared without case. Every word has sorted array of ids of products which names contain it,
+ * and sorted dictionary of all words finds words starting with prefix by walking only them.
+ * <p>
+ * Search ranks products by rarity of query words they contain, so products matching rare words come first.
+ * Autocomplete completes the last word of text and walks completions in alphabetical order, so it stops as soon
+ * as it has enough products, however many products the prefix matches. Ids of completions are intersected with ids
+ * of complete words by seeking forward in sorted arrays, without touching products which do not match.
+ */
+final class TextIndex extends ProductIndex {
+
+    /**
+     * Ids are compared in arrays many times faster than names of products are matched, so completions are walked
+     * until they visit this many times more ids than the rarest complete word has products
+     */
+    private static final int WALK_FACTOR = 32;
+
+    private final ConcurrentHashMap<String, Postings> postings = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<String> words = new ConcurrentSkipListSet<>();
+    private final LongAdder products = new LongAdder();
+
+    TextIndex() {
+        super(Product.Fields.Name);
+    }
+
+    /**
+     * @param text Text to be split
+     * @return Returns distinct words of text in lower case, in order of their first occurrence
+     */
+    static Set<String> words(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Products containing more query words rank higher, each word weighted by how rare it is, products with equal
+     * score are ordered by shorter name and then by id
+     *
+     * @param query Words to be searched
+     * @param limit Maximal number of products to be returned
+     * @return Returns products containing any of query words, the best ranked first
+     */
+    List<Product> search(String query, int limit) {
+        double total = Math.max(1, products.sum());
+        Map<Product, Double> scores = new HashMap<>();
+        for (String word : words(query)) {
+            Postings matching = postings.get(word);
+            if (matching == null)
+                continue;
+
+            double weight = Math.log(1 + total / matching.size);
+            for (int i = 0; i < matching.size; i++) {
+                scores.merge(matching.products[i], weight, Double::sum);
+            }
+        }
+
+        Comparator<Map.Entry<Product, Double>> rank = Map.Entry.<Product, Double>comparingByValue().reversed()
+                .thenComparingInt(entry -> entry.getKey().getName().length())
+                .thenComparingInt(entry -> entry.getKey().getIdAsInt());
+        PriorityQueue<Map.Entry<Product, Double>> best = new PriorityQueue<>(Math.min(limit, scores.size()) + 1, rank.reversed());
+        for (Map.Entry<Product, Double> entry : scores.entrySet()) {
+            best.offer(entry);
+            if (best.size() > limit)
+                best.poll();
+        }
+
+        List<Map.Entry<Product, Double>> ranked = new ArrayList<>(best);
+        ranked.sort(rank);
+        List<Product> result = new ArrayList<>(ranked.size());
+        ranked.forEach(entry -> result.add(entry.getKey()));
+        return result;
+    }
+
+    /**
+     * @param text Words which names must contain, the last of them may be only started
+     * @param limit Maximal number of products to be returned
+     * @return Returns products which names contain all complete words and word starting with the last one, ordered
+     * by that word and then by id
+     */
+    List<Product> complete(String text, int limit) {
+        List<String> typed = new ArrayList<>(words(text));
+        if (typed.isEmpty())
+            return new ArrayList<>();
+
+        String prefix = typed.remove(typed.size() - 1);
+        List<Postings> required = new ArrayList<>(typed.size());
+        for (String word : typed) {
+            Postings matching = postings.get(word);
+            if (matching == null)
+                return new ArrayList<>();
+            required.add(matching);
+        }
+        required.sort(Comparator.comparingInt(matching -> matching.size));
+
+        // Completions are walked only until they visit too many ids compared to products of the rarest complete
+        // word, then the prefix is completed from names of products of that word instead
+        long budget = required.isEmpty() ? Long.MAX_VALUE : (long) required.get(0).size * WALK_FACTOR;
+        long visited = 0;
+        Set<Product> result = new LinkedHashSet<>();
+        int[] positions = new int[required.size()];
+        for (String word : words.tailSet(prefix)) {
+            if (!word.startsWith(prefix))
+                break;
+            Postings matching = postings.get(word);
+            if (matching == null)
+                continue;
+
+            // The shorter of completion and the rarest complete word is walked, ids are sought in the others
+            Postings walked = matching;
+            List<Postings> sought = new ArrayList<>(required);
+            if (!required.isEmpty() && required.get(0).size < matching.size) {
+                walked = required.get(0);
+                sought.set(0, matching);
+            }
+            Arrays.fill(positions, 0);
+
+            for (int i = 0; i < walked.size; i++) {
+                if (++visited > budget)
+                    return completeFrom(required, prefix, limit);
+
+                int found = seekAll(sought, positions, walked.ids[i]);
+                if (found < 0)
+                    break;
+                if (found == 0)
+                    continue;
+
+                result.add(walked.products[i]);
+                if (result.size() >= limit)
+                    return new ArrayList<>(result);
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Moves positions in sought postings to the first id not lower than given one
+     *
+     * @return Returns 1 if all postings contain id, 0 if any does not, or -1 if any has no higher ids either
+     */
+    private static int seekAll(List<Postings> sought, int[] positions, int id) {
+        int found = 1;
+        for (int k = 0; k < sought.size(); k++) {
+            Postings matching = sought.get(k);
+            positions[k] = matching.seek(id, positions[k]);
+            if (positions[k] == matching.size)
+                return -1;
+            if (matching.ids[positions[k]] != id)
+                found = 0;
+        }
+        return found;
+    }
+
+    /**
+     * Completes prefix from products of the rarest complete word, when there are fewer of them than of completions
+     */
+    private List<Product> completeFrom(List<Postings> required, String prefix, int limit) {
+        List<Postings> sought = required.subList(1, required.size());
+        int[] positions = new int[sought.size()];
+        Postings rarest = required.get(0);
+        Map<Product, String> matched = new HashMap<>();
+        for (int i = 0; i < rarest.size; i++) {
+            int found = seekAll(sought, positions, rarest.ids[i]);
+            if (found < 0)
+                break;
+            if (found == 0)
+                continue;
+
+            String completion = completion(rarest.products[i].getName(), prefix);
+            if (completion != null)
+                matched.put(rarest.products[i], completion);
+        }
+
+        List<Map.Entry<Product, String>> ordered = new ArrayList<>(matched.entrySet());
+        ordered.sort(Map.Entry.<Product, String>comparingByValue().thenComparingInt(entry -> entry.getKey().getIdAsInt()));
+        List<Product> result = new ArrayList<>(Math.min(limit, ordered.size()));
+        for (int i = 0; i < ordered.size() && i < limit; i++) {
+            result.add(ordered.get(i).getKey());
+        }
+        return result;
+    }
+
+    /**
+     * Finds words of name starting with prefix without splitting whole name, only matching words are copied
+     *
+     * @return Returns the first of words of name starting with prefix in alphabetical order, or null if there is none
+     */
+    static String completion(String name, String prefix) {
+        if (name == null)
+            return null;
+
+        String first = null;
+        for (int start = 0; start < name.length(); start++) {
+            if (!Character.isLetterOrDigit(name.charAt(start)) || start > 0 && Character.isLetterOrDigit(name.charAt(start - 1)))
+                continue;
+            if (!name.regionMatches(true, start, prefix, 0, prefix.length()))
+                continue;
+
+            int end = start;
+            while (end < name.length() && Character.isLetterOrDigit(name.charAt(end))) {
+                end++;
+            }
+            String word = name.substring(start, end).toLowerCase(Locale.ROOT);
+            if (word.startsWith(prefix) && (first == null || word.compareTo(first) < 0))
+                first = word;
+        }
+        return first;
+    }
+
+    @Override
+    Collection<Product> select(Object keyword) {
+        if (!(keyword instanceof String))
+            return Collections.emptyList();
+
+        List<Product> result = new ArrayList<>();
+        for (Product product : complete((String) keyword, Integer.MAX_VALUE)) {
+            if (keyword.equals(product.getName()))
+                result.add(product);
+        }
+        return result;
+    }
+
+    @Override
+    boolean supports(ProductCondition condition) {
+        return false;
+    }
+
+    @Override
+    Stream<Product> select(ProductCondition condition) {
+        return Stream.empty();
+    }
+
+    @Override
+    protected void add(Object value, Product product) {
+        int id = product.getIdAsInt();
+        products.increment();
+        for (String word : words((String) value)) {
+            postings.compute(word, (key, matching) -> {
+                if (matching == null) {
+                    words.add(key);
+                    return new Postings(new int[]{id}, new Product[]{product}, 1);
+                }
+                return matching.add(id, product);
+            });
+        }
+    }
+
+    @Override
+    protected void remove(Object value, Product product) {
+        int id = product.getIdAsInt();
+        products.decrement();
+        for (String word : words((String) value)) {
+            postings.computeIfPresent(word, (key, matching) -> {
+                Postings remaining = matching.remove(id);
+                if (remaining == null)
+                    words.remove(key);
+                return remaining;
+            });
+        }
+    }
+
+    @Override
+    protected void replace(Object value, Product product) {
+        int id = product.getIdAsInt();
+        for (String word : words((String) value)) {
+            postings.computeIfPresent(word, (key, matching) -> matching.add(id, product));
+        }
+    }
+
+    @Override
+    protected void clear() {
+        postings.clear();
+        words.clear();
+        products.reset();
+    }
+
+    /**
+     * Ids of products containing word in ascending order, together with the products. Published postings never
+     * change: products added in order of ids are appended to spare capacity of arrays beyond size of all earlier
+     * postings, other changes copy them to new arrays. Postings of word are replaced only while word is locked
+     * in map of postings.
+     */
+    private static final class Postings {
+
+        private final int[] ids;
+        private final Product[] products;
+        private final int size;
+
+        private Postings(int[] ids, Product[] products, int size) {
+            this.ids = ids;
+            this.products = products;
+            this.size = size;
+        }
+
+        /**
+         * @return Returns postings containing product as well, this if it already does
+         */
+        private Postings add(int id, Product product) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0 && products[position] == product)
+                return this;
+            if (position >= 0) {
+                Product[] replaced = Arrays.copyOf(products, size);
+                replaced[position] = product;
+                return new Postings(Arrays.copyOf(ids, size), replaced, size);
+            }
+
+            position = -position - 1;
+            if (position == size && size < ids.length) {
+                ids[size] = id;
+                products[size] = product;
+                return new Postings(ids, products, size + 1);
+            }
+
+            int capacity = size + (size >> 1) + 1;
+            int[] addedIds = new int[capacity];
+            Product[] added = new Product[capacity];
+            System.arraycopy(ids, 0, addedIds, 0, position);
+            System.arraycopy(products, 0, added, 0, position);
+            addedIds[position] = id;
+            added[position] = product;
+            System.arraycopy(ids, position, addedIds, position + 1, size - position);
+            System.arraycopy(products, position, added, position + 1, size - position);
+            return new Postings(addedIds, added, size + 1);
+        }
+
+        /**
+         * @return Returns postings without id, this if it does not contain id, or null if no id would remain
+         */
+        private Postings remove(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0)
+                return this;
+            if (size == 1)
+                return null;
+
+            int[] remainingIds = new int[size - 1];
+            Product[] remaining = new Product[size - 1];
+            System.arraycopy(ids, 0, remainingIds, 0, position);
+            System.arraycopy(products, 0, remaining, 0, position);
+            System.arraycopy(ids, position + 1, remainingIds, position, size - position - 1);
+            System.arraycopy(products, position + 1, remaining, position, size - position - 1);
+            return new Postings(remainingIds, remaining, size - 1);
+        }
+
+        /**
+         * Gallops forward from position, so walking ids of other postings in order costs logarithm of distance
+         * between found ids instead of logarithm of all ids
+         *
+         * @return Returns position of the first id not lower than given one, or size if there is none
+         */
+        private int seek(int id, int from) {
+            int low = from;
+            int high = from;
+            for (int step = 1; high < size && ids[high] < id; step <<= 1) {
+                low = high + 1;
+                high += step;
+            }
+            int position = Arrays.binarySearch(ids, low, Math.min(high + 1, size), id);
+            return position >= 0 ? position : -position - 1;
+        }
+    }
+}
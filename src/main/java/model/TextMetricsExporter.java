@@ -0,0 +1,49 @@
+package model;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Writes metrics as plain text table with one line per operation, latencies are in microseconds
+ */
+public class TextMetricsExporter implements MetricsExporter {
+
+    private static final String ROW = "%-14s %12s %10s %10s %10s %10s %10s%n";
+    private static final double NANOS_PER_MICRO = 1_000;
+
+    private final Appendable out;
+
+    /**
+     * @param out Target to which tables are written
+     */
+    public TextMetricsExporter(Appendable out) {
+        if (out == null)
+            throw new IllegalArgumentException("Output must be set");
+
+        this.out = out;
+    }
+
+    @Override
+    public void export(WarehouseMetrics metrics) throws IOException {
+        out.append(String.format(Locale.ROOT, ROW, "operation", "count", "mean", "p50", "p99", "p99.9", "max"));
+        for (WarehouseMetrics.Operation operation : WarehouseMetrics.Operation.values()) {
+            Histogram latency = metrics.getLatency(operation);
+            out.append(String.format(Locale.ROOT, ROW, operation, metrics.getCount(operation),
+                    micros(latency.getMean()), micros(latency.getValueAtPercentile(50)),
+                    micros(latency.getValueAtPercentile(99)), micros(latency.getValueAtPercentile(99.9)),
+                    micros(latency.getMax())));
+        }
+        row("scan size", metrics.getScanSizes());
+        row("result size", metrics.getResultSizes());
+    }
+
+    private void row(String name, Histogram sizes) throws IOException {
+        out.append(String.format(Locale.ROOT, ROW, name, sizes.getCount(), String.format(Locale.ROOT, "%.1f", sizes.getMean()),
+                sizes.getValueAtPercentile(50), sizes.getValueAtPercentile(99), sizes.getValueAtPercentile(99.9),
+                sizes.getMax()));
+    }
+
+    private static String micros(double nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / NANOS_PER_MICRO);
+    }
+}
@@ -0,0 +1,295 @@
+package model;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Changes of many products staged together and applied all at once, or not at all, see
+ * {@link Warehouse#beginTransaction()}. Nothing is locked while changes are staged. Products read or changed by
+ * transaction remember their version stamps, and commit validates them under locks of only these products:
+ * if any of them has changed since, the transaction conflicts and nothing is applied.
+ * <p>
+ * Stock changes do not need product to be read first, they only require enough stock at commit,
+ * so many transactions may reserve stock of the same product without conflicting.
+ */
+public final class Transaction {
+
+    private enum Kind {
+        Insert, Update, Delete, Reserve, Release, Commit
+    }
+
+    private final Warehouse warehouse;
+    private final ProductLocks locks;
+    private final long replacements;
+    private final Map<Integer, Read> reads = new HashMap<>();
+    private final List<Write> writes = new ArrayList<>();
+    private final List<Integer> conflicts = new ArrayList<>();
+    private boolean finished;
+
+    /**
+     * @param warehouse Warehouse which products are changed
+     * @param locks Locks and version stamps of products of warehouse
+     */
+    Transaction(Warehouse warehouse, ProductLocks locks) {
+        this.warehouse = warehouse;
+        this.locks = locks;
+        this.replacements = locks.getReplacements();
+    }
+
+    /**
+     * Reads product and remembers its version, so commit fails if product changes before it. Staged changes
+     * are not visible here.
+     *
+     * @param id Id of product
+     * @return Returns detached copy of stored product, or null if it is not stored or transaction has finished
+     */
+    public Product read(Integer id) {
+        if (id == null || finished)
+            return null;
+
+        ReentrantLock lock = locks.lockFor(id);
+        lock.lock();
+        try {
+            Product stored = warehouse.selectProduct(id);
+            reads.putIfAbsent(id, new Read(stored != null, locks.stamp(id)));
+            return stored != null ? stored.copy() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param product Product to be inserted, its id must not be stored at commit, copy of it is stored
+     * @return Returns true if insert has been staged
+     */
+    public boolean insert(Product product) {
+        return stage(Kind.Insert, product != null ? product.getId() : null, product, 0);
+    }
+
+    /**
+     * @param product Product which values should replace values of stored product with the same id
+     * @return Returns true if update has been staged
+     */
+    public boolean update(Product product) {
+        return stage(Kind.Update, product != null ? product.getId() : null, product, 0);
+    }
+
+    /**
+     * @param id Id of product to be deleted
+     * @return Returns true if delete has been staged
+     */
+    public boolean delete(Integer id) {
+        return stage(Kind.Delete, id, null, 0);
+    }
+
+    /**
+     * @param id Id of product which stock should be reserved
+     * @param quantity Quantity of stock to be reserved
+     * @return Returns true if reservation has been staged
+     */
+    public boolean reserve(Integer id, int quantity) {
+        return quantity > 0 && stage(Kind.Reserve, id, null, quantity);
+    }
+
+    /**
+     * @param id Id of product which reserved stock should be returned as available
+     * @param quantity Quantity of reserved stock to be released
+     * @return Returns true if release has been staged
+     */
+    public boolean release(Integer id, int quantity) {
+        return quantity > 0 && stage(Kind.Release, id, null, quantity);
+    }
+
+    /**
+     * @param id Id of product which reserved stock should be taken out of warehouse
+     * @param quantity Quantity of reserved stock to be committed
+     * @return Returns true if commit of stock has been staged
+     */
+    public boolean commit(Integer id, int quantity) {
+        return quantity > 0 && stage(Kind.Commit, id, null, quantity);
+    }
+
+    /**
+     * Locks all products of transaction in order of their locks, validates them and applies all staged changes
+     * in order they were staged, while other writers of these products wait. Transaction cannot be used again.
+     *
+     * @return Returns true if all changes have been applied, if any product conflicts then nothing is applied,
+     * conflicting products are given by {@link #getConflicts()} and false is returned
+     */
+    public boolean commit() {
+        if (finished)
+            return false;
+        finished = true;
+
+        SortedSet<Integer> stripes = new TreeSet<>();
+        reads.keySet().forEach(id -> stripes.add(locks.stripe(id)));
+        writes.forEach(write -> stripes.add(locks.stripe(write.id)));
+
+        List<ReentrantLock> taken = new ArrayList<>(stripes.size());
+        try {
+            for (int stripe : stripes) {
+                ReentrantLock lock = locks.lock(stripe);
+                lock.lock();
+                taken.add(lock);
+            }
+
+            if (!validate())
+                return false;
+
+            for (Write write : writes) {
+                // Changes have been replayed on values of locked products, so none of them can fail now
+                if (!apply(write))
+                    throw new IllegalStateException("Validated change of product " + write.id + " has failed");
+            }
+            return true;
+        } finally {
+            for (int i = taken.size() - 1; i >= 0; i--) {
+                taken.get(i).unlock();
+            }
+        }
+    }
+
+    /**
+     * Drops all staged changes, transaction cannot be used again
+     */
+    public void rollback() {
+        finished = true;
+        writes.clear();
+    }
+
+    /**
+     * @return Returns ids of products which made commit fail
+     */
+    public List<Integer> getConflicts() {
+        return Collections.unmodifiableList(conflicts);
+    }
+
+    private boolean stage(Kind kind, Integer id, Product product, int quantity) {
+        if (id == null || finished)
+            return false;
+
+        if (kind == Kind.Insert || kind == Kind.Update || kind == Kind.Delete) {
+            // Product which has not been read is expected unchanged since it was staged
+            if (!reads.containsKey(id))
+                read(id);
+        }
+        writes.add(new Write(kind, id, product != null ? product.copyWithReadStock() : null, quantity));
+        return true;
+    }
+
+    /**
+     * Checks versions of read products and replays staged changes on their current values, while they are locked
+     */
+    private boolean validate() {
+        if (locks.getReplacements() != replacements) {
+            conflicts.addAll(reads.keySet());
+            return false;
+        }
+
+        reads.forEach((id, read) -> {
+            boolean present = warehouse.selectProduct(id) != null;
+            if (present != read.present || locks.stamp(id) != read.stamp)
+                conflicts.add(id);
+        });
+        if (!conflicts.isEmpty())
+            return false;
+
+        Map<Integer, int[]> states = new HashMap<>();
+        for (Write write : writes) {
+            int[] state;
+            if (states.containsKey(write.id)) {
+                state = states.get(write.id);
+            } else {
+                Product stored = warehouse.selectProduct(write.id);
+                state = stored != null ? new int[]{stored.getStockAsInt(), stored.getReserved()} : null;
+            }
+
+            boolean valid;
+            switch (write.kind) {
+                case Insert:
+                    valid = state == null;
+                    state = new int[]{write.product.getStockAsInt(), write.product.getReserved()};
+                    break;
+                case Update:
+                    valid = state != null;
+                    if (valid)
+                        state[0] = write.product.stockAfterCopyTo(state[0]);
+                    break;
+                case Delete:
+                    valid = state != null;
+                    state = null;
+                    break;
+                case Reserve:
+                    valid = state != null && state[0] >= write.quantity;
+                    if (valid) {
+                        state[0] -= write.quantity;
+                        state[1] += write.quantity;
+                    }
+                    break;
+                default:
+                    valid = state != null && state[1] >= write.quantity;
+                    if (valid) {
+                        state[1] -= write.quantity;
+                        if (write.kind == Kind.Release)
+                            state[0] += write.quantity;
+                    }
+            }
+            if (!valid) {
+                conflicts.add(write.id);
+                return false;
+            }
+            // Deleted product is kept as null, so later changes do not see it stored again
+            states.put(write.id, state);
+        }
+        return true;
+    }
+
+    private boolean apply(Write write) {
+        switch (write.kind) {
+            case Insert:
+                return warehouse.insertProduct(write.product);
+            case Update:
+                return warehouse.updateProduct(write.product);
+            case Delete:
+                return warehouse.deleteProduct(warehouse.selectProduct(write.id));
+            case Reserve:
+                return warehouse.reserve(write.id, write.quantity);
+            case Release:
+                return warehouse.release(write.id, write.quantity);
+            default:
+                return warehouse.commit(write.id, write.quantity);
+        }
+    }
+
+    /**
+     * Version of product seen by transaction
+     */
+    private static final class Read {
+
+        private final boolean present;
+        private final long stamp;
+
+        private Read(boolean present, long stamp) {
+            this.present = present;
+            this.stamp = stamp;
+        }
+    }
+
+    /**
+     * Staged change of product
+     */
+    private static final class Write {
+
+        private final Kind kind;
+        private final Integer id;
+        private final Product product;
+        private final int quantity;
+
+        private Write(Kind kind, Integer id, Product product, int quantity) {
+            this.kind = kind;
+            this.id = id;
+            this.product = product;
+            this.quantity = quantity;
+        }
+    }
+}
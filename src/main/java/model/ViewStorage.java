@@ -0,0 +1,23 @@
+package model;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Storage which keeps values of products in its own representation and hands out views of them, instead of storing
+ * objects it has been given. Warehouse converts products into views before they are stored, so listeners and indexes
+ * hold the same objects that storage keeps up to date.
+ */
+public interface ViewStorage extends ConcurrentMap<Integer, Product> {
+
+    /**
+     * @param product Product which values should be stored
+     * @return Returns view holding values of product, which starts to reflect storage once it is stored
+     */
+    Product view(Product product);
+
+    /**
+     * @param expectedSize Number of products that will be stored
+     * @return Returns new empty storage of the same kind
+     */
+    ViewStorage emptyStorage(int expectedSize);
+}
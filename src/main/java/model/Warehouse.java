@@ -1,24 +1,104 @@
 package model;
 
+import storage.SnapshotReader;
+import storage.SnapshotWriter;
+
 import java.io.*;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
- * Represents a warehouse that can store products in map data structure
+ * Represents a warehouse that can store products in map data structure.
+ * When created over a {@link ConcurrentMap} the warehouse works in concurrent mode: readers never block
+ * and inserts, updates and deletes are atomic per product, so writers to different products do not contend.
+ * Every change is reported to registered {@link WarehouseListener}s, which keeps secondary indexes up to date.
  */
 public class Warehouse {
 
+    /**
+     * Number of products read from source of bulk load before they are inserted by many threads
+     */
+    private static final int BULK_CHUNK_SIZE = 8192;
+
+    /**
+     * Number of locks shared by products for transactions, products with the same lock only wait for each other
+     */
+    private static final int TRANSACTION_LOCK_STRIPES = 1024;
+
     /**
      * Storage as map data structure to store products as value and thier id as key
      */
     private Map<Integer, Product> storage;
 
+    /**
+     * Whether storage has been created by warehouse, only such storage may be replaced by presized one
+     */
+    private boolean storageCreated;
+
+    /**
+     * Listeners notified about changes of products, including secondary indexes
+     */
+    private final List<WarehouseListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Secondary indexes by field which they index
+     */
+    private final Map<Product.Fields, ProductIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Allocator of ids for products created by warehouse
+     */
+    private IdAllocator idAllocator = new BlockIdAllocator();
+
+    /**
+     * Cache of filterProducts results, or null if results are not cached
+     */
+    private volatile FilterResultCache filterCache;
+
+    /**
+     * Settings of parallel filters and sorts, or null if they always run in calling thread
+     */
+    private volatile ParallelExecution parallelExecution;
+
+    /**
+     * Versions of products read by snapshots, or null if snapshots are not kept
+     */
+    private volatile ProductVersions versions;
+
+    /**
+     * Locks and version stamps of products used by transactions, or null if transactions are not enabled
+     */
+    private volatile ProductLocks locks;
+
+    /**
+     * Counters and latencies of operations, or null if they are not measured
+     */
+    private volatile WarehouseMetrics metrics;
+
+    /**
+     * Aggregates of products per category, or null if they are not kept
+     */
+    private volatile CategoryAggregates aggregates;
+
+    /**
+     * Index of words of product names, or null if names are not searched by words
+     */
+    private volatile TextIndex textIndex;
+
     /**
      * Default constructor for initializing storage
      */
     public Warehouse() {
         this.storage = new HashMap<Integer, Product>();
+        this.storageCreated = true;
     }
 
     /**
@@ -29,10 +109,57 @@ public class Warehouse {
     }
 
     /**
-     * @param storage Set storage to store products
+     * @param storage Concurrent map to be assigned to storage, switches warehouse into concurrent mode
+     */
+    public Warehouse(ConcurrentMap<Integer, Product> storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * @return Returns true if storage is safe to be used by many threads at once
+     */
+    public boolean isConcurrent() {
+        return storage instanceof ConcurrentMap;
+    }
+
+    /**
+     * @param storage Set storage to store products, ids of its products are never allocated again
      */
     public void setStorage(Map<Integer, Product> storage) {
         this.storage = storage;
+        this.storageCreated = false;
+        storage.keySet().forEach(idAllocator::advanceTo);
+        listeners.forEach(l -> l.storageReplaced(storage));
+    }
+
+    /**
+     * @param idAllocator Allocator of ids for products created by warehouse, it is advanced past stored ids
+     */
+    public void setIdAllocator(IdAllocator idAllocator) {
+        this.idAllocator = idAllocator;
+        storage.keySet().forEach(idAllocator::advanceTo);
+    }
+
+    /**
+     * @return Get allocator of ids for products created by warehouse
+     */
+    public IdAllocator getIdAllocator() {
+        return idAllocator;
+    }
+
+    /**
+     * Creates product with id allocated by this warehouse, which unlike global sequence of {@link Product}
+     * is safe to be used by many threads and is not reused after warehouse is written to file and read again.
+     * Product is not inserted into storage.
+     *
+     * @param name Represents name of product
+     * @param category Represents type of category
+     * @param stock Represents quantity of stock
+     * @param price Represents price per each product
+     * @return Returns new product with unique id
+     */
+    public Product createProduct(String name, String category, Integer stock, Double price) {
+        return new Product(idAllocator.nextId(), name, category, stock, price);
     }
 
     /**
@@ -47,7 +174,14 @@ public class Warehouse {
      * @return Returns product if exists in storage, if not then returns null
      */
     public Product selectProduct(Integer id) {
-        return storage.get(id);
+        WarehouseMetrics metrics = this.metrics;
+        if (metrics == null)
+            return id != null ? storage.get(id) : null;
+
+        long start = metrics.start();
+        Product product = id != null ? storage.get(id) : null;
+        metrics.record(WarehouseMetrics.Operation.Select, start);
+        return product;
     }
 
     /**
@@ -57,46 +191,142 @@ public class Warehouse {
         return new ArrayList<>(storage.values());
     }
 
+    /**
+     * Streams stored products without copying them into list first, with concurrent storage products changed
+     * meanwhile may or may not be seen
+     *
+     * @return Returns stream of all products that are stored in the storage
+     */
+    public Stream<Product> streamAllProducts() {
+        return storage.values().stream();
+    }
+
     /**
      * @param product Product to be inserted into storage
      * @return Returns true if product has been inserted, if not then false will be returned
      */
     public boolean insertProduct(Product product) {
-        if(product != null && !storage.containsKey(product.getId())) {
-            storage.put(product.getId(), product);
-            return true;
-        }
-
-        return false;
+        return insert(product) != null;
     }
 
     /**
+     * Inserts all products or none of them. If any product cannot be inserted, products inserted so far
+     * are removed again, in concurrent mode other threads may observe them for that short moment.
+     *
      * @param products Products to be inserted into storage
      * @return Returns true if products has been inserted, if not then false will be returned
      */
     public boolean insertAllProducts(List<Product> products) {
         if(products != null) {
+            List<Product> inserted = new ArrayList<>(products.size());
+
             for (Product product : products) {
-                if (storage.containsKey(product.getId()))
+                Product stored = insert(product);
+                if (stored == null) {
+                    inserted.forEach(p -> removeProduct(p.getId(), p));
                     return false;
+                }
+                inserted.add(stored);
             }
-
-            storage.putAll(products.stream().collect(Collectors.toMap(Product::getId, p -> p)));
             return true;
         }
         return false;
     }
 
     /**
+     * Loads products from source in one pass which validates and inserts every product. Unlike
+     * {@link #insertAllProducts}, products which cannot be inserted are skipped and reported instead of undoing
+     * the whole load. Empty storage is presized for expected number of products first.
+     *
+     * @param products Source of products, for example reader of snapshot
+     * @param expectedSize Expected number of products, or 0 if it is not known
+     * @param parallel Whether chunks of source should be inserted by many threads, used only in concurrent mode
+     * @return Returns result of load, or null if source is null
+     */
+    public BulkLoadResult loadProducts(Iterator<Product> products, long expectedSize, boolean parallel) {
+        if (products == null)
+            return null;
+
+        presize(expectedSize);
+        BulkLoadResult result = new BulkLoadResult();
+
+        if (!parallel || !isConcurrent()) {
+            products.forEachRemaining(product -> load(product, result));
+            return result;
+        }
+
+        int partitionCount = ForkJoinPool.getCommonPoolParallelism();
+        List<List<Product>> partitions = new ArrayList<>(partitionCount);
+        BulkLoadResult[] results = new BulkLoadResult[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(new ArrayList<>(BULK_CHUNK_SIZE / partitionCount + 1));
+            results[i] = new BulkLoadResult();
+        }
+
+        while (products.hasNext()) {
+            for (int i = 0; i < BULK_CHUNK_SIZE && products.hasNext(); i++) {
+                Product product = products.next();
+                int partition = product != null && product.getId() != null ? Math.floorMod(product.getId(), partitionCount) : 0;
+                partitions.get(partition).add(product);
+            }
+
+            IntStream.range(0, partitionCount).parallel().forEach(partition -> {
+                partitions.get(partition).forEach(product -> load(product, results[partition]));
+                partitions.get(partition).clear();
+            });
+        }
+
+        for (BulkLoadResult partial : results) {
+            result.add(partial);
+        }
+        return result;
+    }
+
+    /**
+     * @param products Stream of products, its exact size is used to presize storage when it is known
+     * @param parallel Whether chunks of stream should be inserted by many threads, used only in concurrent mode
+     * @return Returns result of load, or null if stream is null
+     */
+    public BulkLoadResult loadProducts(Stream<Product> products, boolean parallel) {
+        if (products == null)
+            return null;
+
+        Spliterator<Product> spliterator = products.spliterator();
+        return loadProducts(Spliterators.iterator(spliterator), Math.max(0, spliterator.getExactSizeIfKnown()), parallel);
+    }
+
+    /**
+     * @param fileName Name of snapshot file which products should be loaded, without replacing stored products
+     * @param parallel Whether chunks of file should be inserted by many threads, used only in concurrent mode
+     * @return Returns result of load
+     * @throws IOException A returned exception that may occur during reading data or when file is not a snapshot
+     */
+    public BulkLoadResult loadProducts(String fileName, boolean parallel) throws IOException {
+        try (SnapshotReader reader = new SnapshotReader(Paths.get(fileName))) {
+            return loadProducts(reader, reader.getCount(), parallel);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Copies values of product to stored product. Stock of copy taken by {@link Product#copy()} is changed only by as
+     * much as it has been changed on the copy, so reservations made meanwhile are kept. In concurrent mode plain
+     * products are replaced by updated ones instead of being changed in place, so products selected before keep
+     * values they had before update.
+     *
      * @param product Product which should be updated in storage by comparing id
      * @return Returns true if product has been updated, if not then false will be returned
      */
     public boolean updateProduct(Product product) {
-        if (product != null && storage.containsKey(product.getId())) {
-            storage.get(product.getId()).clone(product);
-            return true;
-        }
-        return false;
+        WarehouseMetrics metrics = this.metrics;
+        if (metrics == null)
+            return update(product);
+
+        long start = metrics.start();
+        boolean updated = update(product);
+        metrics.record(WarehouseMetrics.Operation.Update, start);
+        return updated;
     }
 
     /**
@@ -104,13 +334,223 @@ public class Warehouse {
      * @return Returns true if product has been deleted, if not then false will be returned
      */
     public boolean deleteProduct(Product product) {
-        if(product != null && storage.containsKey(product.getId())) {
-            storage.remove(product.getId());
-            return true;
+        WarehouseMetrics metrics = this.metrics;
+        if (metrics == null)
+            return delete(product);
+
+        long start = metrics.start();
+        boolean deleted = delete(product);
+        metrics.record(WarehouseMetrics.Operation.Delete, start);
+        return deleted;
+    }
+
+    private boolean update(Product product) {
+        if (product != null && product.getId() != null) {
+            boolean updated;
+            Lock lock = lockProduct(product.getId());
+            try {
+                updated = storage.computeIfPresent(product.getId(), (id, stored) -> {
+                    Product before = listeners.isEmpty() ? null : stored.copy();
+                    Product after = updated(stored, product);
+
+                    if (before != null)
+                        listeners.forEach(l -> l.productUpdated(before, after));
+                    return after;
+                }) != null;
+            } finally {
+                unlock(lock);
+            }
+            if (updated)
+                published(false);
+            return updated;
+        }
+        return false;
+    }
+
+    /**
+     * Readers of concurrent storage do not lock products, so they would see stored product half updated if it was
+     * changed in place
+     *
+     * @return Returns product which has to be stored after update
+     */
+    private Product updated(Product stored, Product product) {
+        if (isConcurrent())
+            return stored.updatedBy(product);
+
+        stored.clone(product);
+        return stored;
+    }
+
+    private boolean delete(Product product) {
+        if(product != null && product.getId() != null) {
+            if (listeners.isEmpty()) {
+                boolean removed = storage.remove(product.getId()) != null;
+                if (removed)
+                    published(false);
+                return removed;
+            }
+
+            return removeProduct(product.getId(), null);
         }
         return false;
     }
 
+    /**
+     * @param id Id of product which stock should be reserved
+     * @param quantity Quantity of stock to be reserved
+     * @return Returns true if stock has been reserved, if not enough stock is available then false will be returned
+     */
+    public boolean reserve(Integer id, int quantity) {
+        return changeStock(id, quantity, Product::reserve);
+    }
+
+    /**
+     * @param id Id of product which reserved stock should be returned as available
+     * @param quantity Quantity of reserved stock to be released
+     * @return Returns true if stock has been released, if not then false will be returned
+     */
+    public boolean release(Integer id, int quantity) {
+        return changeStock(id, quantity, Product::release);
+    }
+
+    /**
+     * @param id Id of product which reserved stock should be taken out of warehouse
+     * @param quantity Quantity of reserved stock to be committed
+     * @return Returns true if stock has been committed, if not then false will be returned
+     */
+    public boolean commit(Integer id, int quantity) {
+        return changeStock(id, quantity, Product::commit);
+    }
+
+    /**
+     * Registers listener that will be notified about every following change of products
+     *
+     * @param listener Listener to be notified
+     */
+    public void addListener(WarehouseListener listener) {
+        if (listener != null)
+            listeners.add(listener);
+    }
+
+    /**
+     * @param listener Listener that should not be notified anymore
+     */
+    public void removeListener(WarehouseListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Creates secondary index used by filterProducts, hash index for Name and Category, ordered index for other fields.
+     * Indexes are maintained on every change, so they should be created before concurrent traffic starts.
+     *
+     * @param field Field which values should be indexed
+     * @return Returns true if index has been created, if it already exists then false will be returned
+     */
+    public boolean createIndex(Product.Fields field) {
+        return createIndex(field, field != Product.Fields.Name && field != Product.Fields.Category);
+    }
+
+    /**
+     * Creates secondary index of chosen kind, ordered index serves range and prefix queries too,
+     * while hash index serves only equality.
+     *
+     * @param field Field which values should be indexed
+     * @param ordered Whether index should keep products ordered by field
+     * @return Returns true if index has been created, if it already exists then false will be returned
+     */
+    public synchronized boolean createIndex(Product.Fields field, boolean ordered) {
+        if (field == null || indexes.containsKey(field))
+            return false;
+
+        ProductIndex index = ordered ? new OrderedProductIndex(field) : new HashProductIndex(field);
+
+        addListener(index);
+        storage.values().forEach(index::productInserted);
+        indexes.put(field, index);
+        return true;
+    }
+
+    /**
+     * @param field Field which index should be removed
+     * @return Returns true if index has been removed, if it did not exist then false will be returned
+     */
+    public synchronized boolean dropIndex(Product.Fields field) {
+        ProductIndex index = field != null ? indexes.remove(field) : null;
+        removeListener(index);
+        return index != null;
+    }
+
+    /**
+     * Starts keeping index of words of product names for {@link #searchProducts} and {@link #autocomplete}. Words are
+     * compared without case. Like other indexes, it is maintained on every change, so it should be enabled before
+     * concurrent traffic starts.
+     *
+     * @return Returns true if text search has been enabled, if it already is then false will be returned
+     */
+    public synchronized boolean enableTextSearch() {
+        if (textIndex != null)
+            return false;
+
+        TextIndex index = new TextIndex();
+        addListener(index);
+        storage.values().forEach(index::productInserted);
+        this.textIndex = index;
+        return true;
+    }
+
+    /**
+     * @return Returns true if text search has been disabled, if it was not enabled then false will be returned
+     */
+    public synchronized boolean disableTextSearch() {
+        TextIndex index = this.textIndex;
+        this.textIndex = null;
+        removeListener(index);
+        return index != null;
+    }
+
+    /**
+     * Finds products which names contain any of query words. Products containing more of them rank higher, and rare
+     * words count more than words contained in many names.
+     *
+     * @param query Words to be searched in product names
+     * @param limit Maximal number of products to be returned
+     * @return Returns products ranked from the best match, if query is null, limit is not positive or text search
+     * is not enabled then null
+     */
+    public List<Product> searchProducts(String query, int limit) {
+        TextIndex index = textIndex;
+        if (index == null || query == null || limit < 1)
+            return null;
+
+        return index.search(query, limit);
+    }
+
+    /**
+     * Completes text typed by user, for example "thinking ja" finds names containing word thinking and word
+     * starting with ja, such as "Thinking in Java". Products are ordered by completed word, and only as many
+     * of them are read as are returned.
+     *
+     * @param text Words which names must contain, the last of them may be only started
+     * @param limit Maximal number of products to be returned
+     * @return Returns products ordered by completed word, if text is null, limit is not positive or text search
+     * is not enabled then null
+     */
+    public List<Product> autocomplete(String text, int limit) {
+        TextIndex index = textIndex;
+        if (index == null || text == null || limit < 1)
+            return null;
+
+        return index.complete(text, limit);
+    }
+
+    /**
+     * @param field Field to be checked
+     * @return Returns true if field is indexed
+     */
+    public boolean hasIndex(Product.Fields field) {
+        return field != null && indexes.containsKey(field);
+    }
+
     /**
      * @param field Field by which products should be filtered
      * @param keyword Keyword by which comparison is to be made
@@ -118,24 +558,402 @@ public class Warehouse {
      */
     public List<Product> filterProducts(Product.Fields field, Object keyword) {
         if(field != null && keyword != null) {
-            return storage.values().stream().filter(p -> p.getSelected(field).equals(keyword)).collect(Collectors.toList());
+            WarehouseMetrics metrics = this.metrics;
+            long start = metrics != null ? metrics.start() : 0;
+
+            FilterResultCache cache = filterCache;
+            List<Product> products = cache != null ? cache.get(field, keyword, () -> filter(field, keyword)) : filter(field, keyword);
+
+            if (metrics != null)
+                metrics.record(WarehouseMetrics.Operation.Filter, start, products.size());
+            return products;
         }
         return null;
     }
 
+    /**
+     * Starts caching results of filterProducts, which are dropped whenever products they depend on change.
+     * Cache listens to warehouse, so stock changes then take the same per product lock as other writes.
+     *
+     * @param maximumSize Maximal number of cached results, the least recently used ones are evicted first
+     * @return Returns true if cache has been enabled, if it already is or size is not positive then false will be returned
+     */
+    public synchronized boolean enableFilterCache(int maximumSize) {
+        if (maximumSize <= 0 || filterCache != null)
+            return false;
+
+        FilterResultCache cache = new FilterResultCache(maximumSize);
+        addListener(cache);
+        filterCache = cache;
+        return true;
+    }
+
+    /**
+     * @return Returns true if cache has been disabled, if it was not enabled then false will be returned
+     */
+    public synchronized boolean disableFilterCache() {
+        FilterResultCache cache = filterCache;
+        filterCache = null;
+        removeListener(cache);
+        return cache != null;
+    }
+
+    /**
+     * Runs filterProducts and sortProducts which cannot be served by index in fork-join pool, once storage holds
+     * at least threshold products. Below threshold splitting work costs more than it saves.
+     *
+     * @param pool Pool which runs filters and sorts
+     * @param threshold Minimal number of stored products for which filters and sorts run in parallel
+     * @return Returns true if parallel execution has been enabled, if pool is null or threshold is negative then false
+     */
+    public boolean enableParallelExecution(ForkJoinPool pool, int threshold) {
+        if (pool == null || threshold < 0)
+            return false;
+
+        parallelExecution = new ParallelExecution(pool, threshold);
+        return true;
+    }
+
+    /**
+     * @return Returns true if parallel execution has been disabled, if it was not enabled then false will be returned
+     */
+    public boolean disableParallelExecution() {
+        boolean enabled = parallelExecution != null;
+        parallelExecution = null;
+        return enabled;
+    }
+
+    /**
+     * Starts counting every operation and measuring latency of sampled ones. With metrics disabled operations only
+     * check that they are disabled.
+     *
+     * @param samplingInterval Average number of operations per one which latency is measured, 1 measures all of them
+     * @return Returns true if metrics have been enabled, if they already are or interval is not positive then false
+     */
+    public synchronized boolean enableMetrics(int samplingInterval) {
+        if (samplingInterval <= 0 || metrics != null)
+            return false;
+
+        metrics = new WarehouseMetrics(samplingInterval);
+        return true;
+    }
+
+    /**
+     * @return Returns true if metrics have been disabled, if they were not enabled then false will be returned
+     */
+    public synchronized boolean disableMetrics() {
+        boolean enabled = metrics != null;
+        metrics = null;
+        return enabled;
+    }
+
+    /**
+     * @return Returns metrics measured since they were enabled, or null if they are not enabled
+     */
+    public WarehouseMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Enables {@link #beginTransaction()}. Every write of product then takes lock of product shared with few others,
+     * which commit of transaction holds while it validates and applies its changes, and stamps product with new version.
+     * Like indexes, transactions should be enabled before concurrent traffic starts.
+     *
+     * @return Returns true if transactions have been enabled, if they already are then false will be returned
+     */
+    public synchronized boolean enableTransactions() {
+        if (locks != null)
+            return false;
+
+        ProductLocks locks = new ProductLocks(TRANSACTION_LOCK_STRIPES);
+        addListener(locks);
+        this.locks = locks;
+        return true;
+    }
+
+    /**
+     * @return Returns true if transactions have been disabled, if they were not enabled then false will be returned
+     */
+    public synchronized boolean disableTransactions() {
+        ProductLocks locks = this.locks;
+        this.locks = null;
+        removeListener(locks);
+        return locks != null;
+    }
+
+    /**
+     * @return Returns new transaction staging changes of many products which are applied together or not at all,
+     * or null if transactions are not enabled
+     */
+    public Transaction beginTransaction() {
+        ProductLocks locks = this.locks;
+        return locks != null ? new Transaction(this, locks) : null;
+    }
+
+    /**
+     * Starts keeping immutable versions of products, so {@link #snapshot()} can hand out point-in-time views.
+     * Every change then copies the changed product and replaces the latest version without lock, and stock changes
+     * take the same per product lock as other writes. Like indexes, snapshots should be enabled before concurrent
+     * traffic starts, so all products stored so far are copied in their final state.
+     *
+     * @return Returns true if snapshots have been enabled, if they already are then false will be returned
+     */
+    public synchronized boolean enableSnapshots() {
+        if (versions != null)
+            return false;
+
+        ProductVersions versions = new ProductVersions();
+        addListener(versions);
+        versions.load(storage.values());
+        this.versions = versions;
+        return true;
+    }
+
+    /**
+     * @return Returns true if snapshots have been disabled, if they were not enabled then false will be returned
+     */
+    public synchronized boolean disableSnapshots() {
+        ProductVersions versions = this.versions;
+        this.versions = null;
+        removeListener(versions);
+        return versions != null;
+    }
+
+    /**
+     * Takes point-in-time view of all products in constant time, it never blocks writers and is not changed by them.
+     * Version stays in memory only as long as some reader holds its snapshot.
+     *
+     * @return Returns snapshot of products, or null if snapshots are not enabled
+     */
+    public WarehouseSnapshot snapshot() {
+        ProductVersions versions = this.versions;
+        return versions != null ? versions.current() : null;
+    }
+
+    /**
+     * Starts keeping count, stock, value and price range of products per category and of all products, updated by
+     * every change, so reading them costs the same for any number of products. Like indexes, aggregates should be
+     * enabled before concurrent traffic starts, so all products stored so far are counted in their final state.
+     *
+     * @return Returns true if aggregates have been enabled, if they already are then false will be returned
+     */
+    public synchronized boolean enableAggregates() {
+        if (aggregates != null)
+            return false;
+
+        CategoryAggregates aggregates = new CategoryAggregates();
+        addListener(aggregates);
+        aggregates.load(storage.values());
+        this.aggregates = aggregates;
+        return true;
+    }
+
+    /**
+     * @return Returns true if aggregates have been disabled, if they were not enabled then false will be returned
+     */
+    public synchronized boolean disableAggregates() {
+        CategoryAggregates aggregates = this.aggregates;
+        this.aggregates = null;
+        removeListener(aggregates);
+        return aggregates != null;
+    }
+
+    /**
+     * @return Returns aggregates of all products, or null if aggregates are not enabled
+     */
+    public CategoryStatistics getTotalStatistics() {
+        CategoryAggregates aggregates = this.aggregates;
+        return aggregates != null ? aggregates.total() : null;
+    }
+
+    /**
+     * @param category Category of products
+     * @return Returns aggregates of products of category, if category is null or aggregates are not enabled then null
+     */
+    public CategoryStatistics getCategoryStatistics(String category) {
+        CategoryAggregates aggregates = this.aggregates;
+        return aggregates != null && category != null ? aggregates.category(category) : null;
+    }
+
+    /**
+     * @return Returns aggregates of every category which has products sorted by category, or null if aggregates are
+     * not enabled
+     */
+    public Map<String, CategoryStatistics> getAllCategoryStatistics() {
+        CategoryAggregates aggregates = this.aggregates;
+        return aggregates != null ? aggregates.categories() : null;
+    }
+
+    /**
+     * @return Returns counters of cache of filterProducts results, or null if results are not cached
+     */
+    public CacheStatistics getFilterCacheStatistics() {
+        FilterResultCache cache = filterCache;
+        return cache != null ? cache.getStatistics() : null;
+    }
+
+    /**
+     * Runs query driven by the index which selects the fewest products, or by scan of storage if none of
+     * conditions is indexed. Products are checked against all conditions and query stops when limit is reached.
+     *
+     * @param query Query to be run
+     * @return List of products meeting all conditions of query
+     */
+    public List<Product> query(ProductQuery query) {
+        if (query != null) {
+            WarehouseMetrics metrics = this.metrics;
+            long start = metrics != null ? metrics.start() : 0;
+            List<Product> products = plan(query).filter(query::test).limit(query.getLimit()).collect(Collectors.toList());
+
+            if (metrics != null)
+                metrics.record(WarehouseMetrics.Operation.Query, start, products.size());
+            return products;
+        }
+        return null;
+    }
+
+    /**
+     * Filters products lazily, products are matched only as stream is consumed, so limit or findFirst end scan
+     * as soon as enough products have been found, and nothing is copied into list
+     *
+     * @param field Field by which products should be filtered
+     * @param keyword Keyword by which comparison is to be made
+     * @return Returns stream of matching products, or null if field or keyword is null
+     */
+    public Stream<Product> streamProducts(Product.Fields field, Object keyword) {
+        if (field == null || keyword == null)
+            return null;
+
+        ProductIndex index = indexes.get(field);
+        if (index != null)
+            return index.select(keyword).stream();
+
+        return storage.values().stream().filter(field.equalTo(keyword));
+    }
+
     /**
      * @param field Field by which products should be sorted
      * @param ascending Keyword by which comparison is to be made
      * @return List of products after sorting
      */
     public List<Product> sortProducts(Product.Fields field, Boolean ascending) {
+        WarehouseMetrics metrics = this.metrics;
+        if (metrics == null || field == null)
+            return sort(field, ascending);
+
+        long start = metrics.start();
+        List<Product> products = sort(field, ascending);
+        metrics.record(WarehouseMetrics.Operation.Sort, start, products.size());
+        return products;
+    }
+
+    /**
+     * Reads one page of sorted products. With sorted view of field the page is read straight from it, walking only
+     * offset and limit products. Without it only the best offset plus limit products are kept while scanning.
+     *
+     * @param field Field by which products should be sorted
+     * @param ascending Keyword by which comparison is to be made
+     * @param offset Number of products to be skipped from the beginning
+     * @param limit Maximal number of products to be returned, first page of given limit gives top-k products
+     * @return List of products on page after sorting
+     */
+    public List<Product> sortProducts(Product.Fields field, Boolean ascending, int offset, int limit) {
+        WarehouseMetrics metrics = this.metrics;
+        if (metrics == null)
+            return sortPage(field, ascending, offset, limit);
+
+        long start = metrics.start();
+        List<Product> products = sortPage(field, ascending, offset, limit);
+        if (products != null)
+            metrics.record(WarehouseMetrics.Operation.Sort, start, products.size());
+        return products;
+    }
+
+    /**
+     * Reads page of products sorted by field and then by id, continuing right after cursor of previous page. With
+     * sorted view of field page is read by seeking to cursor and walking only products of page. Without it products
+     * are scanned once keeping only the best page of them, so allocation is bounded by page size either way.
+     *
+     * @param field Field by which products should be sorted
+     * @param ascending Whether products should be sorted from the lowest value
+     * @param after Cursor of previous page, or null for the first page
+     * @param limit Maximal number of products on page
+     * @return Returns page of products with cursor of the next one, if field is null, limit is not positive or cursor
+     * is of other field or order then null
+     */
+    public ProductPage pageProducts(Product.Fields field, boolean ascending, ProductCursor after, int limit) {
+        if (field == null || limit < 1)
+            return null;
+        if (after != null && (after.getField() != field || after.isAscending() != ascending))
+            return null;
+
+        WarehouseMetrics metrics = this.metrics;
+        long start = metrics != null ? metrics.start() : 0;
+
+        // One product more than page tells whether there is next page
+        List<Product> products;
+        OrderedProductIndex view = sortedView(field);
+        if (view != null) {
+            products = new ArrayList<>(Math.min(limit, storage.size()) + 1);
+            Collection<Product> sorted = after != null ? view.sorted(ascending, after.getValue(), after.getId()) : view.sorted(ascending);
+            for (Product product : sorted) {
+                products.add(product);
+                if (products.size() > limit)
+                    break;
+            }
+        } else {
+            products = scanPage(field, ascending, after, limit);
+        }
+
+        ProductCursor next = null;
+        if (products.size() > limit) {
+            products.remove(limit);
+            next = new ProductCursor(field, ascending, products.get(limit - 1));
+        }
+
+        if (metrics != null)
+            metrics.record(WarehouseMetrics.Operation.Page, start, products.size());
+        return new ProductPage(products, next);
+    }
+
+    private List<Product> scanPage(Product.Fields field, boolean ascending, ProductCursor after, int limit) {
+        Comparator<Product> order = ProductCursor.order(field, ascending);
+        Product last = after != null ? after.getLast() : null;
+
+        PriorityQueue<Product> best = new PriorityQueue<>(Math.min(limit, storage.size()) + 1, order.reversed());
+        for (Product product : storage.values()) {
+            if (last != null && order.compare(product, last) <= 0)
+                continue;
+
+            if (best.size() > limit) {
+                if (order.compare(product, best.peek()) >= 0)
+                    continue;
+                best.poll();
+            }
+            best.offer(product);
+        }
+
+        List<Product> products = new ArrayList<>(best);
+        products.sort(order);
+        return products;
+    }
+
+    private List<Product> sort(Product.Fields field, Boolean ascending) {
         if(field != null) {
+            OrderedProductIndex view = sortedView(field);
+            if (view != null)
+                return new ArrayList<>(view.sorted(ascending));
+
+            ParallelExecution parallel = parallelExecution;
+            if (parallel != null && parallel.appliesTo(storage.size()))
+                return parallel.sort(storage.values().toArray(new Product[0]), field, ascending);
+
             List<Product> products = new ArrayList<>(storage.values());
 
             if(ascending) {
-                products.sort((p1, p2) -> p1.compareTo(field, p2));
+                products.sort(field.comparator());
             } else {
-                products.sort(Collections.reverseOrder((p1, p2) -> p1.compareTo(field, p2)));
+                products.sort(Collections.reverseOrder(field.comparator()));
             }
 
             return products;
@@ -143,45 +961,142 @@ public class Warehouse {
         return null;
     }
 
+    private List<Product> sortPage(Product.Fields field, Boolean ascending, int offset, int limit) {
+        if(field != null && offset >= 0 && limit >= 0) {
+            OrderedProductIndex view = sortedView(field);
+            if (view != null)
+                return view.sorted(ascending).stream().skip(offset).limit(limit).collect(Collectors.toList());
+
+            Comparator<Product> comparator = field.comparator();
+            if (!ascending)
+                comparator = comparator.reversed();
+
+            long kept = (long) offset + limit;
+            if (kept >= storage.size()) {
+                List<Product> products = sort(field, ascending);
+                return new ArrayList<>(products.subList(Math.min(offset, products.size()), products.size()));
+            }
+
+            PriorityQueue<Product> best = new PriorityQueue<>((int) kept + 1, comparator.reversed());
+            for (Product product : storage.values()) {
+                best.offer(product);
+                if (best.size() > kept)
+                    best.poll();
+            }
+
+            List<Product> products = new ArrayList<>(best);
+            products.sort(comparator);
+            return new ArrayList<>(products.subList(Math.min(offset, products.size()), products.size()));
+        }
+        return null;
+    }
+
     /**
+     * Creates sorted view of products which is kept in order on every change, so sortProducts does not have to sort.
+     * Sorted view is an ordered index, so it replaces hash index of the same field.
+     *
+     * @param field Field by which products should be kept sorted
+     * @return Returns true if view has been created, if it already exists then false will be returned
+     */
+    public boolean createSortedView(Product.Fields field) {
+        if (field == null || sortedView(field) != null)
+            return false;
+
+        dropIndex(field);
+        return createIndex(field, true);
+    }
+
+    /**
+     * Saves products as binary snapshot. Snapshot is written into temporary file which then replaces target file,
+     * so target file never holds half written snapshot.
+     *
      * @param fileName The name of the file to which products have to be saved
      * @throws IOException A returned exception that may occur during writing data
      */
     public void writeStorageToFile(String fileName) throws IOException {
-        FileOutputStream fileOutputStream = null;
-        ObjectOutputStream objectOutputStream = null;
-
+        WarehouseMetrics metrics = this.metrics;
+        long start = metrics != null ? metrics.start() : 0;
         try {
-            fileOutputStream = new FileOutputStream(fileName);
-            objectOutputStream = new ObjectOutputStream(fileOutputStream);
-
-            objectOutputStream.writeObject(storage);
-
+            writeSnapshot(fileName);
         } finally {
-            objectOutputStream.flush();
-            objectOutputStream.close();
-            fileOutputStream.close();
+            if (metrics != null)
+                metrics.record(WarehouseMetrics.Operation.SnapshotWrite, start);
         }
     }
 
     /**
+     * Reads products from binary snapshot, streaming it record by record into storage presized for all of them.
+     * Files written with Java serialization by earlier versions are still read.
+     *
      * @param fileName The name of the file from which products have to be readed
      * @throws ClassNotFoundException A returned exception that may occur during casting class
      * @throws FileNotFoundException A returned exception that may occur when file has not be found
      * @throws IOException A returned exception that may occur during reading data
      */
     public void readStorageFromFile(String fileName) throws ClassNotFoundException, FileNotFoundException, IOException {
-        FileInputStream fileInputStream = null;
-        ObjectInputStream objectInputStream = null;
+        WarehouseMetrics metrics = this.metrics;
+        long start = metrics != null ? metrics.start() : 0;
+        try {
+            readSnapshot(fileName);
+        } finally {
+            if (metrics != null)
+                metrics.record(WarehouseMetrics.Operation.SnapshotRead, start);
+        }
+    }
+
+    private void writeSnapshot(String fileName) throws IOException {
+        Path target = Paths.get(fileName);
+        Path temporary = Paths.get(fileName + ".tmp");
+
+        try (SnapshotWriter writer = new SnapshotWriter(temporary)) {
+            writer.setHighWaterMark(idAllocator.getHighWaterMark());
+            for (Product product : storage.values()) {
+                writer.write(product);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
 
         try {
-            fileInputStream = new FileInputStream(fileName);
-            objectInputStream = new ObjectInputStream(fileInputStream);
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
 
-            storage = (Map<Integer, Product>) objectInputStream.readObject();
-        } finally {
-            objectInputStream.close();
-            fileInputStream.close();
+    private void readSnapshot(String fileName) throws ClassNotFoundException, IOException {
+        Path path = Paths.get(fileName);
+
+        if (!SnapshotReader.isSnapshot(path)) {
+            readSerializedStorage(path);
+            return;
+        }
+
+        try (SnapshotReader reader = new SnapshotReader(path)) {
+            Map<Integer, Product> loaded = newStorage(reader.getCount());
+
+            while (reader.hasNext()) {
+                Product product = reader.next();
+                loaded.put(product.getId(), product);
+            }
+            setCreatedStorage(loaded);
+            idAllocator.advanceTo(reader.getHighWaterMark());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readSerializedStorage(Path path) throws ClassNotFoundException, IOException {
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new BufferedInputStream(new FileInputStream(path.toFile())))) {
+            Map<Integer, Product> loaded = (Map<Integer, Product>) objectInputStream.readObject();
+            if (isConcurrent()) {
+                Map<Integer, Product> storage = newStorage(loaded.size());
+                storage.putAll(loaded);
+                loaded = storage;
+            }
+            setCreatedStorage(loaded);
         }
     }
 
@@ -204,5 +1119,261 @@ public class Warehouse {
      */
     public void clearStorage() {
         storage.clear();
+        listeners.forEach(l -> l.storageReplaced(storage));
+    }
+
+    /**
+     * @return Returns products which field is equal to keyword, read from index if field is indexed
+     */
+    private List<Product> filter(Product.Fields field, Object keyword) {
+        WarehouseMetrics metrics = this.metrics;
+        ProductIndex index = indexes.get(field);
+        if (index != null) {
+            List<Product> products = new ArrayList<>(index.select(keyword));
+            if (metrics != null)
+                metrics.recordScan(products.size());
+            return products;
+        }
+
+        if (metrics != null)
+            metrics.recordScan(storage.size());
+
+        ParallelExecution parallel = parallelExecution;
+        if (parallel != null && parallel.appliesTo(storage.size()))
+            return parallel.filter(storage.values().toArray(new Product[0]), field.equalTo(keyword));
+
+        return storage.values().stream().filter(field.equalTo(keyword)).collect(Collectors.toList());
+    }
+
+    /**
+     * @param product Product to be inserted into storage
+     * @return Returns product as it is kept by storage, or null if product has not been inserted
+     */
+    private Product insert(Product product) {
+        WarehouseMetrics metrics = this.metrics;
+        if (metrics == null)
+            return store(product);
+
+        long start = metrics.start();
+        Product stored = store(product);
+        metrics.record(WarehouseMetrics.Operation.Insert, start);
+        return stored;
+    }
+
+    private Product store(Product product) {
+        if (product == null || product.getId() == null)
+            return null;
+
+        Product stored = storage instanceof ViewStorage ? ((ViewStorage) storage).view(product) : product;
+        boolean inserted;
+        if (listeners.isEmpty()) {
+            inserted = storage.putIfAbsent(stored.getId(), stored) == null;
+        } else {
+            boolean[] computed = {false};
+            Lock lock = lockProduct(stored.getId());
+            try {
+                storage.computeIfAbsent(stored.getId(), id -> {
+                    listeners.forEach(l -> l.productInserted(stored));
+                    computed[0] = true;
+                    return stored;
+                });
+            } finally {
+                unlock(lock);
+            }
+            inserted = computed[0];
+        }
+        if (!inserted)
+            return null;
+
+        published(false);
+        idAllocator.advanceTo(stored.getId());
+        return stored;
+    }
+
+    private void load(Product product, BulkLoadResult result) {
+        if (product == null || product.getId() == null)
+            result.invalid();
+        else if (insert(product) != null)
+            result.loaded();
+        else
+            result.reject(product.getId());
+    }
+
+    /**
+     * Replaces empty storage with storage of the same kind that will not have to grow while products are loaded.
+     * Storage given by caller is kept as it is, it may be held by caller or have its own order or behaviour.
+     */
+    private void presize(long expectedSize) {
+        if (expectedSize > 0 && storageCreated && storage.isEmpty())
+            setCreatedStorage(newStorage(expectedSize));
+    }
+
+    /**
+     * @param storage Storage created by warehouse, which may be replaced by presized one later
+     */
+    private void setCreatedStorage(Map<Integer, Product> storage) {
+        setStorage(storage);
+        storageCreated = true;
+    }
+
+    /**
+     * @param expectedSize Number of products that will be stored
+     * @return Returns new empty storage of the same kind as the current one
+     */
+    private Map<Integer, Product> newStorage(long expectedSize) {
+        int size = (int) Math.min(expectedSize, Integer.MAX_VALUE);
+        if (storage instanceof ViewStorage)
+            return ((ViewStorage) storage).emptyStorage(size);
+
+        int capacity = (int) Math.min(expectedSize * 4 / 3 + 1, Integer.MAX_VALUE);
+        return isConcurrent() ? new ConcurrentHashMap<>(capacity) : new HashMap<>(capacity);
+    }
+
+    /**
+     * @param id Id of product to be removed
+     * @param expected Product that has to be stored under id to be removed, or null to remove any product,
+     *                 views handed out by storage are matched by equality
+     * @return Returns true if product has been removed
+     */
+    private boolean removeProduct(Integer id, Product expected) {
+        boolean[] removed = {false};
+        Lock lock = lockProduct(id);
+        try {
+            storage.computeIfPresent(id, (key, stored) -> {
+                if (expected != null && !stored.equals(expected))
+                    return stored;
+
+                listeners.forEach(l -> l.productDeleted(stored));
+                removed[0] = true;
+                return null;
+            });
+        } finally {
+            unlock(lock);
+        }
+        if (removed[0])
+            published(false);
+        return removed[0];
+    }
+
+    /**
+     * Starts new version of cached filter results once change is visible in storage. Listeners are notified while
+     * change is still being made, so results filtered in the meantime are kept with version which is now stale.
+     *
+     * @param stock True if only stock of product has changed
+     */
+    private void published(boolean stock) {
+        FilterResultCache cache = filterCache;
+        if (cache != null)
+            cache.invalidate(stock);
+    }
+
+    /**
+     * @param id Id of product to be written
+     * @return Returns taken lock of product, or null if transactions are not enabled and no lock is needed
+     */
+    private Lock lockProduct(Integer id) {
+        ProductLocks locks = this.locks;
+        if (locks == null)
+            return null;
+
+        Lock lock = locks.lockFor(id);
+        lock.lock();
+        return lock;
+    }
+
+    private static void unlock(Lock lock) {
+        if (lock != null)
+            lock.unlock();
+    }
+
+    /**
+     * @param field Sorted field
+     * @return Returns ordered index of field, or null if field is not kept sorted
+     */
+    private OrderedProductIndex sortedView(Product.Fields field) {
+        ProductIndex index = indexes.get(field);
+        return index instanceof OrderedProductIndex ? (OrderedProductIndex) index : null;
+    }
+
+    /**
+     * @param query Query to be planned
+     * @return Returns candidate products selected by the most selective index, or all products
+     */
+    private Stream<Product> plan(ProductQuery query) {
+        ProductIndex bestIndex = null;
+        ProductCondition bestCondition = null;
+        int best = storage.size();
+
+        for (ProductCondition condition : query.getConditions()) {
+            ProductIndex index = indexes.get(condition.getField());
+
+            if (index != null && index.supports(condition)) {
+                int estimate = index.count(condition, best);
+                if (bestIndex == null || estimate < best) {
+                    bestIndex = index;
+                    bestCondition = condition;
+                    best = estimate;
+                }
+            }
+        }
+        return bestIndex != null ? bestIndex.select(bestCondition) : storage.values().stream();
+    }
+
+    /**
+     * Changes stock without any lock, unless there are listeners which need to see changes of one product in order,
+     * then change is made under the same per product lock as other writes
+     */
+    private boolean changeStock(Integer id, int quantity, StockChange change) {
+        WarehouseMetrics metrics = this.metrics;
+        if (metrics == null)
+            return applyStockChange(id, quantity, change);
+
+        long start = metrics.start();
+        boolean changed = applyStockChange(id, quantity, change);
+        metrics.record(WarehouseMetrics.Operation.StockChange, start);
+        return changed;
+    }
+
+    private boolean applyStockChange(Integer id, int quantity, StockChange change) {
+        if (id == null || quantity <= 0)
+            return false;
+
+        if (listeners.isEmpty()) {
+            Product product = storage.get(id);
+            boolean changed = product != null && change.apply(product, quantity);
+            if (changed || product == null || !product.isReplaced()) {
+                if (changed)
+                    published(true);
+                return changed;
+            }
+            // Product has been replaced by update meanwhile, its replacement is changed while computing under its id
+        }
+
+        boolean[] changed = {false};
+        Lock lock = lockProduct(id);
+        try {
+            storage.computeIfPresent(id, (key, product) -> {
+                int stock = product.getStock();
+                int reserved = product.getReserved();
+
+                if (change.apply(product, quantity)) {
+                    listeners.forEach(l -> l.stockChanged(product, stock, reserved));
+                    changed[0] = true;
+                }
+                return product;
+            });
+        } finally {
+            unlock(lock);
+        }
+        if (changed[0])
+            published(true);
+        return changed[0];
+    }
+
+    /**
+     * Operation changing stock of single product
+     */
+    private interface StockChange {
+        boolean apply(Product product, int quantity);
     }
 }
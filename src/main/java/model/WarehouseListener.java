@@ -0,0 +1,52 @@
+package model;
+
+import java.util.Map;
+
+/**
+ * Receives notifications about every change made to products through {@link Warehouse}.
+ * Notifications for one product are delivered in the order changes were made, while the product is locked
+ * against other writers, so listeners must not modify warehouse from inside of them.
+ */
+public interface WarehouseListener {
+
+    /**
+     * @param product Product that has been inserted into storage
+     */
+    default void productInserted(Product product) {
+
+    }
+
+    /**
+     * Stored products can be changed in place by their holders before update is called,
+     * so values of before copy may already be equal to values after update.
+     *
+     * @param before Detached copy of product values before update
+     * @param after Stored product with values after update, it may be another instance than the one stored before
+     */
+    default void productUpdated(Product before, Product after) {
+
+    }
+
+    /**
+     * @param product Stored product which stock has been reserved, released or committed
+     * @param previousStock Available stock before change
+     * @param previousReserved Reserved stock before change
+     */
+    default void stockChanged(Product product, int previousStock, int previousReserved) {
+
+    }
+
+    /**
+     * @param product Product that has been deleted from storage
+     */
+    default void productDeleted(Product product) {
+
+    }
+
+    /**
+     * @param storage Storage that replaced all previous products, after clearing, reading from file or setting new one
+     */
+    default void storageReplaced(Map<Integer, Product> storage) {
+
+    }
+}
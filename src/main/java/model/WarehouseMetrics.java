@@ -0,0 +1,112 @@
+package model;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts and latencies of operations of warehouse, see {@link Warehouse#enableMetrics(int)}. Every operation is
+ * counted by striped counter, while latency is measured only for sampled operations, because reading clock twice
+ * would cost more than the cheapest operations themselves. Filters also record how many products they scanned and
+ * operations returning lists how many products they returned.
+ */
+public final class WarehouseMetrics {
+
+    /**
+     * Measured operations of warehouse
+     */
+    public enum Operation {
+        Select, Insert, Update, Delete, StockChange, Filter, Sort, Page, Query, SnapshotWrite, SnapshotRead
+    }
+
+    private final int sampleMask;
+    private final LongAdder[] counts = new LongAdder[Operation.values().length];
+    private final Histogram[] latencies = new Histogram[Operation.values().length];
+    private final Histogram scanSizes = new Histogram();
+    private final Histogram resultSizes = new Histogram();
+
+    /**
+     * @param samplingInterval Average number of operations per one which latency is measured, rounded up to power of two
+     */
+    WarehouseMetrics(int samplingInterval) {
+        int interval = Integer.highestOneBit(Math.max(1, samplingInterval - 1)) << 1;
+        this.sampleMask = samplingInterval <= 1 ? 0 : interval - 1;
+        for (Operation operation : Operation.values()) {
+            counts[operation.ordinal()] = new LongAdder();
+            latencies[operation.ordinal()] = new Histogram();
+        }
+    }
+
+    /**
+     * @return Returns average number of operations per one which latency is measured
+     */
+    public int getSamplingInterval() {
+        return sampleMask + 1;
+    }
+
+    /**
+     * @param operation Measured operation
+     * @return Returns number of operations made since metrics were enabled
+     */
+    public long getCount(Operation operation) {
+        return counts[operation.ordinal()].sum();
+    }
+
+    /**
+     * @param operation Measured operation
+     * @return Returns distribution of sampled latencies of operation in nanoseconds
+     */
+    public Histogram getLatency(Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    /**
+     * @return Returns distribution of numbers of products scanned by filters which were not answered from cache
+     */
+    public Histogram getScanSizes() {
+        return scanSizes;
+    }
+
+    /**
+     * @return Returns distribution of numbers of products returned by filters, sorts, pages and queries
+     */
+    public Histogram getResultSizes() {
+        return resultSizes;
+    }
+
+    /**
+     * @return Returns start time of operation if its latency should be measured, otherwise 0
+     */
+    long start() {
+        if (sampleMask != 0 && (ThreadLocalRandom.current().nextInt() & sampleMask) != 0)
+            return 0;
+
+        return System.nanoTime();
+    }
+
+    /**
+     * @param operation Operation which has ended
+     * @param start Value returned by {@link #start()} when operation began
+     */
+    void record(Operation operation, long start) {
+        counts[operation.ordinal()].increment();
+        if (start != 0)
+            latencies[operation.ordinal()].record(System.nanoTime() - start);
+    }
+
+    /**
+     * @param operation Operation which has ended
+     * @param start Value returned by {@link #start()} when operation began
+     * @param resultSize Number of products returned by operation
+     */
+    void record(Operation operation, long start, int resultSize) {
+        record(operation, start);
+        resultSizes.record(resultSize);
+    }
+
+    /**
+     * @param scanned Number of products scanned by filter
+     */
+    void recordScan(int scanned) {
+        scanSizes.record(scanned);
+    }
+}
@@ -0,0 +1,103 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Immutable point-in-time view of warehouse, see {@link Warehouse#snapshot()}. It includes every change published
+ * before it was taken and none after, so reports read from one snapshot are consistent while warehouse keeps changing.
+ * Products of snapshot cannot be changed, {@link Product#copy()} gives product which can.
+ */
+public final class WarehouseSnapshot {
+
+    private final ProductTrie products;
+    private final long version;
+
+    /**
+     * @param products Products of snapshot
+     * @param version Number of changes included in snapshot
+     */
+    WarehouseSnapshot(ProductTrie products, long version) {
+        this.products = products;
+        this.version = version;
+    }
+
+    /**
+     * @return Returns number of changes included in snapshot since versions started to be kept,
+     * snapshot with higher version includes all changes of lower one
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Returns number of products in snapshot
+     */
+    public int getStorageSize() {
+        return products.size();
+    }
+
+    /**
+     * @return Returns flag that inform if snapshot has no products
+     */
+    public boolean isStorageEmpty() {
+        return products.size() == 0;
+    }
+
+    /**
+     * @param id Id of product
+     * @return Returns product as it was when snapshot was taken, or null if it did not exist then
+     */
+    public Product selectProduct(Integer id) {
+        return id != null ? products.get(id) : null;
+    }
+
+    /**
+     * @return Returns all products of snapshot
+     */
+    public List<Product> selectAllProducts() {
+        List<Product> all = new ArrayList<>(products.size());
+        products.forEach(all::add);
+        return all;
+    }
+
+    /**
+     * @return Returns stream of all products of snapshot
+     */
+    public Stream<Product> stream() {
+        return selectAllProducts().stream();
+    }
+
+    /**
+     * @param field Field by which products should be filtered
+     * @param keyword Keyword by which comparison is to be made
+     * @return List of products of snapshot after filtration
+     */
+    public List<Product> filterProducts(Product.Fields field, Object keyword) {
+        if (field == null || keyword == null)
+            return null;
+
+        return stream().filter(field.equalTo(keyword)).collect(Collectors.toList());
+    }
+
+    /**
+     * @param field Field by which products should be sorted
+     * @param ascending Keyword by which comparison is to be made
+     * @return List of products of snapshot after sorting
+     */
+    public List<Product> sortProducts(Product.Fields field, Boolean ascending) {
+        if (field == null || ascending == null)
+            return null;
+
+        List<Product> sorted = selectAllProducts();
+        sorted.sort(ascending ? field.comparator() : Collections.reverseOrder(field.comparator()));
+        return sorted;
+    }
+
+    ProductTrie getProducts() {
+        return products;
+    }
+}
@@ -0,0 +1,862 @@
+package storage;
+
+import model.CacheStatistics;
+import model.Product;
+import model.ViewStorage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of hot products in front of slower {@link ProductBackend}, to be passed to {@link model.Warehouse}
+ * as its storage, so warehouse can serve catalogue larger than memory. Products which are not cached are read from
+ * backend when they are accessed and cache keeps at most configured number of them.
+ * <p>
+ * Cache is segmented least recently used list. Products read once enter probation segment, products read again while
+ * they are there are promoted into protected segment, which takes most of capacity, so scan of many products used
+ * once does not push out the hot ones. Reading cached product only marks it as referenced without taking any lock,
+ * products are moved between segments when eviction reaches them. Products expire after configured time since they
+ * have been read from backend and are read again.
+ * <p>
+ * Changes of products are written to backend either at once by changing thread (write-through), or by background
+ * thread after configured delay (write-behind), which writes several changes of one product as one. Products waiting
+ * to be written are never read from backend. Products handed out before they have been evicted or have expired pass
+ * changes on to product currently stored under their id. Iteration reads all products from backend, products that
+ * are not cached are returned as detached copies. When warehouse reads snapshot it loads products into new store over
+ * empty backend of the same kind, the replaced store should be closed then.
+ */
+public class CachedProductStore extends AbstractMap<Integer, Product> implements ViewStorage, Closeable {
+
+    /**
+     * Share of capacity taken by protected segment
+     */
+    private static final double PROTECTED_SHARE = 0.8;
+
+    /**
+     * States of cached product, it is detached before it is stored, evicted products pass changes on
+     */
+    private static final int DETACHED = 0;
+    private static final int STORED = 1;
+    private static final int EVICTED = 2;
+    private static final int REMOVED = 3;
+
+    /**
+     * Marks product which deletion waits to be written
+     */
+    private static final Product DELETED = new Product();
+
+    private final ProductBackend backend;
+    private final int maximumSize;
+    private final int protectedSize;
+    private final long timeToLiveNanos;
+    private final long writeBehindNanos;
+    private final ConcurrentHashMap<Integer, Node> nodes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Product> pending = new ConcurrentHashMap<>();
+    private final AtomicLong size;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * Guards segments, products are linked and unlinked only after their entry in map has been changed
+     */
+    private final Object lock = new Object();
+    private final Object flushLock = new Object();
+    private final Object signal = new Object();
+    private final Node probation = new Node(null);
+    private final Node protectedSegment = new Node(null);
+    private int probationCount;
+    private int protectedCount;
+
+    /**
+     * Creates cache which writes changes through and keeps products until they are evicted
+     *
+     * @param backend Backend which products are cached
+     * @param maximumSize Maximal number of cached products
+     */
+    public CachedProductStore(ProductBackend backend, int maximumSize) {
+        this(backend, maximumSize, 0, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param backend Backend which products are cached
+     * @param maximumSize Maximal number of cached products
+     * @param timeToLive Time after which product is read from backend again, or 0 if products never expire
+     * @param writeBehindDelay Delay after which changes are written by background thread, or 0 if changes should be
+     *                         written through at once
+     * @param unit Unit of times
+     */
+    public CachedProductStore(ProductBackend backend, int maximumSize, long timeToLive, long writeBehindDelay, TimeUnit unit) {
+        if (maximumSize <= 0)
+            throw new IllegalArgumentException("Maximal size must be positive: " + maximumSize);
+
+        this.backend = backend;
+        this.maximumSize = maximumSize;
+        this.protectedSize = (int) (maximumSize * PROTECTED_SHARE);
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+        this.writeBehindNanos = unit.toNanos(writeBehindDelay);
+        this.size = new AtomicLong(backend.size());
+
+        if (writeBehindNanos > 0) {
+            this.writer = new Thread(this::writeLoop, "product-cache-writer");
+            this.writer.setDaemon(true);
+            this.writer.start();
+        } else {
+            this.writer = null;
+        }
+    }
+
+    @Override
+    public Product view(Product product) {
+        return new Cached(product, DETACHED);
+    }
+
+    /**
+     * @return Returns this store if it is empty, otherwise new store of the same configuration over empty backend
+     */
+    @Override
+    public ViewStorage emptyStorage(int expectedSize) {
+        if (isEmpty())
+            return this;
+
+        return new CachedProductStore(backend.emptyBackend(expectedSize), maximumSize, timeToLiveNanos,
+                writeBehindNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(size.get(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Product get(Object key) {
+        if (!(key instanceof Integer))
+            return null;
+
+        Node node = nodes.get(key);
+        if (node != null && !expired(node)) {
+            hits.increment();
+            node.referenced = true;
+            return node.product;
+        }
+
+        misses.increment();
+        Node[] previous = {null};
+        Node loaded = nodes.compute((Integer) key, (id, current) -> {
+            previous[0] = current;
+            return resolve(id, current);
+        });
+        relink((Integer) key, previous[0], loaded);
+        return loaded != null ? loaded.product : null;
+    }
+
+    @Override
+    public Product put(Integer key, Product value) {
+        Product[] previous = {null};
+        compute(key, (k, current) -> {
+            previous[0] = current;
+            return value;
+        });
+        return previous[0];
+    }
+
+    @Override
+    public Product putIfAbsent(Integer key, Product value) {
+        Product[] previous = {null};
+        compute(key, (k, current) -> {
+            previous[0] = current;
+            return current != null ? current : value;
+        });
+        return previous[0];
+    }
+
+    @Override
+    public Product remove(Object key) {
+        if (!(key instanceof Integer))
+            return null;
+
+        Product[] previous = {null};
+        compute((Integer) key, (k, current) -> {
+            previous[0] = current;
+            return null;
+        });
+        return previous[0];
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (!(key instanceof Integer))
+            return false;
+
+        boolean[] removed = {false};
+        compute((Integer) key, (k, current) -> {
+            removed[0] = current != null && current.equals(value);
+            return removed[0] ? null : current;
+        });
+        return removed[0];
+    }
+
+    @Override
+    public boolean replace(Integer key, Product oldValue, Product newValue) {
+        boolean[] replaced = {false};
+        compute(key, (k, current) -> {
+            replaced[0] = current != null && current.equals(oldValue);
+            return replaced[0] ? newValue : current;
+        });
+        return replaced[0];
+    }
+
+    @Override
+    public Product replace(Integer key, Product value) {
+        Product[] previous = {null};
+        compute(key, (k, current) -> {
+            previous[0] = current;
+            return current != null ? value : null;
+        });
+        return previous[0];
+    }
+
+    /**
+     * Runs function under lock of product id, product that is not cached is read from backend first
+     */
+    @Override
+    public Product compute(Integer key, BiFunction<? super Integer, ? super Product, ? extends Product> function) {
+        Node[] previous = {null};
+        Node node = nodes.compute(key, (id, current) -> {
+            previous[0] = current;
+            Node present = resolve(id, current);
+            Product value = present != null ? present.product : null;
+            Product result = function.apply(id, value);
+
+            if (result == null) {
+                if (present != null)
+                    delete(present.product);
+                return null;
+            }
+            if (result == value)
+                return present;
+
+            if (present != null)
+                present.product.detach(REMOVED);
+            else
+                size.incrementAndGet();
+            return new Node(store(result));
+        });
+
+        relink(key, previous[0], node);
+        return node != null ? node.product : null;
+    }
+
+    @Override
+    public Product computeIfPresent(Integer key, BiFunction<? super Integer, ? super Product, ? extends Product> function) {
+        return compute(key, (k, current) -> current != null ? function.apply(k, current) : null);
+    }
+
+    @Override
+    public Product computeIfAbsent(Integer key, Function<? super Integer, ? extends Product> function) {
+        return compute(key, (k, current) -> current != null ? current : function.apply(k));
+    }
+
+    @Override
+    public void clear() {
+        synchronized (flushLock) {
+            synchronized (lock) {
+                nodes.values().forEach(node -> node.product.detach(REMOVED));
+                nodes.clear();
+                pending.clear();
+                probation.previous = probation.next = probation;
+                protectedSegment.previous = protectedSegment.next = protectedSegment;
+                probationCount = 0;
+                protectedCount = 0;
+                backend.clear();
+                size.set(0);
+            }
+        }
+    }
+
+    @Override
+    public Set<Entry<Integer, Product>> entrySet() {
+        return new AbstractSet<Entry<Integer, Product>>() {
+            @Override
+            public Iterator<Entry<Integer, Product>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return CachedProductStore.this.size();
+            }
+        };
+    }
+
+    /**
+     * Writes all changes waiting in write-behind mode, changes made meanwhile may be left for the next flush
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            for (Entry<Integer, Product> entry : pending.entrySet()) {
+                Integer id = entry.getKey();
+                if (entry.getValue() == DELETED) {
+                    backend.delete(id);
+                    pending.remove(id, DELETED);
+                    writes.increment();
+                    continue;
+                }
+
+                Cached cached = (Cached) entry.getValue();
+                long version;
+                Product copy;
+                synchronized (cached) {
+                    if (cached.state == REMOVED) {
+                        pending.remove(id, cached);
+                        continue;
+                    }
+                    version = cached.version;
+                    copy = cached.copy();
+                }
+
+                backend.store(copy);
+                writes.increment();
+                pending.computeIfPresent(id, (key, value) -> value == cached && cached.version == version ? null : value);
+            }
+        }
+    }
+
+    /**
+     * Stops background writer and writes all waiting changes, changes made after that are not written
+     *
+     * @throws IOException A returned exception that may occur during writing changes
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (writer != null) {
+            synchronized (signal) {
+                signal.notifyAll();
+            }
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for writer of cache");
+            }
+        }
+
+        try {
+            flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @return Returns counters of cache
+     */
+    public CacheStatistics getStatistics() {
+        return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum(), expirations.sum());
+    }
+
+    /**
+     * @return Returns number of products kept in cache
+     */
+    public int getCachedCount() {
+        return nodes.size();
+    }
+
+    /**
+     * @return Returns number of products which changes wait to be written
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return Returns number of changes written to backend
+     */
+    public long getWriteCount() {
+        return writes.sum();
+    }
+
+    private boolean expired(Node node) {
+        return timeToLiveNanos > 0 && System.nanoTime() - node.loadedAt > timeToLiveNanos;
+    }
+
+    /**
+     * Called under lock of id in map
+     *
+     * @return Returns node which is valid for id, read again if cached one has expired
+     */
+    private Node resolve(Integer id, Node current) {
+        if (current != null && !expired(current))
+            return current;
+
+        Node loaded = load(id);
+        if (current != null) {
+            expirations.increment();
+            if (loaded == null || loaded.product != current.product)
+                current.product.detach(EVICTED);
+        }
+        return loaded;
+    }
+
+    /**
+     * @return Returns node of product waiting to be written, or of product read from backend
+     */
+    private Node load(Integer id) {
+        Product waiting = pending.get(id);
+        if (waiting == DELETED)
+            return null;
+        if (waiting != null && ((Cached) waiting).attach())
+            return new Node((Cached) waiting);
+
+        Product product = backend.load(id);
+        return product != null ? new Node(new Cached(product, STORED)) : null;
+    }
+
+    /**
+     * Called under lock of id in map
+     *
+     * @return Returns product bound to this store which holds values of given product
+     */
+    private Cached store(Product product) {
+        Cached cached = product instanceof Cached && ((Cached) product).owner() == this
+                && ((Cached) product).state == DETACHED ? (Cached) product : new Cached(product, DETACHED);
+
+        synchronized (cached) {
+            cached.state = STORED;
+            cached.written();
+        }
+        return cached;
+    }
+
+    /**
+     * Called under lock of id in map
+     */
+    private void delete(Cached cached) {
+        synchronized (cached) {
+            cached.state = REMOVED;
+            if (writeBehindNanos > 0)
+                pending.put(cached.getId(), DELETED);
+        }
+        if (writeBehindNanos == 0) {
+            backend.delete(cached.getId());
+            writes.increment();
+        }
+        size.decrementAndGet();
+    }
+
+    /**
+     * Brings segments in line with change of entry in map, new node is linked only if it is still mapped
+     */
+    private void relink(Integer id, Node previous, Node node) {
+        if (previous == node)
+            return;
+
+        synchronized (lock) {
+            if (previous != null && previous.next != null) {
+                unlink(previous);
+                if (previous.inProtected)
+                    protectedCount--;
+                else
+                    probationCount--;
+            }
+            if (node != null && node.next == null && nodes.get(id) == node) {
+                linkFirst(probation, node);
+                probationCount++;
+            }
+            evict();
+        }
+    }
+
+    /**
+     * Evicts products from tail of probation, referenced products are promoted into protected segment instead,
+     * which demotes its tail back into probation when it is full
+     */
+    private void evict() {
+        while (probationCount + protectedCount > maximumSize) {
+            Node victim = probation.previous;
+            if (victim == probation) {
+                demote();
+                continue;
+            }
+
+            unlink(victim);
+            probationCount--;
+            if (victim.referenced && protectedSize > 0) {
+                victim.referenced = false;
+                victim.inProtected = true;
+                linkFirst(protectedSegment, victim);
+                protectedCount++;
+                if (protectedCount > protectedSize)
+                    demote();
+                continue;
+            }
+
+            nodes.computeIfPresent(victim.product.getId(), (id, node) -> {
+                if (node != victim)
+                    return node;
+
+                victim.product.detach(EVICTED);
+                return null;
+            });
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Moves tail of protected segment into probation, referenced products get one more round in protected segment
+     */
+    private void demote() {
+        Node node = protectedSegment.previous;
+        for (int i = 0; i < protectedCount && node.referenced; i++) {
+            node.referenced = false;
+            unlink(node);
+            linkFirst(protectedSegment, node);
+            node = protectedSegment.previous;
+        }
+
+        unlink(node);
+        protectedCount--;
+        node.inProtected = false;
+        linkFirst(probation, node);
+        probationCount++;
+    }
+
+    private void linkFirst(Node head, Node node) {
+        node.previous = head;
+        node.next = head.next;
+        head.next.previous = node;
+        head.next = node;
+    }
+
+    /**
+     * Unlinks node, counter of its segment is left to caller
+     */
+    private void unlink(Node node) {
+        node.previous.next = node.next;
+        node.next.previous = node.previous;
+        node.previous = null;
+        node.next = null;
+    }
+
+    private void writeLoop() {
+        while (!closed) {
+            synchronized (signal) {
+                try {
+                    if (!closed)
+                        TimeUnit.NANOSECONDS.timedWait(signal, writeBehindNanos);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+
+            try {
+                flush();
+            } catch (RuntimeException ignored) {
+                // changes stay pending and are written again in the next round
+            }
+        }
+    }
+
+    private static final class Node {
+
+        private final Cached product;
+        private final long loadedAt = System.nanoTime();
+        private volatile boolean referenced;
+        private boolean inProtected;
+        private Node previous;
+        private Node next;
+
+        /**
+         * @param product Cached product, or null for head of segment
+         */
+        private Node(Cached product) {
+            this.product = product;
+            if (product == null)
+                previous = next = this;
+        }
+    }
+
+    /**
+     * Product kept by cache, every change of stored product is written to backend or queued to be written.
+     * Changes of evicted product are made on product currently stored under its id instead.
+     */
+    private final class Cached extends Product {
+
+        private static final long serialVersionUID = 1L;
+
+        private volatile int state;
+
+        /**
+         * Number of changes, changed under lock of product
+         */
+        private volatile long version;
+
+        private Cached(Product product, int state) {
+            super(product.getId(), product.getName(), product.getCategory(), product.getStock() + product.getReserved(),
+                    product.getPrice());
+            if (product.getReserved() > 0)
+                super.reserve(product.getReserved());
+            this.state = state;
+        }
+
+        private CachedProductStore owner() {
+            return CachedProductStore.this;
+        }
+
+        @Override
+        public void setName(String name) {
+            change(target -> {
+                target.assignName(name);
+                return true;
+            });
+        }
+
+        @Override
+        public void setCategory(String category) {
+            change(target -> {
+                target.assignCategory(category);
+                return true;
+            });
+        }
+
+        @Override
+        public void setStock(Integer stock) {
+            change(target -> {
+                target.assignStock(stock);
+                return true;
+            });
+        }
+
+        @Override
+        public void setPrice(Double price) {
+            change(target -> {
+                target.assignPrice(price);
+                return true;
+            });
+        }
+
+        /**
+         * Copies all values as one change
+         */
+        @Override
+        public void clone(Product p) {
+            Integer stockChange = takeStockChangeOf(p);
+            change(target -> {
+                target.assignName(p.getName());
+                target.assignCategory(p.getCategory());
+                if (stockChange == null)
+                    target.assignStock(p.getStock());
+                else if (stockChange != 0)
+                    target.assignStock(Math.max(0, target.getStockAsInt() + stockChange));
+                target.assignPrice(p.getPrice());
+                return true;
+            });
+        }
+
+        /**
+         * Product stays stored, so changes keep being written through it
+         */
+        @Override
+        protected Product updatedBy(Product p) {
+            clone(p);
+            return this;
+        }
+
+        @Override
+        protected void addStock(int quantity) {
+            change(target -> {
+                target.assignStock(Math.max(0, target.getStockAsInt() + quantity));
+                return true;
+            });
+        }
+
+        @Override
+        protected boolean reserve(int quantity) {
+            return change(target -> target.reserveStock(quantity));
+        }
+
+        @Override
+        protected boolean release(int quantity) {
+            return change(target -> target.releaseStock(quantity));
+        }
+
+        @Override
+        protected boolean commit(int quantity) {
+            return change(target -> target.commitStock(quantity));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Cached && ((Cached) o).owner() == owner() && Objects.equals(((Cached) o).getId(), getId());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getId());
+        }
+
+        /**
+         * Cached products are written as plain products, they cannot be read without store
+         */
+        private Object writeReplace() {
+            return copy();
+        }
+
+        /**
+         * Applies change to this product, or to product currently stored under its id if this one has been evicted.
+         * Store of product is looked up without holding lock of evicted product.
+         *
+         * @return Returns result of change, false if product has been removed
+         */
+        private boolean change(Change change) {
+            Cached target = this;
+            while (true) {
+                synchronized (target) {
+                    if (target.state == DETACHED)
+                        return change.apply(target);
+                    if (target.state == REMOVED)
+                        return false;
+                    if (target.state == STORED) {
+                        if (!change.apply(target))
+                            return false;
+
+                        target.written();
+                        return true;
+                    }
+                }
+
+                Product current = get(getId());
+                if (!(current instanceof Cached))
+                    return false;
+                target = (Cached) current;
+            }
+        }
+
+        /**
+         * Called under lock of this stored product
+         */
+        private void written() {
+            version++;
+            if (writeBehindNanos > 0) {
+                pending.put(getId(), this);
+            } else {
+                backend.store(copy());
+                writes.increment();
+            }
+        }
+
+        /**
+         * @return Returns true if product is stored again after eviction, false if it has been removed
+         */
+        private synchronized boolean attach() {
+            if (state == EVICTED)
+                state = STORED;
+            return state == STORED;
+        }
+
+        private synchronized void detach(int state) {
+            if (this.state == STORED || state == REMOVED)
+                this.state = state;
+        }
+
+        private void assignName(String name) {
+            super.setName(name);
+        }
+
+        private void assignCategory(String category) {
+            super.setCategory(category);
+        }
+
+        private void assignStock(Integer stock) {
+            super.setStock(stock);
+        }
+
+        private void assignPrice(Double price) {
+            super.setPrice(price);
+        }
+
+        private boolean reserveStock(int quantity) {
+            return super.reserve(quantity);
+        }
+
+        private boolean releaseStock(int quantity) {
+            return super.release(quantity);
+        }
+
+        private boolean commitStock(int quantity) {
+            return super.commit(quantity);
+        }
+    }
+
+    /**
+     * Change of values of single product
+     */
+    private interface Change {
+        boolean apply(Cached target);
+    }
+
+    private final class EntryIterator implements Iterator<Entry<Integer, Product>> {
+
+        private final Iterator<Product> products;
+        private Entry<Integer, Product> next;
+        private Integer last;
+
+        private EntryIterator() {
+            if (writeBehindNanos > 0)
+                flush();
+            this.products = backend.products();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && products.hasNext()) {
+                Product product = products.next();
+                if (pending.get(product.getId()) == DELETED)
+                    continue;
+
+                Node node = nodes.get(product.getId());
+                next = new SimpleImmutableEntry<>(product.getId(), node != null ? node.product : product);
+            }
+            return next != null;
+        }
+
+        @Override
+        public Entry<Integer, Product> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            Entry<Integer, Product> result = next;
+            next = null;
+            last = result.getKey();
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null)
+                throw new IllegalStateException();
+
+            CachedProductStore.this.remove(last);
+            last = null;
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package storage;
+
+import dto.ProductDto;
+import model.Product;
+
+/**
+ * Text formats of catalogue rows exchanged with other systems, one product per row.
+ * Empty values and JSON nulls stand for missing values, stock is written as units on hand including reserved ones.
+ */
+public enum CatalogueFormat {
+
+    /**
+     * Comma separated values with header row id,name,category,stock,price, values with comma, quote or line break
+     * are quoted and quotes inside them are doubled
+     */
+    Csv {
+        private static final String HEADER = "id,name,category,stock,price";
+
+        @Override
+        String header() {
+            return HEADER;
+        }
+
+        @Override
+        boolean allowsLineBreaks() {
+            return true;
+        }
+
+        @Override
+        boolean parse(CharSequence row, ProductDto dto, StringBuilder value) {
+            if (row.length() == 0 || HEADER.contentEquals(row))
+                return false;
+
+            int position = 0;
+            for (int column = 0; column < 5; column++) {
+                if (position > row.length())
+                    throw new IllegalArgumentException("Row has only " + column + " values");
+
+                boolean quoted = position < row.length() && row.charAt(position) == '"';
+                position = readValue(row, position, value) + 1;
+                String text = value.length() > 0 || quoted ? value.toString() : null;
+                switch (column) {
+                    case 0: dto.setId(text != null ? Integer.valueOf(text) : null); break;
+                    case 1: dto.setName(text); break;
+                    case 2: dto.setCategory(text); break;
+                    case 3: dto.setStock(text != null ? Integer.valueOf(text) : null); break;
+                    default: dto.setPrice(text != null ? Double.valueOf(text) : null);
+                }
+            }
+            if (position <= row.length())
+                throw new IllegalArgumentException("Row has more than 5 values");
+            return true;
+        }
+
+        @Override
+        void format(Product product, StringBuilder row) {
+            row.append(product.getId()).append(',');
+            appendValue(product.getName(), row);
+            row.append(',');
+            appendValue(product.getCategory(), row);
+            row.append(',').append(product.getStock() + product.getReserved()).append(',');
+            if (product.getPrice() != null)
+                row.append(product.getPrice().doubleValue());
+        }
+
+        /**
+         * @return Returns position of comma ending value, or length of row for the last value
+         */
+        private int readValue(CharSequence row, int position, StringBuilder value) {
+            value.setLength(0);
+            if (position >= row.length() || row.charAt(position) != '"') {
+                while (position < row.length() && row.charAt(position) != ',') {
+                    char c = row.charAt(position++);
+                    if (c == '"')
+                        throw new IllegalArgumentException("Quote inside unquoted value");
+                    value.append(c);
+                }
+                return position;
+            }
+
+            for (position++; ; position++) {
+                if (position >= row.length())
+                    throw new IllegalArgumentException("Quoted value is not closed");
+
+                char c = row.charAt(position);
+                if (c == '"') {
+                    if (position + 1 < row.length() && row.charAt(position + 1) == '"') {
+                        position++;
+                    } else {
+                        position++;
+                        if (position < row.length() && row.charAt(position) != ',')
+                            throw new IllegalArgumentException("Unexpected character after quoted value");
+                        return position;
+                    }
+                }
+                value.append(c);
+            }
+        }
+
+        private void appendValue(String text, StringBuilder row) {
+            if (text == null)
+                return;
+
+            boolean quoted = text.isEmpty();
+            for (int i = 0; i < text.length() && !quoted; i++) {
+                char c = text.charAt(i);
+                quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quoted) {
+                row.append(text);
+                return;
+            }
+
+            row.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"')
+                    row.append('"');
+                row.append(c);
+            }
+            row.append('"');
+        }
+    },
+
+    /**
+     * One JSON object per line with fields id, name, category, stock and price, other fields are ignored
+     */
+    JsonLines {
+        @Override
+        String header() {
+            return null;
+        }
+
+        @Override
+        boolean allowsLineBreaks() {
+            return false;
+        }
+
+        @Override
+        boolean parse(CharSequence row, ProductDto dto, StringBuilder value) {
+            JsonRow json = new JsonRow(row, value);
+            if (json.skipWhitespace() == row.length())
+                return false;
+
+            dto.setId(null);
+            dto.setName(null);
+            dto.setCategory(null);
+            dto.setStock(null);
+            dto.setPrice(null);
+
+            json.expect('{');
+            if (json.peek() == '}') {
+                json.expect('}');
+                return true;
+            }
+
+            do {
+                String key = json.readString();
+                json.expect(':');
+                switch (key) {
+                    case "id": dto.setId(json.readInteger()); break;
+                    case "name": dto.setName(json.readNullableString()); break;
+                    case "category": dto.setCategory(json.readNullableString()); break;
+                    case "stock": dto.setStock(json.readInteger()); break;
+                    case "price": dto.setPrice(json.readDouble()); break;
+                    default: json.skipValue();
+                }
+            } while (json.next(',', '}'));
+
+            if (json.skipWhitespace() != row.length())
+                throw new IllegalArgumentException("Unexpected characters after object");
+            return true;
+        }
+
+        @Override
+        void format(Product product, StringBuilder row) {
+            row.append("{\"id\":").append(product.getId()).append(",\"name\":");
+            appendString(product.getName(), row);
+            row.append(",\"category\":");
+            appendString(product.getCategory(), row);
+            row.append(",\"stock\":").append(product.getStock() + product.getReserved()).append(",\"price\":");
+            if (product.getPrice() != null && !product.getPrice().isNaN() && !product.getPrice().isInfinite())
+                row.append(product.getPrice().doubleValue());
+            else
+                row.append("null");
+            row.append('}');
+        }
+
+        private void appendString(String text, StringBuilder row) {
+            if (text == null) {
+                row.append("null");
+                return;
+            }
+
+            row.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '"': row.append("\\\""); break;
+                    case '\\': row.append("\\\\"); break;
+                    case '\n': row.append("\\n"); break;
+                    case '\r': row.append("\\r"); break;
+                    case '\t': row.append("\\t"); break;
+                    default:
+                        if (c < 0x20)
+                            row.append(String.format("\\u%04x", (int) c));
+                        else
+                            row.append(c);
+                }
+            }
+            row.append('"');
+        }
+    };
+
+    /**
+     * @return Returns row written before products, or null if format has no header
+     */
+    abstract String header();
+
+    /**
+     * @return Returns true if quoted values may contain line breaks, so rows cannot be split at every line break
+     */
+    abstract boolean allowsLineBreaks();
+
+    /**
+     * @param row Row without line break
+     * @param dto Reusable object which values are replaced by values of row
+     * @param value Reusable buffer for single values
+     * @return Returns true if row holds product, false if it is blank or header
+     * @throws IllegalArgumentException If row is malformed
+     */
+    abstract boolean parse(CharSequence row, ProductDto dto, StringBuilder value);
+
+    /**
+     * @param product Product to be formatted
+     * @param row Buffer to which row without line break is appended
+     */
+    abstract void format(Product product, StringBuilder row);
+
+    /**
+     * Reader of flat JSON object with string, number and null values
+     */
+    private static final class JsonRow {
+
+        private final CharSequence row;
+        private final StringBuilder value;
+        private int position;
+
+        private JsonRow(CharSequence row, StringBuilder value) {
+            this.row = row;
+            this.value = value;
+        }
+
+        private int skipWhitespace() {
+            while (position < row.length() && Character.isWhitespace(row.charAt(position))) {
+                position++;
+            }
+            return position;
+        }
+
+        private char peek() {
+            if (skipWhitespace() >= row.length())
+                throw new IllegalArgumentException("Unexpected end of row");
+            return row.charAt(position);
+        }
+
+        private void expect(char expected) {
+            if (peek() != expected)
+                throw new IllegalArgumentException("Expected '" + expected + "' at position " + position);
+            position++;
+        }
+
+        /**
+         * @return Returns true if separator follows, false if end follows
+         */
+        private boolean next(char separator, char end) {
+            char c = peek();
+            if (c != separator && c != end)
+                throw new IllegalArgumentException("Expected '" + separator + "' or '" + end + "' at position " + position);
+            position++;
+            return c == separator;
+        }
+
+        private boolean readNull() {
+            if (peek() != 'n')
+                return false;
+
+            readWord("null");
+            return true;
+        }
+
+        private void readWord(String word) {
+            if (!word.contentEquals(row.subSequence(position, Math.min(row.length(), position + word.length()))))
+                throw new IllegalArgumentException("Unexpected value at position " + position);
+            position += word.length();
+        }
+
+        private String readNullableString() {
+            return readNull() ? null : readString();
+        }
+
+        private String readString() {
+            expect('"');
+            value.setLength(0);
+
+            while (true) {
+                if (position >= row.length())
+                    throw new IllegalArgumentException("String is not closed");
+
+                char c = row.charAt(position++);
+                if (c == '"')
+                    return value.toString();
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+
+                if (position >= row.length())
+                    throw new IllegalArgumentException("String is not closed");
+                char escaped = row.charAt(position++);
+                switch (escaped) {
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'u':
+                        if (position + 4 > row.length())
+                            throw new IllegalArgumentException("Escape sequence is not complete");
+                        value.append((char) Integer.parseInt(row.subSequence(position, position + 4).toString(), 16));
+                        position += 4;
+                        break;
+                    default: value.append(escaped);
+                }
+            }
+        }
+
+        private String readNumber() {
+            skipWhitespace();
+            int start = position;
+            while (position < row.length() && "+-0123456789.eE".indexOf(row.charAt(position)) >= 0) {
+                position++;
+            }
+            if (start == position)
+                throw new IllegalArgumentException("Expected number at position " + position);
+            return row.subSequence(start, position).toString();
+        }
+
+        private Integer readInteger() {
+            return readNull() ? null : Integer.valueOf(readNumber());
+        }
+
+        private Double readDouble() {
+            return readNull() ? null : Double.valueOf(readNumber());
+        }
+
+        private void skipValue() {
+            char c = peek();
+            if (c == '"')
+                readString();
+            else if (c == 't')
+                readWord("true");
+            else if (c == 'f')
+                readWord("false");
+            else if (!readNull())
+                readNumber();
+        }
+    }
+}
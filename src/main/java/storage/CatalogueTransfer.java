@@ -0,0 +1,289 @@
+package storage;
+
+import dto.ProductDto;
+import model.BulkLoadResult;
+import model.Product;
+import model.Warehouse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Streams catalogues in text formats into and out of warehouse without holding whole file in memory.
+ * <p>
+ * Import parses file on its own thread into batches of products, which are handed over to inserting thread through
+ * bounded queue, so parser waits whenever warehouse cannot keep up. Batches, row buffers and transfer object of
+ * row are reused, rows that cannot be parsed are counted and skipped.
+ */
+public final class CatalogueTransfer {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int BATCH_SIZE = 1024;
+    private static final int QUEUE_CAPACITY = 8;
+    private static final char BYTE_ORDER_MARK = 0xFEFF;
+
+    /**
+     * Marks the end of parsed batches
+     */
+    private static final List<Product> END = Collections.unmodifiableList(new ArrayList<>(0));
+
+    private CatalogueTransfer() {
+
+    }
+
+    /**
+     * @param path Path of file to be imported
+     * @param format Format of file
+     * @param warehouse Warehouse into which products are loaded, products with already stored ids are rejected
+     * @param parallel Whether products should be inserted by many threads, used only in concurrent mode
+     * @return Returns report of import with result of load
+     * @throws IOException A returned exception that may occur during reading data
+     */
+    public static TransferReport importCatalogue(Path path, CatalogueFormat format, Warehouse warehouse, boolean parallel) throws IOException {
+        long start = System.nanoTime();
+        Parser parser = new Parser(path, format);
+        Thread thread = new Thread(parser, "catalogue-parser");
+        thread.setDaemon(true);
+        thread.start();
+
+        try {
+            BulkLoadResult result = warehouse.loadProducts(parser.products(), 0, parallel);
+            return new TransferReport(parser.rows, parser.malformed, System.nanoTime() - start, result);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * @param warehouse Warehouse which products are exported
+     * @param path Path of file to be created or overwritten
+     * @param format Format of file
+     * @return Returns report of export
+     * @throws IOException A returned exception that may occur during writing data
+     */
+    public static TransferReport exportCatalogue(Warehouse warehouse, Path path, CatalogueFormat format) throws IOException {
+        long start = System.nanoTime();
+        long rows = 0;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            StringBuilder row = new StringBuilder(256);
+
+            if (format.header() != null)
+                write(row.append(format.header()).append('\n'), encoder, bytes, channel);
+
+            for (Product product : warehouse.getStorage().values()) {
+                row.setLength(0);
+                format.format(product, row);
+                write(row.append('\n'), encoder, bytes, channel);
+                rows++;
+            }
+
+            drain(bytes, channel);
+        }
+        return new TransferReport(rows, 0, System.nanoTime() - start, null);
+    }
+
+    /**
+     * Encodes whole row, characters which cannot be encoded, such as unpaired surrogates, are replaced
+     */
+    private static void write(StringBuilder row, CharsetEncoder encoder, ByteBuffer bytes, FileChannel channel) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(row);
+        encoder.reset();
+        while (encoder.encode(chars, bytes, true).isOverflow()) {
+            drain(bytes, channel);
+        }
+        while (encoder.flush(bytes).isOverflow()) {
+            drain(bytes, channel);
+        }
+    }
+
+    private static void drain(ByteBuffer bytes, FileChannel channel) throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    /**
+     * Reads file and puts batches of parsed products into bounded queue, ended by {@link #END}
+     */
+    private static final class Parser implements Runnable {
+
+        private final Path path;
+        private final CatalogueFormat format;
+        private final BlockingQueue<List<Product>> ready = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final BlockingQueue<List<Product>> free = new ArrayBlockingQueue<>(QUEUE_CAPACITY + 2);
+        private final ProductDto dto = new ProductDto();
+        private final StringBuilder row = new StringBuilder(256);
+        private final StringBuilder value = new StringBuilder(64);
+
+        private volatile long rows;
+        private volatile long malformed;
+        private volatile IOException failure;
+        private List<Product> batch = new ArrayList<>(BATCH_SIZE);
+        private boolean quoted;
+
+        /**
+         * Whether quote would start quoted value, at start of value or right after quote closing value, where it
+         * is the first of doubled quotes
+         */
+        private boolean quotable = true;
+
+        private Parser(Path path, CatalogueFormat format) {
+            this.path = path;
+            this.format = format;
+        }
+
+        @Override
+        public void run() {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+                ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+                CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+                boolean end = false;
+
+                while (!end) {
+                    end = channel.read(bytes) < 0;
+                    bytes.flip();
+                    decoder.decode(bytes, chars, end);
+                    if (end)
+                        decoder.flush(chars);
+                    bytes.compact();
+
+                    chars.flip();
+                    while (chars.hasRemaining()) {
+                        accept(chars.get());
+                    }
+                    chars.clear();
+                }
+
+                if (row.length() > 0)
+                    endRow();
+                if (!batch.isEmpty())
+                    ready.put(batch);
+            } catch (IOException e) {
+                failure = e;
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                ready.put(END);
+            } catch (InterruptedException ignored) {
+                // importing thread has given up and does not wait for the end anymore
+            }
+        }
+
+        /**
+         * Only comma separated values may break lines inside quoted values, quote inside unquoted value is left
+         * to be rejected by format
+         */
+        private void accept(char c) throws InterruptedException {
+            if (c == '\n' && !quoted) {
+                endRow();
+                return;
+            }
+            if (c == BYTE_ORDER_MARK && rows == 0 && row.length() == 0)
+                return;
+
+            if (format.allowsLineBreaks()) {
+                if (quoted) {
+                    quoted = c != '"';
+                    quotable = !quoted;
+                } else {
+                    quoted = c == '"' && quotable;
+                    quotable = c == ',';
+                }
+            }
+            row.append(c);
+        }
+
+        private void endRow() throws InterruptedException {
+            if (row.length() > 0 && row.charAt(row.length() - 1) == '\r')
+                row.setLength(row.length() - 1);
+
+            try {
+                if (format.parse(row, dto, value)) {
+                    batch.add(new Product(dto.getId(), dto.getName(), dto.getCategory(), dto.getStock(), dto.getPrice()));
+                    rows++;
+                }
+            } catch (IllegalArgumentException e) {
+                malformed++;
+                rows++;
+            }
+            row.setLength(0);
+            quoted = false;
+            quotable = true;
+
+            if (batch.size() == BATCH_SIZE) {
+                ready.put(batch);
+                List<Product> reused = free.poll();
+                batch = reused != null ? reused : new ArrayList<>(BATCH_SIZE);
+            }
+        }
+
+        /**
+         * @return Returns products in order they have been parsed, blocking until parser provides them
+         */
+        private Iterator<Product> products() {
+            return new Iterator<Product>() {
+                private List<Product> current = Collections.emptyList();
+                private int position;
+
+                @Override
+                public boolean hasNext() {
+                    while (current != END && position == current.size()) {
+                        if (!current.isEmpty()) {
+                            current.clear();
+                            free.offer(current);
+                        }
+                        current = take();
+                        position = 0;
+                    }
+                    if (current == END && failure != null)
+                        throw new UncheckedIOException(failure);
+                    return current != END;
+                }
+
+                @Override
+                public Product next() {
+                    if (!hasNext())
+                        throw new NoSuchElementException();
+                    return current.get(position++);
+                }
+            };
+        }
+
+        private List<Product> take() {
+            try {
+                return ready.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for parsed products"));
+            }
+        }
+    }
+}
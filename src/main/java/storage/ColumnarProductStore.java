@@ -0,0 +1,739 @@
+package storage;
+
+import model.Product;
+import model.ViewStorage;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Storage of products kept in primitive columns, to be passed to {@link model.Warehouse}.
+ * Ids are mapped to slots by primitive map, every slot holds id, stock, reserved stock, price, name and code of
+ * category in arrays of fixed-size pages, categories are stored once in dictionary. There are no product, boxed or
+ * map entry objects per product, so storage takes a fraction of memory of hash map and gives garbage collector
+ * almost nothing to trace.
+ * <p>
+ * Products are handed out as short-lived views reading and writing columns of their slot. Views are equal when they
+ * show the same product, view of removed product reads as empty. Ids are split into segments, adding, replacing and
+ * removing products locks only segment of id, and only adding pages is serialized between segments. Looking up slot
+ * of id takes no lock, it is validated by stamp of segment instead, and reading values and changing stock of views
+ * take no lock at all.
+ */
+public class ColumnarProductStore extends AbstractMap<Integer, Product> implements ViewStorage {
+
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /**
+     * Number of segments of ids is 2 to the power of bits
+     */
+    private static final int SEGMENT_BITS = 6;
+
+    /**
+     * Code of category held by slot without product
+     */
+    private static final int FREE = -2;
+    private static final int NULL_CATEGORY = -1;
+
+    /**
+     * Bits of NaN standing for missing price, other NaN values are kept as they are
+     */
+    private static final long NULL_PRICE = 0x7FF80000_0000DEADL;
+
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+    private final ConcurrentHashMap<String, Integer> categoryCodes = new ConcurrentHashMap<>();
+    private volatile String[] categories = new String[16];
+
+    /**
+     * Number of codes given to categories, changed only under lock of store. Entries of other categories may be
+     * computed meanwhile, so size of dictionary map is not the next code.
+     */
+    private int categoryCount;
+    private volatile Page[] pages = new Page[0];
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger used = new AtomicInteger();
+
+    public ColumnarProductStore() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize Number of products that can be stored before storage grows
+     */
+    public ColumnarProductStore(int expectedSize) {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(expectedSize >> SEGMENT_BITS);
+        }
+    }
+
+    @Override
+    public Product view(Product product) {
+        return new View(product.getId(), -1, product.copy());
+    }
+
+    @Override
+    public ViewStorage emptyStorage(int expectedSize) {
+        return new ColumnarProductStore(expectedSize);
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer && slotOf((Integer) key) != IntIntMap.ABSENT;
+    }
+
+    @Override
+    public Product get(Object key) {
+        if (!(key instanceof Integer))
+            return null;
+
+        int slot = slotOf((Integer) key);
+        return slot != IntIntMap.ABSENT ? new View((Integer) key, slot, null) : null;
+    }
+
+    @Override
+    public Product put(Integer key, Product value) {
+        Segment segment = segment(key);
+        segment.lock.lock();
+        try {
+            int slot = segment.slots.get(key);
+            Product previous = slot != IntIntMap.ABSENT ? new View(key, slot, null).copy() : null;
+            store(segment, key, slot, value);
+            return previous;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    @Override
+    public Product putIfAbsent(Integer key, Product value) {
+        Segment segment = segment(key);
+        segment.lock.lock();
+        try {
+            int slot = segment.slots.get(key);
+            if (slot != IntIntMap.ABSENT)
+                return new View(key, slot, null);
+
+            store(segment, key, slot, value);
+            return null;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    @Override
+    public Product remove(Object key) {
+        if (!(key instanceof Integer))
+            return null;
+
+        Segment segment = segment((Integer) key);
+        segment.lock.lock();
+        try {
+            int slot = segment.slots.get((Integer) key);
+            if (slot == IntIntMap.ABSENT)
+                return null;
+
+            Product previous = new View((Integer) key, slot, null).copy();
+            free(segment, (Integer) key, slot);
+            return previous;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (!(key instanceof Integer))
+            return false;
+
+        Segment segment = segment((Integer) key);
+        segment.lock.lock();
+        try {
+            int slot = segment.slots.get((Integer) key);
+            if (slot == IntIntMap.ABSENT || !new View((Integer) key, slot, null).equals(value))
+                return false;
+
+            free(segment, (Integer) key, slot);
+            return true;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean replace(Integer key, Product oldValue, Product newValue) {
+        Segment segment = segment(key);
+        segment.lock.lock();
+        try {
+            int slot = segment.slots.get(key);
+            if (slot == IntIntMap.ABSENT || !new View(key, slot, null).equals(oldValue))
+                return false;
+
+            store(segment, key, slot, newValue);
+            return true;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    @Override
+    public Product replace(Integer key, Product value) {
+        Segment segment = segment(key);
+        segment.lock.lock();
+        try {
+            int slot = segment.slots.get(key);
+            if (slot == IntIntMap.ABSENT)
+                return null;
+
+            Product previous = new View(key, slot, null).copy();
+            store(segment, key, slot, value);
+            return previous;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    @Override
+    public Product compute(Integer key, BiFunction<? super Integer, ? super Product, ? extends Product> function) {
+        Segment segment = segment(key);
+        segment.lock.lock();
+        try {
+            int slot = segment.slots.get(key);
+            Product current = slot != IntIntMap.ABSENT ? new View(key, slot, null) : null;
+            Product result = function.apply(key, current);
+
+            if (result == null) {
+                if (slot != IntIntMap.ABSENT)
+                    free(segment, key, slot);
+                return null;
+            }
+            return store(segment, key, slot, result);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    @Override
+    public Product computeIfPresent(Integer key, BiFunction<? super Integer, ? super Product, ? extends Product> function) {
+        return compute(key, (k, current) -> current != null ? function.apply(k, current) : null);
+    }
+
+    @Override
+    public Product computeIfAbsent(Integer key, Function<? super Integer, ? extends Product> function) {
+        return compute(key, (k, current) -> current != null ? current : function.apply(k));
+    }
+
+    /**
+     * Locks all segments in order, so no product is changed while storage is emptied
+     */
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.lock.lock();
+        }
+        try {
+            for (Segment segment : segments) {
+                long stamp = segment.stamp.writeLock();
+                segment.slots = new IntIntMap(16);
+                segment.freeCount = 0;
+                segment.stamp.unlockWrite(stamp);
+            }
+            pages = new Page[0];
+            used.set(0);
+            size.set(0);
+        } finally {
+            for (Segment segment : segments) {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public Set<Entry<Integer, Product>> entrySet() {
+        return new AbstractSet<Entry<Integer, Product>>() {
+            @Override
+            public Iterator<Entry<Integer, Product>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return ColumnarProductStore.this.size();
+            }
+        };
+    }
+
+    /**
+     * @return Returns number of distinct categories stored in dictionary
+     */
+    public int getCategoryCount() {
+        return categoryCodes.size();
+    }
+
+    private Segment segment(int id) {
+        return segments[(id * 0x9E3779B9) >>> (32 - SEGMENT_BITS)];
+    }
+
+    /**
+     * Reads map of slots without lock and validates that it has not been changed meanwhile, only read which overlaps
+     * change waits for it
+     */
+    private int slotOf(int id) {
+        Segment segment = segment(id);
+        long stamp = segment.stamp.tryOptimisticRead();
+        int slot = segment.slots.get(id);
+        if (segment.stamp.validate(stamp))
+            return slot;
+
+        stamp = segment.stamp.readLock();
+        try {
+            return segment.slots.get(id);
+        } finally {
+            segment.stamp.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Writes values of product into slot of id, which is allocated if id is not stored yet.
+     * View of this storage which is not stored yet becomes bound to slot. Called under lock of segment.
+     *
+     * @return Returns product as it is kept by storage
+     */
+    private Product store(Segment segment, int id, int slot, Product product) {
+        View view = product instanceof View && ((View) product).owner() == this ? (View) product : null;
+        if (view != null && view.slot == slot && slot != IntIntMap.ABSENT)
+            return view;
+
+        if (slot == IntIntMap.ABSENT)
+            slot = allocate(segment, id);
+
+        Page page = pages[slot >>> PAGE_BITS];
+        int i = slot & PAGE_MASK;
+        Double price = product.getPrice();
+
+        page.ids[i] = id;
+        page.names[i] = product.getName();
+        page.prices[i] = price != null ? price : Double.longBitsToDouble(NULL_PRICE);
+        page.stock.set(i, product.getStock());
+        page.reserved.set(i, product.getReserved());
+        page.codes.set(i, encode(product.getCategory()));
+
+        if (view == null || view.slot >= 0)
+            return new View(id, slot, null);
+
+        view.slot = slot;
+        view.detached = null;
+        return view;
+    }
+
+    /**
+     * Reuses slot freed in the same segment, or takes new slot after all used ones
+     */
+    private int allocate(Segment segment, int id) {
+        int slot;
+        if (segment.freeCount > 0) {
+            slot = segment.freeSlots[--segment.freeCount];
+        } else {
+            slot = used.getAndIncrement();
+            if (slot >>> PAGE_BITS >= pages.length)
+                addPages(slot >>> PAGE_BITS);
+        }
+
+        long stamp = segment.stamp.writeLock();
+        try {
+            segment.slots.put(id, slot);
+        } finally {
+            segment.stamp.unlockWrite(stamp);
+        }
+        size.incrementAndGet();
+        return slot;
+    }
+
+    private void free(Segment segment, int id, int slot) {
+        Page page = pages[slot >>> PAGE_BITS];
+        page.codes.set(slot & PAGE_MASK, FREE);
+        page.names[slot & PAGE_MASK] = null;
+
+        long stamp = segment.stamp.writeLock();
+        try {
+            segment.slots.remove(id);
+        } finally {
+            segment.stamp.unlockWrite(stamp);
+        }
+        if (segment.freeCount == segment.freeSlots.length)
+            segment.freeSlots = Arrays.copyOf(segment.freeSlots, segment.freeCount * 2);
+        segment.freeSlots[segment.freeCount++] = slot;
+        size.decrementAndGet();
+    }
+
+    /**
+     * Adds pages up to page holding slot, the only change of storage serialized between segments
+     */
+    private synchronized void addPages(int last) {
+        Page[] current = pages;
+        if (last < current.length)
+            return;
+
+        Page[] grown = Arrays.copyOf(current, last + 1);
+        for (int i = current.length; i <= last; i++) {
+            grown[i] = new Page();
+        }
+        pages = grown;
+    }
+
+    private int encode(String category) {
+        if (category == null)
+            return NULL_CATEGORY;
+
+        Integer code = categoryCodes.get(category);
+        return code != null ? code : categoryCodes.computeIfAbsent(category, this::addCategory);
+    }
+
+    /**
+     * Called once per category under lock of dictionary entry, dictionary array is only replaced by copies
+     */
+    private synchronized int addCategory(String category) {
+        int code = categoryCount++;
+        String[] current = categories;
+        if (code == current.length)
+            current = Arrays.copyOf(current, code * 2);
+
+        current[code] = category;
+        categories = current;
+        return code;
+    }
+
+    /**
+     * Slots of ids of one segment. Writers hold lock of segment for whole change, while map of slots is changed only
+     * under write lock of stamp, which readers validate instead of locking.
+     */
+    private static final class Segment {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final StampedLock stamp = new StampedLock();
+        private IntIntMap slots;
+        private int[] freeSlots = new int[16];
+        private int freeCount;
+
+        private Segment(int expectedSize) {
+            this.slots = new IntIntMap(expectedSize);
+        }
+    }
+
+    private static final class Page {
+
+        private final int[] ids = new int[PAGE_SIZE];
+        private final String[] names = new String[PAGE_SIZE];
+        private final double[] prices = new double[PAGE_SIZE];
+        private final AtomicIntegerArray stock = new AtomicIntegerArray(PAGE_SIZE);
+        private final AtomicIntegerArray reserved = new AtomicIntegerArray(PAGE_SIZE);
+
+        /**
+         * Written as the last value of slot, so reading it first makes other values of slot visible
+         */
+        private final AtomicIntegerArray codes = new AtomicIntegerArray(PAGE_SIZE);
+
+        private Page() {
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                codes.lazySet(i, FREE);
+            }
+        }
+    }
+
+    /**
+     * Flyweight product reading and writing values in columns of its slot. View which is not stored yet keeps
+     * values in detached product instead.
+     */
+    private final class View extends Product {
+
+        private static final long serialVersionUID = 1L;
+
+        private volatile int slot;
+        private volatile Product detached;
+
+        private View(Integer id, int slot, Product detached) {
+            super(id, null, null, 0, null);
+            this.slot = slot;
+            this.detached = detached;
+        }
+
+        private ColumnarProductStore owner() {
+            return ColumnarProductStore.this;
+        }
+
+        @Override
+        public String getName() {
+            int slot = slot();
+            if (slot < 0)
+                return detached != null ? detached.getName() : null;
+
+            return pages[slot >>> PAGE_BITS].names[slot & PAGE_MASK];
+        }
+
+        @Override
+        public void setName(String name) {
+            int slot = slot();
+            if (slot >= 0)
+                pages[slot >>> PAGE_BITS].names[slot & PAGE_MASK] = name;
+            else if (detached != null)
+                detached.setName(name);
+        }
+
+        @Override
+        public String getCategory() {
+            int slot = slot();
+            if (slot < 0)
+                return detached != null ? detached.getCategory() : null;
+
+            int code = pages[slot >>> PAGE_BITS].codes.get(slot & PAGE_MASK);
+            return code >= 0 ? categories[code] : null;
+        }
+
+        @Override
+        public void setCategory(String category) {
+            int slot = slot();
+            if (slot >= 0)
+                pages[slot >>> PAGE_BITS].codes.set(slot & PAGE_MASK, encode(category));
+            else if (detached != null)
+                detached.setCategory(category);
+        }
+
+        @Override
+        public Integer getStock() {
+            int slot = slot();
+            if (slot < 0)
+                return detached != null ? detached.getStock() : 0;
+
+            return pages[slot >>> PAGE_BITS].stock.get(slot & PAGE_MASK);
+        }
+
+        @Override
+        public int getStockAsInt() {
+            int slot = slot();
+            if (slot < 0)
+                return detached != null ? detached.getStockAsInt() : 0;
+
+            return pages[slot >>> PAGE_BITS].stock.get(slot & PAGE_MASK);
+        }
+
+        @Override
+        public void setStock(Integer stock) {
+            int slot = slot();
+            if (slot >= 0)
+                pages[slot >>> PAGE_BITS].stock.set(slot & PAGE_MASK, stock != null ? stock : 0);
+            else if (detached != null)
+                detached.setStock(stock);
+        }
+
+        @Override
+        public int getReserved() {
+            int slot = slot();
+            if (slot < 0)
+                return detached != null ? detached.getReserved() : 0;
+
+            return pages[slot >>> PAGE_BITS].reserved.get(slot & PAGE_MASK);
+        }
+
+        @Override
+        public Double getPrice() {
+            int slot = slot();
+            if (slot < 0)
+                return detached != null ? detached.getPrice() : null;
+
+            double price = pages[slot >>> PAGE_BITS].prices[slot & PAGE_MASK];
+            return Double.doubleToRawLongBits(price) != NULL_PRICE ? price : null;
+        }
+
+        @Override
+        public double getPriceAsDouble() {
+            int slot = slot();
+            if (slot < 0)
+                return detached != null ? detached.getPriceAsDouble() : Double.NaN;
+
+            double price = pages[slot >>> PAGE_BITS].prices[slot & PAGE_MASK];
+            return Double.doubleToRawLongBits(price) != NULL_PRICE ? price : Double.NaN;
+        }
+
+        @Override
+        public void setPrice(Double price) {
+            int slot = slot();
+            if (slot >= 0)
+                pages[slot >>> PAGE_BITS].prices[slot & PAGE_MASK] = price != null ? price : Double.longBitsToDouble(NULL_PRICE);
+            else if (detached != null)
+                detached.setPrice(price);
+        }
+
+        /**
+         * View stays stored, values of update are written to its slot
+         */
+        @Override
+        protected Product updatedBy(Product p) {
+            clone(p);
+            return this;
+        }
+
+        @Override
+        protected boolean reserve(int quantity) {
+            int slot = slot();
+            if (slot < 0)
+                return false;
+
+            Page page = pages[slot >>> PAGE_BITS];
+            int i = slot & PAGE_MASK;
+            int current;
+            do {
+                current = page.stock.get(i);
+                if (current < quantity)
+                    return false;
+            } while (!page.stock.compareAndSet(i, current, current - quantity));
+
+            page.reserved.getAndAdd(i, quantity);
+            return true;
+        }
+
+        @Override
+        protected void addStock(int quantity) {
+            int slot = slot();
+            if (slot < 0) {
+                if (detached != null)
+                    detached.setStock(Math.max(0, detached.getStockAsInt() + quantity));
+                return;
+            }
+
+            Page page = pages[slot >>> PAGE_BITS];
+            int i = slot & PAGE_MASK;
+            int current;
+            do {
+                current = page.stock.get(i);
+            } while (!page.stock.compareAndSet(i, current, Math.max(0, current + quantity)));
+        }
+
+        @Override
+        protected boolean release(int quantity) {
+            int slot = slot();
+            if (slot < 0)
+                return false;
+
+            Page page = pages[slot >>> PAGE_BITS];
+            if (!takeReserved(page, slot & PAGE_MASK, quantity))
+                return false;
+
+            page.stock.getAndAdd(slot & PAGE_MASK, quantity);
+            return true;
+        }
+
+        @Override
+        protected boolean commit(int quantity) {
+            int slot = slot();
+            return slot >= 0 && takeReserved(pages[slot >>> PAGE_BITS], slot & PAGE_MASK, quantity);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof View && ((View) o).owner() == owner() && Objects.equals(((View) o).getId(), getId());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getId());
+        }
+
+        /**
+         * Views are written as plain products, they cannot be read without storage
+         */
+        private Object writeReplace() {
+            return copy();
+        }
+
+        /**
+         * @return Returns slot holding product, or -1 if view is not stored or product has been removed
+         */
+        private int slot() {
+            int current = slot;
+            if (current < 0)
+                return current;
+
+            Page[] pages = ColumnarProductStore.this.pages;
+            if (current >>> PAGE_BITS < pages.length) {
+                Page page = pages[current >>> PAGE_BITS];
+                int i = current & PAGE_MASK;
+                if (page.codes.get(i) != FREE && page.ids[i] == getId())
+                    return current;
+            }
+
+            current = slotOf(getId());
+            if (current != IntIntMap.ABSENT)
+                slot = current;
+            return current;
+        }
+
+        private boolean takeReserved(Page page, int i, int quantity) {
+            int current;
+            do {
+                current = page.reserved.get(i);
+                if (current < quantity)
+                    return false;
+            } while (!page.reserved.compareAndSet(i, current, current - quantity));
+
+            return true;
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Entry<Integer, Product>> {
+
+        private final int end;
+        private int slot;
+        private Entry<Integer, Product> next;
+        private Integer last;
+
+        private EntryIterator() {
+            end = used.get();
+        }
+
+        @Override
+        public boolean hasNext() {
+            Page[] pages = ColumnarProductStore.this.pages;
+            while (next == null && slot < end && slot >>> PAGE_BITS < pages.length) {
+                Page page = pages[slot >>> PAGE_BITS];
+                int i = slot & PAGE_MASK;
+                if (page.codes.get(i) != FREE) {
+                    Integer id = page.ids[i];
+                    next = new SimpleImmutableEntry<>(id, new View(id, slot, null));
+                }
+                slot++;
+            }
+            return next != null;
+        }
+
+        @Override
+        public Entry<Integer, Product> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            Entry<Integer, Product> result = next;
+            next = null;
+            last = result.getKey();
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null)
+                throw new IllegalStateException();
+
+            ColumnarProductStore.this.remove(last);
+            last = null;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package storage;
+
+import model.Product;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Local stand-in for external database behind {@link CachedProductStore}. Products are kept as copies which are
+ * copied again when they are loaded, like values sent over network, and every load and store may be delayed by
+ * fixed latency of round trip. Loads and stores are counted, so effect of cache can be observed.
+ */
+public class InMemoryProductBackend implements ProductBackend {
+
+    private final ConcurrentHashMap<Integer, Product> products;
+    private final long latencyNanos;
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+
+    public InMemoryProductBackend() {
+        this(16, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param expectedSize Number of products that can be stored before backend grows
+     * @param latency Time which every load and store takes
+     * @param unit Unit of latency
+     */
+    public InMemoryProductBackend(int expectedSize, long latency, TimeUnit unit) {
+        this.products = new ConcurrentHashMap<>(Math.max(16, expectedSize));
+        this.latencyNanos = unit.toNanos(latency);
+    }
+
+    @Override
+    public Product load(int id) {
+        roundTrip();
+        loads.increment();
+        Product product = products.get(id);
+        return product != null ? product.copy() : null;
+    }
+
+    @Override
+    public void store(Product product) {
+        roundTrip();
+        stores.increment();
+        products.put(product.getId(), product.copy());
+    }
+
+    @Override
+    public void delete(int id) {
+        roundTrip();
+        products.remove(id);
+    }
+
+    @Override
+    public void clear() {
+        products.clear();
+    }
+
+    @Override
+    public long size() {
+        return products.size();
+    }
+
+    @Override
+    public Iterator<Product> products() {
+        Iterator<Product> values = products.values().iterator();
+        return new Iterator<Product>() {
+            @Override
+            public boolean hasNext() {
+                return values.hasNext();
+            }
+
+            @Override
+            public Product next() {
+                return values.next().copy();
+            }
+        };
+    }
+
+    @Override
+    public ProductBackend emptyBackend(int expectedSize) {
+        return new InMemoryProductBackend(expectedSize, latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return Returns number of products loaded by id
+     */
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    /**
+     * @return Returns number of products stored
+     */
+    public long getStoreCount() {
+        return stores.sum();
+    }
+
+    private void roundTrip() {
+        if (latencyNanos > 0)
+            LockSupport.parkNanos(latencyNanos);
+    }
+}
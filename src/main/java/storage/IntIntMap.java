@@ -0,0 +1,157 @@
+package storage;
+
+/**
+ * Open addressing map from int keys to int values, without boxing and without entry objects.
+ * Values cannot be negative, absence of key is reported as -1. Not safe to be changed by many threads at once.
+ * <p>
+ * Keys and values are interleaved in one array, so {@link #get} may run while map is changed by another thread:
+ * it then returns wrong value, but never fails and never loops forever, and caller has to validate it.
+ */
+final class IntIntMap {
+
+    static final int ABSENT = -1;
+
+    private static final int FREE = Integer.MIN_VALUE;
+
+    private int[] table;
+    private int size;
+    private volatile int freeKeyValue = ABSENT;
+
+    /**
+     * @param expectedSize Number of keys that can be put before map grows
+     */
+    IntIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        table = allocate(capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return Returns value stored under key, or -1 if key is absent
+     */
+    int get(int key) {
+        if (key == FREE)
+            return freeKeyValue;
+
+        int[] table = this.table;
+        int mask = (table.length >>> 1) - 1;
+        for (int i = index(key, mask), probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            int stored = table[i << 1];
+            if (stored == key)
+                return table[(i << 1) + 1];
+            if (stored == FREE)
+                return ABSENT;
+        }
+        return ABSENT;
+    }
+
+    /**
+     * @return Returns previous value stored under key, or -1 if key was absent
+     */
+    int put(int key, int value) {
+        if (key == FREE) {
+            int previous = freeKeyValue;
+            if (previous == ABSENT)
+                size++;
+            freeKeyValue = value;
+            return previous;
+        }
+
+        int mask = (table.length >>> 1) - 1;
+        for (int i = index(key, mask); ; i = (i + 1) & mask) {
+            if (table[i << 1] == key) {
+                int previous = table[(i << 1) + 1];
+                table[(i << 1) + 1] = value;
+                return previous;
+            }
+            if (table[i << 1] == FREE) {
+                // Value is written first, so concurrent reader never finds key with value of removed key
+                table[(i << 1) + 1] = value;
+                table[i << 1] = key;
+                if (++size * 2 > mask + 1)
+                    grow();
+                return ABSENT;
+            }
+        }
+    }
+
+    /**
+     * @return Returns value that was stored under key, or -1 if key was absent
+     */
+    int remove(int key) {
+        if (key == FREE) {
+            int previous = freeKeyValue;
+            if (previous != ABSENT)
+                size--;
+            freeKeyValue = ABSENT;
+            return previous;
+        }
+
+        int mask = (table.length >>> 1) - 1;
+        for (int i = index(key, mask); ; i = (i + 1) & mask) {
+            if (table[i << 1] == FREE)
+                return ABSENT;
+            if (table[i << 1] == key) {
+                int previous = table[(i << 1) + 1];
+                size--;
+                shiftBack(i, mask);
+                return previous;
+            }
+        }
+    }
+
+    /**
+     * Moves following keys of probe sequence into freed position, so lookups never need tombstones
+     */
+    private void shiftBack(int free, int mask) {
+        for (int i = (free + 1) & mask; table[i << 1] != FREE; i = (i + 1) & mask) {
+            int home = index(table[i << 1], mask);
+            if (((i - home) & mask) >= ((i - free) & mask)) {
+                table[free << 1] = table[i << 1];
+                table[(free << 1) + 1] = table[(i << 1) + 1];
+                free = i;
+            }
+        }
+        table[free << 1] = FREE;
+    }
+
+    /**
+     * Fills new array before it replaces the current one, so readers see either of them complete
+     */
+    private void grow() {
+        int[] old = table;
+        int[] grown = allocate(old.length);
+        int mask = (grown.length >>> 1) - 1;
+
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i] != FREE) {
+                int j = index(old[i], mask);
+                while (grown[j << 1] != FREE) {
+                    j = (j + 1) & mask;
+                }
+                grown[j << 1] = old[i];
+                grown[(j << 1) + 1] = old[i + 1];
+            }
+        }
+        table = grown;
+    }
+
+    /**
+     * @return Returns array of capacity pairs of keys and values, all keys free
+     */
+    private static int[] allocate(int capacity) {
+        int[] table = new int[capacity * 2];
+        for (int i = 0; i < table.length; i += 2) {
+            table[i] = FREE;
+        }
+        return table;
+    }
+
+    private static int index(int key, int mask) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,574 @@
+package storage;
+
+import model.Product;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Storage of products backed by memory-mapped file, to be passed to {@link model.Warehouse}.
+ * Opening only maps file and builds index of ids, every read decodes product from file again and the file is left
+ * to page cache of operating system. File itself is never changed, inserted, updated and deleted products are kept
+ * in memory until they are written into new file with {@link #write}. Product read from file is kept in memory only
+ * once it is changed, so scanning all products does not copy them to heap.
+ * <p>
+ * File starts with header: magic number, version, number of products and position of texts. It is followed by
+ * fixed-width records of id, stock, price, position of texts and flags, then by length-prefixed UTF-8 names and
+ * categories. Whole file has to fit into single mapping of 2 GB.
+ */
+public class MappedProductStore extends AbstractMap<Integer, Product> implements ConcurrentMap<Integer, Product> {
+
+    private static final int MAGIC = 0x5357484D;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int RECORD_SIZE = 32;
+    private static final int NULL_PRICE = 1;
+    private static final int NULL_TEXT = -1;
+    private static final int BUFFER_SIZE = 1 << 18;
+
+    /**
+     * Marks product of file that has been deleted
+     */
+    private static final Product TOMBSTONE = new Product();
+
+    private final MappedByteBuffer file;
+    private final int count;
+    private final IntIntMap slots;
+    private final ConcurrentHashMap<Integer, Product> changes = new ConcurrentHashMap<>();
+    private final AtomicInteger size;
+    private volatile boolean fileCleared;
+
+    private MappedProductStore(MappedByteBuffer file) throws IOException {
+        this.file = file;
+
+        if (file.capacity() < HEADER_SIZE || file.getInt(0) != MAGIC)
+            throw new IOException("File is not a mapped store of products");
+        if (file.getInt(4) != VERSION)
+            throw new IOException("Unsupported version " + file.getInt(4) + " of mapped store");
+
+        this.count = file.getInt(8);
+        this.slots = new IntIntMap(count);
+        for (int slot = 0; slot < count; slot++) {
+            slots.put(file.getInt(HEADER_SIZE + slot * RECORD_SIZE), slot);
+        }
+        this.size = new AtomicInteger(count);
+    }
+
+    /**
+     * @param path Path of file written with {@link #write}
+     * @return Returns store over mapped file
+     * @throws IOException A returned exception that may occur during mapping file or when file is not a store
+     */
+    public static MappedProductStore open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("File " + path + " is too large to be mapped at once");
+
+            return new MappedProductStore(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @param path Path of file to be created or overwritten
+     * @param products Products to be written
+     * @throws IOException A returned exception that may occur during writing data
+     */
+    public static void write(Path path, Collection<Product> products) throws IOException {
+        Product[] all = products.toArray(new Product[0]);
+        long textPosition = HEADER_SIZE + (long) all.length * RECORD_SIZE;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output records = new Output(channel, 0);
+            Output texts = new Output(channel, textPosition);
+
+            records.ensureRemaining(HEADER_SIZE);
+            records.buffer.putInt(MAGIC).putInt(VERSION).putInt(all.length).putInt(0).putLong(textPosition);
+
+            for (Product product : all) {
+                records.ensureRemaining(RECORD_SIZE);
+                records.buffer.putInt(product.getId())
+                        .putInt(product.getStock() + product.getReserved())
+                        .putDouble(product.getPrice() != null ? product.getPrice() : 0.0)
+                        .putLong(texts.position())
+                        .putInt(product.getPrice() != null ? 0 : NULL_PRICE)
+                        .putInt(0);
+
+                texts.putText(product.getName());
+                texts.putText(product.getCategory());
+            }
+
+            records.flush();
+            texts.flush();
+
+            if (texts.position() > Integer.MAX_VALUE)
+                throw new IOException("Products do not fit into single mapping of file " + path);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof Integer))
+            return false;
+
+        Product value = changes.get(key);
+        return value != null ? value != TOMBSTONE : slot((Integer) key) != IntIntMap.ABSENT;
+    }
+
+    @Override
+    public Product get(Object key) {
+        if (!(key instanceof Integer))
+            return null;
+
+        Product value = changes.get(key);
+        if (value == null)
+            return load((Integer) key);
+
+        return value != TOMBSTONE ? value : null;
+    }
+
+    @Override
+    public Product put(Integer key, Product value) {
+        Product[] previous = {null};
+        change(key, (k, current) -> {
+            previous[0] = current;
+            return value;
+        });
+        return previous[0];
+    }
+
+    @Override
+    public Product putIfAbsent(Integer key, Product value) {
+        Product[] previous = {null};
+        change(key, (k, current) -> {
+            previous[0] = current;
+            return current != null ? current : value;
+        });
+        return previous[0];
+    }
+
+    @Override
+    public Product remove(Object key) {
+        if (!(key instanceof Integer))
+            return null;
+
+        Product[] previous = {null};
+        change((Integer) key, (k, current) -> {
+            previous[0] = current;
+            return null;
+        });
+        return previous[0];
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (!(key instanceof Integer))
+            return false;
+
+        boolean[] removed = {false};
+        change((Integer) key, (k, current) -> {
+            removed[0] = current != null && current.equals(value);
+            return removed[0] ? null : current;
+        });
+        return removed[0];
+    }
+
+    @Override
+    public boolean replace(Integer key, Product oldValue, Product newValue) {
+        boolean[] replaced = {false};
+        change(key, (k, current) -> {
+            replaced[0] = current != null && current.equals(oldValue);
+            return replaced[0] ? newValue : current;
+        });
+        return replaced[0];
+    }
+
+    @Override
+    public Product replace(Integer key, Product value) {
+        Product[] previous = {null};
+        change(key, (k, current) -> {
+            previous[0] = current;
+            return current != null ? value : null;
+        });
+        return previous[0];
+    }
+
+    @Override
+    public Product compute(Integer key, BiFunction<? super Integer, ? super Product, ? extends Product> function) {
+        return change(key, function);
+    }
+
+    @Override
+    public Product computeIfPresent(Integer key, BiFunction<? super Integer, ? super Product, ? extends Product> function) {
+        return change(key, (k, current) -> current != null ? function.apply(k, current) : null);
+    }
+
+    @Override
+    public Product computeIfAbsent(Integer key, Function<? super Integer, ? extends Product> function) {
+        return change(key, (k, current) -> current != null ? current : function.apply(k));
+    }
+
+    /**
+     * Forgets all products, file stays untouched
+     */
+    @Override
+    public void clear() {
+        fileCleared = true;
+        changes.clear();
+        size.set(0);
+    }
+
+    @Override
+    public Set<Entry<Integer, Product>> entrySet() {
+        return new AbstractSet<Entry<Integer, Product>>() {
+            @Override
+            public Iterator<Entry<Integer, Product>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return MappedProductStore.this.size();
+            }
+        };
+    }
+
+    /**
+     * @return Returns number of products that are kept in memory, because they have been changed, inserted or deleted
+     * since file was opened
+     */
+    public int getMaterializedCount() {
+        return changes.size();
+    }
+
+    /**
+     * Applies change to current product under key atomically, keeping tombstones for deleted products of file
+     */
+    private Product change(Integer key, BiFunction<? super Integer, ? super Product, ? extends Product> function) {
+        Product result = changes.compute(key, (k, value) -> {
+            Product current = value != null ? value : load(k);
+            if (current == TOMBSTONE)
+                current = null;
+            else if (current instanceof Loaded)
+                ((Loaded) current).stored = true;
+
+            Product next = function.apply(k, current);
+            if (current == null && next != null)
+                size.incrementAndGet();
+            else if (current != null && next == null)
+                size.decrementAndGet();
+
+            if (next != null)
+                return next;
+            return slot(k) != IntIntMap.ABSENT ? TOMBSTONE : null;
+        });
+        return result != TOMBSTONE ? result : null;
+    }
+
+    private int slot(int id) {
+        return fileCleared ? IntIntMap.ABSENT : slots.get(id);
+    }
+
+    /**
+     * @return Returns product decoded from file, or null if file does not hold it
+     */
+    private Product load(Integer id) {
+        int slot = slot(id);
+        return slot != IntIntMap.ABSENT ? materialize(slot) : null;
+    }
+
+    private Product materialize(int slot) {
+        int record = HEADER_SIZE + slot * RECORD_SIZE;
+        boolean nullPrice = (file.getInt(record + 24) & NULL_PRICE) != 0;
+
+        ByteBuffer texts = file.duplicate();
+        texts.position((int) file.getLong(record + 16));
+        String name = readText(texts);
+        String category = readText(texts);
+
+        return new Loaded(file.getInt(record), name, category, file.getInt(record + 4),
+                nullPrice ? null : file.getDouble(record + 8));
+    }
+
+    private static String readText(ByteBuffer texts) {
+        int length = texts.getInt();
+        if (length == NULL_TEXT)
+            return null;
+
+        byte[] bytes = new byte[length];
+        texts.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Product decoded from file. It is not kept by store until it is changed, then it is stored among changes, unless
+     * another product read from file is already stored under its id, in which case that one is changed instead.
+     * Changes of product which has been deleted since it was read are made only on it.
+     */
+    private final class Loaded extends Product {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Whether this product is kept among changes, set only once
+         */
+        private volatile boolean stored;
+
+        private Loaded(Integer id, String name, String category, Integer stock, Double price) {
+            super(id, name, category, stock, price);
+        }
+
+        private MappedProductStore owner() {
+            return MappedProductStore.this;
+        }
+
+        @Override
+        public void setName(String name) {
+            change(target -> {
+                target.assignName(name);
+                return true;
+            });
+        }
+
+        @Override
+        public void setCategory(String category) {
+            change(target -> {
+                target.assignCategory(category);
+                return true;
+            });
+        }
+
+        @Override
+        public void setStock(Integer stock) {
+            change(target -> {
+                target.assignStock(stock);
+                return true;
+            });
+        }
+
+        @Override
+        public void setPrice(Double price) {
+            change(target -> {
+                target.assignPrice(price);
+                return true;
+            });
+        }
+
+        @Override
+        protected void addStock(int quantity) {
+            change(target -> {
+                target.addStockOf(quantity);
+                return true;
+            });
+        }
+
+        @Override
+        protected boolean reserve(int quantity) {
+            return change(target -> target.reserveStock(quantity));
+        }
+
+        @Override
+        protected boolean release(int quantity) {
+            return change(target -> target.releaseStock(quantity));
+        }
+
+        @Override
+        protected boolean commit(int quantity) {
+            return change(target -> target.commitStock(quantity));
+        }
+
+        /**
+         * Product stays stored, so other products read from file keep changing it
+         */
+        @Override
+        protected Product updatedBy(Product p) {
+            clone(p);
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Loaded && ((Loaded) o).owner() == owner() && Objects.equals(((Loaded) o).getId(), getId());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getId());
+        }
+
+        /**
+         * Products read from file are written as plain products, they cannot be read without store
+         */
+        private Object writeReplace() {
+            return copy();
+        }
+
+        /**
+         * Applies change to product stored under id of this one, storing this one if no product of file is stored yet
+         */
+        private boolean change(Change change) {
+            if (stored)
+                return change.apply(this);
+
+            Product current = changes.computeIfAbsent(getId(), id -> {
+                if (slot(id) == IntIntMap.ABSENT)
+                    return null;
+
+                stored = true;
+                return this;
+            });
+            boolean same = current instanceof Loaded && ((Loaded) current).owner() == owner();
+            return change.apply(same ? (Loaded) current : this);
+        }
+
+        private void assignName(String name) {
+            super.setName(name);
+        }
+
+        private void assignCategory(String category) {
+            super.setCategory(category);
+        }
+
+        private void assignStock(Integer stock) {
+            super.setStock(stock);
+        }
+
+        private void assignPrice(Double price) {
+            super.setPrice(price);
+        }
+
+        private void addStockOf(int quantity) {
+            super.addStock(quantity);
+        }
+
+        private boolean reserveStock(int quantity) {
+            return super.reserve(quantity);
+        }
+
+        private boolean releaseStock(int quantity) {
+            return super.release(quantity);
+        }
+
+        private boolean commitStock(int quantity) {
+            return super.commit(quantity);
+        }
+    }
+
+    /**
+     * Change of values of single product
+     */
+    private interface Change {
+        boolean apply(Loaded target);
+    }
+
+    /**
+     * Iterates products of file in order of records, then products inserted after file has been opened
+     */
+    private final class EntryIterator implements Iterator<Entry<Integer, Product>> {
+
+        private int slot;
+        private Iterator<Entry<Integer, Product>> inserted;
+        private Entry<Integer, Product> next;
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (slot < count && !fileCleared) {
+                    int id = file.getInt(HEADER_SIZE + slot++ * RECORD_SIZE);
+                    Product product = get(id);
+                    if (product != null)
+                        next = new SimpleImmutableEntry<>(id, product);
+                    continue;
+                }
+
+                if (inserted == null)
+                    inserted = changes.entrySet().iterator();
+                if (!inserted.hasNext())
+                    return false;
+
+                Entry<Integer, Product> entry = inserted.next();
+                if (entry.getValue() != TOMBSTONE && slot(entry.getKey()) == IntIntMap.ABSENT)
+                    next = entry;
+            }
+            return true;
+        }
+
+        @Override
+        public Entry<Integer, Product> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            Entry<Integer, Product> result = next;
+            next = null;
+            return result;
+        }
+    }
+
+    /**
+     * Buffered output writing into its own region of file
+     */
+    private static final class Output {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private long flushed;
+
+        Output(FileChannel channel, long position) {
+            this.channel = channel;
+            this.flushed = position;
+        }
+
+        long position() {
+            return flushed + buffer.position();
+        }
+
+        void putText(String text) throws IOException {
+            ensureRemaining(4);
+            if (text == null) {
+                buffer.putInt(NULL_TEXT);
+                return;
+            }
+
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(bytes.length);
+
+            for (int offset = 0; offset < bytes.length; ) {
+                if (!buffer.hasRemaining())
+                    flush();
+
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void ensureRemaining(int size) throws IOException {
+            if (buffer.remaining() < size)
+                flush();
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                flushed += channel.write(buffer, flushed);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package storage;
+
+import model.Product;
+
+import java.util.Iterator;
+
+/**
+ * Store of all products kept behind {@link CachedProductStore}, for example file or external database, which is too
+ * large or too slow to be used as storage of warehouse directly. Backend is used by many threads at once and
+ * exchanges detached copies of products, failures are thrown as {@link java.io.UncheckedIOException}.
+ */
+public interface ProductBackend {
+
+    /**
+     * @param id Id of product
+     * @return Returns copy of stored product, or null if there is none
+     */
+    Product load(int id);
+
+    /**
+     * @param product Product to be stored, replacing product with the same id
+     */
+    void store(Product product);
+
+    /**
+     * @param id Id of product to be deleted, nothing happens if it is not stored
+     */
+    void delete(int id);
+
+    /**
+     * Deletes all products
+     */
+    void clear();
+
+    /**
+     * @return Returns number of stored products
+     */
+    long size();
+
+    /**
+     * @return Returns copies of all stored products, changes made during iteration may or may not be seen
+     */
+    Iterator<Product> products();
+
+    /**
+     * @param expectedSize Number of products that will be stored
+     * @return Returns empty backend of the same kind, which products are kept separately from this one
+     */
+    ProductBackend emptyBackend(int expectedSize);
+}
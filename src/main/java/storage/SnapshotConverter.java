@@ -0,0 +1,55 @@
+package storage;
+
+import model.Product;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+/**
+ * Converts files written with Java serialization by earlier versions of warehouse into binary snapshots
+ */
+public class SnapshotConverter {
+
+    private SnapshotConverter() {
+
+    }
+
+    /**
+     * @param source Path of file with serialized map of products
+     * @param target Path of snapshot to be written
+     * @return Returns number of converted products
+     * @throws ClassNotFoundException A returned exception that may occur during casting class
+     * @throws IOException A returned exception that may occur during reading or writing data
+     */
+    @SuppressWarnings("unchecked")
+    public static long convert(Path source, Path target) throws ClassNotFoundException, IOException {
+        Map<Integer, Product> products;
+
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new BufferedInputStream(new FileInputStream(source.toFile())))) {
+            products = (Map<Integer, Product>) objectInputStream.readObject();
+        }
+
+        try (SnapshotWriter writer = new SnapshotWriter(target)) {
+            for (Product product : products.values()) {
+                writer.write(product);
+            }
+            return writer.getCount();
+        }
+    }
+
+    /**
+     * @param args Path of serialized file and path of snapshot to be written
+     * @throws Exception A returned exception that may occur during conversion
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: SnapshotConverter <serialized file> <snapshot file>");
+            System.exit(1);
+        }
+
+        long count = convert(Paths.get(args[0]), Paths.get(args[1]));
+        System.out.println("Converted " + count + " products from " + args[0] + " to " + args[1]);
+    }
+}
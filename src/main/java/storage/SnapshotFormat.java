@@ -0,0 +1,29 @@
+package storage;
+
+/**
+ * Layout of binary snapshot of products. File starts with header made of magic number, version, number of
+ * products and, since version 2, the highest id ever allocated, followed by records: id, stock, price, flags and
+ * length-prefixed UTF-8 name and category. All numbers are big-endian, length of null text is -1.
+ */
+final class SnapshotFormat {
+
+    static final int MAGIC = 0x53574853;
+    static final int VERSION = 2;
+    static final int FIRST_VERSION = 1;
+    static final int HEADER_SIZE = 24;
+    static final int FIRST_HEADER_SIZE = 16;
+    static final int COUNT_POSITION = 8;
+
+    /**
+     * Size of record part preceding texts: id, stock, price and flags
+     */
+    static final int RECORD_HEADER_SIZE = 4 + 4 + 8 + 1;
+    static final byte NULL_PRICE = 1;
+    static final int NULL_TEXT = -1;
+
+    static final int BUFFER_SIZE = 1 << 18;
+
+    private SnapshotFormat() {
+
+    }
+}
@@ -0,0 +1,159 @@
+package storage;
+
+import model.Product;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Streams products out of binary snapshot, reading file in chunks so only one chunk is held in memory at once
+ */
+public class SnapshotReader implements Iterator<Product>, Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(SnapshotFormat.BUFFER_SIZE);
+    private final long count;
+    private final int highWaterMark;
+    private byte[] text = new byte[256];
+    private long read;
+
+    /**
+     * @param path Path of snapshot file
+     * @throws IOException A returned exception that may occur during opening file or when file is not a snapshot
+     */
+    public SnapshotReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            buffer.flip();
+            require(SnapshotFormat.FIRST_HEADER_SIZE);
+
+            if (buffer.getInt() != SnapshotFormat.MAGIC)
+                throw new IOException("File " + path + " is not a snapshot of products");
+
+            int version = buffer.getInt();
+            if (version != SnapshotFormat.VERSION && version != SnapshotFormat.FIRST_VERSION)
+                throw new IOException("Unsupported version " + version + " of snapshot " + path);
+
+            this.count = buffer.getLong();
+            if (version == SnapshotFormat.FIRST_VERSION) {
+                this.highWaterMark = 0;
+            } else {
+                require(SnapshotFormat.HEADER_SIZE - SnapshotFormat.FIRST_HEADER_SIZE);
+                this.highWaterMark = buffer.getInt();
+                buffer.getInt();
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param path Path of file to be checked
+     * @return Returns true if file starts with header of snapshot
+     */
+    public static boolean isSnapshot(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            int read;
+            do {
+                read = channel.read(magic);
+            } while (read >= 0 && magic.hasRemaining());
+
+            return !magic.hasRemaining() && magic.getInt(0) == SnapshotFormat.MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return Returns number of products in snapshot
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return Returns the highest id ever allocated when snapshot was written, or 0 if it has not been recorded
+     */
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return read < count;
+    }
+
+    @Override
+    public Product next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        try {
+            require(SnapshotFormat.RECORD_HEADER_SIZE);
+            int id = buffer.getInt();
+            int stock = buffer.getInt();
+            double price = buffer.getDouble();
+            boolean nullPrice = (buffer.get() & SnapshotFormat.NULL_PRICE) != 0;
+            String name = readText();
+            String category = readText();
+
+            read++;
+            return new Product(id, name, category, stock, nullPrice ? null : price);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private String readText() throws IOException {
+        require(4);
+        int length = buffer.getInt();
+        if (length == SnapshotFormat.NULL_TEXT)
+            return null;
+
+        if (text.length < length)
+            text = new byte[Math.max(length, text.length * 2)];
+
+        int offset = 0;
+        while (offset < length) {
+            if (!buffer.hasRemaining())
+                require(1);
+
+            int chunk = Math.min(buffer.remaining(), length - offset);
+            buffer.get(text, offset, chunk);
+            offset += chunk;
+        }
+        return new String(text, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param size Number of bytes that have to be available in buffer, at most size of buffer
+     */
+    private void require(int size) throws IOException {
+        if (buffer.remaining() >= size)
+            return;
+
+        buffer.compact();
+        while (buffer.position() < size) {
+            if (channel.read(buffer) < 0)
+                throw new EOFException("Snapshot ends before all of " + count + " products have been read");
+        }
+        buffer.flip();
+    }
+}
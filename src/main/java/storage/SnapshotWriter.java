@@ -0,0 +1,125 @@
+package storage;
+
+import model.Product;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes products one by one into binary snapshot through buffered file channel.
+ * Number of products is written into header when writer is closed.
+ */
+public class SnapshotWriter implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(SnapshotFormat.BUFFER_SIZE);
+    private long count;
+    private int highWaterMark;
+
+    /**
+     * @param path Path of file to be created or overwritten
+     * @throws IOException A returned exception that may occur during opening file
+     */
+    public SnapshotWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        buffer.putInt(SnapshotFormat.MAGIC).putInt(SnapshotFormat.VERSION).putLong(0).putInt(0).putInt(0);
+    }
+
+    /**
+     * @param product Product to be appended to snapshot
+     * @throws IOException A returned exception that may occur during writing data
+     */
+    public void write(Product product) throws IOException {
+        byte[] name = encode(product.getName());
+        byte[] category = encode(product.getCategory());
+
+        ensureRemaining(SnapshotFormat.RECORD_HEADER_SIZE);
+        buffer.putInt(product.getId())
+                .putInt(product.getStock() + product.getReserved())
+                .putDouble(product.getPrice() != null ? product.getPrice() : 0.0)
+                .put(product.getPrice() != null ? 0 : SnapshotFormat.NULL_PRICE);
+
+        putText(name);
+        putText(category);
+        count++;
+    }
+
+    /**
+     * @return Returns number of products written so far
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @param highWaterMark Highest id ever allocated, kept so ids are not allocated again after snapshot is read
+     */
+    public void setHighWaterMark(int highWaterMark) {
+        this.highWaterMark = highWaterMark;
+    }
+
+    /**
+     * Flushes remaining data, writes number of products and high-water mark of ids into header and closes file
+     *
+     * @throws IOException A returned exception that may occur during writing data
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+
+            ByteBuffer header = ByteBuffer.allocate(12).putLong(0, count).putInt(8, highWaterMark);
+            while (header.hasRemaining()) {
+                channel.write(header, SnapshotFormat.COUNT_POSITION + header.position());
+            }
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void putText(byte[] text) throws IOException {
+        if (text == null) {
+            ensureRemaining(4);
+            buffer.putInt(SnapshotFormat.NULL_TEXT);
+            return;
+        }
+
+        ensureRemaining(4);
+        buffer.putInt(text.length);
+
+        int offset = 0;
+        while (offset < text.length) {
+            if (!buffer.hasRemaining())
+                flush();
+
+            int length = Math.min(buffer.remaining(), text.length - offset);
+            buffer.put(text, offset, length);
+            offset += length;
+        }
+    }
+
+    private void ensureRemaining(int size) throws IOException {
+        if (buffer.remaining() < size)
+            flush();
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static byte[] encode(String text) {
+        return text != null ? text.getBytes(StandardCharsets.UTF_8) : null;
+    }
+}
@@ -0,0 +1,62 @@
+package storage;
+
+import model.BulkLoadResult;
+
+/**
+ * Summary of catalogue import or export with its throughput
+ */
+public final class TransferReport {
+
+    private final long rows;
+    private final long malformed;
+    private final long elapsedNanos;
+    private final BulkLoadResult loadResult;
+
+    TransferReport(long rows, long malformed, long elapsedNanos, BulkLoadResult loadResult) {
+        this.rows = rows;
+        this.malformed = malformed;
+        this.elapsedNanos = elapsedNanos;
+        this.loadResult = loadResult;
+    }
+
+    /**
+     * @return Returns number of rows that have been read or written, including malformed ones
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return Returns number of rows that could not be parsed and have been skipped
+     */
+    public long getMalformed() {
+        return malformed;
+    }
+
+    /**
+     * @return Returns time that transfer took in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return Returns number of rows transferred per second
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos > 0 ? rows * 1e9 / elapsedNanos : 0.0;
+    }
+
+    /**
+     * @return Returns result of inserting imported products, or null for export
+     */
+    public BulkLoadResult getLoadResult() {
+        return loadResult;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d rows (%,d malformed) in %.3f s, %,.0f rows/s", rows, malformed, elapsedNanos / 1e9,
+                getRowsPerSecond());
+    }
+}
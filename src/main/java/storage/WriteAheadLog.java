@@ -0,0 +1,517 @@
+package storage;
+
+import model.Product;
+import model.Warehouse;
+import model.WarehouseListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of changes made to warehouse, registered as its listener. Changes are appended to memory and
+ * written with one fsync per group by background thread, at latest after configured delay, so writers never wait
+ * for disk unless they ask for it with {@link #sync()}.
+ * <p>
+ * Log is kept in directory as numbered segments next to snapshot. Every record holds values of product after change,
+ * so replaying records that are already included in snapshot gives the same state. Compaction starts new segment,
+ * writes snapshot and removes segments older than the previous one, which still covers changes that were in flight
+ * while segments were switched.
+ */
+public class WriteAheadLog implements WarehouseListener, Closeable {
+
+    private static final String SNAPSHOT = "snapshot.bin";
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final byte INSERT = 1;
+    private static final byte UPDATE = 2;
+    private static final byte STOCK = 3;
+    private static final byte DELETE = 4;
+    private static final byte CLEAR = 5;
+
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int FLUSH_THRESHOLD = 1 << 20;
+
+    private final Path directory;
+    private final long maxDelayNanos;
+    private final Object lock = new Object();
+    private final Object flushLock = new Object();
+    private final Thread flusher;
+    private final ScheduledExecutorService compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "wal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ByteBuffer pending = ByteBuffer.allocate(FLUSH_THRESHOLD);
+    private ByteBuffer writing = ByteBuffer.allocate(FLUSH_THRESHOLD);
+    private FileChannel segment;
+    private long segmentNumber;
+    private long appended;
+    private long durable;
+    private boolean syncRequested;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Opens new segment in directory, changes are logged once log is added as listener of warehouse
+     *
+     * @param directory Directory of log segments and snapshot, created if it does not exist
+     * @param maxDelay Maximal time after which appended change is written to disk
+     * @param unit Unit of delay
+     * @throws IOException A returned exception that may occur during creating segment
+     */
+    public WriteAheadLog(Path directory, long maxDelay, TimeUnit unit) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+
+        List<Long> segments = segments(directory);
+        this.segmentNumber = segments.isEmpty() ? 1 : segments.get(segments.size() - 1) + 1;
+        this.segment = openSegment(segmentNumber);
+
+        this.flusher = new Thread(this::flushLoop, "wal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Restores warehouse from snapshot in directory and replays all segments of log on top of it.
+     * Incomplete record at the end of last segment, left by crash during writing, is ignored.
+     *
+     * @param directory Directory of log segments and snapshot
+     * @param warehouse Warehouse to be restored, log must not be its listener yet
+     * @return Returns number of replayed records
+     * @throws ClassNotFoundException A returned exception that may occur during reading snapshot
+     * @throws IOException A returned exception that may occur during reading data or when log is corrupted
+     */
+    public static long recover(Path directory, Warehouse warehouse) throws ClassNotFoundException, IOException {
+        Path snapshot = directory.resolve(SNAPSHOT);
+        if (Files.exists(snapshot))
+            warehouse.readStorageFromFile(snapshot.toString());
+
+        long replayed = 0;
+        List<Long> segments = segments(directory);
+        for (int i = 0; i < segments.size(); i++) {
+            replayed += replay(segmentPath(directory, segments.get(i)), warehouse, i == segments.size() - 1);
+        }
+        return replayed;
+    }
+
+    /**
+     * @return Returns sequence number of the last appended change
+     */
+    public long getAppendedSequence() {
+        synchronized (lock) {
+            return appended;
+        }
+    }
+
+    /**
+     * @return Returns sequence number of the last change that has been written to disk
+     */
+    public long getDurableSequence() {
+        synchronized (lock) {
+            return durable;
+        }
+    }
+
+    /**
+     * Waits until all changes appended so far are written to disk, without waiting for delay to pass
+     *
+     * @throws IOException A returned exception that may occur during writing data
+     */
+    public void sync() throws IOException {
+        synchronized (lock) {
+            long target = appended;
+            syncRequested = true;
+            lock.notifyAll();
+
+            while (durable < target) {
+                checkFailure();
+                if (closed)
+                    throw new IOException("Log has been closed");
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for log to be written");
+                }
+            }
+            checkFailure();
+        }
+    }
+
+    /**
+     * Switches log to new segment, writes snapshot of warehouse and removes segments which are no longer needed
+     *
+     * @param warehouse Warehouse which changes are logged
+     * @throws IOException A returned exception that may occur during writing data
+     */
+    public void compact(Warehouse warehouse) throws IOException {
+        long previous;
+        synchronized (flushLock) {
+            FileChannel next = openSegment(segmentNumber + 1);
+            flush();
+
+            synchronized (lock) {
+                previous = segmentNumber;
+                segment.close();
+                segment = next;
+                segmentNumber++;
+            }
+        }
+
+        warehouse.writeStorageToFile(directory.resolve(SNAPSHOT).toString());
+
+        for (long number : segments(directory)) {
+            if (number < previous)
+                Files.deleteIfExists(segmentPath(directory, number));
+        }
+    }
+
+    /**
+     * @param warehouse Warehouse which changes are logged
+     * @param period Period between compactions
+     * @param unit Unit of period
+     * @return Returns handle that can cancel compactions
+     */
+    public ScheduledFuture<?> scheduleCompaction(Warehouse warehouse, long period, TimeUnit unit) {
+        return compactor.scheduleAtFixedRate(() -> {
+            try {
+                compact(warehouse);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, period, period, unit);
+    }
+
+    @Override
+    public void productInserted(Product product) {
+        appendProduct(INSERT, product);
+    }
+
+    @Override
+    public void productUpdated(Product before, Product after) {
+        appendProduct(UPDATE, after);
+    }
+
+    @Override
+    public void stockChanged(Product product, int previousStock, int previousReserved) {
+        synchronized (lock) {
+            ByteBuffer buffer = startRecord(STOCK, 12);
+            buffer.putInt(product.getId()).putInt(product.getStock()).putInt(product.getReserved());
+            endRecord(buffer);
+        }
+    }
+
+    @Override
+    public void productDeleted(Product product) {
+        synchronized (lock) {
+            ByteBuffer buffer = startRecord(DELETE, 4);
+            buffer.putInt(product.getId());
+            endRecord(buffer);
+        }
+    }
+
+    @Override
+    public void storageReplaced(Map<Integer, Product> storage) {
+        synchronized (lock) {
+            endRecord(startRecord(CLEAR, 0));
+        }
+        storage.values().forEach(this::productInserted);
+    }
+
+    /**
+     * Writes all appended changes to disk and stops background threads
+     *
+     * @throws IOException A returned exception that may occur during writing data
+     */
+    @Override
+    public void close() throws IOException {
+        compactor.shutdownNow();
+        synchronized (lock) {
+            if (closed)
+                return;
+
+            closed = true;
+            lock.notifyAll();
+        }
+
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (flushLock) {
+            try {
+                flush();
+            } finally {
+                segment.close();
+            }
+        }
+    }
+
+    private void appendProduct(byte type, Product product) {
+        byte[] name = encode(product.getName());
+        byte[] category = encode(product.getCategory());
+
+        synchronized (lock) {
+            ByteBuffer buffer = startRecord(type, 4 + 4 + 4 + 1 + 8 + textSize(name) + textSize(category));
+            buffer.putInt(product.getId())
+                    .putInt(product.getStock())
+                    .putInt(product.getReserved())
+                    .put((byte) (product.getPrice() != null ? 1 : 0))
+                    .putDouble(product.getPrice() != null ? product.getPrice() : 0.0);
+            putText(buffer, name);
+            putText(buffer, category);
+            endRecord(buffer);
+        }
+    }
+
+    /**
+     * Reserves room for record in pending buffer, leaving place for its length and checksum
+     */
+    private ByteBuffer startRecord(byte type, int size) {
+        int required = RECORD_HEADER_SIZE + 1 + size;
+        if (pending.remaining() < required) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + required));
+            pending.flip();
+            pending = larger.put(pending);
+        }
+
+        pending.position(pending.position() + RECORD_HEADER_SIZE);
+        pending.mark();
+        return pending.put(type);
+    }
+
+    private void endRecord(ByteBuffer buffer) {
+        int end = buffer.position();
+        buffer.reset();
+        int start = buffer.position();
+
+        CRC32 crc = new CRC32();
+        for (int i = start; i < end; i++) {
+            crc.update(buffer.get(i));
+        }
+
+        buffer.putInt(start - RECORD_HEADER_SIZE, end - start);
+        buffer.putInt(start - 4, (int) crc.getValue());
+        buffer.position(end);
+
+        appended++;
+        if (buffer.position() >= FLUSH_THRESHOLD)
+            lock.notifyAll();
+    }
+
+    private void flushLoop() {
+        while (true) {
+            synchronized (lock) {
+                long deadline = System.nanoTime() + maxDelayNanos;
+                try {
+                    while (!closed && !syncRequested && pending.position() < FLUSH_THRESHOLD) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0)
+                            break;
+                        TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                if (closed)
+                    return;
+            }
+
+            try {
+                flush();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes pending records with one fsync. Appenders fill the other buffer meanwhile, append lock is held only
+     * while buffers are swapped.
+     */
+    private void flush() throws IOException {
+        synchronized (flushLock) {
+            ByteBuffer batch;
+            long batchEnd;
+            FileChannel channel;
+
+            synchronized (lock) {
+                syncRequested = false;
+                if (pending.position() == 0)
+                    return;
+
+                batch = pending;
+                batchEnd = appended;
+                channel = segment;
+
+                pending = writing;
+                pending.clear();
+                writing = batch;
+            }
+
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                throw e;
+            } finally {
+                batch.clear();
+            }
+
+            synchronized (lock) {
+                durable = Math.max(durable, batchEnd);
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null)
+            throw new IOException("Log could not be written", failure);
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(segmentPath(directory, number), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private static long replay(Path path, Warehouse warehouse, boolean last) throws IOException {
+        ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(path));
+        long replayed = 0;
+
+        while (log.remaining() >= RECORD_HEADER_SIZE) {
+            int start = log.position();
+            int length = log.getInt();
+            int checksum = log.getInt();
+
+            if (length <= 0 || length > log.remaining() || checksum(log, log.position(), length) != checksum) {
+                if (last)
+                    return replayed;
+                throw new IOException("Log segment " + path + " is corrupted at position " + start);
+            }
+
+            apply(log, warehouse);
+            replayed++;
+        }
+
+        if (log.hasRemaining() && !last)
+            throw new IOException("Log segment " + path + " ends with incomplete record");
+        return replayed;
+    }
+
+    private static void apply(ByteBuffer log, Warehouse warehouse) {
+        byte type = log.get();
+
+        switch (type) {
+            case INSERT:
+            case UPDATE: {
+                int id = log.getInt();
+                int stock = log.getInt() + log.getInt();
+                boolean hasPrice = log.get() != 0;
+                double price = log.getDouble();
+                Product product = new Product(id, readText(log), readText(log), stock, hasPrice ? price : null);
+
+                if (!warehouse.updateProduct(product))
+                    warehouse.insertProduct(product);
+                break;
+            }
+            case STOCK: {
+                Product product = warehouse.selectProduct(log.getInt());
+                int stock = log.getInt() + log.getInt();
+                if (product != null) {
+                    Product changed = product.copy();
+                    changed.setStock(stock);
+                    warehouse.updateProduct(changed);
+                }
+                break;
+            }
+            case DELETE:
+                warehouse.deleteProduct(new Product(log.getInt(), null, null, 0, null));
+                break;
+            case CLEAR:
+                warehouse.clearStorage();
+                break;
+            default:
+                throw new IllegalStateException("Unknown type " + type + " of log record");
+        }
+    }
+
+    private static int checksum(ByteBuffer log, int start, int length) {
+        CRC32 crc = new CRC32();
+        for (int i = start; i < start + length; i++) {
+            crc.update(log.get(i));
+        }
+        return (int) crc.getValue();
+    }
+
+    private static List<Long> segments(Path directory) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        if (!Files.isDirectory(directory))
+            return numbers;
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                numbers.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    private static Path segmentPath(Path directory, long number) {
+        return directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private static byte[] encode(String text) {
+        return text != null ? text.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int textSize(byte[] text) {
+        return 4 + (text != null ? text.length : 0);
+    }
+
+    private static void putText(ByteBuffer buffer, byte[] text) {
+        buffer.putInt(text != null ? text.length : -1);
+        if (text != null)
+            buffer.put(text);
+    }
+
+    private static String readText(ByteBuffer log) {
+        int length = log.getInt();
+        if (length < 0)
+            return null;
+
+        String text = new String(log.array(), log.position(), length, StandardCharsets.UTF_8);
+        log.position(log.position() + length);
+        return text;
+    }
+}
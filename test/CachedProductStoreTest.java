@@ -0,0 +1,200 @@
+import model.CacheStatistics;
+import model.Product;
+import model.Warehouse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import storage.CachedProductStore;
+import storage.InMemoryProductBackend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class CachedProductStoreTest {
+
+    @Test
+    public void readingThroughCacheTest() throws Exception {
+        InMemoryProductBackend backend = backend(100);
+        try (CachedProductStore store = new CachedProductStore(backend, 10)) {
+            Warehouse warehouse = new Warehouse(store);
+
+            Assertions.assertEquals(100, warehouse.getStorageSize());
+            Assertions.assertEquals("Product 7", warehouse.selectProduct(7).getName());
+            Assertions.assertEquals("Product 7", warehouse.selectProduct(7).getName());
+            Assertions.assertNull(warehouse.selectProduct(1_000));
+
+            for (int id = 1; id <= 100; id++) {
+                Assertions.assertEquals(id, warehouse.selectProduct(id).getId().intValue());
+            }
+            long loads = backend.getLoadCount();
+            Assertions.assertEquals("Product 7", warehouse.selectProduct(7).getName());
+            Assertions.assertEquals(loads, backend.getLoadCount());
+
+            CacheStatistics statistics = store.getStatistics();
+            Assertions.assertEquals(10, store.getCachedCount());
+            Assertions.assertEquals(3, statistics.getHits());
+            Assertions.assertEquals(101, statistics.getMisses());
+            Assertions.assertEquals(90, statistics.getEvictions());
+            Assertions.assertEquals(100, warehouse.filterProducts(Product.Fields.Category, "Book").size());
+        }
+    }
+
+    @Test
+    public void writingThroughTest() throws Exception {
+        InMemoryProductBackend backend = backend(20);
+        try (CachedProductStore store = new CachedProductStore(backend, 5)) {
+            Warehouse warehouse = new Warehouse(store);
+
+            Assertions.assertTrue(warehouse.insertProduct(new Product(21, "Effective Java", "Book", 10, 52.5)));
+            Assertions.assertFalse(warehouse.insertProduct(new Product(3, "Duplicate", "Book", 1, 1.0)));
+            Assertions.assertEquals("Effective Java", backend.load(21).getName());
+
+            Assertions.assertTrue(warehouse.updateProduct(new Product(4, "Java Puzzlers", "Book", 3, 31.2)));
+            Assertions.assertEquals("Java Puzzlers", backend.load(4).getName());
+
+            Assertions.assertTrue(warehouse.reserve(21, 4));
+            Assertions.assertTrue(warehouse.commit(21, 1));
+            Assertions.assertEquals(Integer.valueOf(6), backend.load(21).getStock());
+            Assertions.assertEquals(3, backend.load(21).getReserved());
+
+            Assertions.assertTrue(warehouse.deleteProduct(warehouse.selectProduct(5)));
+            Assertions.assertNull(backend.load(5));
+            Assertions.assertNull(warehouse.selectProduct(5));
+            Assertions.assertEquals(20, warehouse.getStorageSize());
+        }
+    }
+
+    @Test
+    public void writingBehindTest() throws Exception {
+        InMemoryProductBackend backend = backend(20);
+        CachedProductStore store = new CachedProductStore(backend, 5, 0, 1, TimeUnit.HOURS);
+        Warehouse warehouse = new Warehouse(store);
+
+        Assertions.assertTrue(warehouse.insertProduct(new Product(21, "Effective Java", "Book", 10, 52.5)));
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertTrue(warehouse.reserve(21, 1));
+        }
+        Assertions.assertTrue(warehouse.deleteProduct(warehouse.selectProduct(2)));
+        for (int id = 3; id <= 20; id++) {
+            warehouse.selectProduct(id);
+        }
+
+        Assertions.assertNull(backend.load(21));
+        Assertions.assertNotNull(backend.load(2));
+        Assertions.assertEquals(2, store.getPendingCount());
+        Assertions.assertEquals(Integer.valueOf(5), warehouse.selectProduct(21).getStock());
+        Assertions.assertNull(warehouse.selectProduct(2));
+
+        store.close();
+        Assertions.assertEquals(0, store.getPendingCount());
+        Assertions.assertEquals(2, store.getWriteCount());
+        Assertions.assertEquals(5, backend.load(21).getReserved());
+        Assertions.assertNull(backend.load(2));
+        Assertions.assertEquals(20, backend.size());
+    }
+
+    @Test
+    public void expiringProductsTest() throws Exception {
+        InMemoryProductBackend backend = backend(3);
+        try (CachedProductStore store = new CachedProductStore(backend, 10, 20, 0, TimeUnit.MILLISECONDS)) {
+            Warehouse warehouse = new Warehouse(store);
+
+            Assertions.assertEquals("Product 1", warehouse.selectProduct(1).getName());
+            backend.store(new Product(1, "Renamed elsewhere", "Book", 1, 1.0));
+            Assertions.assertEquals("Product 1", warehouse.selectProduct(1).getName());
+
+            Thread.sleep(50);
+            Assertions.assertEquals("Renamed elsewhere", warehouse.selectProduct(1).getName());
+            Assertions.assertEquals(1, store.getStatistics().getExpirations());
+        }
+    }
+
+    @Test
+    public void changingEvictedProductTest() throws Exception {
+        InMemoryProductBackend backend = backend(20);
+        try (CachedProductStore store = new CachedProductStore(backend, 2)) {
+            Warehouse warehouse = new Warehouse(store);
+            Product held = warehouse.selectProduct(1);
+
+            for (int id = 2; id <= 20; id++) {
+                warehouse.selectProduct(id);
+            }
+            held.setPrice(1.5);
+
+            Assertions.assertEquals(Double.valueOf(1.5), backend.load(1).getPrice());
+            Assertions.assertEquals(Double.valueOf(1.5), warehouse.selectProduct(1).getPrice());
+            Assertions.assertEquals(held, warehouse.selectProduct(1));
+        }
+    }
+
+    @Test
+    public void keepingHotProductsCachedTest() throws Exception {
+        InMemoryProductBackend backend = backend(1_000);
+        try (CachedProductStore store = new CachedProductStore(backend, 50)) {
+            for (int round = 0; round < 3; round++) {
+                for (int id = 1; id <= 10; id++) {
+                    store.get(id);
+                }
+            }
+            for (int id = 11; id <= 1_000; id++) {
+                store.get(id);
+            }
+
+            long loads = backend.getLoadCount();
+            for (int id = 1; id <= 10; id++) {
+                store.get(id);
+            }
+            Assertions.assertEquals(loads, backend.getLoadCount());
+        }
+    }
+
+    @Test
+    public void reservingThroughSmallCacheConcurrentlyTest() throws Exception {
+        int threads = 8;
+        int products = 50;
+        int stock = 200;
+        InMemoryProductBackend backend = new InMemoryProductBackend();
+        for (int id = 1; id <= products; id++) {
+            backend.store(new Product(id, "Product " + id, "Book", stock, 9.99));
+        }
+
+        CachedProductStore store = new CachedProductStore(backend, 5, 0, 5, TimeUnit.MILLISECONDS);
+        Warehouse warehouse = new Warehouse(store);
+        AtomicInteger reserved = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int thread = 0; thread < threads; thread++) {
+            int seed = thread;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < products * stock; i++) {
+                    if (warehouse.reserve((i * 7 + seed) % products + 1, 1))
+                        reserved.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        store.close();
+
+        Assertions.assertEquals(products * stock, reserved.get());
+        for (int id = 1; id <= products; id++) {
+            Assertions.assertEquals(Integer.valueOf(0), backend.load(id).getStock());
+            Assertions.assertEquals(stock, backend.load(id).getReserved());
+        }
+    }
+
+    private static InMemoryProductBackend backend(int size) {
+        InMemoryProductBackend backend = new InMemoryProductBackend();
+        for (int id = 1; id <= size; id++) {
+            backend.store(new Product(id, "Product " + id, "Book", id, 10.0 + id));
+        }
+        return backend;
+    }
+}
@@ -0,0 +1,155 @@
+import model.Product;
+import model.Warehouse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import storage.CatalogueFormat;
+import storage.CatalogueTransfer;
+import storage.TransferReport;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+class CatalogueTransferTest {
+
+    @Test
+    public void exportingAndImportingCsvTest() throws Exception {
+        roundTrip(CatalogueFormat.Csv);
+    }
+
+    @Test
+    public void exportingAndImportingJsonLinesTest() throws Exception {
+        roundTrip(CatalogueFormat.JsonLines);
+    }
+
+    @Test
+    public void skippingMalformedRowsTest() throws Exception {
+        Path csv = Files.createTempFile("catalogue", ".csv");
+        Path json = Files.createTempFile("catalogue", ".jsonl");
+        Files.write(csv, Arrays.asList("id,name,category,stock,price", "1,Thinking in Java,Book,34,65.55",
+                "2,Learning Java,Book,many,45.99", "3,\"Java, \"\"Second\"\" Edition\",,7,", "4,Too,many,values,1,2"),
+                StandardCharsets.UTF_8);
+        Files.write(json, Arrays.asList("{\"id\":1,\"name\":\"Thinking in Java\",\"supplier\":{\"x\":1},\"stock\":34}",
+                "", "{\"id\":2,\"name\":\"Learning Java\"", "{\"id\":3,\"active\":true,\"name\":null}"),
+                StandardCharsets.UTF_8);
+
+        try {
+            Warehouse warehouse = new Warehouse();
+            TransferReport report = CatalogueTransfer.importCatalogue(csv, CatalogueFormat.Csv, warehouse, false);
+            Assertions.assertEquals(4, report.getRows());
+            Assertions.assertEquals(2, report.getMalformed());
+            Assertions.assertEquals("Java, \"Second\" Edition", warehouse.selectProduct(3).getName());
+            Assertions.assertNull(warehouse.selectProduct(3).getCategory());
+            Assertions.assertNull(warehouse.selectProduct(3).getPrice());
+
+            warehouse = new Warehouse();
+            report = CatalogueTransfer.importCatalogue(json, CatalogueFormat.JsonLines, warehouse, false);
+            Assertions.assertEquals(3, report.getRows());
+            Assertions.assertEquals(2, report.getMalformed());
+            Assertions.assertEquals(Integer.valueOf(0), warehouse.selectProduct(3).getStock());
+        } finally {
+            Files.delete(csv);
+            Files.delete(json);
+        }
+    }
+
+    @Test
+    public void skippingRowWithStrayQuoteTest() throws Exception {
+        Path csv = Files.createTempFile("catalogue", ".csv");
+        Files.write(csv, Arrays.asList("id,name,category,stock,price", "1,The 5\" floppy,Disk,1,1.0",
+                "2,\"Learning\nJava\",Book,16,45.99", "3,\"The 3.5\"\" floppy\",Disk,7,2.0"), StandardCharsets.UTF_8);
+
+        try {
+            Warehouse warehouse = new Warehouse();
+            TransferReport report = CatalogueTransfer.importCatalogue(csv, CatalogueFormat.Csv, warehouse, false);
+            Assertions.assertEquals(3, report.getRows());
+            Assertions.assertEquals(1, report.getMalformed());
+            Assertions.assertNull(warehouse.selectProduct(1));
+            Assertions.assertEquals("Learning\nJava", warehouse.selectProduct(2).getName());
+            Assertions.assertEquals("The 3.5\" floppy", warehouse.selectProduct(3).getName());
+        } finally {
+            Files.delete(csv);
+        }
+    }
+
+    @Test
+    public void exportingUnencodableCharactersTest() throws Exception {
+        for (CatalogueFormat format : CatalogueFormat.values()) {
+            Path path = Files.createTempFile("catalogue", "." + format);
+            Warehouse warehouse = new Warehouse();
+            warehouse.insertProduct(new Product(1, "Broken \uD800 name", "Book", 34, 65.55));
+            warehouse.insertProduct(new Product(2, "Learning Java", "Book", 16, 45.99));
+
+            try {
+                // Unpaired surrogate is replaced, the rest of row is written
+                Assertions.assertEquals(2, CatalogueTransfer.exportCatalogue(warehouse, path, format).getRows());
+
+                Warehouse imported = new Warehouse();
+                TransferReport report = CatalogueTransfer.importCatalogue(path, format, imported, false);
+                Assertions.assertEquals(0, report.getMalformed());
+                Assertions.assertEquals(2, imported.getStorageSize());
+                Assertions.assertEquals("Broken ? name", imported.selectProduct(1).getName());
+                Assertions.assertEquals("Book", imported.selectProduct(1).getCategory());
+                Assertions.assertEquals(Integer.valueOf(34), imported.selectProduct(1).getStock());
+            } finally {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void importingLargeCatalogueInParallelTest() throws Exception {
+        int size = 200_000;
+        Path path = Files.createTempFile("catalogue", ".jsonl");
+        Warehouse source = new Warehouse(new ConcurrentHashMap<>());
+        for (int i = 1; i <= size; i++) {
+            source.insertProduct(new Product(i, "Product " + i, "Category " + i % 100, i % 50, 10.0 + i % 1000));
+        }
+
+        try {
+            TransferReport export = CatalogueTransfer.exportCatalogue(source, path, CatalogueFormat.JsonLines);
+            Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+            TransferReport report = CatalogueTransfer.importCatalogue(path, CatalogueFormat.JsonLines, warehouse, true);
+
+            Assertions.assertEquals(size, export.getRows());
+            Assertions.assertEquals(size, report.getLoadResult().getLoaded());
+            Assertions.assertEquals(size, warehouse.getStorageSize());
+            Assertions.assertTrue(report.getRowsPerSecond() > 0);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static void roundTrip(CatalogueFormat format) throws Exception {
+        Path path = Files.createTempFile("catalogue", "." + format);
+        Warehouse warehouse = new Warehouse();
+        List<Product> products = Arrays.asList(
+                new Product(1, "Thinking in Java", "Book", 34, 65.55),
+                new Product(2, "Java, \"Second\"\nEdition\\", null, 0, null),
+                new Product(3, "Żółw \t", "", 16, 1e-7));
+        warehouse.insertAllProducts(products);
+        warehouse.reserve(1, 4);
+
+        try {
+            Assertions.assertEquals(3, CatalogueTransfer.exportCatalogue(warehouse, path, format).getRows());
+
+            Warehouse imported = new Warehouse();
+            TransferReport report = CatalogueTransfer.importCatalogue(path, format, imported, false);
+            Assertions.assertEquals(3, report.getRows());
+            Assertions.assertEquals(0, report.getMalformed());
+            Assertions.assertTrue(report.getLoadResult().isComplete());
+
+            for (Product expected : products) {
+                Product product = imported.selectProduct(expected.getId());
+                Assertions.assertEquals(expected.getName(), product.getName());
+                Assertions.assertEquals(expected.getCategory(), product.getCategory());
+                Assertions.assertEquals(expected.getStock() + expected.getReserved(), (int) product.getStock());
+                Assertions.assertEquals(expected.getPrice(), product.getPrice());
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+import model.CategoryStatistics;
+import model.Product;
+import model.Warehouse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+class CategoryAggregatesTest {
+
+    private static void assertStatistics(CategoryStatistics statistics, long count, long stock, long reserved, double value,
+                                         double minPrice, double maxPrice) {
+        Assertions.assertEquals(count, statistics.getCount());
+        Assertions.assertEquals(stock, statistics.getStock());
+        Assertions.assertEquals(reserved, statistics.getReserved());
+        Assertions.assertEquals(value, statistics.getValue(), 1e-6);
+        Assertions.assertEquals(minPrice, statistics.getMinPrice());
+        Assertions.assertEquals(maxPrice, statistics.getMaxPrice());
+    }
+
+    @Test
+    public void aggregatingCategoriesTest() {
+        Warehouse warehouse = new Warehouse();
+        warehouse.insertProduct(new Product(1, "Thinking in Java", "Book", 10, 50.0));
+        Assertions.assertNull(warehouse.getTotalStatistics());
+        Assertions.assertTrue(warehouse.enableAggregates());
+        Assertions.assertFalse(warehouse.enableAggregates());
+
+        warehouse.insertProduct(new Product(2, "Effective Java", "Book", 4, 40.0));
+        warehouse.insertProduct(new Product(3, "Java Course", "Video", 2, 100.0));
+        warehouse.insertProduct(new Product(4, "Gift Card", "Video", 5, null));
+
+        assertStatistics(warehouse.getCategoryStatistics("Book"), 2, 14, 0, 660.0, 40.0, 50.0);
+        assertStatistics(warehouse.getCategoryStatistics("Video"), 2, 7, 0, 200.0, 100.0, 100.0);
+        assertStatistics(warehouse.getTotalStatistics(), 4, 21, 0, 860.0, 40.0, 100.0);
+        assertStatistics(warehouse.getCategoryStatistics("Game"), 0, 0, 0, 0.0, Double.NaN, Double.NaN);
+        Assertions.assertNull(warehouse.getCategoryStatistics(null));
+
+        // Reservation moves stock, commit takes it out of warehouse
+        Assertions.assertTrue(warehouse.reserve(1, 3));
+        assertStatistics(warehouse.getCategoryStatistics("Book"), 2, 11, 3, 660.0, 40.0, 50.0);
+        Assertions.assertTrue(warehouse.commit(1, 2));
+        assertStatistics(warehouse.getCategoryStatistics("Book"), 2, 11, 1, 560.0, 40.0, 50.0);
+
+        // Product changed in place before update is subtracted with values it has been counted with
+        Product stored = warehouse.selectProduct(2);
+        stored.setCategory("Ebook");
+        stored.setPrice(20.0);
+        warehouse.updateProduct(stored);
+        assertStatistics(warehouse.getCategoryStatistics("Book"), 1, 7, 1, 400.0, 50.0, 50.0);
+        assertStatistics(warehouse.getCategoryStatistics("Ebook"), 1, 4, 0, 80.0, 20.0, 20.0);
+
+        warehouse.deleteProduct(warehouse.selectProduct(3));
+        assertStatistics(warehouse.getCategoryStatistics("Video"), 1, 5, 0, 0.0, Double.NaN, Double.NaN);
+        assertStatistics(warehouse.getTotalStatistics(), 3, 16, 1, 480.0, 20.0, 50.0);
+        Assertions.assertEquals(3, warehouse.getAllCategoryStatistics().size());
+
+        Map<Integer, Product> storage = new HashMap<>();
+        storage.put(7, new Product(7, "Board Game", "Game", 3, 30.0));
+        warehouse.setStorage(storage);
+        assertStatistics(warehouse.getTotalStatistics(), 1, 3, 0, 90.0, 30.0, 30.0);
+        Assertions.assertEquals(1, warehouse.getAllCategoryStatistics().size());
+        assertStatistics(warehouse.getAllCategoryStatistics().get("Game"), 1, 3, 0, 90.0, 30.0, 30.0);
+
+        Assertions.assertTrue(warehouse.disableAggregates());
+        Assertions.assertFalse(warehouse.disableAggregates());
+        Assertions.assertNull(warehouse.getAllCategoryStatistics());
+    }
+
+    @Test
+    public void aggregatingConcurrentChangesTest() throws Exception {
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        warehouse.enableAggregates();
+        for (int id = 1; id <= 1000; id++) {
+            warehouse.insertProduct(new Product(id, "Product " + id, "Category " + id % 10, 100, 1.0 + id % 7));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                int first = thread;
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 5000; i++) {
+                        int id = random.nextInt(1000) + 1;
+                        switch (i % 4) {
+                            case 0:
+                                warehouse.reserve(id, 1);
+                                break;
+                            case 1:
+                                warehouse.commit(id, 1);
+                                break;
+                            case 2:
+                                warehouse.updateProduct(new Product(id, "Product " + id, "Category " + (id + first) % 10, 50, 2.0));
+                                break;
+                            default:
+                                warehouse.release(id, 1);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long stock = 0;
+        long reserved = 0;
+        double value = 0;
+        for (Product product : warehouse.selectAllProducts()) {
+            stock += product.getStockAsInt();
+            reserved += product.getReserved();
+            value += (product.getStockAsInt() + product.getReserved()) * product.getPriceAsDouble();
+        }
+        CategoryStatistics total = warehouse.getTotalStatistics();
+        Assertions.assertEquals(1000, total.getCount());
+        Assertions.assertEquals(stock, total.getStock());
+        Assertions.assertEquals(reserved, total.getReserved());
+        Assertions.assertEquals(value, total.getValue(), 1e-6);
+
+        long count = warehouse.getAllCategoryStatistics().values().stream().mapToLong(CategoryStatistics::getCount).sum();
+        Assertions.assertEquals(1000, count);
+        for (int category = 0; category < 10; category++) {
+            String name = "Category " + category;
+            long expected = warehouse.filterProducts(Product.Fields.Category, name).stream().mapToLong(Product::getStockAsInt).sum();
+            Assertions.assertEquals(expected, warehouse.getCategoryStatistics(name).getStock());
+        }
+    }
+}
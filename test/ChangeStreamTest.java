@@ -0,0 +1,147 @@
+import model.ChangeEvent;
+import model.ChangeStream;
+import model.Product;
+import model.Warehouse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ChangeStreamTest {
+
+    @Test
+    public void publishingChangesInOrderTest() {
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        List<ChangeEvent> events = new CopyOnWriteArrayList<>();
+        try (ChangeStream stream = new ChangeStream(10, ChangeStream.Backpressure.Block)) {
+            Assertions.assertEquals(16, stream.getCapacity());
+            Assertions.assertNull(stream.subscribe(events::addAll, 0));
+            ChangeStream.Subscription subscription = stream.subscribe(events::addAll, 4);
+            warehouse.addListener(stream);
+
+            Product product = new Product(1, "Thinking in Java", "Book", 34, 65.55);
+            warehouse.insertProduct(product);
+            warehouse.updateProduct(new Product(1, "Thinking in Java", "Ebook", 34, 59.99));
+            warehouse.reserve(1, 4);
+            warehouse.deleteProduct(warehouse.selectProduct(1));
+            warehouse.clearStorage();
+            stream.close();
+
+            Assertions.assertFalse(subscription.isActive());
+            Assertions.assertEquals(4, subscription.getSequence());
+            Assertions.assertEquals(Arrays.asList(ChangeEvent.Type.Inserted, ChangeEvent.Type.Updated, ChangeEvent.Type.StockChanged,
+                    ChangeEvent.Type.Deleted, ChangeEvent.Type.StorageReplaced), types(events));
+            for (int i = 0; i < events.size(); i++) {
+                Assertions.assertEquals(i, events.get(i).getSequence());
+            }
+
+            Assertions.assertEquals("Book", events.get(1).getBefore().getCategory());
+            Assertions.assertEquals(Double.valueOf(59.99), events.get(1).getAfter().getPrice());
+            Assertions.assertEquals(Integer.valueOf(34), events.get(2).getBefore().getStock());
+            Assertions.assertEquals(Integer.valueOf(30), events.get(2).getAfter().getStock());
+            Assertions.assertEquals(4, events.get(2).getAfter().getReserved());
+            Assertions.assertEquals(4, events.get(3).getBefore().getReserved());
+            Assertions.assertNull(events.get(3).getAfter());
+            Assertions.assertNull(events.get(4).getProductId());
+
+            warehouse.insertProduct(product);
+            Assertions.assertEquals(4, stream.getPublishedSequence());
+            Assertions.assertNull(stream.subscribe(events::addAll, 1));
+        }
+    }
+
+    @Test
+    public void mirroringWarehouseThroughSmallRingTest() throws Exception {
+        int threads = 4;
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        Map<Integer, Product> mirror = new HashMap<>();
+        AtomicInteger batches = new AtomicInteger();
+        ChangeStream stream = new ChangeStream(16, ChangeStream.Backpressure.Block);
+        ChangeStream.Subscription subscription = stream.subscribe(events -> {
+            batches.incrementAndGet();
+            for (ChangeEvent event : events) {
+                if (event.getAfter() != null)
+                    mirror.put(event.getProductId(), event.getAfter());
+                else
+                    mirror.remove(event.getProductId());
+            }
+        }, 8);
+        warehouse.addListener(stream);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            int first = thread * 1_000;
+            futures.add(executor.submit(() -> {
+                for (int id = first + 1; id <= first + 1_000; id++) {
+                    warehouse.insertProduct(new Product(id, "Product " + id, "Book", 10, 1.0));
+                    warehouse.reserve(id, id % 10);
+                    if (id % 3 == 0)
+                        warehouse.deleteProduct(warehouse.selectProduct(id));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        stream.close();
+
+        Assertions.assertNull(subscription.getFailure());
+        Assertions.assertEquals(0, stream.getDroppedCount());
+        Assertions.assertEquals(0, subscription.getLag());
+        Assertions.assertTrue(batches.get() <= stream.getPublishedSequence() + 1);
+        Assertions.assertEquals(warehouse.getStorageSize(), mirror.size());
+        for (Product product : warehouse.selectAllProducts()) {
+            Assertions.assertEquals(product.getStock(), mirror.get(product.getId()).getStock());
+            Assertions.assertEquals(product.getReserved(), mirror.get(product.getId()).getReserved());
+        }
+    }
+
+    @Test
+    public void droppingChangesForSlowSubscriberTest() throws Exception {
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        CountDownLatch release = new CountDownLatch(1);
+        List<ChangeEvent> events = new CopyOnWriteArrayList<>();
+        ChangeStream stream = new ChangeStream(4, ChangeStream.Backpressure.Drop);
+        ChangeStream.Subscription subscription = stream.subscribe(batch -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            events.addAll(batch);
+        }, 100);
+        warehouse.addListener(stream);
+
+        for (int id = 1; id <= 10; id++) {
+            warehouse.insertProduct(new Product(id, "Product " + id, "Book", 1, 1.0));
+        }
+        Assertions.assertTrue(stream.getDroppedCount() >= 5);
+        release.countDown();
+        stream.close();
+
+        Assertions.assertEquals(10, events.size() + stream.getDroppedCount());
+        Assertions.assertEquals(stream.getPublishedSequence(), subscription.getSequence());
+
+        ChangeStream failing = new ChangeStream(4, ChangeStream.Backpressure.Block);
+        ChangeStream.Subscription failed = failing.subscribe(batch -> {
+            throw new IllegalStateException("Subscriber failed");
+        }, 1);
+        warehouse.addListener(failing);
+        for (int id = 11; id <= 20; id++) {
+            warehouse.insertProduct(new Product(id, "Product " + id, "Book", 1, 1.0));
+        }
+        failing.close();
+        Assertions.assertEquals("Subscriber failed", failed.getFailure().getMessage());
+        Assertions.assertEquals(20, warehouse.getStorageSize());
+    }
+
+    private static List<ChangeEvent.Type> types(List<ChangeEvent> events) {
+        List<ChangeEvent.Type> types = new ArrayList<>();
+        events.forEach(event -> types.add(event.getType()));
+        return types;
+    }
+}
@@ -0,0 +1,225 @@
+import model.Product;
+import model.Warehouse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import storage.ColumnarProductStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+class ColumnarProductStoreTest {
+
+    @Test
+    public void storingProductsInColumnsTest() {
+        ColumnarProductStore store = new ColumnarProductStore();
+        Warehouse warehouse = new Warehouse(store);
+        Product product1 = new Product(1, "Thinking in Java", "Book", 34, 65.55);
+        Product product2 = new Product(2, "Learning Java", null, 16, null);
+        Product product3 = new Product(3, "Java Design Patterns", "Book", 7, 39.11);
+
+        Assertions.assertTrue(warehouse.isConcurrent());
+        Assertions.assertTrue(warehouse.insertAllProducts(Arrays.asList(product1, product2, product3)));
+        Assertions.assertFalse(warehouse.insertProduct(product1));
+        Assertions.assertEquals(3, warehouse.getStorageSize());
+        Assertions.assertEquals(1, store.getCategoryCount());
+
+        Product stored = warehouse.selectProduct(2);
+        Assertions.assertEquals("Learning Java", stored.getName());
+        Assertions.assertNull(stored.getCategory());
+        Assertions.assertNull(stored.getPrice());
+        Assertions.assertTrue(Double.isNaN(stored.getPriceAsDouble()));
+        Assertions.assertEquals(16, stored.getStockAsInt());
+        Assertions.assertEquals(stored, warehouse.selectProduct(2));
+
+        product1.setPrice(59.99);
+        Assertions.assertTrue(warehouse.updateProduct(product1));
+        Assertions.assertEquals(Double.valueOf(59.99), warehouse.selectProduct(1).getPrice());
+        Assertions.assertEquals(59.99, warehouse.selectProduct(1).getPriceAsDouble());
+
+        Assertions.assertTrue(warehouse.reserve(3, 5));
+        Assertions.assertFalse(warehouse.reserve(3, 5));
+        Assertions.assertTrue(warehouse.commit(3, 5));
+        Assertions.assertEquals(Integer.valueOf(2), warehouse.selectProduct(3).getStock());
+
+        Product deleted = warehouse.selectProduct(3);
+        Assertions.assertTrue(warehouse.deleteProduct(product3));
+        Assertions.assertNull(warehouse.selectProduct(3));
+        Assertions.assertNull(deleted.getName());
+        Assertions.assertEquals(2, warehouse.getStorageSize());
+
+        warehouse.insertProduct(new Product(4, "Effective Java", "Ebook", 3, 45.0));
+        Assertions.assertEquals("Ebook", warehouse.selectProduct(4).getCategory());
+        Assertions.assertEquals(Arrays.asList(1, 2, 4), ids(warehouse.sortProducts(Product.Fields.Stock, false)));
+    }
+
+    @Test
+    public void maintainingIndexesOverViewsTest() {
+        Warehouse warehouse = new Warehouse(new ColumnarProductStore());
+        Product product1 = new Product(5, "Thinking in Java", "Book", 34, 65.55);
+        Product product2 = new Product(6, "Learning Java", "Book", 16, 45.99);
+
+        warehouse.createIndex(Product.Fields.Category);
+        warehouse.createIndex(Product.Fields.Stock);
+        warehouse.insertProduct(product1);
+        warehouse.insertProduct(product2);
+
+        Assertions.assertTrue(warehouse.reserve(5, 34));
+        Product indexed = warehouse.filterProducts(Product.Fields.Category, "Book").stream()
+                .filter(p -> p.getId() == 5).findFirst().get();
+        Assertions.assertEquals(Integer.valueOf(0), indexed.getStock());
+        Assertions.assertEquals(1, warehouse.filterProducts(Product.Fields.Stock, 0).size());
+
+        product2.setCategory("Ebook");
+        warehouse.updateProduct(product2);
+        Assertions.assertEquals(1, warehouse.filterProducts(Product.Fields.Category, "Ebook").size());
+        Assertions.assertEquals(1, warehouse.filterProducts(Product.Fields.Category, "Book").size());
+
+        Assertions.assertFalse(warehouse.insertAllProducts(Arrays.asList(
+                new Product(7, "Java Concurrency in Practice", "Book", 1, 1.0), product1)));
+        Assertions.assertNull(warehouse.selectProduct(7));
+        Assertions.assertEquals(1, warehouse.filterProducts(Product.Fields.Category, "Book").size());
+
+        warehouse.deleteProduct(product1);
+        Assertions.assertEquals(0, warehouse.filterProducts(Product.Fields.Category, "Book").size());
+    }
+
+    @Test
+    public void serializingViewsTest() throws Exception {
+        Warehouse warehouse = new Warehouse(new ColumnarProductStore());
+        warehouse.insertProduct(new Product(8, "Thinking in Java", "Book", 34, 65.55));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new HashMap<>(warehouse.getStorage()));
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Product product = ((Map<?, Product>) in.readObject()).get(8);
+            Assertions.assertEquals(Product.class, product.getClass());
+            Assertions.assertEquals("Thinking in Java", product.getName());
+        }
+    }
+
+    /**
+     * Memory retained by the same catalogue kept in hash map and in columns, footprints of all storage modes are
+     * measured by FootprintBenchmark
+     */
+    @Test
+    public void memoryFootprintTest() {
+        int size = 200_000;
+
+        long hashMapFootprint = footprint(size, new Warehouse());
+        long columnarFootprint = footprint(size, new Warehouse(new ColumnarProductStore(size)));
+
+        Assertions.assertTrue(columnarFootprint * 2 < hashMapFootprint);
+        Assertions.assertTrue(columnarFootprint / size < 128);
+    }
+
+    @Test
+    public void changingProductsConcurrentlyTest() throws Exception {
+        int products = 20_000;
+        ColumnarProductStore store = new ColumnarProductStore();
+        Warehouse warehouse = new Warehouse(store);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                int first = thread;
+                futures.add(executor.submit(() -> {
+                    for (int id = first + 1; id <= products; id += 4) {
+                        Assertions.assertTrue(warehouse.insertProduct(new Product(id, "Product " + id, "Category " + id % 10, 5, 1.0)));
+                    }
+                    for (int id = first + 1; id <= products; id += 4) {
+                        Assertions.assertEquals("Product " + id, warehouse.selectProduct(id).getName());
+                        if (id % 3 == 0)
+                            Assertions.assertTrue(warehouse.deleteProduct(warehouse.selectProduct(id)));
+                        else
+                            Assertions.assertTrue(warehouse.updateProduct(new Product(id, "Changed " + id, "Book", 7, 2.0)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertEquals(products - products / 3, warehouse.getStorageSize());
+        Assertions.assertEquals(products - products / 3, warehouse.selectAllProducts().size());
+        for (int id = 1; id <= products; id++) {
+            Product product = warehouse.selectProduct(id);
+            if (id % 3 == 0)
+                Assertions.assertNull(product);
+            else
+                Assertions.assertEquals("Changed " + id, product.getName());
+        }
+
+        // Ids of deleted products can be stored again
+        for (int id = 3; id <= products; id += 3) {
+            Assertions.assertTrue(warehouse.insertProduct(new Product(id, "Product " + id, "Book", 1, 1.0)));
+        }
+        Assertions.assertEquals(products, warehouse.getStorageSize());
+        Assertions.assertEquals(products, warehouse.selectAllProducts().size());
+    }
+
+    @Test
+    public void insertingDistinctCategoriesConcurrentlyTest() throws Exception {
+        int products = 20_000;
+        Warehouse warehouse = new Warehouse(new ColumnarProductStore());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                int first = thread;
+                futures.add(executor.submit(() -> {
+                    for (int id = first + 1; id <= products; id += 4) {
+                        Assertions.assertTrue(warehouse.insertProduct(new Product(id, "Product " + id, "Category " + id, 1, 1.0)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int id = 1; id <= products; id++) {
+            Assertions.assertEquals("Category " + id, warehouse.selectProduct(id).getCategory());
+        }
+    }
+
+    private static long footprint(int size, Warehouse warehouse) {
+        long before = usedMemory();
+        for (int i = 0; i < size; i++) {
+            warehouse.insertProduct(new Product(i + 1, "Product " + i, "Category " + i % 100, i % 50, 10.0 + i % 1000));
+        }
+        long after = usedMemory();
+
+        Assertions.assertEquals(size, warehouse.getStorageSize());
+        return after - before;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static List<Integer> ids(List<Product> products) {
+        List<Integer> ids = new ArrayList<>();
+        products.forEach(p -> ids.add(p.getId()));
+        return ids;
+    }
+}
@@ -0,0 +1,393 @@
+import model.BulkLoadResult;
+import model.Product;
+import model.Warehouse;
+import storage.ColumnarProductStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ConcurrentWarehouseTest {
+
+    private static final int PRODUCTS_PER_THREAD = 2_000;
+
+    @Test
+    public void concurrentModeTest() {
+        Assertions.assertTrue(new Warehouse(new ConcurrentHashMap<>()).isConcurrent());
+        Assertions.assertFalse(new Warehouse().isConcurrent());
+    }
+
+    @Test
+    public void insertingSameProductConcurrentlyTest() throws Exception {
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        Product product = new Product(1, "Java Concurrency in Practice", "Book", 12, 59.99);
+        AtomicInteger inserted = new AtomicInteger();
+
+        runConcurrently(8, thread -> {
+            if (warehouse.insertProduct(product))
+                inserted.incrementAndGet();
+        });
+
+        Assertions.assertEquals(1, inserted.get());
+        Assertions.assertEquals(1, warehouse.getStorageSize());
+        Assertions.assertNull(warehouse.selectProduct(null));
+    }
+
+    @Test
+    public void insertingUpdatingAndDeletingConcurrentlyTest() throws Exception {
+        int threads = 8;
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        List<List<Product>> partitions = createPartitions(threads, PRODUCTS_PER_THREAD);
+
+        runConcurrently(threads, thread -> {
+            for (Product product : partitions.get(thread)) {
+                Assertions.assertTrue(warehouse.insertProduct(product));
+            }
+            for (Product product : partitions.get(thread)) {
+                product.setCategory("Ebook");
+                Assertions.assertTrue(warehouse.updateProduct(product));
+            }
+            for (int i = 0; i < PRODUCTS_PER_THREAD; i += 2) {
+                Assertions.assertTrue(warehouse.deleteProduct(partitions.get(thread).get(i)));
+            }
+        });
+
+        Assertions.assertEquals(threads * PRODUCTS_PER_THREAD / 2, warehouse.getStorageSize());
+        Assertions.assertEquals(threads * PRODUCTS_PER_THREAD / 2, warehouse.filterProducts(Product.Fields.Category, "Ebook").size());
+    }
+
+    @Test
+    public void maintainingIndexesConcurrentlyTest() throws Exception {
+        int threads = 4;
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        List<List<Product>> partitions = createPartitions(threads, PRODUCTS_PER_THREAD);
+
+        warehouse.createIndex(Product.Fields.Category);
+        warehouse.createIndex(Product.Fields.Stock);
+
+        runConcurrently(threads, thread -> {
+            Assertions.assertTrue(warehouse.insertAllProducts(partitions.get(thread)));
+            for (Product product : partitions.get(thread)) {
+                if (product.getStock() > 0)
+                    Assertions.assertTrue(warehouse.reserve(product.getId(), product.getStock()));
+                product.setCategory("Ebook");
+                warehouse.updateProduct(product);
+            }
+        });
+
+        Assertions.assertEquals(0, warehouse.filterProducts(Product.Fields.Category, "Book").size());
+        Assertions.assertEquals(threads * PRODUCTS_PER_THREAD, warehouse.filterProducts(Product.Fields.Category, "Ebook").size());
+        Assertions.assertEquals(threads * PRODUCTS_PER_THREAD, warehouse.filterProducts(Product.Fields.Stock, 0).size());
+    }
+
+    @Test
+    public void updatingCopiesWhileReservingTest() throws Exception {
+        for (ConcurrentMap<Integer, Product> storage : Arrays.<ConcurrentMap<Integer, Product>>asList(new ConcurrentHashMap<>(), new ColumnarProductStore())) {
+            Warehouse warehouse = new Warehouse(storage);
+            warehouse.insertProduct(new Product(1, "Thinking in Java", "Book", 10, 65.55));
+
+            // Stock reserved after copy has been taken is not returned by update of other values
+            Product copy = warehouse.selectProduct(1).copy();
+            Assertions.assertTrue(warehouse.reserve(1, 3));
+            copy.setPrice(59.99);
+            Assertions.assertTrue(warehouse.updateProduct(copy));
+            Assertions.assertEquals(7, warehouse.selectProduct(1).getStockAsInt());
+            Assertions.assertEquals(3, warehouse.selectProduct(1).getReserved());
+
+            // Change of stock made on copy is added to stock left after reservations
+            copy = warehouse.selectProduct(1).copy();
+            Assertions.assertTrue(warehouse.reserve(1, 2));
+            copy.setStock(copy.getStock() + 5);
+            Assertions.assertTrue(warehouse.updateProduct(copy));
+            Assertions.assertEquals(10, warehouse.selectProduct(1).getStockAsInt());
+            Assertions.assertEquals(5, warehouse.selectProduct(1).getReserved());
+
+            // Change of stock is applied once, however many times the same copy updates product
+            copy.setName("Thinking in Java, 4th Edition");
+            Assertions.assertTrue(warehouse.updateProduct(copy));
+            Assertions.assertTrue(warehouse.updateProduct(copy));
+            Assertions.assertEquals(10, warehouse.selectProduct(1).getStockAsInt());
+            copy.setStock(copy.getStock() - 2);
+            Assertions.assertTrue(warehouse.updateProduct(copy));
+            Assertions.assertTrue(warehouse.updateProduct(copy));
+            Assertions.assertEquals(8, warehouse.selectProduct(1).getStockAsInt());
+            Assertions.assertEquals("Thinking in Java, 4th Edition", warehouse.selectProduct(1).getName());
+
+            // Product which is not a copy sets stock as it is
+            Assertions.assertTrue(warehouse.updateProduct(new Product(1, "Thinking in Java", "Book", 4, 65.55)));
+            Assertions.assertEquals(4, warehouse.selectProduct(1).getStockAsInt());
+        }
+
+        int products = 100;
+        int stock = 1_000;
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        for (int id = 1; id <= products; id++) {
+            warehouse.insertProduct(new Product(id, "Product " + id, "Book", stock, 10.0));
+        }
+
+        AtomicInteger reserved = new AtomicInteger();
+        runConcurrently(4, thread -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 20_000; i++) {
+                int id = random.nextInt(products) + 1;
+                if (thread % 2 == 0) {
+                    if (warehouse.reserve(id, 1))
+                        reserved.incrementAndGet();
+                } else {
+                    Product copy = warehouse.selectProduct(id).copy();
+                    copy.setPrice(10.0 + i % 10);
+                    Assertions.assertTrue(warehouse.updateProduct(copy));
+                }
+            }
+        });
+
+        long available = 0;
+        long reservedStock = 0;
+        for (Product product : warehouse.selectAllProducts()) {
+            available += product.getStockAsInt();
+            reservedStock += product.getReserved();
+        }
+        Assertions.assertEquals(reserved.get(), reservedStock);
+        Assertions.assertEquals((long) products * stock, available + reservedStock);
+    }
+
+    @Test
+    public void readingProductsWhileUpdatingTest() throws Exception {
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        warehouse.insertProduct(new Product(1, "Product A", "A", 100, 1.0));
+
+        // Product selected before update is not changed by it
+        Product selected = warehouse.selectProduct(1);
+        Assertions.assertTrue(warehouse.updateProduct(new Product(1, "Product B", "B", 100, 2.0)));
+        Assertions.assertEquals("Product A", selected.getName());
+        Assertions.assertEquals(2.0, warehouse.selectProduct(1).getPriceAsDouble());
+        Assertions.assertTrue(warehouse.reserve(1, 10));
+        Assertions.assertEquals(90, warehouse.selectProduct(1).getStockAsInt());
+        Assertions.assertEquals(100, selected.getStockAsInt());
+
+        // Readers see all values of one update, reservations made while product is replaced are carried over
+        AtomicInteger reserved = new AtomicInteger(10);
+        runConcurrently(4, thread -> {
+            for (int i = 0; i < 20_000; i++) {
+                if (thread == 0) {
+                    Product copy = warehouse.selectProduct(1).copy();
+                    boolean a = i % 2 == 0;
+                    copy.setName(a ? "Product A" : "Product B");
+                    copy.setCategory(a ? "A" : "B");
+                    copy.setPrice(a ? 1.0 : 2.0);
+                    Assertions.assertTrue(warehouse.updateProduct(copy));
+                } else if (thread == 1) {
+                    if (warehouse.reserve(1, 1))
+                        reserved.incrementAndGet();
+                    if (warehouse.release(1, 1))
+                        reserved.decrementAndGet();
+                } else {
+                    Product product = warehouse.selectProduct(1);
+                    String category = product.getCategory();
+                    Assertions.assertEquals("Product " + category, product.getName());
+                    Assertions.assertEquals(category.equals("A") ? 1.0 : 2.0, product.getPriceAsDouble());
+                }
+            }
+        });
+
+        Product product = warehouse.selectProduct(1);
+        Assertions.assertEquals(reserved.get(), product.getReserved());
+        Assertions.assertEquals(100, product.getStockAsInt() + product.getReserved());
+    }
+
+    @Test
+    public void insertingAllProductsConcurrentlyTest() throws Exception {
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        List<Product> products = createPartitions(1, PRODUCTS_PER_THREAD).get(0);
+        AtomicInteger inserted = new AtomicInteger();
+
+        runConcurrently(4, thread -> {
+            if (warehouse.insertAllProducts(products))
+                inserted.incrementAndGet();
+        });
+
+        Assertions.assertEquals(1, inserted.get());
+        Assertions.assertEquals(PRODUCTS_PER_THREAD, warehouse.getStorageSize());
+    }
+
+    @Test
+    public void loadingProductsInParallelTest() {
+        int size = 50_000;
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        List<Product> products = createPartitions(1, size).get(0);
+
+        warehouse.createIndex(Product.Fields.Category);
+        warehouse.insertProduct(products.get(size / 2));
+
+        BulkLoadResult result = warehouse.loadProducts(products.stream(), true);
+
+        Assertions.assertEquals(size - 1, result.getLoaded());
+        Assertions.assertArrayEquals(new int[]{products.get(size / 2).getId()}, result.getRejectedIds());
+        Assertions.assertEquals(size, warehouse.getStorageSize());
+        Assertions.assertEquals(size, warehouse.filterProducts(Product.Fields.Category, "Book").size());
+    }
+
+    @Test
+    public void creatingProductsConcurrentlyTest() throws Exception {
+        int threads = 8;
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        Product existing = new Product(5_000, "Java Concurrency in Practice", "Book", 12, 59.99);
+
+        warehouse.insertProduct(existing);
+
+        runConcurrently(threads, thread -> {
+            for (int i = 0; i < PRODUCTS_PER_THREAD; i++) {
+                Product product = warehouse.createProduct("Product " + i, "Book", i, 9.99);
+                Assertions.assertTrue(product.getId() > existing.getId());
+                Assertions.assertTrue(warehouse.insertProduct(product));
+            }
+        });
+
+        Assertions.assertEquals(threads * PRODUCTS_PER_THREAD + 1, warehouse.getStorageSize());
+    }
+
+    @Test
+    public void insertingCreatedProductsKeepsBlocksTest() throws Exception {
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        List<ExecutorService> executors = Arrays.asList(Executors.newSingleThreadExecutor(), Executors.newSingleThreadExecutor());
+
+        // Threads take turns, so each of them inserts ids created by allocator while the other one holds its block
+        try {
+            for (int i = 0; i < PRODUCTS_PER_THREAD; i++) {
+                for (ExecutorService executor : executors) {
+                    Product product = executor.submit(() -> warehouse.createProduct("Product", "Book", 1, 9.99)).get();
+                    Assertions.assertTrue(executor.submit(() -> warehouse.insertProduct(product)).get());
+                }
+            }
+        } finally {
+            executors.forEach(ExecutorService::shutdown);
+        }
+
+        Assertions.assertEquals(2 * PRODUCTS_PER_THREAD, warehouse.getStorageSize());
+        Assertions.assertTrue(warehouse.getIdAllocator().getHighWaterMark() <= 2 * (PRODUCTS_PER_THREAD + 1024));
+    }
+
+    @Test
+    public void creatingProductsAfterInsertingTest() {
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        Product created = warehouse.createProduct("Effective Java", "Book", 10, 52.5);
+        Product inserted = new Product(created.getId() + 3, "Java Puzzlers", "Book", 3, 31.2);
+
+        Assertions.assertTrue(warehouse.insertProduct(created));
+        Assertions.assertTrue(warehouse.insertProduct(inserted));
+        // Block of this thread covers id of inserted product, which must be skipped
+        for (int i = 0; i < 10; i++) {
+            Product product = warehouse.createProduct("Product " + i, "Book", i, 9.99);
+            Assertions.assertTrue(product.getId() > inserted.getId());
+            Assertions.assertTrue(warehouse.insertProduct(product));
+        }
+    }
+
+    @Test
+    public void reservingHotProductConcurrentlyTest() throws Exception {
+        int threads = 8;
+        int stock = 5_000;
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        Product product = new Product(1, "Flash sale product", "Book", stock, 9.99);
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger committed = new AtomicInteger();
+
+        warehouse.insertProduct(product);
+
+        runConcurrently(threads, thread -> {
+            for (int i = 0; i < stock; i++) {
+                if (warehouse.reserve(product.getId(), 1)) {
+                    reserved.incrementAndGet();
+                    if (i % 2 == 0 && warehouse.commit(product.getId(), 1))
+                        committed.incrementAndGet();
+                }
+            }
+        });
+
+        Assertions.assertEquals(stock, reserved.get());
+        Assertions.assertEquals(Integer.valueOf(0), product.getStock());
+        Assertions.assertEquals(stock - committed.get(), product.getReserved());
+    }
+
+    /**
+     * Stress test running the same mixed workload of selects, updates, inserts and deletes with a growing
+     * number of threads, throughput of such workload is measured by ConcurrentBenchmark
+     */
+    @Test
+    public void mixedWorkloadStressTest() throws Exception {
+        int operations = 200_000;
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+            List<List<Product>> partitions = createPartitions(threads, PRODUCTS_PER_THREAD);
+            partitions.forEach(warehouse::insertAllProducts);
+            int operationsPerThread = operations / threads;
+
+            runConcurrently(threads, thread -> {
+                List<Product> own = partitions.get(thread);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+
+                for (int i = 0; i < operationsPerThread; i++) {
+                    Product product = own.get(random.nextInt(own.size()));
+                    switch (i % 10) {
+                        case 0:
+                            warehouse.updateProduct(product);
+                            break;
+                        case 1:
+                            warehouse.deleteProduct(product);
+                            warehouse.insertProduct(product);
+                            break;
+                        default:
+                            Assertions.assertNotNull(warehouse.selectProduct(product.getId()));
+                    }
+                }
+            });
+
+            Assertions.assertEquals(threads * PRODUCTS_PER_THREAD, warehouse.getStorageSize());
+        }
+    }
+
+    private static List<List<Product>> createPartitions(int partitions, int size) {
+        List<List<Product>> result = new ArrayList<>(partitions);
+
+        for (int i = 0; i < partitions; i++) {
+            List<Product> products = new ArrayList<>(size);
+            for (int j = 0; j < size; j++) {
+                products.add(new Product(i * size + j + 1, "Product " + i + "-" + j, "Book", j % 50, 10.0 + j % 100));
+            }
+            result.add(products);
+        }
+        return result;
+    }
+
+    private static void runConcurrently(int threads, ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(threads);
+
+        try {
+            for (int i = 0; i < threads; i++) {
+                int thread = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask {
+        void run(int thread) throws Exception;
+    }
+}
@@ -0,0 +1,116 @@
+import model.Product;
+import model.Warehouse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import storage.MappedProductStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+class MappedProductStoreTest {
+
+    @Test
+    public void materializingProductsLazilyTest() throws Exception {
+        Path path = Files.createTempFile("warehouse", ".store");
+        Product product1 = new Product(1, "Thinking in Java", "Book", 34, 65.55);
+        Product product2 = new Product(2, "Learning Java", null, 16, null);
+        Product product3 = new Product(3, "Java Concurrent Programming", "Książka", 24, 78.99);
+
+        try {
+            MappedProductStore.write(path, Arrays.asList(product1, product2, product3));
+            MappedProductStore store = MappedProductStore.open(path);
+            Warehouse warehouse = new Warehouse(store);
+
+            Assertions.assertTrue(warehouse.isConcurrent());
+            Assertions.assertEquals(3, warehouse.getStorageSize());
+            Assertions.assertEquals(0, store.getMaterializedCount());
+
+            Product product = warehouse.selectProduct(product3.getId());
+            Assertions.assertEquals("Książka", product.getCategory());
+            Assertions.assertEquals(Integer.valueOf(24), product.getStock());
+            Assertions.assertEquals(product, warehouse.selectProduct(product3.getId()));
+            Assertions.assertNull(warehouse.selectProduct(product2.getId()).getPrice());
+            Assertions.assertEquals(3, warehouse.selectAllProducts().size());
+            Assertions.assertEquals(1, warehouse.filterProducts(Product.Fields.Category, "Book").size());
+            Assertions.assertEquals(0, store.getMaterializedCount());
+
+            // Product read from file is kept once it is changed, changes of other copies read before go to it
+            Product other = warehouse.selectProduct(product3.getId());
+            product.setPrice(59.99);
+            Assertions.assertEquals(1, store.getMaterializedCount());
+            Assertions.assertSame(product, warehouse.selectProduct(product3.getId()));
+            Assertions.assertTrue(warehouse.reserve(product3.getId(), 4));
+            other.setCategory("Book");
+            Assertions.assertEquals(Integer.valueOf(20), product.getStock());
+            Assertions.assertEquals("Book", product.getCategory());
+            Assertions.assertEquals(Double.valueOf(59.99), warehouse.selectProduct(product3.getId()).getPrice());
+            Assertions.assertEquals(1, store.getMaterializedCount());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void changingMappedProductsTest() throws Exception {
+        Path path = Files.createTempFile("warehouse", ".store");
+        Product product1 = new Product(4, "Thinking in Java", "Book", 34, 65.55);
+        Product product2 = new Product(5, "Learning Java", "Book", 16, 45.99);
+        Product product3 = new Product(6, "Java Design Patterns", "Book", 7, 39.11);
+
+        try {
+            MappedProductStore.write(path, Arrays.asList(product1, product2));
+            Warehouse warehouse = new Warehouse(MappedProductStore.open(path));
+
+            Assertions.assertFalse(warehouse.insertProduct(product1));
+            Assertions.assertTrue(warehouse.insertProduct(product3));
+            Assertions.assertTrue(warehouse.deleteProduct(product1));
+            Assertions.assertFalse(warehouse.deleteProduct(product1));
+            product2.setPrice(49.99);
+            Assertions.assertTrue(warehouse.updateProduct(product2));
+            Assertions.assertTrue(warehouse.reserve(product2.getId(), 6));
+
+            Assertions.assertEquals(2, warehouse.getStorageSize());
+            Assertions.assertNull(warehouse.selectProduct(product1.getId()));
+            Assertions.assertEquals(Integer.valueOf(10), warehouse.selectProduct(product2.getId()).getStock());
+            Assertions.assertEquals(Double.valueOf(49.99), warehouse.selectProduct(product2.getId()).getPrice());
+            Assertions.assertEquals(2, warehouse.selectAllProducts().size());
+            Assertions.assertEquals(1, warehouse.filterProducts(Product.Fields.Name, "Java Design Patterns").size());
+
+            Assertions.assertTrue(warehouse.insertProduct(product1));
+            Assertions.assertEquals(3, warehouse.sortProducts(Product.Fields.Price, true).size());
+
+            warehouse.clearStorage();
+            Assertions.assertTrue(warehouse.isStorageEmpty());
+            Assertions.assertNull(warehouse.selectProduct(product2.getId()));
+            Assertions.assertEquals(0, warehouse.selectAllProducts().size());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void openingManyProductsTest() throws Exception {
+        Path path = Files.createTempFile("warehouse", ".store");
+        List<Product> products = new ArrayList<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            products.add(new Product(i + 1, "Product " + i, "Category " + i % 100, i % 50, 10.0 + i % 100));
+        }
+
+        try {
+            MappedProductStore.write(path, products);
+
+            MappedProductStore store = MappedProductStore.open(path);
+
+            Product last = products.get(products.size() - 1);
+            Assertions.assertEquals(last.getName(), store.get(last.getId()).getName());
+            Assertions.assertEquals(products.size(), new Warehouse(store).selectAllProducts().size());
+            Assertions.assertEquals(0, store.getMaterializedCount());
+            Assertions.assertThrows(IOException.class, () -> MappedProductStore.open(Files.createTempFile("warehouse", ".empty")));
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
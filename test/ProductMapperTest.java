@@ -0,0 +1,77 @@
+import dto.ProductDto;
+import dto.ProductDtoView;
+import mapper.ProductMapper;
+import model.Product;
+import model.Warehouse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+class ProductMapperTest {
+
+    private final Product javaBook = new Product(1, "Thinking in Java", "Book", 34, 65.55);
+    private final Product scalaBook = new Product(2, "Programming in Scala", "Book", 12, 49.99);
+
+    @Test
+    public void mappingProductsInBatchTest() {
+        List<ProductDto> dtos = ProductMapper.MAPPER.productsToProductDtos(Arrays.asList(javaBook, null, scalaBook));
+        Assertions.assertEquals(3, dtos.size());
+        Assertions.assertEquals("Thinking in Java", dtos.get(0).getName());
+        Assertions.assertNull(dtos.get(1));
+        Assertions.assertEquals(Double.valueOf(49.99), dtos.get(2).getPrice());
+        Assertions.assertNull(ProductMapper.MAPPER.productsToProductDtos((List<Product>) null));
+
+        ProductDto[] array = ProductMapper.MAPPER.productsToProductDtos(new Product[]{scalaBook, javaBook});
+        Assertions.assertEquals(Integer.valueOf(2), array[0].getId());
+        Assertions.assertEquals(Integer.valueOf(34), array[1].getStock());
+
+        List<Product> products = ProductMapper.MAPPER.productDtosToProducts(dtos.subList(0, 1));
+        Assertions.assertEquals("Book", products.get(0).getCategory());
+        Assertions.assertEquals(Double.valueOf(65.55), products.get(0).getPrice());
+    }
+
+    @Test
+    public void streamingProductsTest() {
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        warehouse.insertProduct(javaBook);
+        warehouse.insertProduct(scalaBook);
+
+        List<String> names = ProductMapper.MAPPER.productsToProductDtos(warehouse.streamAllProducts())
+                .map(ProductDto::getName).sorted().collect(Collectors.toList());
+        Assertions.assertEquals(Arrays.asList("Programming in Scala", "Thinking in Java"), names);
+
+        List<ProductDto> views = ProductMapper.MAPPER.productsToProductDtoViews(warehouse.streamAllProducts())
+                .collect(Collectors.toList());
+        Assertions.assertEquals(2, views.size());
+        Assertions.assertTrue(views.stream().allMatch(view -> view instanceof ProductDtoView));
+    }
+
+    @Test
+    public void viewingProductTest() {
+        Assertions.assertNull(ProductMapper.MAPPER.productToProductDtoView(null));
+
+        ProductDto view = ProductMapper.MAPPER.productToProductDtoView(javaBook);
+        ProductDto copy = ProductMapper.MAPPER.productToProductDto(javaBook);
+        Assertions.assertEquals(Integer.valueOf(1), view.getId());
+        Assertions.assertEquals("Thinking in Java", view.getName());
+        Assertions.assertEquals(Double.valueOf(65.55), view.getPrice());
+
+        javaBook.setPrice(59.99);
+        Assertions.assertEquals(Double.valueOf(59.99), view.getPrice());
+        Assertions.assertEquals(Double.valueOf(65.55), copy.getPrice());
+
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> view.setName("Effective Java"));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> view.setStock(10));
+
+        List<ProductDto> views = ProductMapper.MAPPER.productsToProductDtoViews(Arrays.asList(javaBook, scalaBook));
+        Assertions.assertEquals(Arrays.asList(1, 2), views.stream().map(ProductDto::getId).collect(Collectors.toList()));
+
+        Product product = ProductMapper.MAPPER.productDtoToProduct(view);
+        Assertions.assertEquals("Thinking in Java", product.getName());
+        Assertions.assertEquals(Integer.valueOf(34), product.getStock());
+    }
+}
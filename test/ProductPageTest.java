@@ -0,0 +1,152 @@
+import model.Product;
+import model.ProductCursor;
+import model.ProductPage;
+import model.Warehouse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+class ProductPageTest {
+
+    private static Warehouse warehouse(int size) {
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        for (int id = 1; id <= size; id++) {
+            warehouse.insertProduct(new Product(id, "Product " + (id * 7 % size), "Category " + id % 3, id % 4, 10.0 + id % 5));
+        }
+        return warehouse;
+    }
+
+    private static List<Integer> readAllPages(Warehouse warehouse, Product.Fields field, boolean ascending, int limit) {
+        List<Integer> ids = new ArrayList<>();
+        ProductCursor cursor = null;
+        do {
+            ProductPage page = warehouse.pageProducts(field, ascending, cursor, limit);
+            Assertions.assertTrue(page.getProducts().size() <= limit);
+            page.getProducts().forEach(p -> ids.add(p.getId()));
+            cursor = page.getNext();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private static List<Integer> sortedIds(Warehouse warehouse, Product.Fields field, boolean ascending) {
+        Comparator<Product> order = field.comparator().thenComparing(Product::getId);
+        return warehouse.selectAllProducts().stream()
+                .sorted(ascending ? order : order.reversed())
+                .map(Product::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void pagingThroughSortedProductsTest() {
+        Warehouse warehouse = warehouse(25);
+        for (Product.Fields field : Arrays.asList(Product.Fields.Stock, Product.Fields.Name, Product.Fields.Price)) {
+            for (boolean ascending : new boolean[]{true, false}) {
+                Assertions.assertEquals(sortedIds(warehouse, field, ascending), readAllPages(warehouse, field, ascending, 10));
+                Assertions.assertEquals(sortedIds(warehouse, field, ascending), readAllPages(warehouse, field, ascending, 25));
+
+                warehouse.createSortedView(field);
+                Assertions.assertEquals(sortedIds(warehouse, field, ascending), readAllPages(warehouse, field, ascending, 10));
+                Assertions.assertEquals(sortedIds(warehouse, field, ascending), readAllPages(warehouse, field, ascending, 1));
+                warehouse.dropIndex(field);
+            }
+        }
+
+        ProductPage last = warehouse.pageProducts(Product.Fields.Id, true, null, 25);
+        Assertions.assertEquals(25, last.getProducts().size());
+        Assertions.assertFalse(last.hasNext());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> last.getProducts().clear());
+    }
+
+    @Test
+    public void pagingThroughProductsWithoutValuesTest() {
+        Warehouse warehouse = warehouse(25);
+        warehouse.insertProduct(new Product(26, null, null, 1, null));
+        warehouse.insertProduct(new Product(27, "Product 27", null, 2, Double.NaN));
+        warehouse.insertProduct(new Product(28, null, "Category 1", 3, null));
+        for (Product.Fields field : Arrays.asList(Product.Fields.Name, Product.Fields.Category, Product.Fields.Price)) {
+            for (boolean ascending : new boolean[]{true, false}) {
+                List<Integer> expected = sortedIds(warehouse, field, ascending);
+                Assertions.assertEquals(expected, readAllPages(warehouse, field, ascending, 4));
+                List<Object> scanned = values(warehouse.sortProducts(field, ascending, 20, 10), field);
+
+                warehouse.createSortedView(field);
+                Assertions.assertEquals(expected, readAllPages(warehouse, field, ascending, 4));
+                Assertions.assertEquals(expected, readAllPages(warehouse, field, ascending, 1));
+                Assertions.assertEquals(28, warehouse.sortProducts(field, ascending).size());
+                Assertions.assertEquals(scanned, values(warehouse.sortProducts(field, ascending, 20, 10), field));
+                warehouse.dropIndex(field);
+            }
+        }
+    }
+
+    private static List<Object> values(List<Product> products, Product.Fields field) {
+        return products.stream().map(p -> p.getSelected(field)).collect(Collectors.toList());
+    }
+
+    @Test
+    public void continuingAfterChangesTest() {
+        for (boolean sortedView : new boolean[]{false, true}) {
+            Warehouse warehouse = warehouse(20);
+            if (sortedView)
+                warehouse.createSortedView(Product.Fields.Id);
+
+            ProductPage first = warehouse.pageProducts(Product.Fields.Id, true, null, 5);
+            Assertions.assertEquals(Arrays.asList(1, 2, 3, 4, 5), first.getProducts().stream().map(Product::getId).collect(Collectors.toList()));
+            Assertions.assertEquals(5, first.getNext().getId());
+
+            // Products before cursor neither shift nor repeat the next page
+            warehouse.deleteProduct(warehouse.selectProduct(2));
+            warehouse.insertProduct(new Product(0, "Product 0", "Category 0", 1, 10.0));
+            warehouse.deleteProduct(warehouse.selectProduct(7));
+
+            ProductPage second = warehouse.pageProducts(Product.Fields.Id, true, first.getNext(), 5);
+            Assertions.assertEquals(Arrays.asList(6, 8, 9, 10, 11), second.getProducts().stream().map(Product::getId).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void restoringCursorTest() {
+        Warehouse warehouse = warehouse(20);
+        ProductPage first = warehouse.pageProducts(Product.Fields.Price, false, null, 6);
+        ProductCursor next = first.getNext();
+        Assertions.assertEquals(Product.Fields.Price, next.getField());
+        Assertions.assertFalse(next.isAscending());
+
+        ProductCursor restored = new ProductCursor(Product.Fields.Price, false, next.getValue(), next.getId());
+        Assertions.assertEquals(
+                warehouse.pageProducts(Product.Fields.Price, false, next, 6).getProducts(),
+                warehouse.pageProducts(Product.Fields.Price, false, restored, 6).getProducts());
+
+        Assertions.assertNull(warehouse.pageProducts(Product.Fields.Price, true, next, 6));
+        Assertions.assertNull(warehouse.pageProducts(Product.Fields.Stock, false, next, 6));
+        Assertions.assertNull(warehouse.pageProducts(Product.Fields.Price, false, null, 0));
+        Assertions.assertNull(warehouse.pageProducts(null, false, null, 6));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ProductCursor(Product.Fields.Price, true, 10, 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ProductCursor(null, true, 10, 1));
+        Assertions.assertEquals(Integer.valueOf(4), new ProductCursor(Product.Fields.Id, true, 4, 9).getValue());
+    }
+
+    @Test
+    public void streamingFilteredProductsTest() {
+        Warehouse warehouse = warehouse(30);
+        Assertions.assertNull(warehouse.streamProducts(Product.Fields.Category, null));
+
+        int[] matched = {0};
+        List<Product> firstTwo = warehouse.streamProducts(Product.Fields.Category, "Category 1")
+                .peek(p -> matched[0]++).limit(2).collect(Collectors.toList());
+        Assertions.assertEquals(2, firstTwo.size());
+        Assertions.assertEquals(2, matched[0]);
+        Assertions.assertEquals(10, warehouse.streamProducts(Product.Fields.Category, "Category 1").count());
+
+        warehouse.createIndex(Product.Fields.Category, false);
+        Assertions.assertEquals(10, warehouse.streamProducts(Product.Fields.Category, "Category 1").count());
+        Assertions.assertTrue(warehouse.streamProducts(Product.Fields.Category, "Category 1")
+                .allMatch(p -> p.getCategory().equals("Category 1")));
+    }
+}
@@ -0,0 +1,110 @@
+import model.BulkLoadResult;
+import model.Product;
+import model.ProductQuery;
+import model.ShardedWarehouse;
+import model.Warehouse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+class ShardedWarehouseTest {
+
+    @Test
+    public void routingProductsToShardsTest() {
+        try (ShardedWarehouse warehouse = new ShardedWarehouse(4)) {
+            Product product1 = new Product(1, "Thinking in Java", "Book", 34, 65.55);
+            Product product2 = new Product(2, "Learning Java", "Book", 16, 45.99);
+
+            Assertions.assertEquals(4, warehouse.getShardCount());
+            Assertions.assertTrue(warehouse.isStorageEmpty());
+            Assertions.assertTrue(warehouse.insertAllProducts(Arrays.asList(product1, product2)));
+            Product product3 = warehouse.createProduct("Java Design Patterns", "Book", 7, 39.11);
+            Assertions.assertTrue(warehouse.insertProduct(product3));
+            Assertions.assertFalse(warehouse.insertAllProducts(Arrays.asList(new Product(5, "Effective Java", "Book", 1, 1.0), product1)));
+            Assertions.assertNull(warehouse.selectProduct(5));
+            Assertions.assertEquals(3, warehouse.getStorageSize());
+
+            Assertions.assertSame(product2, warehouse.selectProduct(2));
+            product2.setCategory("Ebook");
+            Assertions.assertTrue(warehouse.updateProduct(product2));
+            Assertions.assertTrue(warehouse.reserve(product3.getId(), 7));
+            Assertions.assertFalse(warehouse.reserve(product3.getId(), 1));
+            Assertions.assertTrue(warehouse.commit(product3.getId(), 7));
+            Assertions.assertTrue(warehouse.deleteProduct(product1));
+            Assertions.assertFalse(warehouse.deleteProduct(product1));
+
+            Assertions.assertEquals(2, warehouse.selectAllProducts().size());
+            List<Product> ebooks = warehouse.filterProducts(Product.Fields.Category, "Ebook");
+            Assertions.assertEquals(1, ebooks.size());
+            Assertions.assertEquals(product2.getId(), ebooks.get(0).getId());
+            Assertions.assertEquals("Learning Java", ebooks.get(0).getName());
+
+            warehouse.clearStorage();
+            Assertions.assertTrue(warehouse.isStorageEmpty());
+        }
+    }
+
+    @Test
+    public void mergingShardsLikeSingleWarehouseTest() {
+        Random random = new Random(15);
+        List<Product> products = IntStream.rangeClosed(1, 5_000)
+                .mapToObj(id -> new Product(id, "Product " + random.nextInt(1_000), random.nextBoolean() ? "Book" : "Ebook",
+                        random.nextInt(100), (double) random.nextInt(10_000)))
+                .collect(Collectors.toList());
+        Warehouse single = new Warehouse();
+        single.insertAllProducts(products);
+
+        try (ShardedWarehouse warehouse = new ShardedWarehouse(3)) {
+            BulkLoadResult result = warehouse.loadProducts(products.stream());
+            Assertions.assertEquals(5_000, result.getLoaded());
+            Assertions.assertTrue(warehouse.createIndex(Product.Fields.Category));
+            Assertions.assertTrue(warehouse.createSortedView(Product.Fields.Price));
+
+            Assertions.assertEquals(ids(single.filterProducts(Product.Fields.Category, "Ebook")),
+                    ids(warehouse.filterProducts(Product.Fields.Category, "Ebook")));
+            Assertions.assertEquals(ids(single.filterProducts(Product.Fields.Stock, 42)),
+                    ids(warehouse.filterProducts(Product.Fields.Stock, 42)));
+
+            Assertions.assertEquals(values(single.sortProducts(Product.Fields.Price, true), Product.Fields.Price),
+                    values(warehouse.sortProducts(Product.Fields.Price, true), Product.Fields.Price));
+            Assertions.assertEquals(values(single.sortProducts(Product.Fields.Stock, false), Product.Fields.Stock),
+                    values(warehouse.sortProducts(Product.Fields.Stock, false), Product.Fields.Stock));
+            Assertions.assertEquals(values(single.sortProducts(Product.Fields.Name, true, 100, 25), Product.Fields.Name),
+                    values(warehouse.sortProducts(Product.Fields.Name, true, 100, 25), Product.Fields.Name));
+            Assertions.assertEquals(0, warehouse.sortProducts(Product.Fields.Id, true, 6_000, 10).size());
+
+            List<Product> cheapBooks = warehouse.query(new ProductQuery().equalTo(Product.Fields.Category, "Book")
+                    .lessThan(Product.Fields.Price, 500.0).limit(10));
+            Assertions.assertEquals(10, cheapBooks.size());
+            cheapBooks.forEach(product -> Assertions.assertTrue(product.getPrice() < 500.0));
+        }
+    }
+
+    @Test
+    public void creatingProductsAfterLoadingTest() {
+        try (ShardedWarehouse warehouse = new ShardedWarehouse(2)) {
+            Product created = warehouse.createProduct("Effective Java", "Book", 10, 52.5);
+            List<Product> loaded = IntStream.rangeClosed(created.getId() + 1, created.getId() + 10)
+                    .mapToObj(id -> new Product(id, "Product " + id, "Book", id, 9.99))
+                    .collect(Collectors.toList());
+
+            Assertions.assertEquals(10, warehouse.loadProducts(loaded.stream()).getLoaded());
+            Assertions.assertTrue(warehouse.insertProduct(created));
+            // Block reserved by this thread before loading covers loaded ids
+            Product product = warehouse.createProduct("Java Puzzlers", "Book", 3, 31.2);
+            Assertions.assertTrue(product.getId() > created.getId() + 10);
+            Assertions.assertTrue(warehouse.insertProduct(product));
+        }
+    }
+
+    private static Set<Integer> ids(List<Product> products) {
+        return products.stream().map(Product::getId).collect(Collectors.toSet());
+    }
+
+    private static List<Object> values(List<Product> products, Product.Fields field) {
+        return products.stream().map(product -> product.getSelected(field)).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,160 @@
+import model.Product;
+import model.Warehouse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import storage.SnapshotConverter;
+import storage.SnapshotReader;
+import storage.SnapshotWriter;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+class SnapshotTest {
+
+    @Test
+    public void writingAndReadingSnapshotTest() throws Exception {
+        Path path = Files.createTempFile("warehouse", ".snapshot");
+        String longName = String.join("", Collections.nCopies(100_000, "Żółw "));
+        List<Product> products = Arrays.asList(
+                new Product(1, "Thinking in Java", "Book", 34, 65.55),
+                new Product(2, longName, null, 0, null),
+                new Product(3, null, "Książka", 16, 45.99));
+
+        try (SnapshotWriter writer = new SnapshotWriter(path)) {
+            for (Product product : products) {
+                writer.write(product);
+            }
+        }
+
+        Assertions.assertTrue(SnapshotReader.isSnapshot(path));
+
+        try (SnapshotReader reader = new SnapshotReader(path)) {
+            Assertions.assertEquals(3, reader.getCount());
+
+            for (Product expected : products) {
+                Product product = reader.next();
+                Assertions.assertEquals(expected.getId(), product.getId());
+                Assertions.assertEquals(expected.getName(), product.getName());
+                Assertions.assertEquals(expected.getCategory(), product.getCategory());
+                Assertions.assertEquals(expected.getStock(), product.getStock());
+                Assertions.assertEquals(expected.getPrice(), product.getPrice());
+            }
+            Assertions.assertFalse(reader.hasNext());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void readingTruncatedSnapshotTest() throws Exception {
+        Path path = Files.createTempFile("warehouse", ".snapshot");
+        Warehouse warehouse = new Warehouse();
+
+        warehouse.insertProduct(new Product(4, "Learning Java", "Book", 16, 45.99));
+        warehouse.insertProduct(new Product(5, "Java Design Patterns", "Book", 7, 39.11));
+        warehouse.writeStorageToFile(path.toString());
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try {
+            Assertions.assertThrows(IOException.class, () -> warehouse.readStorageFromFile(path.toString()));
+            Assertions.assertEquals(2, warehouse.getStorageSize());
+            Assertions.assertFalse(SnapshotReader.isSnapshot(path.resolveSibling("FileNotExists.snapshot")));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void persistingHighWaterMarkTest() throws Exception {
+        Path path = Files.createTempFile("warehouse", ".snapshot");
+        Warehouse warehouse = new Warehouse();
+        Product first = warehouse.createProduct("Effective Java", "Book", 10, 52.5);
+        Product second = warehouse.createProduct("Java Puzzlers", "Book", 3, 31.2);
+
+        warehouse.insertProduct(first);
+        warehouse.insertProduct(second);
+        warehouse.deleteProduct(second);
+        warehouse.writeStorageToFile(path.toString());
+
+        try {
+            Warehouse restored = new Warehouse();
+            restored.readStorageFromFile(path.toString());
+            Assertions.assertEquals(1, restored.getStorageSize());
+            Assertions.assertTrue(restored.createProduct("Java Generics", "Book", 1, 25.0).getId() > second.getId());
+
+            byte[] bytes = Files.readAllBytes(path);
+            ByteBuffer legacy = ByteBuffer.allocate(bytes.length - 8);
+            legacy.put(bytes, 0, 4).putInt(1).put(bytes, 8, 8).put(bytes, 24, bytes.length - 24);
+            Files.write(path, legacy.array());
+
+            try (SnapshotReader reader = new SnapshotReader(path)) {
+                Assertions.assertEquals(0, reader.getHighWaterMark());
+                Assertions.assertEquals(first.getName(), reader.next().getName());
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void creatingProductsAfterReadingTest() throws Exception {
+        Path path = Files.createTempFile("warehouse", ".snapshot");
+        Warehouse written = new Warehouse();
+        for (int i = 0; i < 5; i++) {
+            written.insertProduct(written.createProduct("Product " + i, "Book", i, 9.99));
+        }
+        written.writeStorageToFile(path.toString());
+
+        try {
+            // Block of this thread has been reserved before stored ids are read
+            Warehouse warehouse = new Warehouse();
+            Product created = warehouse.createProduct("Effective Java", "Book", 10, 52.5);
+            warehouse.readStorageFromFile(path.toString());
+
+            Product product = warehouse.createProduct("Java Puzzlers", "Book", 3, 31.2);
+            Assertions.assertEquals(created.getId(), warehouse.selectProduct(created.getId()).getId());
+            Assertions.assertTrue(product.getId() > written.getIdAllocator().getHighWaterMark());
+            Assertions.assertNull(warehouse.selectProduct(product.getId()));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void convertingSerializedFileTest() throws Exception {
+        Path source = Files.createTempFile("warehouse", ".dat");
+        Path target = Files.createTempFile("warehouse", ".snapshot");
+        HashMap<Integer, Product> storage = new HashMap<>();
+        Product product = new Product(6, "Java Concurrent Programming", "Book", 24, 78.99);
+
+        storage.put(product.getId(), product);
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(new FileOutputStream(source.toFile()))) {
+            objectOutputStream.writeObject(storage);
+        }
+
+        Warehouse warehouse = new Warehouse();
+        try {
+            warehouse.readStorageFromFile(source.toString());
+            Assertions.assertEquals(product.getName(), warehouse.selectProduct(product.getId()).getName());
+
+            Assertions.assertEquals(1, SnapshotConverter.convert(source, target));
+            warehouse.clearStorage();
+            warehouse.readStorageFromFile(target.toString());
+
+            Assertions.assertEquals(Double.valueOf(78.99), warehouse.selectProduct(product.getId()).getPrice());
+        } finally {
+            Files.delete(source);
+            Files.delete(target);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+import model.Product;
+import model.Warehouse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+class TextSearchTest {
+
+    private static Warehouse warehouse() {
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        warehouse.insertProduct(new Product(1, "Thinking in Java", "Book", 34, 65.55));
+        warehouse.insertProduct(new Product(2, "Effective Java", "Book", 12, 49.99));
+        warehouse.insertProduct(new Product(3, "JavaScript: The Good Parts", "Book", 7, 29.99));
+        warehouse.insertProduct(new Product(4, "Java Kompedium programisty IX", "Książka", 62, 149.99));
+        warehouse.insertProduct(new Product(5, "Programming in Scala", "Book", 5, 39.99));
+        return warehouse;
+    }
+
+    private static List<Integer> ids(List<Product> products) {
+        return products.stream().map(Product::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void searchingWordsTest() {
+        Warehouse warehouse = warehouse();
+        Assertions.assertNull(warehouse.searchProducts("java", 10));
+        Assertions.assertTrue(warehouse.enableTextSearch());
+        Assertions.assertFalse(warehouse.enableTextSearch());
+
+        // Whole words only, without case, shorter names first among equal matches
+        Assertions.assertEquals(Arrays.asList(2, 1, 4), ids(warehouse.searchProducts("JAVA", 10)));
+        Assertions.assertEquals(Arrays.asList(2, 1), ids(warehouse.searchProducts("java", 2)));
+
+        // Rare word counts more than common one, matching both counts the most
+        Assertions.assertEquals(Arrays.asList(1, 5, 2, 4), ids(warehouse.searchProducts("thinking in java", 4)));
+        Assertions.assertEquals(Arrays.asList(5), ids(warehouse.searchProducts("scala", 10)));
+        Assertions.assertTrue(warehouse.searchProducts("python", 10).isEmpty());
+        Assertions.assertTrue(warehouse.searchProducts("  ", 10).isEmpty());
+        Assertions.assertNull(warehouse.searchProducts("java", 0));
+        Assertions.assertNull(warehouse.searchProducts(null, 10));
+    }
+
+    @Test
+    public void completingTypedTextTest() {
+        Warehouse warehouse = warehouse();
+        warehouse.enableTextSearch();
+
+        Assertions.assertEquals(Arrays.asList(3), ids(warehouse.autocomplete("javas", 10)));
+        List<Integer> java = ids(warehouse.autocomplete("Jav", 10));
+        Assertions.assertEquals(4, java.size());
+        Assertions.assertEquals(3, java.get(3).intValue());
+        Assertions.assertEquals(2, warehouse.autocomplete("jav", 2).size());
+
+        Assertions.assertEquals(Arrays.asList(1), ids(warehouse.autocomplete("thinking ja", 10)));
+        Assertions.assertEquals(Arrays.asList(4, 5), ids(warehouse.autocomplete("prog", 10)).stream().sorted().collect(Collectors.toList()));
+        Assertions.assertEquals(Arrays.asList(4), ids(warehouse.autocomplete("java progr", 10)));
+        Assertions.assertTrue(warehouse.autocomplete("python ja", 10).isEmpty());
+        Assertions.assertTrue(warehouse.autocomplete("", 10).isEmpty());
+        Assertions.assertNull(warehouse.autocomplete("ja", -1));
+    }
+
+    @Test
+    public void followingChangesOfNamesTest() {
+        Warehouse warehouse = warehouse();
+        warehouse.enableTextSearch();
+
+        warehouse.updateProduct(new Product(2, "Effective Kotlin", "Book", 12, 49.99));
+        Assertions.assertEquals(Arrays.asList(1, 4), ids(warehouse.searchProducts("java", 10)));
+        Assertions.assertEquals(Arrays.asList(2), ids(warehouse.autocomplete("kot", 10)));
+
+        // Name changed in place is removed under words it has been indexed with
+        Product stored = warehouse.selectProduct(5);
+        stored.setName("Programming in Rust");
+        warehouse.updateProduct(stored);
+        Assertions.assertTrue(warehouse.searchProducts("scala", 10).isEmpty());
+        Assertions.assertEquals(Arrays.asList(5), ids(warehouse.searchProducts("rust", 10)));
+
+        warehouse.deleteProduct(warehouse.selectProduct(1));
+        Assertions.assertTrue(warehouse.autocomplete("think", 10).isEmpty());
+        warehouse.insertProduct(new Product(6, "Java Concurrency in Practice", "Book", 3, 59.99));
+        Assertions.assertEquals(Arrays.asList(6), ids(warehouse.autocomplete("concur", 10)));
+
+        warehouse.clearStorage();
+        Assertions.assertTrue(warehouse.searchProducts("java", 10).isEmpty());
+
+        Assertions.assertTrue(warehouse.disableTextSearch());
+        Assertions.assertFalse(warehouse.disableTextSearch());
+        Assertions.assertNull(warehouse.autocomplete("ja", 10));
+    }
+
+    @Test
+    public void completingLikeScanOfNamesTest() {
+        Random random = new Random(25);
+        String[] vocabulary = {"java", "javascript", "jazz", "kotlin", "scala", "script", "scheme", "go", "groovy", "in"};
+        List<Integer> ids = IntStream.rangeClosed(1, 2_000).boxed().collect(Collectors.toList());
+        Collections.shuffle(ids, random);
+
+        // Products are inserted out of order of ids and some of them are deleted or renamed afterwards
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        warehouse.enableTextSearch();
+        for (int id : ids) {
+            warehouse.insertProduct(new Product(id, name(random, vocabulary) + (id % 400 == 0 ? " rare" : ""), "Book", 1, 9.99));
+        }
+        for (int id : ids.subList(0, 300)) {
+            warehouse.deleteProduct(warehouse.selectProduct(id));
+        }
+        for (int id : ids.subList(300, 600)) {
+            warehouse.updateProduct(new Product(id, name(random, vocabulary), "Book", 1, 9.99));
+        }
+
+        // Many completions of w are walked until they cost more than matching names of products containing rare
+        for (String text : Arrays.asList("ja", "s", "java sc", "in j", "go in s", "scheme g", "jazz kotlin scala j",
+                "groovy x", "w1", "rare w", "rare java w", "java w2")) {
+            for (int limit : new int[]{1, 10, 1_000}) {
+                Assertions.assertEquals(scan(warehouse, text, limit), ids(warehouse.autocomplete(text, limit)), text);
+            }
+        }
+    }
+
+    private static String name(Random random, String[] vocabulary) {
+        StringBuilder name = new StringBuilder(vocabulary[random.nextInt(vocabulary.length)]).append(" w").append(random.nextInt(500));
+        for (int words = random.nextInt(4); words > 0; words--) {
+            name.append(' ').append(vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        return name.toString();
+    }
+
+    /**
+     * @return Returns ids of products containing all complete words of text, ordered by the first word completing
+     * the last one and then by id
+     */
+    private static List<Integer> scan(Warehouse warehouse, String text, int limit) {
+        List<String> typed = new ArrayList<>(Arrays.asList(text.split(" ")));
+        String prefix = typed.remove(typed.size() - 1);
+        Map<Product, String> completions = new HashMap<>();
+        for (Product product : warehouse.selectAllProducts()) {
+            List<String> words = Arrays.asList(product.getName().split(" "));
+            Optional<String> completion = words.stream().filter(word -> word.startsWith(prefix)).sorted().findFirst();
+            if (words.containsAll(typed) && completion.isPresent())
+                completions.put(product, completion.get());
+        }
+        return completions.entrySet().stream()
+                .sorted(Map.Entry.<Product, String>comparingByValue().thenComparing(entry -> entry.getKey().getId()))
+                .limit(limit)
+                .map(entry -> entry.getKey().getId())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,181 @@
+import model.Product;
+import model.Transaction;
+import model.Warehouse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+class TransactionTest {
+
+    @Test
+    public void committingManyProductsTogetherTest() {
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        warehouse.insertProduct(new Product(1, "Thinking in Java", "Book", 34, 65.55));
+        warehouse.insertProduct(new Product(2, "Learning Java", "Book", 4, 45.99));
+        warehouse.insertProduct(new Product(3, "Java Design Patterns", "Book", 7, 39.11));
+
+        Assertions.assertNull(warehouse.beginTransaction());
+        Assertions.assertTrue(warehouse.enableTransactions());
+        Assertions.assertFalse(warehouse.enableTransactions());
+
+        Transaction transaction = warehouse.beginTransaction();
+        Product product = transaction.read(1);
+        product.setPrice(59.99);
+        Assertions.assertTrue(transaction.update(product));
+        Assertions.assertTrue(transaction.reserve(1, 4));
+        Assertions.assertTrue(transaction.reserve(2, 4));
+        Assertions.assertTrue(transaction.delete(3));
+        Assertions.assertTrue(transaction.insert(new Product(4, "Effective Java", "Book", 10, 52.5)));
+        Assertions.assertFalse(transaction.reserve(2, 0));
+        Assertions.assertFalse(transaction.update(null));
+        Assertions.assertEquals(Double.valueOf(65.55), warehouse.selectProduct(1).getPrice());
+
+        Assertions.assertTrue(transaction.commit());
+        Assertions.assertFalse(transaction.commit());
+        Assertions.assertEquals(Double.valueOf(59.99), warehouse.selectProduct(1).getPrice());
+        Assertions.assertEquals(4, warehouse.selectProduct(1).getReserved());
+        Assertions.assertEquals(Integer.valueOf(0), warehouse.selectProduct(2).getStock());
+        Assertions.assertNull(warehouse.selectProduct(3));
+        Assertions.assertEquals("Effective Java", warehouse.selectProduct(4).getName());
+    }
+
+    @Test
+    public void applyingNothingOnConflictTest() {
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        warehouse.enableTransactions();
+        warehouse.insertProduct(new Product(1, "Thinking in Java", "Book", 34, 65.55));
+        warehouse.insertProduct(new Product(2, "Learning Java", "Book", 4, 45.99));
+
+        Transaction lostUpdate = warehouse.beginTransaction();
+        Product product = lostUpdate.read(1);
+        product.setName("Thinking in Java, 4th Edition");
+        lostUpdate.update(product);
+        lostUpdate.reserve(2, 1);
+        warehouse.updateProduct(new Product(1, "Thinking in Java", "Ebook", 34, 65.55));
+
+        Assertions.assertFalse(lostUpdate.commit());
+        Assertions.assertEquals(Collections.singletonList(1), lostUpdate.getConflicts());
+        Assertions.assertEquals("Thinking in Java", warehouse.selectProduct(1).getName());
+        Assertions.assertEquals(0, warehouse.selectProduct(2).getReserved());
+
+        Transaction oversell = warehouse.beginTransaction();
+        oversell.reserve(1, 30);
+        oversell.reserve(2, 3);
+        oversell.reserve(2, 3);
+        Assertions.assertFalse(oversell.commit());
+        Assertions.assertEquals(Collections.singletonList(2), oversell.getConflicts());
+        Assertions.assertEquals(0, warehouse.selectProduct(1).getReserved());
+
+        Transaction recreated = warehouse.beginTransaction();
+        recreated.read(2);
+        warehouse.deleteProduct(warehouse.selectProduct(2));
+        warehouse.insertProduct(new Product(2, "Learning Java", "Book", 4, 45.99));
+        recreated.delete(2);
+        Assertions.assertFalse(recreated.commit());
+
+        Transaction deleted = warehouse.beginTransaction();
+        deleted.delete(2);
+        deleted.reserve(2, 1);
+        Assertions.assertFalse(deleted.commit());
+        Assertions.assertNotNull(warehouse.selectProduct(2));
+
+        Transaction rolledBack = warehouse.beginTransaction();
+        rolledBack.reserve(1, 1);
+        rolledBack.rollback();
+        Assertions.assertFalse(rolledBack.commit());
+        Assertions.assertEquals(0, warehouse.selectProduct(1).getReserved());
+    }
+
+    @Test
+    public void replayingUpdatesOfCopiesTest() {
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        warehouse.enableTransactions();
+        warehouse.insertProduct(new Product(1, "Thinking in Java", "Book", 10, 65.55));
+
+        // Update of copy keeps stock reserved before it, so it does not make stock for later reservation
+        Transaction oversell = warehouse.beginTransaction();
+        Product product = oversell.read(1);
+        oversell.reserve(1, 5);
+        oversell.update(product);
+        oversell.reserve(1, 8);
+        Assertions.assertFalse(oversell.commit());
+        Assertions.assertEquals(Collections.singletonList(1), oversell.getConflicts());
+        Assertions.assertEquals(10, warehouse.selectProduct(1).getStockAsInt());
+        Assertions.assertEquals(0, warehouse.selectProduct(1).getReserved());
+
+        // Stock added on copy is added to stock left after reservations
+        Transaction restock = warehouse.beginTransaction();
+        product = restock.read(1);
+        restock.reserve(1, 5);
+        product.setStock(product.getStock() + 5);
+        restock.update(product);
+        restock.reserve(1, 10);
+        Assertions.assertTrue(restock.commit());
+        Assertions.assertEquals(0, warehouse.selectProduct(1).getStockAsInt());
+        Assertions.assertEquals(15, warehouse.selectProduct(1).getReserved());
+    }
+
+    @Test
+    public void checkingOutOrdersConcurrentlyTest() throws Exception {
+        int threads = 8;
+        int products = 20;
+        int stock = 100;
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        for (int id = 1; id <= products; id++) {
+            warehouse.insertProduct(new Product(id, "Product " + id, "Book", stock, 0.0));
+        }
+        warehouse.enableTransactions();
+
+        int[] ordered = new int[products + 1];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<int[]>> futures = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            int seed = thread;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                int[] reserved = new int[products + 1];
+                for (int order = 0; order < 500; order++) {
+                    int first = random.nextInt(products) + 1;
+                    int second = random.nextInt(products) + 1;
+                    Transaction transaction = warehouse.beginTransaction();
+                    transaction.reserve(first, 1);
+                    transaction.reserve(second, 2);
+                    if (transaction.commit()) {
+                        reserved[first] += 1;
+                        reserved[second] += 2;
+                    }
+
+                    // Price is raised by read-modify-write, which has to be retried when another thread was faster
+                    while (true) {
+                        Transaction raise = warehouse.beginTransaction();
+                        Product product = raise.read(first);
+                        product.setPrice(product.getPrice() + 1);
+                        raise.update(product);
+                        if (raise.commit())
+                            break;
+                    }
+                }
+                return reserved;
+            }));
+        }
+        for (Future<int[]> future : futures) {
+            int[] reserved = future.get();
+            for (int id = 1; id <= products; id++) {
+                ordered[id] += reserved[id];
+            }
+        }
+        executor.shutdown();
+
+        double raised = 0;
+        for (int id = 1; id <= products; id++) {
+            Product product = warehouse.selectProduct(id);
+            Assertions.assertEquals(ordered[id], product.getReserved());
+            Assertions.assertEquals(stock, product.getStock() + product.getReserved());
+            Assertions.assertTrue(product.getStock() >= 0);
+            raised += product.getPrice();
+        }
+        Assertions.assertEquals(threads * 500, raised);
+    }
+}
@@ -0,0 +1,127 @@
+import model.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+
+class WarehouseMetricsTest {
+
+    @Test
+    public void countingOperationsTest() throws Exception {
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        Assertions.assertNull(warehouse.getMetrics());
+        Assertions.assertFalse(warehouse.enableMetrics(0));
+        Assertions.assertTrue(warehouse.enableMetrics(1));
+        Assertions.assertFalse(warehouse.enableMetrics(1));
+        WarehouseMetrics metrics = warehouse.getMetrics();
+        Assertions.assertEquals(1, metrics.getSamplingInterval());
+
+        for (int id = 1; id <= 10; id++) {
+            warehouse.insertProduct(new Product(id, "Product " + id, id % 2 == 0 ? "Book" : "Ebook", 10, 9.99));
+        }
+        warehouse.selectProduct(1);
+        warehouse.selectProduct(42);
+        warehouse.updateProduct(new Product(1, "Thinking in Java", "Book", 34, 65.55));
+        warehouse.reserve(1, 4);
+        warehouse.release(1, 2);
+        warehouse.deleteProduct(warehouse.selectProduct(10));
+        Assertions.assertEquals(5, warehouse.filterProducts(Product.Fields.Category, "Book").size());
+        Assertions.assertEquals(9, warehouse.sortProducts(Product.Fields.Price, true).size());
+        Assertions.assertEquals(3, warehouse.sortProducts(Product.Fields.Id, false, 0, 3).size());
+
+        File file = File.createTempFile("metrics", ".bin");
+        try {
+            warehouse.writeStorageToFile(file.getPath());
+            warehouse.readStorageFromFile(file.getPath());
+        } finally {
+            file.delete();
+        }
+
+        Assertions.assertEquals(10, metrics.getCount(WarehouseMetrics.Operation.Insert));
+        Assertions.assertEquals(3, metrics.getCount(WarehouseMetrics.Operation.Select));
+        Assertions.assertEquals(1, metrics.getCount(WarehouseMetrics.Operation.Update));
+        Assertions.assertEquals(2, metrics.getCount(WarehouseMetrics.Operation.StockChange));
+        Assertions.assertEquals(1, metrics.getCount(WarehouseMetrics.Operation.Delete));
+        Assertions.assertEquals(1, metrics.getCount(WarehouseMetrics.Operation.Filter));
+        Assertions.assertEquals(2, metrics.getCount(WarehouseMetrics.Operation.Sort));
+        Assertions.assertEquals(1, metrics.getCount(WarehouseMetrics.Operation.SnapshotWrite));
+        Assertions.assertEquals(1, metrics.getCount(WarehouseMetrics.Operation.SnapshotRead));
+
+        Histogram latency = metrics.getLatency(WarehouseMetrics.Operation.Select);
+        Assertions.assertEquals(3, latency.getCount());
+        Assertions.assertTrue(latency.getMax() > 0);
+        Assertions.assertTrue(latency.getValueAtPercentile(50) <= latency.getMax());
+
+        Assertions.assertEquals(1, metrics.getScanSizes().getCount());
+        Assertions.assertEquals(9, metrics.getScanSizes().getMax());
+        Assertions.assertEquals(3, metrics.getResultSizes().getCount());
+        Assertions.assertEquals(9, metrics.getResultSizes().getMax());
+
+        Assertions.assertTrue(warehouse.disableMetrics());
+        Assertions.assertFalse(warehouse.disableMetrics());
+        warehouse.selectProduct(1);
+        Assertions.assertEquals(3, metrics.getCount(WarehouseMetrics.Operation.Select));
+    }
+
+    @Test
+    public void recordingHistogramTest() {
+        Histogram histogram = new Histogram();
+        Assertions.assertEquals(0, histogram.getValueAtPercentile(99));
+        Assertions.assertEquals(0, histogram.getMean());
+
+        for (int value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-5);
+
+        Assertions.assertEquals(1001, histogram.getCount());
+        Assertions.assertEquals(1000, histogram.getMax());
+        Assertions.assertEquals(500_500.0 / 1001, histogram.getMean(), 1e-9);
+        Assertions.assertEquals(0, histogram.getValueAtPercentile(0));
+        Assertions.assertEquals(1000, histogram.getValueAtPercentile(100));
+
+        long median = histogram.getValueAtPercentile(50);
+        Assertions.assertTrue(median >= 500 && median <= 500 * 1.07, "median " + median);
+        long tail = histogram.getValueAtPercentile(99);
+        Assertions.assertTrue(tail >= 990 && tail <= 1000, "tail " + tail);
+    }
+
+    @Test
+    public void exportingMetricsTest() throws Exception {
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        Assertions.assertTrue(warehouse.enableMetrics(4));
+        WarehouseMetrics metrics = warehouse.getMetrics();
+        Assertions.assertEquals(4, metrics.getSamplingInterval());
+        warehouse.insertProduct(new Product(1, "Thinking in Java", "Book", 34, 65.55));
+        for (int i = 0; i < 100; i++) {
+            warehouse.selectProduct(1);
+        }
+
+        StringBuilder text = new StringBuilder();
+        new TextMetricsExporter(text).export(metrics);
+        Assertions.assertTrue(text.toString().startsWith("operation"));
+        Assertions.assertTrue(text.toString().contains("Select"));
+        Assertions.assertTrue(text.toString().contains("scan size"));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new JmxMetricsExporter("invalid"));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("warehouse:type=Metrics,name=test");
+        try (JmxMetricsExporter exporter = new JmxMetricsExporter(name.toString())) {
+            exporter.export(metrics);
+            Assertions.assertTrue(server.isRegistered(name));
+            Assertions.assertEquals(100L, server.getAttribute(name, "SelectCount"));
+            Assertions.assertTrue((Long) server.getAttribute(name, "SelectSamples") <= 100);
+
+            warehouse.selectProduct(1);
+            Assertions.assertEquals(101L, server.getAttribute(name, "SelectCount"));
+        } catch (IOException e) {
+            Assertions.fail(e);
+        }
+        Assertions.assertFalse(server.isRegistered(name));
+    }
+}
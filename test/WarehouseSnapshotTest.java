@@ -0,0 +1,149 @@
+import model.Product;
+import model.Warehouse;
+import model.WarehouseSnapshot;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+class WarehouseSnapshotTest {
+
+    @Test
+    public void readingPointInTimeViewTest() {
+        Warehouse warehouse = new Warehouse();
+        Product product1 = new Product(1, "Thinking in Java", "Book", 34, 65.55);
+        Product product2 = new Product(2, "Learning Java", "Book", 16, 45.99);
+        warehouse.insertProduct(product1);
+
+        Assertions.assertNull(warehouse.snapshot());
+        Assertions.assertTrue(warehouse.enableSnapshots());
+        Assertions.assertFalse(warehouse.enableSnapshots());
+        warehouse.insertProduct(product2);
+        Assertions.assertTrue(warehouse.reserve(2, 6));
+
+        WarehouseSnapshot before = warehouse.snapshot();
+        product1.setPrice(59.99);
+        warehouse.updateProduct(product1);
+        warehouse.deleteProduct(product2);
+        warehouse.insertProduct(new Product(3, "Java Design Patterns", "Ebook", 7, 39.11));
+        WarehouseSnapshot after = warehouse.snapshot();
+
+        Assertions.assertTrue(after.getVersion() > before.getVersion());
+        Assertions.assertEquals(2, before.getStorageSize());
+        Assertions.assertEquals(Double.valueOf(65.55), before.selectProduct(1).getPrice());
+        Assertions.assertEquals(Integer.valueOf(10), before.selectProduct(2).getStock());
+        Assertions.assertEquals(6, before.selectProduct(2).getReserved());
+        Assertions.assertNull(before.selectProduct(3));
+        Assertions.assertNull(before.selectProduct(null));
+
+        Assertions.assertEquals(Double.valueOf(59.99), after.selectProduct(1).getPrice());
+        Assertions.assertNull(after.selectProduct(2));
+        Assertions.assertEquals(Arrays.asList(3, 1), after.sortProducts(Product.Fields.Price, true).stream()
+                .map(Product::getId).collect(Collectors.toList()));
+        Assertions.assertEquals(1, after.filterProducts(Product.Fields.Category, "Ebook").size());
+
+        Product frozen = before.selectProduct(1);
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> frozen.setPrice(1.0));
+        Product copy = frozen.copy();
+        copy.setPrice(1.0);
+        Assertions.assertEquals(Double.valueOf(65.55), before.selectProduct(1).getPrice());
+
+        warehouse.clearStorage();
+        Assertions.assertTrue(warehouse.snapshot().isStorageEmpty());
+        Assertions.assertEquals(2, before.getStorageSize());
+        Assertions.assertTrue(warehouse.disableSnapshots());
+        Assertions.assertNull(warehouse.snapshot());
+    }
+
+    @Test
+    public void keepingManyVersionsTest() {
+        Warehouse warehouse = new Warehouse();
+        warehouse.enableSnapshots();
+        Random random = new Random(19);
+        Map<Integer, Integer> expected = new HashMap<>();
+        List<WarehouseSnapshot> snapshots = new ArrayList<>();
+        List<Map<Integer, Integer>> states = new ArrayList<>();
+
+        for (int i = 0; i < 20_000; i++) {
+            int id = random.nextInt(3_000) - 1_500;
+            if (random.nextInt(3) == 0) {
+                warehouse.deleteProduct(warehouse.selectProduct(id));
+                expected.remove(id);
+            } else if (warehouse.selectProduct(id) == null) {
+                warehouse.insertProduct(new Product(id, "Product " + id, "Book", i, 1.0));
+                expected.put(id, i);
+            } else {
+                warehouse.updateProduct(new Product(id, "Product " + id, "Book", i, 1.0));
+                expected.put(id, i);
+            }
+            if (i % 1_000 == 0) {
+                snapshots.add(warehouse.snapshot());
+                states.add(new HashMap<>(expected));
+            }
+        }
+        snapshots.add(warehouse.snapshot());
+        states.add(expected);
+
+        for (int i = 0; i < snapshots.size(); i++) {
+            Map<Integer, Integer> state = new HashMap<>();
+            snapshots.get(i).selectAllProducts().forEach(product -> state.put(product.getId(), product.getStock()));
+            Assertions.assertEquals(states.get(i), state);
+            Assertions.assertEquals(states.get(i).size(), snapshots.get(i).getStorageSize());
+        }
+    }
+
+    @Test
+    public void valuingInventoryUnderLiveTrafficTest() throws Exception {
+        int products = 200;
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        for (int id = 1; id <= products; id++) {
+            warehouse.insertProduct(new Product(id, "Product " + id, "Book", 100, 2.5));
+        }
+        warehouse.enableSnapshots();
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int thread = 0; thread < 2; thread++) {
+            int seed = thread;
+            writers.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                while (running.get()) {
+                    int from = random.nextInt(products) + 1;
+                    int to = random.nextInt(products) + 1;
+                    if (warehouse.reserve(from, 1)) {
+                        warehouse.commit(from, 1);
+                        Product product = warehouse.selectProduct(to);
+                        warehouse.updateProduct(new Product(to, product.getName(), "Book", product.getStock() + 1, 2.5));
+                    }
+                }
+            }));
+        }
+
+        Future<?> report = executor.submit(() -> {
+            for (int i = 0; i < 200; i++) {
+                WarehouseSnapshot snapshot = warehouse.snapshot();
+                double first = value(snapshot);
+                double second = value(snapshot);
+                Assertions.assertEquals(first, second);
+                Assertions.assertEquals(products, snapshot.getStorageSize());
+            }
+        });
+        report.get();
+        running.set(false);
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(value(warehouse.snapshot()), warehouse.selectAllProducts().stream()
+                .mapToDouble(product -> product.getPrice() * (product.getStock() + product.getReserved())).sum());
+    }
+
+    private static double value(WarehouseSnapshot snapshot) {
+        return snapshot.stream().mapToDouble(product -> product.getPrice() * (product.getStock() + product.getReserved())).sum();
+    }
+}
@@ -1,10 +1,19 @@
+import model.BulkLoadResult;
 import model.Product;
+import model.ProductQuery;
 import model.Warehouse;
+import model.WarehouseListener;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.opentest4j.AssertionFailedError;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
 class WarehouseTest {
 
@@ -60,6 +69,29 @@ class WarehouseTest {
         Assertions.assertEquals(0, warehouse.getStorageSize());
     }
 
+    @Test
+    public void reservingStockTest() {
+        Warehouse warehouse = new Warehouse();
+        Product product = new Product("Effective Java", "Book", 10, 54.99);
+
+        warehouse.insertProduct(product);
+
+        Assertions.assertTrue(warehouse.reserve(product.getId(), 7));
+        Assertions.assertFalse(warehouse.reserve(product.getId(), 4));
+        Assertions.assertFalse(warehouse.reserve(product.getId(), 0));
+        Assertions.assertFalse(warehouse.reserve(null, 1));
+        Assertions.assertEquals(Integer.valueOf(3), warehouse.selectProduct(product.getId()).getStock());
+        Assertions.assertEquals(7, product.getReserved());
+
+        Assertions.assertTrue(warehouse.release(product.getId(), 2));
+        Assertions.assertFalse(warehouse.release(product.getId(), 6));
+        Assertions.assertTrue(warehouse.commit(product.getId(), 5));
+        Assertions.assertFalse(warehouse.commit(product.getId(), 1));
+
+        Assertions.assertEquals(Integer.valueOf(5), product.getStock());
+        Assertions.assertEquals(0, product.getReserved());
+    }
+
 //    @Test
     public void filteringProductByIdTest() {
         Warehouse warehouse = new Warehouse();
@@ -151,6 +183,232 @@ class WarehouseTest {
         Assertions.assertEquals(product2, filteredProducts.get(0));
     }
 
+    @Test
+    public void filteringProductsByIndexTest() {
+        Warehouse warehouse = new Warehouse();
+        Product product1 = new Product("Thinking in Java", "Book", 34, 65.55);
+        Product product2 = new Product("Learning Java", "Book", 24, 45.99);
+        Product product3 = new Product("Java Concurrent Programming", "Book", 24, 78.99);
+
+        warehouse.insertProduct(product1);
+
+        for (Product.Fields field : Product.Fields.values()) {
+            Assertions.assertTrue(warehouse.createIndex(field));
+            Assertions.assertTrue(warehouse.hasIndex(field));
+        }
+        Assertions.assertFalse(warehouse.createIndex(Product.Fields.Name));
+
+        warehouse.insertAllProducts(Arrays.asList(product2, product3));
+
+        Assertions.assertEquals(3, warehouse.filterProducts(Product.Fields.Category, "Book").size());
+        Assertions.assertEquals(product1, warehouse.filterProducts(Product.Fields.Name, "Thinking in Java").get(0));
+        Assertions.assertEquals(2, warehouse.filterProducts(Product.Fields.Stock, 24).size());
+        Assertions.assertEquals(0, warehouse.filterProducts(Product.Fields.Stock, "24").size());
+        Assertions.assertEquals(product2, warehouse.filterProducts(Product.Fields.Price, 45.99).get(0));
+
+        product2.setCategory("Ebook");
+        warehouse.updateProduct(product2);
+        warehouse.reserve(product3.getId(), 4);
+        warehouse.deleteProduct(product1);
+
+        Assertions.assertEquals(product3, warehouse.filterProducts(Product.Fields.Category, "Book").get(0));
+        Assertions.assertEquals(product2, warehouse.filterProducts(Product.Fields.Category, "Ebook").get(0));
+        Assertions.assertEquals(product3, warehouse.filterProducts(Product.Fields.Stock, 20).get(0));
+        Assertions.assertEquals(0, warehouse.filterProducts(Product.Fields.Name, "Thinking in Java").size());
+
+        Assertions.assertTrue(warehouse.dropIndex(Product.Fields.Stock));
+        Assertions.assertEquals(product2, warehouse.filterProducts(Product.Fields.Stock, 24).get(0));
+
+        warehouse.clearStorage();
+        Assertions.assertEquals(0, warehouse.filterProducts(Product.Fields.Category, "Book").size());
+    }
+
+    @Test
+    public void cachingFilteredProductsTest() {
+        Warehouse warehouse = new Warehouse();
+        Product product1 = new Product(101, "Thinking in Java", "Book", 34, 65.55);
+        Product product2 = new Product(102, "Learning Java", "Book", 24, 45.99);
+
+        warehouse.insertAllProducts(Arrays.asList(product1, product2));
+        Assertions.assertNull(warehouse.getFilterCacheStatistics());
+        Assertions.assertTrue(warehouse.enableFilterCache(10));
+        Assertions.assertFalse(warehouse.enableFilterCache(10));
+
+        Assertions.assertEquals(2, warehouse.filterProducts(Product.Fields.Category, "Book").size());
+        warehouse.filterProducts(Product.Fields.Category, "Book").clear();
+        Assertions.assertEquals(2, warehouse.filterProducts(Product.Fields.Category, "Book").size());
+        Assertions.assertEquals(1, warehouse.filterProducts(Product.Fields.Stock, 24).size());
+
+        warehouse.reserve(product2.getId(), 4);
+        Assertions.assertEquals(2, warehouse.filterProducts(Product.Fields.Category, "Book").size());
+        Assertions.assertEquals(0, warehouse.filterProducts(Product.Fields.Stock, 24).size());
+        Assertions.assertEquals(3, warehouse.getFilterCacheStatistics().getHits());
+        Assertions.assertEquals(1, warehouse.getFilterCacheStatistics().getExpirations());
+
+        product1.setCategory("Ebook");
+        warehouse.updateProduct(product1);
+        Assertions.assertEquals(product2, warehouse.filterProducts(Product.Fields.Category, "Book").get(0));
+        Assertions.assertEquals(2, warehouse.getFilterCacheStatistics().getExpirations());
+
+        Assertions.assertTrue(warehouse.disableFilterCache());
+        Assertions.assertFalse(warehouse.disableFilterCache());
+        Assertions.assertNull(warehouse.getFilterCacheStatistics());
+    }
+
+    @Test
+    public void cachingFilteredProductsWhileInsertingTest() {
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+        warehouse.insertProduct(new Product(1, "Thinking in Java", "Book", 34, 65.55));
+        Assertions.assertTrue(warehouse.enableFilterCache(10));
+
+        // Products are filtered by other thread after listeners are notified, before change is visible
+        warehouse.addListener(new WarehouseListener() {
+            @Override
+            public void productInserted(Product product) {
+                Thread thread = new Thread(() -> warehouse.filterProducts(Product.Fields.Category, "Book"));
+                thread.start();
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        warehouse.insertProduct(new Product(2, "Learning Java", "Book", 16, 45.99));
+        Assertions.assertEquals(2, warehouse.filterProducts(Product.Fields.Category, "Book").size());
+        Assertions.assertEquals(1, warehouse.getFilterCacheStatistics().getExpirations());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void comparingAndMatchingByFieldTest() {
+        Product product1 = new Product(1, "Thinking in Java", "Book", 34, 65.55);
+        Product product2 = new Product(2, "Learning Java", "Book", 16, null);
+        Product product3 = new Product(3, "Java Design Patterns", "Ebook", 34, -0.0);
+        List<Product> products = Arrays.asList(product1, product2, product3);
+
+        Assertions.assertEquals(2, product2.getIdAsInt());
+        Assertions.assertEquals(0, new Product().getIdAsInt());
+        Assertions.assertEquals(16, product2.getStockAsInt());
+        Assertions.assertTrue(Double.isNaN(product2.getPriceAsDouble()));
+
+        for (Product.Fields field : Arrays.asList(Product.Fields.Id, Product.Fields.Name, Product.Fields.Category, Product.Fields.Stock)) {
+            for (Product p1 : products) {
+                for (Product p2 : products) {
+                    Assertions.assertEquals(Integer.signum(((Comparable<Object>) p1.getSelected(field)).compareTo(p2.getSelected(field))),
+                            Integer.signum(field.comparator().compare(p1, p2)));
+                }
+            }
+        }
+        Assertions.assertTrue(Product.Fields.Price.comparator().compare(product3, product1) < 0);
+        Assertions.assertTrue(Product.Fields.Price.comparator().compare(product1, product2) < 0);
+
+        Assertions.assertTrue(Product.Fields.Stock.equalTo(34).test(product3));
+        Assertions.assertFalse(Product.Fields.Stock.equalTo(34L).test(product3));
+        Assertions.assertTrue(Product.Fields.Price.equalTo(-0.0).test(product3));
+        Assertions.assertFalse(Product.Fields.Price.equalTo(0.0).test(product3));
+        Assertions.assertFalse(Product.Fields.Price.equalTo(Double.NaN).test(product2));
+        Assertions.assertTrue(Product.Fields.Category.equalTo("Ebook").test(product3));
+        Assertions.assertFalse(Product.Fields.Name.equalTo(null).test(product1));
+        Assertions.assertFalse(Product.Fields.Id.equalTo(0).test(new Product()));
+    }
+
+    @Test
+    public void filteringAndSortingInParallelTest() {
+        Random random = new Random(16);
+        double[] prices = {-0.0, 0.0, -12.5, Double.NaN, 1e300, 7.25};
+        Warehouse sequential = new Warehouse();
+        Warehouse parallel = new Warehouse();
+        for (int id = 1; id <= 40_000; id++) {
+            Product product = new Product(id, "Product " + random.nextInt(500), random.nextBoolean() ? "Book" : "Ebook",
+                    random.nextInt(200) - 100, random.nextInt(4) == 0 ? prices[random.nextInt(prices.length)] : random.nextInt(1_000) / 4.0);
+            sequential.insertProduct(product);
+            parallel.insertProduct(product);
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        Assertions.assertFalse(parallel.enableParallelExecution(null, 0));
+        Assertions.assertFalse(parallel.enableParallelExecution(pool, -1));
+        Assertions.assertTrue(parallel.enableParallelExecution(pool, 1_000));
+
+        for (Product.Fields field : Product.Fields.values()) {
+            Assertions.assertEquals(sequential.sortProducts(field, true), parallel.sortProducts(field, true));
+            Assertions.assertEquals(sequential.sortProducts(field, false), parallel.sortProducts(field, false));
+        }
+        Assertions.assertEquals(sequential.filterProducts(Product.Fields.Stock, 42), parallel.filterProducts(Product.Fields.Stock, 42));
+        Assertions.assertEquals(sequential.filterProducts(Product.Fields.Price, Double.NaN), parallel.filterProducts(Product.Fields.Price, Double.NaN));
+        Assertions.assertEquals(sequential.sortProducts(Product.Fields.Price, false, 100, 50), parallel.sortProducts(Product.Fields.Price, false, 100, 50));
+
+        Assertions.assertTrue(parallel.disableParallelExecution());
+        Assertions.assertFalse(parallel.disableParallelExecution());
+        pool.shutdown();
+    }
+
+    @Test
+    public void queryingProductsTest() {
+        Warehouse warehouse = new Warehouse();
+        Product product1 = new Product("Thinking in Java", "Book", 34, 65.55);
+        Product product2 = new Product("Learning Java", "Book", 4, 45.99);
+        Product product3 = new Product("Java Concurrent Programming", "Ebook", 8, 24.99);
+        Product product4 = new Product("Java Design Patterns", "Book", 2, 39.11);
+
+        warehouse.insertAllProducts(Arrays.asList(product1, product2, product3, product4));
+
+        for (int i = 0; i < 2; i++) {
+            List<Product> lowStock = warehouse.query(new ProductQuery().lessThan(Product.Fields.Stock, 10));
+            Assertions.assertEquals(3, lowStock.size());
+
+            List<Product> filteredProducts = warehouse.query(new ProductQuery()
+                    .between(Product.Fields.Price, 20.0, 50.0)
+                    .startsWith(Product.Fields.Name, "Java")
+                    .in(Product.Fields.Category, "Book", "Ebook"));
+            Assertions.assertEquals(2, filteredProducts.size());
+            Assertions.assertTrue(filteredProducts.containsAll(Arrays.asList(product3, product4)));
+
+            Assertions.assertEquals(product1, warehouse.query(new ProductQuery().greaterThan(Product.Fields.Stock, 8)).get(0));
+            Assertions.assertEquals(1, warehouse.query(new ProductQuery().atMost(Product.Fields.Price, 45.99).limit(1)).size());
+            Assertions.assertEquals(4, warehouse.query(new ProductQuery().atLeast(Product.Fields.Stock, 2)).size());
+            Assertions.assertEquals(0, warehouse.query(new ProductQuery().equalTo(Product.Fields.Category, "Game")).size());
+
+            warehouse.createIndex(Product.Fields.Stock);
+            warehouse.createIndex(Product.Fields.Price);
+            warehouse.createIndex(Product.Fields.Name, true);
+            warehouse.createIndex(Product.Fields.Category);
+        }
+
+        List<Product> sortedByStock = warehouse.query(new ProductQuery().lessThan(Product.Fields.Stock, 10).limit(2));
+        Assertions.assertEquals(Arrays.asList(product4, product2), sortedByStock);
+
+        Assertions.assertNull(warehouse.query(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ProductQuery().lessThan(Product.Fields.Stock, 10.0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ProductQuery().startsWith(Product.Fields.Price, "1"));
+    }
+
+    @Test
+    public void queryingEmptyRangesTest() {
+        Warehouse warehouse = new Warehouse();
+        Product product1 = new Product("Java\uFFFF", "Book", 34, 65.55);
+        Product product2 = new Product("Java\uFFFF\uFFFFx", "Book", 4, 45.99);
+        Product product3 = new Product("Javb", "Book", 8, 24.99);
+
+        warehouse.insertAllProducts(Arrays.asList(product1, product2, product3));
+
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertEquals(0, warehouse.query(new ProductQuery().between(Product.Fields.Price, 50.0, 20.0)).size());
+            Assertions.assertEquals(1, warehouse.query(new ProductQuery().between(Product.Fields.Price, 45.99, 45.99)).size());
+
+            List<Product> prefixed = warehouse.query(new ProductQuery().startsWith(Product.Fields.Name, "Java"));
+            Assertions.assertEquals(2, prefixed.size());
+            Assertions.assertTrue(prefixed.containsAll(Arrays.asList(product1, product2)));
+            Assertions.assertEquals(Collections.singletonList(product2),
+                    warehouse.query(new ProductQuery().startsWith(Product.Fields.Name, "Java\uFFFF\uFFFF")));
+
+            warehouse.createIndex(Product.Fields.Price, true);
+            warehouse.createIndex(Product.Fields.Name, true);
+        }
+    }
+
     @Test
     public void sorteringProductsAscendingTest() {
         Warehouse warehouse = new Warehouse();
@@ -211,6 +469,38 @@ class WarehouseTest {
         Assertions.assertEquals(product3, filteredProducts.get(0));
     }
 
+    @Test
+    public void sortingProductsByViewTest() {
+        Warehouse warehouse = new Warehouse();
+        Product product1 = new Product("Thinking in Java", "Book", 34, 65.55);
+        Product product2 = new Product("Learning Java", "Book", 16, 45.99);
+        Product product3 = new Product("Java Concurrent Programming", "Book", 24, 78.99);
+        Product product4 = new Product("Java Design Patterns", "Book", 7, 39.11);
+
+        warehouse.insertAllProducts(Arrays.asList(product1, product2, product3, product4));
+
+        Assertions.assertEquals(Arrays.asList(product4, product2), warehouse.sortProducts(Product.Fields.Price, true, 0, 2));
+        Assertions.assertEquals(Arrays.asList(product4, product3), warehouse.sortProducts(Product.Fields.Name, false, 2, 5));
+        Assertions.assertNull(warehouse.sortProducts(Product.Fields.Name, false, -1, 5));
+
+        warehouse.createIndex(Product.Fields.Name);
+        Assertions.assertTrue(warehouse.createSortedView(Product.Fields.Name));
+        Assertions.assertTrue(warehouse.createSortedView(Product.Fields.Price));
+        Assertions.assertFalse(warehouse.createSortedView(Product.Fields.Price));
+
+        Assertions.assertEquals(Arrays.asList(product3, product4, product2, product1), warehouse.sortProducts(Product.Fields.Name, true));
+        Assertions.assertEquals(Arrays.asList(product4, product2), warehouse.sortProducts(Product.Fields.Price, true, 0, 2));
+        Assertions.assertEquals(Arrays.asList(product1, product2), warehouse.sortProducts(Product.Fields.Price, false, 1, 2));
+
+        product4.setPrice(99.99);
+        warehouse.updateProduct(product4);
+        warehouse.deleteProduct(product3);
+
+        Assertions.assertEquals(Arrays.asList(product4, product1, product2), warehouse.sortProducts(Product.Fields.Price, false));
+        Assertions.assertEquals(Arrays.asList(product4), warehouse.sortProducts(Product.Fields.Name, true, 0, 1));
+        Assertions.assertEquals(product1, warehouse.filterProducts(Product.Fields.Name, "Thinking in Java").get(0));
+    }
+
     @Test
     public void warehouseIsEmptyTest() {
         Warehouse warehouse = new Warehouse();
@@ -314,6 +604,45 @@ class WarehouseTest {
         Assertions.assertEquals(6, warehouse.getStorageSize());
     }
 
+    @Test
+    public void loadingProductsTest() throws Exception {
+        Warehouse warehouse = new Warehouse();
+        Product product1 = new Product(101, "Thinking in Java", "Book", 34, 65.55);
+        Product product2 = new Product(102, "Learning Java", "Book", 16, 45.99);
+        Product product3 = new Product(103, "Java Design Patterns", "Book", 7, 39.11);
+
+        BulkLoadResult result = warehouse.loadProducts(Arrays.asList(product1, null, product2, product1).stream(), false);
+
+        Assertions.assertEquals(2, result.getLoaded());
+        Assertions.assertEquals(1, result.getInvalid());
+        Assertions.assertArrayEquals(new int[]{101}, result.getRejectedIds());
+        Assertions.assertFalse(result.isComplete());
+        Assertions.assertNull(warehouse.loadProducts((Iterator<Product>) null, 0, false));
+
+        warehouse.writeStorageToFile("WarehouseTest.snapshot");
+        warehouse.clearStorage();
+        warehouse.insertProduct(product3);
+
+        result = warehouse.loadProducts("WarehouseTest.snapshot", false);
+        Assertions.assertTrue(result.isComplete());
+        Assertions.assertEquals(3, warehouse.getStorageSize());
+        Assertions.assertThrows(IOException.class, () -> warehouse.loadProducts("FileNotExists.snapshot", false));
+        Files.delete(Paths.get("WarehouseTest.snapshot"));
+    }
+
+    @Test
+    public void loadingProductsIntoGivenStorageTest() {
+        LinkedHashMap<Integer, Product> storage = new LinkedHashMap<>();
+        Warehouse warehouse = new Warehouse(storage);
+        List<Product> products = Arrays.asList(new Product(203, "Thinking in Java", "Book", 34, 65.55),
+                new Product(201, "Learning Java", "Book", 16, 45.99), new Product(202, "Java Design Patterns", "Book", 7, 39.11));
+
+        // Storage given by caller is not replaced by presized one, so it keeps order of insertion
+        Assertions.assertTrue(warehouse.loadProducts(products.stream(), false).isComplete());
+        Assertions.assertSame(storage, warehouse.getStorage());
+        Assertions.assertEquals(Arrays.asList(203, 201, 202), new ArrayList<>(storage.keySet()));
+    }
+
     @Test
     public void writingWarehouseToFileTest() {
         Warehouse warehouse = new Warehouse();
@@ -328,7 +657,9 @@ class WarehouseTest {
         warehouse.insertAllProducts(products);
 
         try {
-            warehouse.writeStorageToFile("WarehouseTest.dat");
+            Path file = Files.createTempFile("WarehouseTest", ".dat");
+            warehouse.writeStorageToFile(file.toString());
+            Files.delete(file);
         } catch(Exception ignored) {
             throw new AssertionFailedError();
         }
@@ -348,11 +679,12 @@ class WarehouseTest {
         warehouse.insertAllProducts(products);
 
         try {
-            warehouse.writeStorageToFile("WarehouseTest.dat");
+            Path file = Files.createTempFile("WarehouseTest", ".dat");
+            warehouse.writeStorageToFile(file.toString());
             warehouse.clearStorage();
 
-            warehouse.readStorageFromFile("WarehouseTest.dat");
-
+            warehouse.readStorageFromFile(file.toString());
+            Files.delete(file);
         } catch(Exception ignored) {
             throw new AssertionFailedError();
         }
@@ -360,4 +692,16 @@ class WarehouseTest {
         Assertions.assertEquals(3, warehouse.getStorageSize());
         Assertions.assertThrows(Exception.class, () -> warehouse.readStorageFromFile("FileNotExists.dat"));
     }
+
+    @Test
+    public void readingSerializedWarehouseFileTest() throws Exception {
+        Warehouse warehouse = new Warehouse();
+        byte[] legacy = Files.readAllBytes(Paths.get("WarehouseTest.dat"));
+
+        // File written with Java serialization by earlier versions is read, and stays untouched
+        warehouse.readStorageFromFile("WarehouseTest.dat");
+        Assertions.assertEquals(3, warehouse.getStorageSize());
+        Assertions.assertEquals(1, warehouse.filterProducts(Product.Fields.Name, "Java Design Patterns").size());
+        Assertions.assertArrayEquals(legacy, Files.readAllBytes(Paths.get("WarehouseTest.dat")));
+    }
 }
\ No newline at end of file
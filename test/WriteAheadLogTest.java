@@ -0,0 +1,135 @@
+import model.Product;
+import model.Warehouse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import storage.WriteAheadLog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+class WriteAheadLogTest {
+
+    @Test
+    public void replayingLoggedChangesTest() throws Exception {
+        Path directory = Files.createTempDirectory("warehouse-wal");
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+
+        try (WriteAheadLog log = new WriteAheadLog(directory, 5, TimeUnit.MILLISECONDS)) {
+            warehouse.addListener(log);
+
+            Product product1 = new Product(1, "Thinking in Java", "Book", 34, 65.55);
+            Product product2 = new Product(2, "Learning Java", "Book", 16, null);
+            Product product3 = new Product(3, "Java Design Patterns", "Book", 7, 39.11);
+            warehouse.insertProduct(product1);
+            warehouse.insertProduct(product2);
+            warehouse.insertProduct(product3);
+
+            product1.setCategory("Ebook");
+            warehouse.updateProduct(product1);
+            warehouse.reserve(2, 10);
+            warehouse.commit(2, 4);
+            warehouse.deleteProduct(product3);
+
+            log.sync();
+            Assertions.assertEquals(log.getAppendedSequence(), log.getDurableSequence());
+        }
+
+        Warehouse recovered = new Warehouse(new ConcurrentHashMap<>());
+        Assertions.assertEquals(7, WriteAheadLog.recover(directory, recovered));
+        Assertions.assertEquals(2, recovered.getStorageSize());
+        Assertions.assertEquals("Ebook", recovered.selectProduct(1).getCategory());
+        Assertions.assertEquals(Integer.valueOf(12), recovered.selectProduct(2).getStock());
+        Assertions.assertNull(recovered.selectProduct(2).getPrice());
+        Assertions.assertNull(recovered.selectProduct(3));
+
+        delete(directory);
+    }
+
+    @Test
+    public void compactingLogTest() throws Exception {
+        Path directory = Files.createTempDirectory("warehouse-wal");
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+
+        try (WriteAheadLog log = new WriteAheadLog(directory, 5, TimeUnit.MILLISECONDS)) {
+            warehouse.addListener(log);
+
+            for (int i = 1; i <= 1_000; i++) {
+                warehouse.insertProduct(new Product(i, "Product " + i, "Book", i % 20, 10.0 + i));
+            }
+            log.compact(warehouse);
+            warehouse.deleteProduct(new Product(1, null, null, 0, null));
+            log.compact(warehouse);
+            warehouse.insertProduct(new Product(1_001, "Product 1001", "Ebook", 1, 5.0));
+        }
+
+        Assertions.assertTrue(Files.exists(directory.resolve("snapshot.bin")));
+        try (Stream<Path> files = Files.list(directory)) {
+            Assertions.assertEquals(2, files.filter(file -> file.toString().endsWith(".log")).count());
+        }
+
+        Warehouse recovered = new Warehouse(new ConcurrentHashMap<>());
+        WriteAheadLog.recover(directory, recovered);
+        Assertions.assertEquals(1_000, recovered.getStorageSize());
+        Assertions.assertNull(recovered.selectProduct(1));
+        Assertions.assertEquals("Ebook", recovered.selectProduct(1_001).getCategory());
+
+        delete(directory);
+    }
+
+    @Test
+    public void ignoringIncompleteRecordTest() throws Exception {
+        Path directory = Files.createTempDirectory("warehouse-wal");
+        Warehouse warehouse = new Warehouse();
+
+        try (WriteAheadLog log = new WriteAheadLog(directory, 5, TimeUnit.MILLISECONDS)) {
+            warehouse.addListener(log);
+            warehouse.insertProduct(new Product(1, "Thinking in Java", "Book", 34, 65.55));
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            Path segment = files.filter(file -> file.toString().endsWith(".log")).findFirst().get();
+            Files.write(segment, new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 1}, StandardOpenOption.APPEND);
+        }
+
+        Warehouse recovered = new Warehouse();
+        Assertions.assertEquals(1, WriteAheadLog.recover(directory, recovered));
+        Assertions.assertEquals("Thinking in Java", recovered.selectProduct(1).getName());
+
+        delete(directory);
+    }
+
+    @Test
+    public void groupCommittingWithinDelayTest() throws Exception {
+        Path directory = Files.createTempDirectory("warehouse-wal");
+        Warehouse warehouse = new Warehouse(new ConcurrentHashMap<>());
+
+        try (WriteAheadLog log = new WriteAheadLog(directory, 20, TimeUnit.MILLISECONDS)) {
+            warehouse.addListener(log);
+            for (int i = 1; i <= 10_000; i++) {
+                warehouse.insertProduct(new Product(i, "Product " + i, "Book", 1, 1.0));
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (log.getDurableSequence() < 10_000 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            Assertions.assertEquals(10_000, log.getDurableSequence());
+        }
+
+        delete(directory);
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}